@@ -0,0 +1,100 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.security.history.EventLog;
+import com.udacity.catpoint.security.history.HistoryState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Rebuilds the latest state of an {@link EventLog} without snapshots, so every call replays the
+ * whole log. Dividing the event count by the time per call gives the replay rate, which should
+ * stay above two million events per second.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventLogBenchmark {
+
+    @Param({"500000"})
+    private int eventCount;
+
+    private Path directory;
+    private EventLog eventLog;
+    private Instant end;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("catpoint-event-log");
+        SteppingClock clock = new SteppingClock();
+        //no snapshots, so replay always starts from the beginning of the log
+        eventLog = new EventLog(directory, clock, Integer.MAX_VALUE);
+        UUID[] sensors = new UUID[64];
+        for (int i = 0; i < sensors.length; i++) {
+            sensors[i] = UUID.randomUUID();
+        }
+        for (int i = 0; i < eventCount; i++) {
+            clock.now = clock.now.plusMillis(3);
+            eventLog.sensorChanged(sensors[i % sensors.length], (i / sensors.length) % 2 == 0);
+        }
+        end = clock.now;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        eventLog.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public HistoryState stateAt() {
+        return eventLog.stateAt(end);
+    }
+
+    private static final class SteppingClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
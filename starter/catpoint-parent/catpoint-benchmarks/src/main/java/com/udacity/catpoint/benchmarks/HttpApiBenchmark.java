@@ -0,0 +1,101 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.server.CatpointHttpServer;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sensor toggles sent to {@link CatpointHttpServer} over loopback by 32 concurrent threads, each
+ * toggling a sensor of its own while the system is armed. The threads share one HTTP client and
+ * its connection pool. Sample time mode reports the latency percentiles, p99 included, and the
+ * throughput mode the requests per second.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class HttpApiBenchmark {
+
+    private static final int SENSORS = 32;
+
+    private SecurityService securityService;
+    private CatpointHttpServer server;
+    private Sensor[] sensors;
+    private HttpClient http;
+    private final AtomicInteger nextSensor = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        securityService = new SecurityService(new InMemorySecurityRepository(), (image, confidenceThreshold) -> false);
+        sensors = new Sensor[SENSORS];
+        for (int i = 0; i < SENSORS; i++) {
+            sensors[i] = new Sensor("Sensor " + i, SensorType.DOOR);
+            securityService.addSensor(sensors[i]);
+        }
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        server = new CatpointHttpServer(securityService, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public int toggleSensor(SensorRequests requests) throws IOException, InterruptedException {
+        requests.active = !requests.active;
+        HttpRequest request = requests.toggle[requests.active ? 1 : 0];
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /**
+     * The sensor of one benchmark thread, with its two requests built up front.
+     */
+    @State(Scope.Thread)
+    public static class SensorRequests {
+        private HttpRequest[] toggle;
+        private boolean active;
+
+        @Setup(Level.Trial)
+        public void setUp(HttpApiBenchmark benchmark) {
+            Sensor sensor = benchmark.sensors[benchmark.nextSensor.getAndIncrement() % SENSORS];
+            InetSocketAddress address = benchmark.server.getAddress();
+            URI uri = URI.create("http://" + address.getHostString() + ":" + address.getPort()
+                    + "/sensors/" + sensor.getSensorId() + "/active");
+            toggle = new HttpRequest[] {
+                    HttpRequest.newBuilder(uri).PUT(HttpRequest.BodyPublishers.ofString("{\"active\": false}")).build(),
+                    HttpRequest.newBuilder(uri).PUT(HttpRequest.BodyPublishers.ofString("{\"active\": true}")).build()
+            };
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.image.AwsImageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.rekognition.RekognitionClient;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Preparing a Rekognition request in {@link AwsImageService}: JPEG encoding of a camera frame and
+ * building the request, with a client that answers immediately. {@code imageIoWrite} is the plain
+ * {@link ImageIO#write} encoding the service used before it pooled its encoders.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ImageEncodingBenchmark {
+
+    @Param({"640x480", "1280x960"})
+    private String size;
+
+    private BufferedImage frame;
+    private AwsImageService imageService;
+
+    @Setup
+    public void setUp() {
+        String[] dimensions = size.split("x");
+        frame = cameraFrame(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]));
+        imageService = new AwsImageService(new StubRekognitionClient(), 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        imageService.close();
+    }
+
+    @Benchmark
+    public boolean awsImageServiceRequest() {
+        return imageService.imageContainsCat(frame, 50.0f);
+    }
+
+    @Benchmark
+    public byte[] imageIoWrite() throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ImageIO.write(frame, "jpg", os);
+        return os.toByteArray();
+    }
+
+    /**
+     * Smooth gradients with some noise, which compresses roughly like a real camera frame.
+     */
+    static BufferedImage cameraFrame(int width, int height) {
+        Random random = new Random(1);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(16);
+                int r = (x * 200 / width + noise) & 0xFF;
+                int g = (y * 200 / height + noise) & 0xFF;
+                int b = ((x + y) * 100 / (width + height) + noise) & 0xFF;
+                image.setRGB(x, y, r << 16 | g << 8 | b);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Answers every request with no labels, without any network access.
+     */
+    private static final class StubRekognitionClient implements RekognitionClient {
+
+        private static final DetectLabelsResponse NO_LABELS = DetectLabelsResponse.builder().build();
+
+        @Override
+        public DetectLabelsResponse detectLabels(DetectLabelsRequest detectLabelsRequest) {
+            return NO_LABELS;
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.image.ImagePreprocessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ImagePreprocessor} against the same box-average shrink written with per-pixel
+ * {@link BufferedImage#getRGB(int, int)}, the way the image services read frames otherwise.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ImagePreprocessingBenchmark {
+
+    private static final int TARGET_WIDTH = 320;
+    private static final int TARGET_HEIGHT = 240;
+
+    @Param({"TYPE_3BYTE_BGR", "TYPE_INT_RGB"})
+    private String imageType;
+
+    @Param({"false", "true"})
+    private boolean grayscale;
+
+    private BufferedImage frame;
+    private ImagePreprocessor preprocessor;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        BufferedImage source = ImageEncodingBenchmark.cameraFrame(1280, 960);
+        int type = BufferedImage.class.getField(imageType).getInt(null);
+        frame = new BufferedImage(source.getWidth(), source.getHeight(), type);
+        frame.createGraphics().drawImage(source, 0, 0, null);
+        preprocessor = new ImagePreprocessor(TARGET_WIDTH, TARGET_HEIGHT, grayscale);
+    }
+
+    @Benchmark
+    public BufferedImage preprocessor() {
+        return preprocessor.process(frame);
+    }
+
+    @Benchmark
+    public BufferedImage perPixelGetRgb() {
+        int boxWidth = frame.getWidth() / TARGET_WIDTH;
+        int boxHeight = frame.getHeight() / TARGET_HEIGHT;
+        BufferedImage target = new BufferedImage(TARGET_WIDTH, TARGET_HEIGHT,
+                grayscale ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB);
+        for (int ty = 0; ty < TARGET_HEIGHT; ty++) {
+            for (int tx = 0; tx < TARGET_WIDTH; tx++) {
+                int r = 0;
+                int g = 0;
+                int b = 0;
+                for (int y = ty * boxHeight; y < (ty + 1) * boxHeight; y++) {
+                    for (int x = tx * boxWidth; x < (tx + 1) * boxWidth; x++) {
+                        int rgb = frame.getRGB(x, y);
+                        r += (rgb >> 16) & 0xFF;
+                        g += (rgb >> 8) & 0xFF;
+                        b += rgb & 0xFF;
+                    }
+                }
+                int count = boxWidth * boxHeight;
+                if (grayscale) {
+                    int level = ((r / count) * 299 + (g / count) * 587 + (b / count) * 114) / 1000;
+                    target.getRaster().setSample(tx, ty, 0, level);
+                } else {
+                    target.setRGB(tx, ty, (r / count) << 16 | (g / count) << 8 | (b / count));
+                }
+            }
+        }
+        return target;
+    }
+}
@@ -0,0 +1,141 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.Zone;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Repository that keeps its state in memory only, so service benchmarks measure the service
+ * rather than the storage.
+ */
+class InMemorySecurityRepository implements SecurityRepository {
+
+    private final Set<Sensor> sensors = new TreeSet<>();
+    //the sensors again by id, since the set is ordered by name
+    private final Map<UUID, Sensor> sensorsById = new HashMap<>();
+    private final Map<UUID, Sensor> activeSensors = new HashMap<>();
+    private final Map<UUID, Zone> zones = new HashMap<>();
+    private final Map<UUID, UUID> sensorZones = new HashMap<>();
+    private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        sensors.add(sensor);
+        index(sensor);
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        sensors.remove(sensor);
+        sensorsById.remove(sensor.getSensorId());
+        activeSensors.remove(sensor.getSensorId());
+        sensorZones.remove(sensor.getSensorId());
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        sensors.remove(sensor);
+        sensors.add(sensor);
+        index(sensor);
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+    }
+
+    @Override
+    public synchronized Set<Sensor> getSensors() {
+        return Collections.unmodifiableSet(new TreeSet<>(sensors));
+    }
+
+    @Override
+    public synchronized Sensor getSensor(UUID sensorId) {
+        return sensorsById.get(sensorId);
+    }
+
+    @Override
+    public synchronized AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public synchronized ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    @Override
+    public synchronized int activeSensorCount() {
+        return activeSensors.size();
+    }
+
+    @Override
+    public synchronized Set<Sensor> getActiveSensors() {
+        return Set.copyOf(activeSensors.values());
+    }
+
+    @Override
+    public synchronized boolean isActive(UUID sensorId) {
+        return activeSensors.containsKey(sensorId);
+    }
+
+    @Override
+    public synchronized Set<Zone> getZones() {
+        Set<Zone> copies = new HashSet<>();
+        zones.values().forEach(zone -> copies.add(new Zone(zone)));
+        return copies;
+    }
+
+    @Override
+    public synchronized void saveZone(Zone zone) {
+        zones.put(zone.getZoneId(), new Zone(zone));
+    }
+
+    @Override
+    public synchronized void removeZone(Zone zone) {
+        zones.remove(zone.getZoneId());
+        sensorZones.values().removeIf(zone.getZoneId()::equals);
+    }
+
+    @Override
+    public synchronized Map<UUID, UUID> getSensorZones() {
+        return Map.copyOf(sensorZones);
+    }
+
+    @Override
+    public synchronized void setSensorZone(Sensor sensor, UUID zoneId) {
+        if (!sensorsById.containsKey(sensor.getSensorId())) {
+            throw new IllegalArgumentException("No sensor with id " + sensor.getSensorId());
+        }
+        if (zoneId == null) {
+            sensorZones.remove(sensor.getSensorId());
+        } else {
+            sensorZones.put(sensor.getSensorId(), zoneId);
+        }
+    }
+
+    private void index(Sensor sensor) {
+        sensorsById.put(sensor.getSensorId(), sensor);
+        if (Boolean.TRUE.equals(sensor.getActive())) {
+            activeSensors.put(sensor.getSensorId(), sensor);
+        } else {
+            activeSensors.remove(sensor.getSensorId());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.image.LocalCatClassifierImageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LocalCatClassifierImageService} on camera-sized frames, in frames per second. The
+ * classifier is meant to keep up with at least 200 frames per second of 640x480 input on one core.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LocalCatClassifierBenchmark {
+
+    @Param({"640x480", "1280x960"})
+    private String size;
+
+    private BufferedImage frame;
+    private LocalCatClassifierImageService imageService;
+
+    @Setup
+    public void setUp() {
+        String[] dimensions = size.split("x");
+        frame = ImageEncodingBenchmark.cameraFrame(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]));
+        imageService = new LocalCatClassifierImageService();
+    }
+
+    @Benchmark
+    public double catProbability() {
+        return imageService.catProbability(frame);
+    }
+}
@@ -0,0 +1,97 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * Writes through {@link PretendDatabaseSecurityRepositoryImpl}, which serializes every sensor on
+ * each sensor change. Each trial uses its own preferences node, removed afterwards.
+ *
+ * The sensor counts stop at 50 so the results stay comparable with those taken when sensors were
+ * stored as JSON, which exceeded the 8192 character limit of a preferences value at around 75 sensors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PersistenceBenchmark {
+
+    @Param({"10", "25", "50"})
+    private int sensorCount;
+
+    private Preferences node;
+    private PretendDatabaseSecurityRepositoryImpl repository;
+    private List<Sensor> sensors;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        node = Preferences.userRoot().node("catpoint-benchmarks/" + UUID.randomUUID());
+        repository = new PretendDatabaseSecurityRepositoryImpl(node);
+        sensors = new ArrayList<>(sensorCount);
+        SensorType[] types = SensorType.values();
+        for (int i = 0; i < sensorCount; i++) {
+            Sensor sensor = new Sensor("Sensor " + i, types[i % types.length]);
+            sensors.add(sensor);
+            repository.addSensor(sensor);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws BackingStoreException {
+        node.removeNode();
+        node.flush();
+    }
+
+    @Benchmark
+    public void updateSensor() {
+        Sensor sensor = sensors.get(next);
+        next = (next + 1) % sensorCount;
+        sensor.setActive(!sensor.getActive());
+        repository.updateSensor(sensor);
+    }
+
+    @Benchmark
+    public void updateSensors() {
+        for (Sensor sensor : sensors) {
+            sensor.setActive(!sensor.getActive());
+        }
+        repository.updateSensors(sensors);
+    }
+
+    @Benchmark
+    public void setAlarmStatus() {
+        repository.setAlarmStatus(next++ % 2 == 0 ? AlarmStatus.PENDING_ALARM : AlarmStatus.NO_ALARM);
+    }
+
+    /**
+     * Loading parses the stored JSON back into sensors.
+     */
+    @Benchmark
+    public PretendDatabaseSecurityRepositoryImpl load() {
+        return new PretendDatabaseSecurityRepositoryImpl(node);
+    }
+}
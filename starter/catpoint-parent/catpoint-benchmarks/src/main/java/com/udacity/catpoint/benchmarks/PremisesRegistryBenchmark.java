@@ -0,0 +1,81 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.PremisesRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sensor changes for many premises submitted to a {@link PremisesRegistry}, at increasing numbers
+ * of shards. Each call changes one sensor of every premises and waits for all of the changes, so
+ * the time per call falls as shards are added until the cores or the submitting thread run out.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PremisesRegistryBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    private int shardCount;
+
+    @Param({"1000"})
+    private int premisesCount;
+
+    private PremisesRegistry registry;
+    private String[] premisesIds;
+    //only touched on the shard threads, through the registry
+    private Sensor[] sensors;
+    private boolean activate = true;
+
+    @Setup
+    public void setUp() {
+        registry = new PremisesRegistry(shardCount, premisesId -> new InMemorySecurityRepository(),
+                (image, confidenceThreshold) -> false);
+        premisesIds = new String[premisesCount];
+        sensors = new Sensor[premisesCount];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[premisesCount];
+        for (int i = 0; i < premisesCount; i++) {
+            premisesIds[i] = "premises-" + i;
+            Sensor sensor = new Sensor("Front Door", SensorType.DOOR);
+            sensors[i] = sensor;
+            futures[i] = registry.execute(premisesIds[i], securityService -> {
+                securityService.addSensor(sensor);
+                securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+            });
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    @TearDown
+    public void tearDown() {
+        registry.close();
+    }
+
+    @Benchmark
+    public void changeSensorActivationStatus() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[premisesCount];
+        for (int i = 0; i < premisesCount; i++) {
+            futures[i] = registry.changeSensorActivationStatus(premisesIds[i], sensors[i], activate);
+        }
+        CompletableFuture.allOf(futures).join();
+        activate = !activate;
+    }
+}
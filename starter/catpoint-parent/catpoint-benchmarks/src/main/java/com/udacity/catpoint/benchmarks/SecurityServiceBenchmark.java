@@ -0,0 +1,118 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorEvent;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sensor and arming changes on a {@link SecurityService} backed by an in-memory repository, at
+ * increasing numbers of sensors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SecurityServiceBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int sensorCount;
+
+    private InMemorySecurityRepository repository;
+    private SecurityService securityService;
+    private Sensor[] sensors;
+    private int next;
+    //every sensor switched on, then every sensor switched off again
+    private List<SensorEvent> activations;
+    private List<SensorEvent> deactivations;
+    private boolean activate = true;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemorySecurityRepository();
+        securityService = new SecurityService(repository, (image, confidenceThreshold) -> false);
+        sensors = new Sensor[sensorCount];
+        SensorType[] types = SensorType.values();
+        for (int i = 0; i < sensorCount; i++) {
+            sensors[i] = new Sensor("Sensor " + i, types[i % types.length]);
+            securityService.addSensor(sensors[i]);
+        }
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        activations = new ArrayList<>(sensorCount);
+        deactivations = new ArrayList<>(sensorCount);
+        for (Sensor sensor : sensors) {
+            activations.add(new SensorEvent(sensor, true));
+            deactivations.add(new SensorEvent(sensor, false));
+        }
+    }
+
+    /**
+     * Activates and later deactivates each sensor in turn, so the alarm moves through pending,
+     * alarm and back as the active count changes.
+     */
+    @Benchmark
+    public void changeSensorActivationStatus() {
+        Sensor sensor = sensors[next];
+        next = (next + 1) % sensorCount;
+        securityService.changeSensorActivationStatus(sensor, !sensor.getActive());
+    }
+
+    /**
+     * Switches every sensor on, or every sensor off, as one batch. Compare with
+     * {@link #changeSensorActivationStatusLoop}, which applies the same events one call at a time.
+     */
+    @Benchmark
+    public void changeSensorActivationStatuses() {
+        securityService.changeSensorActivationStatuses(activate ? activations : deactivations);
+        activate = !activate;
+    }
+
+    @Benchmark
+    public void changeSensorActivationStatusLoop() {
+        for (SensorEvent event : activate ? activations : deactivations) {
+            securityService.changeSensorActivationStatus(event.sensor(), event.active());
+        }
+        activate = !activate;
+    }
+
+    /**
+     * Arming home resets every sensor, so all of them are activated again before each call.
+     * The setup is per invocation, which is acceptable here as each call does work proportional
+     * to the sensor count.
+     */
+    @Benchmark
+    public void setArmingStatus(ActiveSensors activeSensors) {
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+    }
+
+    @State(Scope.Thread)
+    public static class ActiveSensors {
+        @Setup(Level.Invocation)
+        public void activateAll(SecurityServiceBenchmark benchmark) {
+            for (Sensor sensor : benchmark.sensors) {
+                sensor.setActive(true);
+                benchmark.repository.updateSensor(sensor);
+            }
+        }
+    }
+}
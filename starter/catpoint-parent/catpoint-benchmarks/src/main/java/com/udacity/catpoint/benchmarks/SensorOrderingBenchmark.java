@@ -0,0 +1,94 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Sensor#compareTo} and the sorted sets built on it. Names share a long prefix, as
+ * sensor names in one premises tend to, so comparisons have to look past it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SensorOrderingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int sensorCount;
+
+    private List<Sensor> shuffled;
+    private TreeSet<Sensor> sorted;
+    private Sensor[] probes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SensorType[] types = SensorType.values();
+        shuffled = new ArrayList<>(sensorCount);
+        for (int i = 0; i < sensorCount; i++) {
+            //some names repeat so that the type and id tie-breakers are exercised too
+            shuffled.add(new Sensor("Ground floor sensor " + i % (sensorCount / 2 + 1), types[i % types.length]));
+        }
+        Collections.shuffle(shuffled, new Random(42));
+        sorted = new TreeSet<>(shuffled);
+        probes = shuffled.toArray(new Sensor[0]);
+    }
+
+    @Benchmark
+    public int compareTo() {
+        Sensor a = probes[next];
+        next = (next + 1) % sensorCount;
+        return a.compareTo(probes[next]);
+    }
+
+    @Benchmark
+    public TreeSet<Sensor> buildTreeSet() {
+        return new TreeSet<>(shuffled);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        Sensor probe = probes[next];
+        next = (next + 1) % sensorCount;
+        return sorted.contains(probe);
+    }
+
+    /**
+     * Remove and re-add, as the repositories do when a sensor is updated.
+     */
+    @Benchmark
+    public boolean reinsert() {
+        Sensor probe = probes[next];
+        next = (next + 1) % sensorCount;
+        sorted.remove(probe);
+        return sorted.add(probe);
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        for (Sensor sensor : sorted) {
+            blackhole.consume(sensor);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.udacity.catpoint.image;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking companion to {@link ImageService}. Implementations bound the number of images
+ * being classified at once; when that limit is reached, submitting blocks until a classification
+ * finishes, so a fast producer cannot queue up unbounded work.
+ */
+public interface AsyncImageService {
+
+    /**
+     * Starts classifying an image.
+     * @param confidenceThreshold Minimum confidence to consider for cat, as in {@link ImageService}
+     * @return Completes with true if the image contains a cat
+     */
+    CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold);
+
+    /**
+     * Returns the asynchronous path of an image service. A service that has none of its own is run
+     * on a pool of one thread per core shared by all such services, never on the common pool.
+     */
+    static AsyncImageService of(ImageService service) {
+        if (service == null) {
+            throw new IllegalArgumentException("service of ImageService should not be null.");
+        }
+        return service instanceof AsyncImageService async ? async : new OffloadedImageService(service);
+    }
+
+    /**
+     * Classifies several images concurrently.
+     * @return Completes with one result per image, in the order of the images
+     */
+    default CompletableFuture<List<Boolean>> classifyAll(List<BufferedImage> images, float confidenceThreshold) {
+        List<CompletableFuture<Boolean>> results = new ArrayList<>(images.size());
+        for (BufferedImage image : images) {
+            results.add(imageContainsCatAsync(image, confidenceThreshold));
+        }
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> results.stream().map(CompletableFuture::join).toList());
+    }
+}
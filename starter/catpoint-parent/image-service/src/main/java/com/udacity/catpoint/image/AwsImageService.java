@@ -12,12 +12,16 @@ import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
 import software.amazon.awssdk.services.rekognition.model.Image;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
@@ -32,15 +36,43 @@ import java.util.stream.Collectors;
  *      aws.id=[your access key id]
  *      aws.secret=[your Secret access key]
  *      aws.region=[an aws region of choice. For example: us-east-2]
+ *
+ * Asynchronous requests are pipelined: each runs on its own virtual thread, so up to
+ * maxInFlight Rekognition calls are outstanding at once instead of waiting for one another.
+ *
+ * Images that are already encoded, as a {@link ByteBuffer} or a file, are sent as they are
+ * without being decoded and re-encoded.
+ *
+ * Close the service when done with it: closing waits for outstanding asynchronous requests, then
+ * stops their executor and closes the Rekognition client if the service built it.
  */
-public class AwsImageService implements ImageService {
+public class AwsImageService implements ImageService, AsyncImageService, AutoCloseable {
+
+    private static final int DEFAULT_MAX_IN_FLIGHT = 16;
 
     private Logger log = LoggerFactory.getLogger(AwsImageService.class);
 
-    //aws recommendation is to maintain only a single instance of client objects
-    private static RekognitionClient rekognitionClient;
+    //aws recommendation is to maintain only a single instance of client objects, so share one
+    //AwsImageService rather than creating several
+    private RekognitionClient rekognitionClient;
+    //a client passed in by the caller is left for the caller to close
+    private final boolean ownsClient;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final InFlightLimiter inFlight;
+    private final JpegEncoderPool encoders = new JpegEncoderPool();
 
     public AwsImageService() {
+        this(DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * @param maxInFlight Most asynchronous requests outstanding at once
+     */
+    public AwsImageService(int maxInFlight) {
+        inFlight = new InFlightLimiter(maxInFlight, executor);
+        ownsClient = true;
+
         Properties props = new Properties();
         try (InputStream is = getClass().getClassLoader().getResourceAsStream("config.properties")) {
             props.load(is);
@@ -60,6 +92,20 @@ public class AwsImageService implements ImageService {
                 .build();
     }
 
+    /**
+     * Uses the given client instead of one built from config.properties, for example a stub
+     * when measuring the cost of preparing requests.
+     * @param maxInFlight Most asynchronous requests outstanding at once
+     */
+    public AwsImageService(RekognitionClient client, int maxInFlight) {
+        if (client == null) {
+            throw new IllegalArgumentException("client of RekognitionClient should not be null.");
+        }
+        inFlight = new InFlightLimiter(maxInFlight, executor);
+        ownsClient = false;
+        rekognitionClient = client;
+    }
+
     /**
      * Returns true if the provided image contains a cat.
      * @param image Image to scan
@@ -67,20 +113,87 @@ public class AwsImageService implements ImageService {
      * @return
      */
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
-        Image awsImage = null;
-        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-            ImageIO.write(image, "jpg", os);
-            awsImage = Image.builder().bytes(SdkBytes.fromByteArray(os.toByteArray())).build();
+        SdkBytes bytes;
+        try {
+            //the pooled buffer is reused, so SdkBytes has to take its own copy
+            bytes = encoders.encode(image, SdkBytes::fromByteBuffer);
         } catch (IOException ioe) {
             log.error("Error building image byte array", ioe);
             return false;
         }
-        DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(confidenceThreshhold).build();
+        return detectCat(bytes, confidenceThreshhold);
+    }
+
+    /**
+     * Sends already encoded image bytes, such as a JPEG frame, without decoding them. A buffer
+     * that wraps a whole array is handed over without copying, so its contents must not change
+     * until the call returns.
+     */
+    @Override
+    public boolean imageContainsCat(ByteBuffer encodedImage, float confidenceThreshold) {
+        return detectCat(toSdkBytes(encodedImage), confidenceThreshold);
+    }
+
+    /**
+     * Sends an encoded image file, read straight into the request bytes without decoding.
+     */
+    @Override
+    public boolean imageContainsCat(Path imageFile, float confidenceThreshold) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(imageFile);
+        } catch (IOException ioe) {
+            log.error("Error reading image {}", imageFile, ioe);
+            return false;
+        }
+        return detectCat(SdkBytes.fromByteArrayUnsafe(bytes), confidenceThreshold);
+    }
+
+    private static SdkBytes toSdkBytes(ByteBuffer encodedImage) {
+        if (encodedImage.hasArray() && encodedImage.arrayOffset() == 0 && encodedImage.position() == 0
+                && encodedImage.remaining() == encodedImage.array().length) {
+            return SdkBytes.fromByteArrayUnsafe(encodedImage.array());
+        }
+        //SdkBytes needs an exactly sized array, so slices and direct buffers take one copy
+        return SdkBytes.fromByteBuffer(encodedImage.duplicate());
+    }
+
+    private boolean detectCat(SdkBytes bytes, float confidenceThreshold) {
+        Image awsImage = Image.builder().bytes(bytes).build();
+        DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(confidenceThreshold).build();
         DetectLabelsResponse response = rekognitionClient.detectLabels(detectLabelsRequest);
         logLabelsForFun(response);
         return response.labels().stream().filter(l -> l.name().toLowerCase().contains("cat")).findFirst().isPresent();
     }
 
+    /**
+     * Sends the image to Rekognition without waiting for the answer. Blocks while maxInFlight
+     * requests are already outstanding.
+     */
+    @Override
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold) {
+        return inFlight.submit(() -> imageContainsCat(image, confidenceThreshold));
+    }
+
+    /**
+     * @return Number of asynchronous requests currently outstanding
+     */
+    public int requestsInFlight() {
+        return inFlight.inFlight();
+    }
+
+    /**
+     * Waits for the outstanding asynchronous requests and stops their executor. Requests submitted
+     * afterwards complete exceptionally.
+     */
+    @Override
+    public void close() {
+        executor.close();
+        if (ownsClient && rekognitionClient != null) {
+            rekognitionClient.close();
+        }
+    }
+
     private void logLabelsForFun(DetectLabelsResponse response) {
         log.info(response.labels().stream()
                 .map(label -> String.format("%s(%.1f%%)", label.name(), label.confidence()))
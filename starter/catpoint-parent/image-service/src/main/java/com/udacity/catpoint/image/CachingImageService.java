@@ -0,0 +1,220 @@
+package com.udacity.catpoint.image;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ImageService decorator that remembers recent answers, so that frames of a scene that has not
+ * changed do not all go to the (possibly remote) delegate.
+ *
+ * Each image is reduced to a 64-bit difference hash (dHash): the picture is shrunk to a 9x8 grid
+ * of grey levels and every bit records whether a cell is brighter than its right neighbour. The
+ * hash survives re-encoding, small shifts in exposure and sensor noise. Answers are cached per
+ * hash and confidence threshold in a bounded LRU whose entries expire after a fixed time, and an
+ * image whose hash differs from a cached one in at most a few bits is treated as the same scene.
+ * Asynchronous calls answer hits at once and send misses down the delegate's asynchronous path.
+ */
+public class CachingImageService implements ImageService, AsyncImageService {
+
+    /**
+     * Cache statistics. Saved time is estimated from the mean latency of the delegate calls.
+     */
+    public record CacheStats(long hits, long nearHits, long misses, double hitRatio,
+                             double meanDelegateNanos, long estimatedSavedNanos) {
+    }
+
+    private static final int DEFAULT_MAX_ENTRIES = 256;
+    private static final Duration DEFAULT_TTL = Duration.ofSeconds(30);
+    private static final int DEFAULT_MAX_DISTANCE = 4;
+    private static final int GRID_WIDTH = 9;
+    private static final int GRID_HEIGHT = 8;
+    private static final int SAMPLES_PER_CELL = 4;
+
+    private final ImageService delegate;
+    private final AsyncImageService asyncDelegate;
+    private final long ttlNanos;
+    private final int maxDistance;
+    private final LinkedHashMap<Key, Entry> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong nearHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong delegateNanos = new AtomicLong();
+
+    public CachingImageService(ImageService delegate) {
+        this(delegate, DEFAULT_MAX_ENTRIES, DEFAULT_TTL, DEFAULT_MAX_DISTANCE);
+    }
+
+    /**
+     * @param maxEntries Number of answers kept; the least recently used is dropped first
+     * @param ttl How long an answer stays valid
+     * @param maxDistance Largest number of differing hash bits for two images to count as the same
+     *                    scene. 0 only reuses answers for identical hashes.
+     */
+    public CachingImageService(ImageService delegate, int maxEntries, Duration ttl, int maxDistance) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate of ImageService should not be null.");
+        }
+        if (ttl == null) {
+            throw new IllegalArgumentException("ttl of Duration should not be null.");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries should be positive.");
+        }
+        if (maxDistance < 0 || maxDistance > 64) {
+            throw new IllegalArgumentException("maxDistance should be between 0 and 64.");
+        }
+        this.delegate = delegate;
+        this.asyncDelegate = AsyncImageService.of(delegate);
+        this.ttlNanos = ttl.toNanos();
+        this.maxDistance = maxDistance;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        Key key = new Key(differenceHash(image), confidenceThreshold);
+        Boolean cached = lookup(key, System.nanoTime());
+        if (cached != null) {
+            return cached;
+        }
+
+        misses.incrementAndGet();
+        long start = System.nanoTime();
+        boolean containsCat = delegate.imageContainsCat(image, confidenceThreshold);
+        store(key, containsCat, start);
+        return containsCat;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold) {
+        Key key = new Key(differenceHash(image), confidenceThreshold);
+        Boolean cached = lookup(key, System.nanoTime());
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        misses.incrementAndGet();
+        long start = System.nanoTime();
+        return asyncDelegate.imageContainsCatAsync(image, confidenceThreshold).whenComplete((containsCat, failure) -> {
+            if (failure == null) {
+                store(key, containsCat, start);
+            }
+        });
+    }
+
+    public CacheStats getStats() {
+        long hitCount = hits.get();
+        long nearHitCount = nearHits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + nearHitCount + missCount;
+        double meanDelegateNanos = missCount == 0 ? 0 : (double) delegateNanos.get() / missCount;
+        return new CacheStats(hitCount, nearHitCount, missCount,
+                lookups == 0 ? 0 : (double) (hitCount + nearHitCount) / lookups,
+                meanDelegateNanos, (long) (meanDelegateNanos * (hitCount + nearHitCount)));
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private void store(Key key, boolean containsCat, long start) {
+        long end = System.nanoTime();
+        delegateNanos.addAndGet(end - start);
+        synchronized (cache) {
+            cache.put(key, new Entry(containsCat, end + ttlNanos));
+        }
+    }
+
+    private Boolean lookup(Key key, long now) {
+        synchronized (cache) {
+            Entry exact = cache.get(key);
+            if (exact != null) {
+                if (exact.expiresAt() - now > 0) {
+                    hits.incrementAndGet();
+                    return exact.containsCat();
+                }
+                cache.remove(key);
+            }
+            if (maxDistance == 0) {
+                return null;
+            }
+            //near duplicates: the cache is small, so a scan is far cheaper than a delegate call
+            Map.Entry<Key, Entry> best = null;
+            int bestDistance = maxDistance + 1;
+            for (Iterator<Map.Entry<Key, Entry>> it = cache.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Key, Entry> candidate = it.next();
+                if (candidate.getValue().expiresAt() - now <= 0) {
+                    it.remove();
+                    continue;
+                }
+                if (candidate.getKey().confidenceThreshold() != key.confidenceThreshold()) {
+                    continue;
+                }
+                int distance = Long.bitCount(candidate.getKey().hash() ^ key.hash());
+                if (distance < bestDistance) {
+                    best = candidate;
+                    bestDistance = distance;
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            cache.get(best.getKey()); //refresh its LRU position
+            nearHits.incrementAndGet();
+            return best.getValue().containsCat();
+        }
+    }
+
+    /**
+     * Computes the 64-bit difference hash of an image. Each grid cell is the mean grey level of a
+     * few evenly spaced samples, which is enough for a stable hash and avoids scaling the image.
+     */
+    static long differenceHash(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] grey = new int[GRID_WIDTH * GRID_HEIGHT];
+        for (int cy = 0; cy < GRID_HEIGHT; cy++) {
+            for (int cx = 0; cx < GRID_WIDTH; cx++) {
+                int sum = 0;
+                for (int sy = 0; sy < SAMPLES_PER_CELL; sy++) {
+                    int y = (int) (((long) cy * SAMPLES_PER_CELL + sy) * height / (GRID_HEIGHT * SAMPLES_PER_CELL));
+                    for (int sx = 0; sx < SAMPLES_PER_CELL; sx++) {
+                        int x = (int) (((long) cx * SAMPLES_PER_CELL + sx) * width / (GRID_WIDTH * SAMPLES_PER_CELL));
+                        int rgb = image.getRGB(x, y);
+                        sum += (((rgb >> 16) & 0xFF) * 299 + ((rgb >> 8) & 0xFF) * 587 + (rgb & 0xFF) * 114) / 1000;
+                    }
+                }
+                grey[cy * GRID_WIDTH + cx] = sum;
+            }
+        }
+        long hash = 0;
+        for (int cy = 0; cy < GRID_HEIGHT; cy++) {
+            for (int cx = 0; cx < GRID_WIDTH - 1; cx++) {
+                hash <<= 1;
+                if (grey[cy * GRID_WIDTH + cx] > grey[cy * GRID_WIDTH + cx + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    private record Key(long hash, float confidenceThreshold) {
+    }
+
+    private record Entry(boolean containsCat, long expiresAt) {
+    }
+}
@@ -0,0 +1,210 @@
+package com.udacity.catpoint.image;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Treats each image file written into a directory as the next frame, for cameras that upload
+ * snapshots to a folder. Only files created after the source was opened are read.
+ *
+ * A file is read once it has settled: no events arrived for it and its size and modification
+ * time stayed the same for the settle time, so a file is not read while it is still being
+ * written. Cameras that write to a temporary name and rename the finished file into place can
+ * use a settle time of zero, which reads files as soon as they appear. Each version of a file is
+ * read once: events for a file whose modification time is the one already read are ignored.
+ */
+public class DirectoryFrameSource implements FrameSource {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectoryFrameSource.class);
+    private static final Set<String> EXTENSIONS = Set.of("jpg", "jpeg", "png", "bmp", "gif");
+    private static final Duration DEFAULT_SETTLE_TIME = Duration.ofMillis(250);
+    //how many files to remember the read version of, oldest forgotten first
+    private static final int REMEMBERED_FILES = 1024;
+
+    private final Path directory;
+    private final long settleNanos;
+    private final WatchService watchService;
+    //files seen but not read yet, in the order they first appeared
+    private final Map<Path, Candidate> pending = new LinkedHashMap<>();
+    private final Map<Path, FileTime> read = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, FileTime> eldest) {
+            return size() > REMEMBERED_FILES;
+        }
+    };
+
+    public DirectoryFrameSource(Path directory) throws IOException {
+        this(directory, DEFAULT_SETTLE_TIME);
+    }
+
+    /**
+     * @param settleTime How long a file must stay unchanged before it is read
+     */
+    public DirectoryFrameSource(Path directory, Duration settleTime) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("directory of Path should not be null.");
+        }
+        if (settleTime == null || settleTime.isNegative()) {
+            throw new IllegalArgumentException("settleTime of Duration should not be null or negative.");
+        }
+        this.directory = directory;
+        this.settleNanos = settleTime.toNanos();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    @Override
+    public BufferedImage nextFrame() throws InterruptedException {
+        while (true) {
+            Path file = nextSettled();
+            if (file == null) {
+                if (!waitForEvents()) {
+                    return null;
+                }
+                continue;
+            }
+            BufferedImage frame = read(file);
+            if (frame != null) {
+                return frame;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Takes the first pending file that has settled. A file that changed since it was last looked
+     * at stays pending with a fresh settle time; a file that is gone or already read is dropped.
+     * @return The file, or null if none has settled yet
+     */
+    private Path nextSettled() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Path, Candidate>> candidates = pending.entrySet().iterator();
+        while (candidates.hasNext()) {
+            Map.Entry<Path, Candidate> entry = candidates.next();
+            Candidate candidate = entry.getValue();
+            if (now - candidate.settlesAt < 0) {
+                continue;
+            }
+            Path file = entry.getKey();
+            BasicFileAttributes attributes = attributes(file);
+            if (attributes == null || attributes.lastModifiedTime().equals(read.get(file))) {
+                candidates.remove();
+                continue;
+            }
+            if (attributes.size() != candidate.size || !attributes.lastModifiedTime().equals(candidate.modified)) {
+                candidate.observe(attributes, now);
+                continue;
+            }
+            candidates.remove();
+            read.put(file, attributes.lastModifiedTime());
+            return file;
+        }
+        return null;
+    }
+
+    /**
+     * Waits for directory events, or until the first pending file is due to settle.
+     * @return False once the source has been closed
+     */
+    private boolean waitForEvents() throws InterruptedException {
+        WatchKey key;
+        try {
+            long wait = nanosUntilNextSettle();
+            key = wait < 0 ? watchService.take() : watchService.poll(wait, TimeUnit.NANOSECONDS);
+        } catch (ClosedWatchServiceException e) {
+            return false;
+        }
+        if (key == null) {
+            return true;
+        }
+        long now = System.nanoTime();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.context() instanceof Path name && isImage(name)) {
+                Path file = directory.resolve(name);
+                BasicFileAttributes attributes = attributes(file);
+                if (attributes != null && !attributes.lastModifiedTime().equals(read.get(file))) {
+                    //a file being written reports several events; each one restarts its settle time
+                    pending.computeIfAbsent(file, f -> new Candidate()).observe(attributes, now);
+                }
+            }
+        }
+        return key.reset();
+    }
+
+    /**
+     * @return Nanoseconds until the first pending file is due, or -1 if there are none
+     */
+    private long nanosUntilNextSettle() {
+        long now = System.nanoTime();
+        long wait = -1;
+        for (Candidate candidate : pending.values()) {
+            long due = Math.max(candidate.settlesAt - now, 0);
+            wait = wait < 0 ? due : Math.min(wait, due);
+        }
+        return wait;
+    }
+
+    private static BasicFileAttributes attributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean isImage(Path name) {
+        String fileName = name.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 && EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static BufferedImage read(Path file) {
+        try {
+            return ImageIO.read(file.toFile());
+        } catch (IOException e) {
+            //usually a file that was removed again, or is not an image after all
+            log.debug("Skipping unreadable frame {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * A file waiting to settle, with the size and modification time it had when last looked at.
+     */
+    private final class Candidate {
+        private long size;
+        private FileTime modified;
+        private long settlesAt;
+
+        void observe(BasicFileAttributes attributes, long now) {
+            size = attributes.size();
+            modified = attributes.lastModifiedTime();
+            settlesAt = now + settleNanos;
+        }
+    }
+}
@@ -1,15 +1,37 @@
 package com.udacity.catpoint.image;
 
 import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service that tries to guess if an image displays a cat.
  */
-public class FakeImageService implements ImageService {
+public class FakeImageService implements ImageService, AsyncImageService {
     private final Random r = new Random();
 
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
         return r.nextBoolean();
     }
+
+    //the guess ignores the image, so there is no need to decode it
+    @Override
+    public boolean imageContainsCat(ByteBuffer encodedImage, float confidenceThreshold) {
+        return r.nextBoolean();
+    }
+
+    @Override
+    public boolean imageContainsCat(Path imageFile, float confidenceThreshold) {
+        return r.nextBoolean();
+    }
+
+    /**
+     * Guessing is instant, so the result is already complete and nothing is ever in flight.
+     */
+    @Override
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold) {
+        return CompletableFuture.completedFuture(imageContainsCat(image, confidenceThreshold));
+    }
 }
@@ -0,0 +1,17 @@
+package com.udacity.catpoint.image;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A continuous stream of camera frames.
+ */
+public interface FrameSource extends Closeable {
+
+    /**
+     * Waits for the next frame.
+     * @return The frame, or null once the source has no more frames or has been closed
+     */
+    BufferedImage nextFrame() throws IOException, InterruptedException;
+}
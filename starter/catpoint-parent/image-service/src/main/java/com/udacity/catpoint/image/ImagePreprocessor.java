@@ -0,0 +1,188 @@
+package com.udacity.catpoint.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/**
+ * Brings frames into one canonical form before classification: packed {@code TYPE_INT_RGB}, or
+ * {@code TYPE_BYTE_GRAY} when grayscale output is requested, shrunk to fit a target size while
+ * keeping the aspect ratio. Smaller images keep their size.
+ *
+ * Shrinking averages each box of source pixels. The common raster layouts produced by
+ * {@code ImageIO} (packed int RGB/ARGB/BGR, 3 or 4 byte BGR and 8 bit grey) are read straight from
+ * their {@code DataBuffer} arrays; other layouts are read one row at a time through
+ * {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)}. The inner loops are plain
+ * element-wise array loops that the JIT compiles to SIMD instructions, so no incubator module is
+ * needed at build or run time.
+ *
+ * Instances keep scratch buffers and are not thread-safe.
+ */
+public class ImagePreprocessor {
+
+    private final int targetWidth;
+    private final int targetHeight;
+    private final boolean grayscale;
+
+    //per source column channel sums for the output row being built
+    private int[] red = new int[0];
+    private int[] green = new int[0];
+    private int[] blue = new int[0];
+    private int[] row = new int[0];
+
+    public ImagePreprocessor(int targetWidth, int targetHeight, boolean grayscale) {
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            throw new IllegalArgumentException("targetWidth and targetHeight should be positive.");
+        }
+        this.targetWidth = targetWidth;
+        this.targetHeight = targetHeight;
+        this.grayscale = grayscale;
+    }
+
+    public BufferedImage process(BufferedImage source) {
+        int sourceWidth = source.getWidth();
+        int sourceHeight = source.getHeight();
+        double scale = Math.min(1.0, Math.min((double) targetWidth / sourceWidth, (double) targetHeight / sourceHeight));
+        int width = Math.max(1, (int) Math.round(sourceWidth * scale));
+        int height = Math.max(1, (int) Math.round(sourceHeight * scale));
+
+        BufferedImage target = new BufferedImage(width, height,
+                grayscale ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB);
+        ensureCapacity(sourceWidth);
+        int[] packed = grayscale ? null : ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+        byte[] grey = grayscale ? ((DataBufferByte) target.getRaster().getDataBuffer()).getData() : null;
+
+        for (int ty = 0; ty < height; ty++) {
+            int y0 = (int) ((long) ty * sourceHeight / height);
+            int y1 = Math.max(y0 + 1, (int) ((long) (ty + 1) * sourceHeight / height));
+            Arrays.fill(red, 0, sourceWidth, 0);
+            Arrays.fill(green, 0, sourceWidth, 0);
+            Arrays.fill(blue, 0, sourceWidth, 0);
+            for (int y = y0; y < y1; y++) {
+                accumulateRow(source, y, sourceWidth);
+            }
+            int rows = y1 - y0;
+            for (int tx = 0; tx < width; tx++) {
+                int x0 = (int) ((long) tx * sourceWidth / width);
+                int x1 = Math.max(x0 + 1, (int) ((long) (tx + 1) * sourceWidth / width));
+                int r = 0;
+                int g = 0;
+                int b = 0;
+                for (int x = x0; x < x1; x++) {
+                    r += red[x];
+                    g += green[x];
+                    b += blue[x];
+                }
+                int count = rows * (x1 - x0);
+                r /= count;
+                g /= count;
+                b /= count;
+                if (grayscale) {
+                    grey[ty * width + tx] = (byte) ((r * 299 + g * 587 + b * 114) / 1000);
+                } else {
+                    packed[ty * width + tx] = r << 16 | g << 8 | b;
+                }
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Adds one source row to the per-column channel sums.
+     */
+    private void accumulateRow(BufferedImage source, int y, int width) {
+        int[] r = red;
+        int[] g = green;
+        int[] b = blue;
+        switch (source.getType()) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB -> {
+                int[] data = ((DataBufferInt) source.getRaster().getDataBuffer()).getData();
+                int offset = rowOffset(source, y, 1);
+                for (int x = 0; x < width; x++) {
+                    int p = data[offset + x];
+                    r[x] += (p >> 16) & 0xFF;
+                    g[x] += (p >> 8) & 0xFF;
+                    b[x] += p & 0xFF;
+                }
+            }
+            case BufferedImage.TYPE_INT_BGR -> {
+                int[] data = ((DataBufferInt) source.getRaster().getDataBuffer()).getData();
+                int offset = rowOffset(source, y, 1);
+                for (int x = 0; x < width; x++) {
+                    int p = data[offset + x];
+                    b[x] += (p >> 16) & 0xFF;
+                    g[x] += (p >> 8) & 0xFF;
+                    r[x] += p & 0xFF;
+                }
+            }
+            case BufferedImage.TYPE_3BYTE_BGR -> {
+                byte[] data = ((DataBufferByte) source.getRaster().getDataBuffer()).getData();
+                int offset = rowOffset(source, y, 3);
+                for (int x = 0; x < width; x++) {
+                    int i = offset + 3 * x;
+                    b[x] += data[i] & 0xFF;
+                    g[x] += data[i + 1] & 0xFF;
+                    r[x] += data[i + 2] & 0xFF;
+                }
+            }
+            case BufferedImage.TYPE_4BYTE_ABGR -> {
+                byte[] data = ((DataBufferByte) source.getRaster().getDataBuffer()).getData();
+                int offset = rowOffset(source, y, 4);
+                for (int x = 0; x < width; x++) {
+                    int i = offset + 4 * x;
+                    b[x] += data[i + 1] & 0xFF;
+                    g[x] += data[i + 2] & 0xFF;
+                    r[x] += data[i + 3] & 0xFF;
+                }
+            }
+            case BufferedImage.TYPE_BYTE_GRAY -> {
+                byte[] data = ((DataBufferByte) source.getRaster().getDataBuffer()).getData();
+                int offset = rowOffset(source, y, 1);
+                for (int x = 0; x < width; x++) {
+                    int level = data[offset + x] & 0xFF;
+                    r[x] += level;
+                    g[x] += level;
+                    b[x] += level;
+                }
+            }
+            default -> {
+                int[] pixels = row;
+                source.getRGB(0, y, width, 1, pixels, 0, width);
+                for (int x = 0; x < width; x++) {
+                    int p = pixels[x];
+                    r[x] += (p >> 16) & 0xFF;
+                    g[x] += (p >> 8) & 0xFF;
+                    b[x] += p & 0xFF;
+                }
+            }
+        }
+    }
+
+    /**
+     * Index of the first element of row y, allowing for images that are sub-images of a larger raster.
+     */
+    private static int rowOffset(BufferedImage source, int y, int elementsPerPixel) {
+        WritableRaster raster = source.getRaster();
+        int scanlineStride = switch (raster.getSampleModel()) {
+            case SinglePixelPackedSampleModel packed -> packed.getScanlineStride();
+            case ComponentSampleModel component -> component.getScanlineStride();
+            default -> source.getWidth() * elementsPerPixel;
+        };
+        int x0 = -raster.getSampleModelTranslateX();
+        int y0 = -raster.getSampleModelTranslateY();
+        return raster.getDataBuffer().getOffset() + (y0 + y) * scanlineStride + x0 * elementsPerPixel;
+    }
+
+    private void ensureCapacity(int width) {
+        if (red.length < width) {
+            red = new int[width];
+            green = new int[width];
+            blue = new int[width];
+            row = new int[width];
+        }
+    }
+}
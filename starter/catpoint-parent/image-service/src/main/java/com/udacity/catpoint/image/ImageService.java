@@ -1,6 +1,63 @@
 package com.udacity.catpoint.image;
+import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 
 public interface ImageService {
     boolean imageContainsCat(BufferedImage image, float confidenceThreshold);
+
+    /**
+     * Classifies an image that is already encoded, for example a JPEG frame from a camera.
+     * Implementations that can send the encoded bytes on as they are should override this;
+     * by default the image is decoded first. The buffer's position is not changed.
+     */
+    default boolean imageContainsCat(ByteBuffer encodedImage, float confidenceThreshold) {
+        ByteBuffer bytes = encodedImage.duplicate();
+        byte[] array;
+        int offset;
+        if (bytes.hasArray()) {
+            array = bytes.array();
+            offset = bytes.arrayOffset() + bytes.position();
+        } else {
+            array = new byte[bytes.remaining()];
+            bytes.get(array);
+            offset = 0;
+        }
+        try {
+            return imageContainsCat(decode(ImageIO.read(new ByteArrayInputStream(array, offset, encodedImage.remaining()))),
+                    confidenceThreshold);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to decode image", e);
+        }
+    }
+
+    /**
+     * Classifies an encoded image file. By default the file is decoded first.
+     */
+    default boolean imageContainsCat(Path imageFile, float confidenceThreshold) {
+        try {
+            return imageContainsCat(decode(ImageIO.read(imageFile.toFile())), confidenceThreshold);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read image " + imageFile, e);
+        }
+    }
+
+    /**
+     * @return This service behind an {@link ImagePreprocessor} that shrinks frames to fit the
+     *         target size and optionally converts them to grayscale
+     */
+    default ImageService withPreprocessing(int targetWidth, int targetHeight, boolean grayscale) {
+        return new PreprocessingImageService(this, targetWidth, targetHeight, grayscale);
+    }
+
+    private static BufferedImage decode(BufferedImage image) throws IOException {
+        if (image == null) {
+            throw new IOException("Unsupported image format");
+        }
+        return image;
+    }
 }
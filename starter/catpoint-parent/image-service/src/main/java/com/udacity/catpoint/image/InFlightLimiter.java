@@ -0,0 +1,46 @@
+package com.udacity.catpoint.image;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks on an executor while capping how many are in flight. Submitting blocks the caller
+ * while the cap is reached.
+ */
+final class InFlightLimiter {
+
+    private final Semaphore permits;
+    private final int maxInFlight;
+    private final Executor executor;
+
+    InFlightLimiter(int maxInFlight, Executor executor) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight should be positive.");
+        }
+        this.permits = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.executor = executor;
+    }
+
+    <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        try {
+            return CompletableFuture.supplyAsync(task, executor).whenComplete((result, failure) -> permits.release());
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    int inFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+}
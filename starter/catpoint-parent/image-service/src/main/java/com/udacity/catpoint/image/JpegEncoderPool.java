@@ -0,0 +1,84 @@
+package com.udacity.catpoint.image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+/**
+ * Pool of JPEG writers and output buffers, so encoding a frame neither looks up a writer nor
+ * allocates and grows a fresh buffer each time. Encoding happens in memory, without the disk
+ * cache {@link ImageIO#write} would otherwise use.
+ */
+final class JpegEncoderPool {
+
+    //buffers that grew past this are dropped instead of pooled so one huge frame is not kept alive
+    private static final int MAX_POOLED_BYTES = 4 * 1024 * 1024;
+
+    private final ConcurrentLinkedQueue<Encoder> idle = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Encodes the image and passes the encoded bytes to {@code use}. The buffer is only valid
+     * until {@code use} returns.
+     */
+    <T> T encode(BufferedImage image, Function<ByteBuffer, T> use) throws IOException {
+        Encoder encoder = idle.poll();
+        if (encoder == null) {
+            encoder = new Encoder();
+        }
+        try {
+            return use.apply(encoder.encode(image));
+        } finally {
+            if (encoder.buffer.capacity() <= MAX_POOLED_BYTES) {
+                idle.offer(encoder);
+            } else {
+                encoder.writer.dispose();
+            }
+        }
+    }
+
+    private static final class Encoder {
+        private final ImageWriter writer;
+        private final ReusableBuffer buffer = new ReusableBuffer();
+
+        Encoder() throws IOException {
+            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpg");
+            if (!writers.hasNext()) {
+                throw new IOException("No JPEG writer available");
+            }
+            writer = writers.next();
+        }
+
+        ByteBuffer encode(BufferedImage image) throws IOException {
+            buffer.reset();
+            try (ImageOutputStream output = new MemoryCacheImageOutputStream(buffer)) {
+                writer.setOutput(output);
+                writer.write(image);
+            } finally {
+                writer.setOutput(null);
+            }
+            return buffer.contents();
+        }
+    }
+
+    private static final class ReusableBuffer extends ByteArrayOutputStream {
+        ReusableBuffer() {
+            super(64 * 1024);
+        }
+
+        ByteBuffer contents() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
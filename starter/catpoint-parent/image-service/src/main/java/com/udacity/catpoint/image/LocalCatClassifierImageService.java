@@ -0,0 +1,237 @@
+package com.udacity.catpoint.image;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Image service that runs entirely in-process, without network access or credentials.
+ *
+ * The image is shrunk to a 64x64 grey-level patch and described with a histogram of oriented
+ * gradients (HOG): 8x8 pixel cells with 9 unsigned orientation bins, normalized over overlapping
+ * 2x2 cell blocks, for 1764 features. A logistic regression over those features gives the
+ * probability of a cat, which is compared with the confidence threshold as a percentage.
+ *
+ * The weights are read from {@code cat-classifier.weights} on the classpath. The bundled weights
+ * were fitted on augmented copies of the sample images only, so they recognize those samples
+ * but should be replaced with weights trained on a real data set before relying on the answers.
+ *
+ * Working buffers are kept in a small pool, at most one per core, and reused, so classifying a
+ * frame does not allocate once the pool is warm and short-lived threads such as virtual threads
+ * do not each keep buffers of their own. Classifying the 64x64 patch takes well under a
+ * millisecond; for camera frames the cost is dominated by sampling the source image.
+ * {@code LocalCatClassifierBenchmark} in the benchmarks module measures frames of camera size.
+ * Asynchronous calls run on a shared pool of one thread per core, matching the buffer pool.
+ */
+public class LocalCatClassifierImageService implements ImageService, AsyncImageService {
+
+    static final int PATCH_SIZE = 64;
+    static final int CELL_SIZE = 8;
+    static final int BINS = 9;
+    static final int CELLS = PATCH_SIZE / CELL_SIZE;
+    static final int BLOCKS = CELLS - 1;
+    static final int FEATURE_COUNT = BLOCKS * BLOCKS * 4 * BINS;
+
+    private static final String DEFAULT_WEIGHTS = "cat-classifier.weights";
+    private static final int SAMPLES_PER_PIXEL = 3;
+    private static final float BLOCK_CLIP = 0.2f;
+    private static final float EPSILON = 1e-6f;
+
+    private final float[] weights;
+    private final float bias;
+    //idle buffers; a call that finds none allocates, and a full pool drops what is returned
+    private final ArrayBlockingQueue<Workspace> workspaces =
+            new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+
+    public LocalCatClassifierImageService() {
+        this(LocalCatClassifierImageService.class.getClassLoader().getResourceAsStream(DEFAULT_WEIGHTS));
+    }
+
+    /**
+     * @param weights Weights file: a {@code features} line with the feature count, a {@code bias}
+     *                line, then the weights separated by whitespace. Lines starting with # are
+     *                ignored. The stream is closed.
+     */
+    public LocalCatClassifierImageService(InputStream weights) {
+        if (weights == null) {
+            throw new IllegalArgumentException("weights of InputStream should not be null.");
+        }
+        List<String> tokens = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(weights, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    tokens.addAll(List.of(line.split("\\s+")));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read classifier weights", e);
+        }
+        if (tokens.size() < 4 || !tokens.get(0).equals("features") || !tokens.get(2).equals("bias")) {
+            throw new IllegalArgumentException("Classifier weights should start with the features and bias lines.");
+        }
+        int featureCount = Integer.parseInt(tokens.get(1));
+        if (featureCount != FEATURE_COUNT || tokens.size() != 4 + featureCount) {
+            throw new IllegalArgumentException("Classifier weights should hold " + FEATURE_COUNT + " weights.");
+        }
+        this.bias = Float.parseFloat(tokens.get(3));
+        this.weights = new float[featureCount];
+        for (int i = 0; i < featureCount; i++) {
+            this.weights[i] = Float.parseFloat(tokens.get(4 + i));
+        }
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return catProbability(image) * 100 >= confidenceThreshold;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold) {
+        return OffloadedImageService.offload(this, image, confidenceThreshold);
+    }
+
+    /**
+     * @return Probability between 0 and 1 that the image shows a cat
+     */
+    public double catProbability(BufferedImage image) {
+        Workspace workspace = workspaces.poll();
+        if (workspace == null) {
+            workspace = new Workspace();
+        }
+        try {
+            extractFeatures(image, workspace);
+            float[] features = workspace.features;
+            double score = bias;
+            for (int i = 0; i < FEATURE_COUNT; i++) {
+                score += weights[i] * features[i];
+            }
+            return 1 / (1 + Math.exp(-score));
+        } finally {
+            workspaces.offer(workspace);
+        }
+    }
+
+    /**
+     * @return A copy of the HOG features of the image, as used for training
+     */
+    static float[] features(BufferedImage image) {
+        Workspace workspace = new Workspace();
+        extractFeatures(image, workspace);
+        return workspace.features.clone();
+    }
+
+    private static void extractFeatures(BufferedImage image, Workspace workspace) {
+        samplePatch(image, workspace.patch);
+        cellHistograms(workspace.patch, workspace.cells);
+        normalizeBlocks(workspace.cells, workspace.features);
+    }
+
+    /**
+     * Shrinks the image to the grey-level patch, averaging a few evenly spaced samples per pixel.
+     */
+    private static void samplePatch(BufferedImage image, float[] patch) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int grid = PATCH_SIZE * SAMPLES_PER_PIXEL;
+        for (int py = 0; py < PATCH_SIZE; py++) {
+            for (int px = 0; px < PATCH_SIZE; px++) {
+                int sum = 0;
+                for (int sy = 0; sy < SAMPLES_PER_PIXEL; sy++) {
+                    int y = (int) ((long) (py * SAMPLES_PER_PIXEL + sy) * height / grid);
+                    for (int sx = 0; sx < SAMPLES_PER_PIXEL; sx++) {
+                        int x = (int) ((long) (px * SAMPLES_PER_PIXEL + sx) * width / grid);
+                        int rgb = image.getRGB(x, y);
+                        sum += ((rgb >> 16) & 0xFF) * 299 + ((rgb >> 8) & 0xFF) * 587 + (rgb & 0xFF) * 114;
+                    }
+                }
+                patch[py * PATCH_SIZE + px] = sum / (255_000f * SAMPLES_PER_PIXEL * SAMPLES_PER_PIXEL);
+            }
+        }
+    }
+
+    /**
+     * Accumulates gradient magnitudes into per-cell orientation histograms, splitting each vote
+     * between the two nearest bins.
+     */
+    private static void cellHistograms(float[] patch, float[] cells) {
+        Arrays.fill(cells, 0);
+        float binWidth = (float) Math.PI / BINS;
+        for (int y = 0; y < PATCH_SIZE; y++) {
+            int up = Math.max(y - 1, 0) * PATCH_SIZE;
+            int down = Math.min(y + 1, PATCH_SIZE - 1) * PATCH_SIZE;
+            int row = y * PATCH_SIZE;
+            int cellRow = (y / CELL_SIZE) * CELLS;
+            for (int x = 0; x < PATCH_SIZE; x++) {
+                float gx = patch[row + Math.min(x + 1, PATCH_SIZE - 1)] - patch[row + Math.max(x - 1, 0)];
+                float gy = patch[down + x] - patch[up + x];
+                float magnitude = (float) Math.sqrt(gx * gx + gy * gy);
+                if (magnitude == 0) {
+                    continue;
+                }
+                float angle = (float) Math.atan2(gy, gx);
+                if (angle < 0) {
+                    angle += (float) Math.PI;
+                }
+                float position = angle / binWidth - 0.5f;
+                int lower = (int) Math.floor(position);
+                float upperShare = position - lower;
+                int cell = (cellRow + x / CELL_SIZE) * BINS;
+                cells[cell + Math.floorMod(lower, BINS)] += magnitude * (1 - upperShare);
+                cells[cell + Math.floorMod(lower + 1, BINS)] += magnitude * upperShare;
+            }
+        }
+    }
+
+    /**
+     * Concatenates the histograms of every 2x2 block of cells, each normalized with L2-Hys
+     * (normalize, clip large components, normalize again).
+     */
+    private static void normalizeBlocks(float[] cells, float[] features) {
+        int out = 0;
+        for (int by = 0; by < BLOCKS; by++) {
+            for (int bx = 0; bx < BLOCKS; bx++) {
+                int start = out;
+                for (int cy = by; cy < by + 2; cy++) {
+                    System.arraycopy(cells, (cy * CELLS + bx) * BINS, features, out, 2 * BINS);
+                    out += 2 * BINS;
+                }
+                normalize(features, start, out);
+                for (int i = start; i < out; i++) {
+                    features[i] = Math.min(features[i], BLOCK_CLIP);
+                }
+                normalize(features, start, out);
+            }
+        }
+    }
+
+    private static void normalize(float[] values, int from, int to) {
+        float sumOfSquares = 0;
+        for (int i = from; i < to; i++) {
+            sumOfSquares += values[i] * values[i];
+        }
+        float scale = (float) (1 / Math.sqrt(sumOfSquares + EPSILON));
+        for (int i = from; i < to; i++) {
+            values[i] *= scale;
+        }
+    }
+
+    /**
+     * Buffers for one classification at a time, reused through the pool.
+     */
+    private static final class Workspace {
+        private final float[] patch = new float[PATCH_SIZE * PATCH_SIZE];
+        private final float[] cells = new float[CELLS * CELLS * BINS];
+        private final float[] features = new float[FEATURE_COUNT];
+    }
+}
@@ -0,0 +1,205 @@
+package com.udacity.catpoint.image;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads frames from a Motion JPEG stream: JPEG images back to back, as written by many IP
+ * cameras, possibly separated by multipart headers. A frame starts at a start-of-image marker,
+ * so anything between frames is skipped. Its end is found by following the JPEG structure:
+ * marker segments are skipped by their length up to the start of scan, and only the
+ * entropy-coded data after it is searched for the end-of-image marker. An EXIF thumbnail, which
+ * is a complete JPEG inside an APP1 segment, therefore does not end the frame early.
+ */
+public class MjpegFrameSource implements FrameSource {
+
+    private static final int MARKER = 0xFF;
+    private static final int START_OF_IMAGE = 0xD8;
+    private static final int END_OF_IMAGE = 0xD9;
+    private static final int START_OF_SCAN = 0xDA;
+    private static final int STUFFED_ZERO = 0x00;
+    private static final int TEMPORARY = 0x01;
+    private static final int FIRST_RESTART = 0xD0;
+    private static final int LAST_RESTART = 0xD7;
+    private static final int END_OF_STREAM = -1;
+    //the bytes after a segment did not start with a marker; the frame is left to fail decoding
+    private static final int NOT_A_MARKER = -2;
+
+    private final InputStream input;
+    private final long frameIntervalNanos;
+    private final ByteArrayOutputStream frameBytes = new ByteArrayOutputStream(64 * 1024);
+    private final byte[] segment = new byte[0xFFFF];
+    private long nextFrameAt;
+
+    /**
+     * @param framesPerSecond Rate to release frames at, or 0 to read them as fast as they are taken
+     */
+    public MjpegFrameSource(Path file, double framesPerSecond) throws IOException {
+        this(Files.newInputStream(file), framesPerSecond);
+    }
+
+    public MjpegFrameSource(InputStream input, double framesPerSecond) {
+        if (input == null) {
+            throw new IllegalArgumentException("input of InputStream should not be null.");
+        }
+        if (framesPerSecond < 0) {
+            throw new IllegalArgumentException("framesPerSecond should not be negative.");
+        }
+        this.input = new BufferedInputStream(input, 64 * 1024);
+        this.frameIntervalNanos = framesPerSecond == 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / framesPerSecond);
+    }
+
+    @Override
+    public BufferedImage nextFrame() throws IOException, InterruptedException {
+        while (readFrameBytes()) {
+            BufferedImage frame;
+            try {
+                frame = ImageIO.read(new ByteArrayInputStream(frameBytes.toByteArray()));
+            } catch (IIOException e) {
+                frame = null;
+            }
+            if (frame != null) {
+                pace();
+                return frame;
+            }
+            //a corrupt frame is skipped, the stream can still recover at the next one
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    /**
+     * Copies the next complete JPEG, from its start marker to its end marker, into frameBytes.
+     * @return False at the end of the stream
+     */
+    private boolean readFrameBytes() throws IOException {
+        frameBytes.reset();
+        int previous = -1;
+        int current;
+        while ((current = input.read()) != -1) {
+            if (previous == MARKER && current == START_OF_IMAGE) {
+                break;
+            }
+            previous = current;
+        }
+        if (current == -1) {
+            return false;
+        }
+        frameBytes.write(MARKER);
+        frameBytes.write(START_OF_IMAGE);
+
+        int marker = readMarker();
+        while (true) {
+            if (marker == END_OF_STREAM) {
+                return false;
+            }
+            if (marker == END_OF_IMAGE || marker == NOT_A_MARKER) {
+                return true;
+            }
+            if (isStandalone(marker)) {
+                marker = readMarker();
+                continue;
+            }
+            if (!copySegment()) {
+                return false;
+            }
+            marker = marker == START_OF_SCAN ? copyEntropyCodedData() : readMarker();
+        }
+    }
+
+    /**
+     * Reads and copies the marker at the current position, skipping fill bytes.
+     * @return The marker code, {@link #END_OF_STREAM} or {@link #NOT_A_MARKER}
+     */
+    private int readMarker() throws IOException {
+        int current = input.read();
+        if (current == -1) {
+            return END_OF_STREAM;
+        }
+        if (current != MARKER) {
+            return NOT_A_MARKER;
+        }
+        while ((current = input.read()) == MARKER) {
+            //fill byte
+        }
+        if (current == -1) {
+            return END_OF_STREAM;
+        }
+        frameBytes.write(MARKER);
+        frameBytes.write(current);
+        return current;
+    }
+
+    /**
+     * Copies a marker segment: its two-byte length, which counts itself, and the payload.
+     * @return False at the end of the stream
+     */
+    private boolean copySegment() throws IOException {
+        int high = input.read();
+        int low = input.read();
+        if (low == -1) {
+            return false;
+        }
+        frameBytes.write(high);
+        frameBytes.write(low);
+        int payload = Math.max((high << 8 | low) - 2, 0);
+        int read = input.readNBytes(segment, 0, payload);
+        frameBytes.write(segment, 0, read);
+        return read == payload;
+    }
+
+    /**
+     * Copies scan data up to the next marker. Stuffed zero bytes and restart markers belong to
+     * the data; any other marker ends it.
+     * @return The marker after the scan data, or {@link #END_OF_STREAM}
+     */
+    private int copyEntropyCodedData() throws IOException {
+        int current;
+        while ((current = input.read()) != -1) {
+            frameBytes.write(current);
+            if (current != MARKER) {
+                continue;
+            }
+            int next;
+            while ((next = input.read()) == MARKER) {
+                //fill byte
+            }
+            if (next == -1) {
+                return END_OF_STREAM;
+            }
+            frameBytes.write(next);
+            if (next != STUFFED_ZERO && (next < FIRST_RESTART || next > LAST_RESTART)) {
+                return next;
+            }
+        }
+        return END_OF_STREAM;
+    }
+
+    private static boolean isStandalone(int marker) {
+        return marker == START_OF_IMAGE || marker == TEMPORARY || (marker >= FIRST_RESTART && marker <= LAST_RESTART);
+    }
+
+    private void pace() throws InterruptedException {
+        if (frameIntervalNanos == 0) {
+            return;
+        }
+        long wait = nextFrameAt - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        nextFrameAt = Math.max(nextFrameAt, System.nanoTime()) + frameIntervalNanos;
+    }
+}
@@ -0,0 +1,89 @@
+package com.udacity.catpoint.image;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Cheap frame-differencing filter that only lets frames through when the scene has changed.
+ *
+ * Each frame is reduced to a small grey-level thumbnail and compared with the thumbnail of the
+ * last frame that passed. A frame passes when enough thumbnail pixels changed by more than a
+ * threshold, so a static scene costs one thumbnail per frame and no classification. Comparing
+ * with the last passed frame rather than the previous one means slow changes, like someone
+ * walking in gradually, still add up to motion. The first frame always passes.
+ *
+ * This class is not thread-safe.
+ */
+public class MotionGate {
+
+    private static final int THUMB_WIDTH = 32;
+    private static final int THUMB_HEIGHT = 24;
+    private static final int DEFAULT_PIXEL_THRESHOLD = 24;
+    private static final double DEFAULT_CHANGED_FRACTION = 0.02;
+
+    private final int pixelThreshold;
+    private final int changedPixels;
+    private final int[] reference = new int[THUMB_WIDTH * THUMB_HEIGHT];
+    private final int[] current = new int[THUMB_WIDTH * THUMB_HEIGHT];
+    private boolean hasReference;
+
+    public MotionGate() {
+        this(DEFAULT_PIXEL_THRESHOLD, DEFAULT_CHANGED_FRACTION);
+    }
+
+    /**
+     * @param pixelThreshold Grey-level difference (0-255) for a thumbnail pixel to count as changed
+     * @param changedFraction Fraction of thumbnail pixels that must change for a frame to pass
+     */
+    public MotionGate(int pixelThreshold, double changedFraction) {
+        if (pixelThreshold < 0 || pixelThreshold > 255) {
+            throw new IllegalArgumentException("pixelThreshold should be between 0 and 255.");
+        }
+        if (changedFraction < 0 || changedFraction > 1) {
+            throw new IllegalArgumentException("changedFraction should be between 0 and 1.");
+        }
+        this.pixelThreshold = pixelThreshold;
+        this.changedPixels = Math.max(1, (int) Math.ceil(changedFraction * reference.length));
+    }
+
+    /**
+     * @return True if the frame differs enough from the last frame that passed. A passing frame
+     *         becomes the new reference.
+     */
+    public boolean hasMotion(BufferedImage frame) {
+        thumbnail(frame, current);
+        boolean motion = !hasReference || countChanged() >= changedPixels;
+        if (motion) {
+            System.arraycopy(current, 0, reference, 0, current.length);
+            hasReference = true;
+        }
+        return motion;
+    }
+
+    public void reset() {
+        hasReference = false;
+    }
+
+    private int countChanged() {
+        int changed = 0;
+        for (int i = 0; i < current.length; i++) {
+            if (Math.abs(current[i] - reference[i]) > pixelThreshold) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    private static void thumbnail(BufferedImage frame, int[] thumb) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        for (int ty = 0; ty < THUMB_HEIGHT; ty++) {
+            int y = (int) ((2L * ty + 1) * height / (2 * THUMB_HEIGHT));
+            for (int tx = 0; tx < THUMB_WIDTH; tx++) {
+                int x = (int) ((2L * tx + 1) * width / (2 * THUMB_WIDTH));
+                int rgb = frame.getRGB(x, y);
+                thumb[ty * THUMB_WIDTH + tx] =
+                        (((rgb >> 16) & 0xFF) * 299 + ((rgb >> 8) & 0xFF) * 587 + (rgb & 0xFF) * 114) / 1000;
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.udacity.catpoint.image;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gives a blocking {@link ImageService} an asynchronous path. Classifications run on a pool shared
+ * by every offloaded service, one daemon thread per core, and at most that many are in flight at
+ * once; further submitters block, as {@link AsyncImageService} requires.
+ */
+final class OffloadedImageService implements ImageService, AsyncImageService {
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, r -> {
+        Thread t = new Thread(r, "catpoint-image-classifier-" + THREAD_COUNT.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+    private static final InFlightLimiter IN_FLIGHT = new InFlightLimiter(THREADS, EXECUTOR);
+
+    private final ImageService delegate;
+
+    OffloadedImageService(ImageService delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return delegate.imageContainsCat(image, confidenceThreshold);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold) {
+        return offload(delegate, image, confidenceThreshold);
+    }
+
+    static CompletableFuture<Boolean> offload(ImageService service, BufferedImage image, float confidenceThreshold) {
+        return IN_FLIGHT.submit(() -> service.imageContainsCat(image, confidenceThreshold));
+    }
+}
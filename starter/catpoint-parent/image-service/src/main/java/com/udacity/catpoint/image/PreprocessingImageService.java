@@ -0,0 +1,60 @@
+package com.udacity.catpoint.image;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * ImageService decorator that runs every frame through an {@link ImagePreprocessor} before
+ * handing it to the delegate, so any detector receives small frames in one canonical layout.
+ * Preprocessors are pooled, so concurrent callers never share one. Asynchronous calls preprocess on
+ * the calling thread and hand the small frame to the delegate's asynchronous path.
+ */
+public class PreprocessingImageService implements ImageService, AsyncImageService {
+
+    private final ImageService delegate;
+    private final AsyncImageService asyncDelegate;
+    private final int targetWidth;
+    private final int targetHeight;
+    private final boolean grayscale;
+    private final ConcurrentLinkedQueue<ImagePreprocessor> idle = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param targetWidth Frames are shrunk to fit this width and height, keeping their aspect ratio
+     * @param grayscale Whether the delegate receives {@code TYPE_BYTE_GRAY} frames instead of {@code TYPE_INT_RGB}
+     */
+    public PreprocessingImageService(ImageService delegate, int targetWidth, int targetHeight, boolean grayscale) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate of ImageService should not be null.");
+        }
+        //fail fast on a bad target size rather than on the first frame
+        idle.offer(new ImagePreprocessor(targetWidth, targetHeight, grayscale));
+        this.delegate = delegate;
+        this.asyncDelegate = AsyncImageService.of(delegate);
+        this.targetWidth = targetWidth;
+        this.targetHeight = targetHeight;
+        this.grayscale = grayscale;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        return delegate.imageContainsCat(preprocess(image), confidenceThreshold);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold) {
+        return asyncDelegate.imageContainsCatAsync(preprocess(image), confidenceThreshold);
+    }
+
+    public BufferedImage preprocess(BufferedImage image) {
+        ImagePreprocessor preprocessor = idle.poll();
+        if (preprocessor == null) {
+            preprocessor = new ImagePreprocessor(targetWidth, targetHeight, grayscale);
+        }
+        try {
+            return preprocessor.process(image);
+        } finally {
+            idle.offer(preprocessor);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.udacity.catpoint.image;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates frames of a static room that an object walks through now and then, for exercising
+ * a feed without a camera. The same seed always produces the same frames.
+ */
+public class SyntheticFrameSource implements FrameSource {
+
+    private final int width;
+    private final int height;
+    private final long frameCount;
+    private final long frameIntervalNanos;
+    private final BufferedImage background;
+    private final Random random;
+
+    private long produced;
+    private long nextFrameAt;
+    private volatile boolean closed;
+
+    /**
+     * @param frameCount Number of frames before the source ends
+     * @param framesPerSecond Rate to produce frames at, or 0 to produce them as fast as they are taken
+     */
+    public SyntheticFrameSource(int width, int height, long frameCount, double framesPerSecond, long seed) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("width and height should be positive.");
+        }
+        if (framesPerSecond < 0) {
+            throw new IllegalArgumentException("framesPerSecond should not be negative.");
+        }
+        this.width = width;
+        this.height = height;
+        this.frameCount = frameCount;
+        this.frameIntervalNanos = framesPerSecond == 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / framesPerSecond);
+        this.random = new Random(seed);
+        this.background = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = background.createGraphics();
+        g.setColor(new Color(200, 190, 170));
+        g.fillRect(0, 0, width, height);
+        g.setColor(new Color(120, 90, 60));
+        g.fillRect(0, height * 3 / 4, width, height / 4);
+        g.setColor(new Color(90, 120, 160));
+        g.fillRect(width / 8, height / 8, width / 4, height / 3);
+        g.dispose();
+    }
+
+    @Override
+    public BufferedImage nextFrame() throws InterruptedException {
+        if (closed || produced >= frameCount) {
+            return null;
+        }
+        if (frameIntervalNanos > 0) {
+            long wait = nextFrameAt - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            nextFrameAt = Math.max(nextFrameAt, System.nanoTime()) + frameIntervalNanos;
+        }
+        long index = produced++;
+
+        BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = frame.createGraphics();
+        g.drawImage(background, 0, 0, null);
+        //an object crosses the room during the first half of every 100 frames
+        long phase = index % 100;
+        if (phase < 50) {
+            int size = Math.max(1, height / 4);
+            int x = (int) (phase * (width - size) / 49);
+            g.setColor(new Color(230, 140, 40));
+            g.fillOval(x, height * 3 / 4 - size, size, size);
+        }
+        g.dispose();
+        addNoise(frame);
+        return frame;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Sensor noise on a sparse set of pixels, so consecutive frames are never quite identical.
+     */
+    private void addNoise(BufferedImage frame) {
+        int pixels = width * height / 50;
+        for (int i = 0; i < pixels; i++) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            int rgb = frame.getRGB(x, y);
+            int delta = random.nextInt(9) - 4;
+            int r = clamp(((rgb >> 16) & 0xFF) + delta);
+            int gr = clamp(((rgb >> 8) & 0xFF) + delta);
+            int b = clamp((rgb & 0xFF) + delta);
+            frame.setRGB(x, y, r << 16 | gr << 8 | b);
+        }
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
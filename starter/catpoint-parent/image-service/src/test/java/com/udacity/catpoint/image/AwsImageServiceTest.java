@@ -0,0 +1,217 @@
+package com.udacity.catpoint.image;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.rekognition.RekognitionClient;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
+import software.amazon.awssdk.services.rekognition.model.Label;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Timeout(10)
+public class AwsImageServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final StubRekognitionClient client = new StubRekognitionClient(new CountDownLatch(0));
+    private final AwsImageService service = new AwsImageService(client, 4);
+
+    @AfterEach
+    void close() {
+        service.close();
+    }
+
+    /**
+     * Answers with a cat label after waiting for {@code release}, and records every request.
+     */
+    private static class StubRekognitionClient implements RekognitionClient {
+        private final List<DetectLabelsRequest> requests = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release;
+        private boolean closed;
+
+        private StubRekognitionClient(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public DetectLabelsResponse detectLabels(DetectLabelsRequest request) {
+            requests.add(request);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return DetectLabelsResponse.builder()
+                    .labels(Label.builder().name("Cat").confidence(99.0f).build())
+                    .build();
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    void close_shouldWaitForOutstandingRequests() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        StubRekognitionClient client = new StubRekognitionClient(release);
+        AwsImageService service = new AwsImageService(client, 4);
+        CompletableFuture<Boolean> result = service.imageContainsCatAsync(image(), 50.0f);
+
+        Thread closer = Thread.ofPlatform().start(service::close);
+        Thread.sleep(100);
+        assertTrue(closer.isAlive());
+        assertFalse(result.isDone());
+
+        release.countDown();
+        closer.join();
+        assertTrue(result.isDone());
+        assertTrue(result.get());
+        assertEquals(0, service.requestsInFlight());
+    }
+
+    @Test
+    void requestsAfterClose_shouldFail() {
+        StubRekognitionClient client = new StubRekognitionClient(new CountDownLatch(0));
+        AwsImageService service = new AwsImageService(client, 4);
+        service.close();
+
+        CompletableFuture<Boolean> result = service.imageContainsCatAsync(image(), 50.0f);
+
+        assertThrows(ExecutionException.class, result::get);
+        assertEquals(0, service.requestsInFlight());
+        assertTrue(client.requests.isEmpty());
+        //the caller's client is the caller's to close
+        assertFalse(client.closed);
+    }
+
+    @Test
+    void wholeArrayBuffer_shouldBeSentWithoutCopying() throws IOException {
+        byte[] jpeg = ImageServiceTest.jpeg(40, 30);
+
+        assertTrue(service.imageContainsCat(ByteBuffer.wrap(jpeg), 50.0f));
+
+        assertSame(jpeg, sentBytes(0));
+    }
+
+    @Test
+    void slicedAndDirectBuffers_shouldBeCopied() throws IOException {
+        byte[] jpeg = ImageServiceTest.jpeg(40, 30);
+        byte[] padded = new byte[jpeg.length + 20];
+        System.arraycopy(jpeg, 0, padded, 10, jpeg.length);
+        ByteBuffer slice = ByteBuffer.wrap(padded, 10, jpeg.length);
+        ByteBuffer direct = ByteBuffer.allocateDirect(jpeg.length).put(jpeg).flip();
+
+        service.imageContainsCat(slice, 50.0f);
+        service.imageContainsCat(direct, 50.0f);
+
+        assertArrayEquals(jpeg, sentBytes(0));
+        assertArrayEquals(jpeg, sentBytes(1));
+        assertEquals(10, slice.position());
+        assertEquals(0, direct.position());
+    }
+
+    @Test
+    void imageFile_shouldBeSentAsItIs() throws IOException {
+        byte[] jpeg = ImageServiceTest.jpeg(40, 30);
+        Path file = directory.resolve("frame.jpg");
+        Files.write(file, jpeg);
+
+        service.imageContainsCat(file, 50.0f);
+
+        assertArrayEquals(jpeg, sentBytes(0));
+        assertEquals(50.0f, client.requests.get(0).minConfidence());
+    }
+
+    // the encoder's buffer goes back to the pool, so each request must hold its own copy
+    @Test
+    void encodedFrames_shouldKeepTheirBytesAfterTheBufferIsReused() throws Exception {
+        Color[] colors = {Color.RED, Color.GREEN, Color.BLUE, Color.WHITE};
+        int framesEach = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(colors.length);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Color color : colors) {
+            BufferedImage image = filled(color);
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < framesEach; i++) {
+                    service.imageContainsCat(image, 50.0f);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Map<Integer, Integer> framesPerColor = new HashMap<>();
+        for (int i = 0; i < client.requests.size(); i++) {
+            BufferedImage sent = ImageIO.read(new ByteArrayInputStream(sentBytes(i)));
+            framesPerColor.merge(nearest(colors, new Color(sent.getRGB(8, 8))).getRGB(), 1, Integer::sum);
+        }
+        for (Color color : colors) {
+            assertEquals(framesEach, framesPerColor.get(color.getRGB()), color.toString());
+        }
+    }
+
+    private byte[] sentBytes(int request) {
+        return client.requests.get(request).image().bytes().asByteArrayUnsafe();
+    }
+
+    private static BufferedImage filled(Color color) {
+        BufferedImage image = new BufferedImage(32, 24, BufferedImage.TYPE_3BYTE_BGR);
+        var graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.dispose();
+        return image;
+    }
+
+    private static Color nearest(Color[] colors, Color color) {
+        Color nearest = colors[0];
+        int best = Integer.MAX_VALUE;
+        for (Color candidate : colors) {
+            int distance = Math.abs(candidate.getRed() - color.getRed()) + Math.abs(candidate.getGreen() - color.getGreen())
+                    + Math.abs(candidate.getBlue() - color.getBlue());
+            if (distance < best) {
+                best = distance;
+                nearest = candidate;
+            }
+        }
+        return nearest;
+    }
+
+    private static BufferedImage image() {
+        return new BufferedImage(32, 24, BufferedImage.TYPE_3BYTE_BGR);
+    }
+}
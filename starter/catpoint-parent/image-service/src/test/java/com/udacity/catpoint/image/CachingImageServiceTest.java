@@ -0,0 +1,136 @@
+package com.udacity.catpoint.image;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingImageServiceTest {
+
+    private int delegateCalls;
+    private final ImageService countingDelegate = (image, confidenceThreshold) -> {
+        delegateCalls++;
+        return true;
+    };
+
+    @BeforeEach
+    void init() {
+        delegateCalls = 0;
+    }
+
+    @Test
+    void repeatedAndNoisyFrames_shouldBeAnsweredFromCache() {
+        CachingImageService service = new CachingImageService(countingDelegate);
+        BufferedImage scene = gradient(320, 240, false);
+
+        assertTrue(service.imageContainsCat(scene, 50.0f));
+        assertTrue(service.imageContainsCat(scene, 50.0f));
+        assertTrue(service.imageContainsCat(withNoise(scene, 3), 50.0f));
+
+        assertEquals(1, delegateCalls);
+        CachingImageService.CacheStats stats = service.getStats();
+        assertEquals(1, stats.misses());
+        assertEquals(2, stats.hits() + stats.nearHits());
+    }
+
+    @Test
+    void differentSceneOrThreshold_shouldGoToDelegate() {
+        CachingImageService service = new CachingImageService(countingDelegate);
+        BufferedImage scene = gradient(320, 240, false);
+
+        service.imageContainsCat(scene, 50.0f);
+        service.imageContainsCat(gradient(320, 240, true), 50.0f);
+        service.imageContainsCat(scene, 90.0f);
+
+        assertEquals(3, delegateCalls);
+    }
+
+    @Test
+    void expiredEntries_shouldNotBeUsed() {
+        CachingImageService service = new CachingImageService(countingDelegate, 16, Duration.ZERO, 4);
+        BufferedImage scene = gradient(320, 240, false);
+
+        service.imageContainsCat(scene, 50.0f);
+        service.imageContainsCat(scene, 50.0f);
+
+        assertEquals(2, delegateCalls);
+    }
+
+    @Test
+    void asyncMisses_shouldUseTheDelegatesAsyncPath() throws Exception {
+        AsyncOnlyDelegate delegate = new AsyncOnlyDelegate();
+        CachingImageService service = new CachingImageService(delegate);
+        BufferedImage scene = gradient(320, 240, false);
+
+        assertTrue(service.imageContainsCatAsync(scene, 50.0f).get());
+        assertTrue(service.imageContainsCatAsync(scene, 50.0f).get());
+
+        assertEquals(1, delegate.asyncCalls);
+        assertEquals(1, service.getStats().misses());
+    }
+
+    // a delegate with no async path of its own must not run on the caller or the common pool
+    @Test
+    void blockingDelegate_shouldRunOnTheClassifierPool() throws Exception {
+        CachingImageService service = new CachingImageService((image, confidenceThreshold) ->
+                Thread.currentThread().getName().startsWith("catpoint-image-classifier-"));
+
+        assertTrue(service.imageContainsCatAsync(gradient(320, 240, false), 50.0f).get());
+    }
+
+    @Test
+    void preprocessingDecorator_shouldForwardToTheDelegatesAsyncPath() throws Exception {
+        AsyncOnlyDelegate delegate = new AsyncOnlyDelegate();
+        PreprocessingImageService service = new PreprocessingImageService(delegate, 64, 48, true);
+
+        assertTrue(service.imageContainsCatAsync(gradient(320, 240, false), 50.0f).get());
+        assertEquals(1, delegate.asyncCalls);
+    }
+
+    private static class AsyncOnlyDelegate implements ImageService, AsyncImageService {
+        private int asyncCalls;
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold) {
+            asyncCalls++;
+            return CompletableFuture.completedFuture(true);
+        }
+    }
+
+    private static BufferedImage gradient(int width, int height, boolean reversed) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int level = (x * 255 / width + (int) (40 * Math.sin(y / 20.0))) & 0xFF;
+                if (reversed) {
+                    level = 255 - level;
+                }
+                image.setRGB(x, y, level << 16 | level << 8 | level);
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage withNoise(BufferedImage source, int amplitude) {
+        Random random = new Random(7);
+        BufferedImage image = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < source.getHeight(); y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                int level = (source.getRGB(x, y) & 0xFF) + random.nextInt(2 * amplitude + 1) - amplitude;
+                level = Math.max(0, Math.min(255, level));
+                image.setRGB(x, y, level << 16 | level << 8 | level);
+            }
+        }
+        return image;
+    }
+}
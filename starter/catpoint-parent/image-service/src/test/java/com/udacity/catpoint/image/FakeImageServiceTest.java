@@ -0,0 +1,46 @@
+package com.udacity.catpoint.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FakeImageServiceTest {
+
+    private final FakeImageService imageService = new FakeImageService();
+
+    // the guess ignores the image, so none of the overloads may try to decode or read it
+    @Test
+    void encodedOverloads_shouldNotDecodeTheImage() {
+        ByteBuffer garbage = ByteBuffer.wrap(new byte[]{1, 2, 3});
+
+        assertDoesNotThrow(() -> imageService.imageContainsCat(garbage, 50.0f));
+        assertDoesNotThrow(() -> imageService.imageContainsCat(Path.of("does-not-exist.jpg"), 50.0f));
+        assertEquals(0, garbage.position());
+    }
+
+    @Test
+    void asyncGuess_shouldAlreadyBeComplete() {
+        CompletableFuture<Boolean> guess = imageService.imageContainsCatAsync(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB), 50.0f);
+
+        assertTrue(guess.isDone());
+        assertNotNull(guess.join());
+    }
+
+    @Test
+    void guesses_shouldGiveBothAnswers() {
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        boolean sawCat = false;
+        boolean sawNoCat = false;
+        for (int i = 0; i < 200 && !(sawCat && sawNoCat); i++) {
+            boolean cat = imageService.imageContainsCat(image, 50.0f);
+            sawCat |= cat;
+            sawNoCat |= !cat;
+        }
+        assertTrue(sawCat && sawNoCat);
+    }
+}
@@ -0,0 +1,185 @@
+package com.udacity.catpoint.image;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrameSourceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void mjpegStream_shouldYieldEachFrameAndSkipPartHeaders() throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 0; i < 3; i++) {
+            stream.write("--frame\r\nContent-Type: image/jpeg\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            ImageIO.write(solid(40 + i * 10, 30), "jpg", stream);
+            stream.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        try (MjpegFrameSource source = new MjpegFrameSource(new ByteArrayInputStream(stream.toByteArray()), 0)) {
+            for (int i = 0; i < 3; i++) {
+                BufferedImage frame = source.nextFrame();
+                assertNotNull(frame);
+                assertEquals(40 + i * 10, frame.getWidth());
+            }
+            assertNull(source.nextFrame());
+        }
+    }
+
+    // the thumbnail is a whole JPEG inside the APP1 segment; its end marker must not end the frame
+    @Test
+    void mjpegFrameWithExifThumbnail_shouldBeReadWhole() throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 0; i < 2; i++) {
+            stream.write("--frame\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            stream.write(withExifThumbnail(jpeg(noisy(64 + i * 16, 48, i)), jpeg(noisy(16, 12, 10 + i))));
+        }
+
+        try (MjpegFrameSource source = new MjpegFrameSource(new ByteArrayInputStream(stream.toByteArray()), 0)) {
+            assertEquals(64, source.nextFrame().getWidth());
+            assertEquals(80, source.nextFrame().getWidth());
+            assertNull(source.nextFrame());
+        }
+    }
+
+    // the file is written in two parts; it must be read once, whole, and not again for the second write's events
+    @Test
+    @Timeout(10)
+    void directoryFrame_shouldBeReadOnceAfterWritesSettle() throws Exception {
+        BufferedImage first = noisy(64, 48, 1);
+        BufferedImage second = noisy(32, 24, 2);
+        byte[] png = png(first);
+        Path file = directory.resolve("frame-1.png");
+
+        try (DirectoryFrameSource source = new DirectoryFrameSource(directory, Duration.ofMillis(300))) {
+            CompletableFuture<BufferedImage> frame = CompletableFuture.supplyAsync(() -> next(source));
+            Files.write(file, Arrays.copyOf(png, png.length / 2));
+            Thread.sleep(100);
+            Files.write(file, Arrays.copyOfRange(png, png.length / 2, png.length), StandardOpenOption.APPEND);
+            assertSamePixels(first, frame.get());
+
+            Files.write(directory.resolve("frame-2.png"), png(second));
+            assertSamePixels(second, next(source));
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void renamedDirectoryFrame_shouldBeReadWithoutSettleTime() throws Exception {
+        BufferedImage image = noisy(64, 48, 3);
+        Path temporary = directory.resolve("frame.tmp");
+
+        try (DirectoryFrameSource source = new DirectoryFrameSource(directory, Duration.ZERO)) {
+            Files.write(temporary, png(image));
+            Files.move(temporary, directory.resolve("frame.png"), StandardCopyOption.ATOMIC_MOVE);
+            assertSamePixels(image, source.nextFrame());
+        }
+    }
+
+    // the synthetic room is static for half of every 100 frames, which the gate should drop
+    @Test
+    void motionGate_shouldDropFramesOfStaticScene() throws Exception {
+        MotionGate gate = new MotionGate();
+        int passedWhileMoving = 0;
+        int passedWhileStatic = 0;
+        try (SyntheticFrameSource source = new SyntheticFrameSource(320, 240, 200, 0, 1)) {
+            BufferedImage frame;
+            for (int index = 0; (frame = source.nextFrame()) != null; index++) {
+                if (gate.hasMotion(frame)) {
+                    if (index % 100 < 50) {
+                        passedWhileMoving++;
+                    } else {
+                        passedWhileStatic++;
+                    }
+                }
+            }
+        }
+        assertTrue(passedWhileMoving >= 20, "only " + passedWhileMoving + " moving frames passed");
+        //leaving the scene is one change per empty period, after that nothing moves
+        assertTrue(passedWhileStatic <= 2, passedWhileStatic + " static frames passed");
+    }
+
+    private static BufferedImage next(DirectoryFrameSource source) {
+        try {
+            return source.nextFrame();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    /**
+     * Inserts an APP1 segment holding an EXIF header and the thumbnail right after the start marker.
+     */
+    private static byte[] withExifThumbnail(byte[] jpeg, byte[] thumbnail) {
+        byte[] exifHeader = "Exif\0\0".getBytes(StandardCharsets.US_ASCII);
+        int length = 2 + exifHeader.length + thumbnail.length;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, 2);
+        out.write(0xFF);
+        out.write(0xE1);
+        out.write(length >> 8);
+        out.write(length & 0xFF);
+        out.writeBytes(exifHeader);
+        out.writeBytes(thumbnail);
+        out.write(jpeg, 2, jpeg.length - 2);
+        return out.toByteArray();
+    }
+
+    private static byte[] jpeg(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    //noise makes the encoder emit 0xFF bytes in the scan data, which are stuffed with zeros
+    private static BufferedImage noisy(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage solid(int width, int height) {
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+}
@@ -0,0 +1,86 @@
+package com.udacity.catpoint.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImagePreprocessorTest {
+
+    @Test
+    void process_shouldAverageBoxesAndKeepAspectRatio() {
+        BufferedImage source = new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB);
+        source.setRGB(0, 0, 0x000000);
+        source.setRGB(1, 0, 0x646464);
+        source.setRGB(0, 1, 0xC8C8C8);
+        source.setRGB(1, 1, 0x646464);
+        for (int y = 0; y < 2; y++) {
+            source.setRGB(2, y, 0xFF0000);
+            source.setRGB(3, y, 0x0000FF);
+        }
+
+        BufferedImage result = new ImagePreprocessor(2, 2, false).process(source);
+
+        assertEquals(BufferedImage.TYPE_INT_RGB, result.getType());
+        assertEquals(2, result.getWidth());
+        assertEquals(1, result.getHeight());
+        assertEquals(0x646464, result.getRGB(0, 0) & 0xFFFFFF);
+        assertEquals(0x7F007F, result.getRGB(1, 0) & 0xFFFFFF);
+    }
+
+    // every direct DataBuffer path must agree with the packed int path
+    @Test
+    void process_shouldGiveSameResultForEveryRasterLayout() {
+        BufferedImage reference = noise(203, 157);
+        ImagePreprocessor preprocessor = new ImagePreprocessor(64, 64, false);
+        BufferedImage expected = preprocessor.process(reference);
+
+        int[] types = {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_BGR, BufferedImage.TYPE_3BYTE_BGR,
+                BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_INT_ARGB_PRE};
+        for (int type : types) {
+            BufferedImage converted = new BufferedImage(reference.getWidth(), reference.getHeight(), type);
+            converted.createGraphics().drawImage(reference, 0, 0, null);
+            assertSameImage(expected, preprocessor.process(converted), "type " + type);
+        }
+
+        BufferedImage padded = new BufferedImage(reference.getWidth() + 20, reference.getHeight() + 10,
+                BufferedImage.TYPE_3BYTE_BGR);
+        padded.createGraphics().drawImage(reference, 7, 5, null);
+        BufferedImage subImage = padded.getSubimage(7, 5, reference.getWidth(), reference.getHeight());
+        assertSameImage(expected, preprocessor.process(subImage), "sub-image");
+    }
+
+    @Test
+    void process_shouldConvertToGrayscale() {
+        BufferedImage source = noise(100, 100);
+        BufferedImage result = new ImagePreprocessor(10, 10, true).process(source);
+
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, result.getType());
+        assertEquals(10, result.getWidth());
+        int level = result.getRaster().getSample(3, 3, 0);
+        assertTrue(level > 0 && level < 255);
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual, String message) {
+        assertEquals(expected.getWidth(), actual.getWidth(), message);
+        assertEquals(expected.getHeight(), actual.getHeight(), message);
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), message + " at " + x + "," + y);
+            }
+        }
+    }
+
+    private static BufferedImage noise(int width, int height) {
+        Random random = new Random(3);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+}
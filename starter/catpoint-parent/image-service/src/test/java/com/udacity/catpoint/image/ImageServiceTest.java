@@ -0,0 +1,86 @@
+package com.udacity.catpoint.image;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageServiceTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Keeps the images handed to the BufferedImage method, which the default overloads decode into.
+     */
+    private final List<BufferedImage> decoded = new ArrayList<>();
+    private final ImageService recording = (image, confidenceThreshold) -> {
+        decoded.add(image);
+        return image.getWidth() == 40;
+    };
+
+    @Test
+    void encodedBuffer_shouldBeDecodedWithoutMovingItsPosition() throws IOException {
+        byte[] jpeg = jpeg(40, 30);
+        ByteBuffer buffer = ByteBuffer.wrap(jpeg);
+
+        assertTrue(recording.imageContainsCat(buffer, 50.0f));
+
+        assertEquals(0, buffer.position());
+        assertEquals(jpeg.length, buffer.remaining());
+        assertEquals(30, decoded.get(0).getHeight());
+    }
+
+    @Test
+    void slicedAndDirectBuffers_shouldDecodeOnlyTheirRemainingBytes() throws IOException {
+        byte[] jpeg = jpeg(40, 30);
+        byte[] padded = new byte[jpeg.length + 20];
+        System.arraycopy(jpeg, 0, padded, 10, jpeg.length);
+        ByteBuffer slice = ByteBuffer.wrap(padded, 10, jpeg.length).slice();
+        ByteBuffer direct = ByteBuffer.allocateDirect(jpeg.length).put(jpeg).flip();
+
+        assertTrue(recording.imageContainsCat(slice, 50.0f));
+        assertTrue(recording.imageContainsCat(direct, 50.0f));
+
+        assertEquals(2, decoded.size());
+        assertEquals(0, direct.position());
+    }
+
+    @Test
+    void imageFile_shouldBeDecoded() throws IOException {
+        Path file = directory.resolve("frame.jpg");
+        Files.write(file, jpeg(40, 30));
+
+        assertTrue(recording.imageContainsCat(file, 50.0f));
+        assertEquals(40, decoded.get(0).getWidth());
+    }
+
+    @Test
+    void undecodableImages_shouldThrowUncheckedIOException() throws IOException {
+        Path file = directory.resolve("frame.jpg");
+        Files.write(file, new byte[]{1, 2, 3});
+
+        assertThrows(UncheckedIOException.class, () -> recording.imageContainsCat(ByteBuffer.wrap(new byte[]{1, 2, 3}), 50.0f));
+        assertThrows(UncheckedIOException.class, () -> recording.imageContainsCat(file, 50.0f));
+        assertThrows(UncheckedIOException.class, () -> recording.imageContainsCat(directory.resolve("missing.jpg"), 50.0f));
+        assertTrue(decoded.isEmpty());
+    }
+
+    static byte[] jpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", os);
+        return os.toByteArray();
+    }
+}
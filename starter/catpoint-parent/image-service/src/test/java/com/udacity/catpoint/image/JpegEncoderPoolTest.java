@@ -0,0 +1,88 @@
+package com.udacity.catpoint.image;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JpegEncoderPoolTest {
+
+    private final JpegEncoderPool pool = new JpegEncoderPool();
+
+    @Test
+    void encodedBytes_shouldDecodeToTheImage() throws IOException {
+        BufferedImage decoded = pool.encode(filled(64, 48, Color.RED), JpegEncoderPoolTest::decode);
+
+        assertEquals(64, decoded.getWidth());
+        assertEquals(48, decoded.getHeight());
+        assertColor(Color.RED, decoded);
+    }
+
+    @Test
+    void sequentialEncodes_shouldReuseOneBuffer() throws IOException {
+        byte[] first = pool.encode(filled(64, 48, Color.RED), ByteBuffer::array);
+        byte[] second = pool.encode(filled(64, 48, Color.BLUE), ByteBuffer::array);
+
+        assertSame(first, second);
+    }
+
+    // every thread must read back its own frame, never bytes another thread wrote into a shared buffer
+    @Test
+    @Timeout(30)
+    void concurrentEncodes_shouldEachSeeTheirOwnBytes() throws Exception {
+        Color[] colors = {Color.RED, Color.GREEN, Color.BLUE, Color.WHITE};
+        ExecutorService executor = Executors.newFixedThreadPool(colors.length);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Color color : colors) {
+            BufferedImage image = filled(64, 48, color);
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    BufferedImage decoded = pool.encode(image, JpegEncoderPoolTest::decode);
+                    assertColor(color, decoded);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+    }
+
+    private static BufferedImage decode(ByteBuffer bytes) {
+        try {
+            return ImageIO.read(new ByteArrayInputStream(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining()));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static BufferedImage filled(int width, int height, Color color) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        var graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        return image;
+    }
+
+    // JPEG is lossy, so allow some drift on each channel
+    private static void assertColor(Color expected, BufferedImage image) {
+        Color actual = new Color(image.getRGB(image.getWidth() / 2, image.getHeight() / 2));
+        assertTrue(Math.abs(expected.getRed() - actual.getRed()) < 16
+                && Math.abs(expected.getGreen() - actual.getGreen()) < 16
+                && Math.abs(expected.getBlue() - actual.getBlue()) < 16, "expected " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,158 @@
+package com.udacity.catpoint.image;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalCatClassifierImageServiceTest {
+
+    private static final int TRAINING_IMAGES = 40;
+    private static final int HELD_OUT_IMAGES = 40;
+
+    private final LocalCatClassifierImageService imageService = new LocalCatClassifierImageService();
+
+    // the bundled weights were fitted on these images, so this only shows they were loaded intact
+    @Test
+    void bundledWeights_shouldReproduceTheirTrainingSamples() throws IOException {
+        assertTrue(imageService.imageContainsCat(load("sample-cat.jpg"), 50.0f));
+        assertFalse(imageService.imageContainsCat(load("sample-not-cat.jpg"), 50.0f));
+        assertFalse(imageService.imageContainsCat(load("sample-not-a-cat-fail.jpg"), 50.0f));
+    }
+
+    // weights fitted on one set of generated scenes must classify scenes they have never seen
+    @Test
+    void fittedWeights_shouldClassifyHeldOutImages() {
+        List<float[]> features = new ArrayList<>();
+        List<Boolean> labels = new ArrayList<>();
+        for (int i = 0; i < TRAINING_IMAGES; i++) {
+            boolean cat = i % 2 == 0;
+            features.add(LocalCatClassifierImageService.features(scene(cat, i)));
+            labels.add(cat);
+        }
+        LocalCatClassifierImageService fitted = new LocalCatClassifierImageService(fit(features, labels));
+
+        int correct = 0;
+        for (int i = 0; i < HELD_OUT_IMAGES; i++) {
+            boolean cat = i % 2 == 0;
+            //seeds past the training range, so none of these images was used for fitting
+            if (fitted.imageContainsCat(scene(cat, 10_000 + i), 50.0f) == cat) {
+                correct++;
+            }
+        }
+        assertTrue(correct >= HELD_OUT_IMAGES * 0.9, correct + " of " + HELD_OUT_IMAGES + " held-out images correct");
+    }
+
+    @Test
+    void concurrentCalls_shouldMatchSequentialAnswers() throws Exception {
+        List<BufferedImage> images = new ArrayList<>();
+        List<Double> expected = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            BufferedImage image = scene(i % 2 == 0, i);
+            images.add(image);
+            expected.add(imageService.catProbability(image));
+        }
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<Double>> results = new ArrayList<>();
+        for (int round = 0; round < 8; round++) {
+            for (BufferedImage image : images) {
+                results.add(executor.submit(() -> imageService.catProbability(image)));
+            }
+        }
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(expected.get(i % images.size()), results.get(i).get());
+        }
+        executor.close();
+    }
+
+    @Test
+    void asyncCalls_shouldMatchSynchronousAnswers() throws Exception {
+        List<BufferedImage> images = new ArrayList<>();
+        List<Boolean> expected = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            BufferedImage image = scene(i % 2 == 0, i);
+            images.add(image);
+            expected.add(imageService.imageContainsCat(image, 50.0f));
+        }
+
+        assertEquals(expected, imageService.classifyAll(images, 50.0f).get());
+    }
+
+    /**
+     * A noisy grating. "Cat" scenes run close to horizontal and the others close to vertical,
+     * with random angle, stripe width, phase and brightness.
+     */
+    private static BufferedImage scene(boolean cat, long seed) {
+        Random random = new Random(seed);
+        double angle = Math.toRadians((cat ? 0 : 90) + random.nextDouble() * 40 - 20);
+        double period = 10 + random.nextDouble() * 20;
+        double phase = random.nextDouble() * 2 * Math.PI;
+        int brightness = 60 + random.nextInt(80);
+        double dx = Math.sin(angle);
+        double dy = Math.cos(angle);
+        BufferedImage image = new BufferedImage(160, 120, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                double wave = Math.sin(2 * Math.PI * (x * dx + y * dy) / period + phase);
+                int grey = Math.clamp(brightness + (int) (wave * 50) + random.nextInt(31) - 15, 0, 255);
+                image.setRGB(x, y, grey << 16 | grey << 8 | grey);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Plain logistic regression by gradient descent, written out in the weights file format.
+     */
+    private static InputStream fit(List<float[]> features, List<Boolean> labels) {
+        int count = LocalCatClassifierImageService.FEATURE_COUNT;
+        double[] weights = new double[count];
+        double bias = 0;
+        double learningRate = 0.5;
+        for (int epoch = 0; epoch < 200; epoch++) {
+            double[] gradient = new double[count];
+            double biasGradient = 0;
+            for (int n = 0; n < features.size(); n++) {
+                float[] x = features.get(n);
+                double score = bias;
+                for (int i = 0; i < count; i++) {
+                    score += weights[i] * x[i];
+                }
+                double error = 1 / (1 + Math.exp(-score)) - (labels.get(n) ? 1 : 0);
+                for (int i = 0; i < count; i++) {
+                    gradient[i] += error * x[i];
+                }
+                biasGradient += error;
+            }
+            for (int i = 0; i < count; i++) {
+                weights[i] -= learningRate * gradient[i] / features.size();
+            }
+            bias -= learningRate * biasGradient / features.size();
+        }
+
+        StringBuilder file = new StringBuilder("features " + count + "\nbias " + bias + "\n");
+        for (double weight : weights) {
+            file.append(weight).append('\n');
+        }
+        return new ByteArrayInputStream(file.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static BufferedImage load(String name) throws IOException {
+        try (InputStream is = LocalCatClassifierImageServiceTest.class.getClassLoader().getResourceAsStream(name)) {
+            return ImageIO.read(is);
+        }
+    }
+}
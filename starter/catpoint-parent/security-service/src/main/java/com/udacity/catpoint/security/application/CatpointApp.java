@@ -1,11 +1,47 @@
 package com.udacity.catpoint.security.application;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+
 /**
  * This is the main class that launches the application.
+ *
+ * The time from process launch until the window is first shown, and until its panels are ready,
+ * is logged at startup. Setting {@code catpoint.startup.exit=true} exits once the panels are
+ * ready, which is used to measure startup and to record the class data sharing archive.
  */
 public class CatpointApp {
+    private static final Logger log = LoggerFactory.getLogger(CatpointApp.class);
+
     public static void main(String[] args) {
-        CatpointGui gui = new CatpointGui();
-        gui.setVisible(true);
+        SwingUtilities.invokeLater(() -> {
+            CatpointGui gui = new CatpointGui();
+            gui.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowOpened(WindowEvent e) {
+                    log.info("Window shown {} ms after launch", millisSinceLaunch());
+                }
+            });
+            gui.addPanelsReadyListener(() -> {
+                log.info("Panels ready {} ms after launch", millisSinceLaunch());
+                if (Boolean.getBoolean("catpoint.startup.exit")) {
+                    System.exit(0);
+                }
+            });
+            gui.setVisible(true);
+        });
+    }
+
+    private static long millisSinceLaunch() {
+        Instant launched = ProcessHandle.current().info().startInstant()
+                .orElseGet(() -> Instant.ofEpochMilli(ManagementFactory.getRuntimeMXBean().getStartTime()));
+        return Duration.between(launched, Instant.now()).toMillis();
     }
 }
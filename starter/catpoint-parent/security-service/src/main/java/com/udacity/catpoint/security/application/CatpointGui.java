@@ -1,20 +1,73 @@
 package com.udacity.catpoint.security.application;
 
+import com.udacity.catpoint.security.data.JournaledSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.MappedSecurityRepositoryImpl;
 import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
 import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.history.EventLog;
+import com.udacity.catpoint.image.DirectoryFrameSource;
 import com.udacity.catpoint.image.FakeImageService;
+import com.udacity.catpoint.image.MotionGate;
+import com.udacity.catpoint.security.metrics.CatpointMetrics;
+import com.udacity.catpoint.security.service.AlarmRules;
+import com.udacity.catpoint.security.service.AsyncStatusListener;
+import com.udacity.catpoint.security.service.CameraFeedService;
 import com.udacity.catpoint.security.service.SecurityService;
+import com.udacity.catpoint.security.telemetry.TelemetryReceiver;
 import net.miginfocom.swing.MigLayout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.management.JMException;
 import javax.swing.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This is the primary JFrame for the application that contains all the top-level JPanels.
  *
  * We're not using any dependency injection framework, so this class also handles constructing
  * all our dependencies and providing them to other classes as necessary.
+ *
+ * Setting the {@code catpoint.journal.dir} system property switches the repository to the
+ * journaled implementation, storing its files in that directory. Likewise {@code catpoint.mapped.dir}
+ * selects the memory-mapped implementation.
+ *
+ * Setting {@code catpoint.camera.dir} starts a camera feed that classifies images written into that
+ * directory, sampled at up to {@code catpoint.camera.fps} frames per second (default 2).
+ *
+ * Setting {@code catpoint.telemetry.port} receives sensor state changes from gateways on that
+ * port of the loopback address, over UDP and TCP. Set {@code catpoint.telemetry.host} to listen
+ * elsewhere.
+ *
+ * Setting {@code catpoint.rules} to a file of {@link AlarmRules} replaces the built-in alarm rules.
+ *
+ * Setting {@code catpoint.history.dir} records the history of every state change in an event log
+ * in that directory.
+ *
+ * Latency histograms and status transition counts are published over JMX under the
+ * {@code com.udacity.catpoint} domain.
+ *
+ * Panels receive status events through a {@link CoalescingStatusListener}, which updates them at
+ * most {@code catpoint.ui.fps} times a second (default 60). Setting {@code catpoint.ui.dispatch} to
+ * an {@link AsyncStatusListener.WaitStrategy} also hands those events over on a separate thread, so
+ * service calls do not wait for the panels at all.
+ *
+ * To show the window as early as possible, only the services are built by the constructor. The
+ * panels are built on the event dispatch thread once the window has opened, and listeners added
+ * with {@link #addPanelsReadyListener(Runnable)} run after that.
  */
 public class CatpointGui extends JFrame {
+    private static final Logger log = LoggerFactory.getLogger(CatpointGui.class);
+
     private transient SecurityRepository securityRepository;
     private transient FakeImageService imageService;
     private transient SecurityService securityService;
@@ -22,43 +75,172 @@ public class CatpointGui extends JFrame {
     private transient ControlPanel controlPanel;
     private transient SensorPanel sensorPanel;
     private transient ImagePanel imagePanel;
+    private transient JPanel mainPanel;
+    private transient List<Runnable> panelsReadyListeners = new ArrayList<>();
 
     public CatpointGui() {
-        securityRepository = new PretendDatabaseSecurityRepositoryImpl();
+        securityRepository = createRepository();
         imageService = new FakeImageService();
-        securityService = new SecurityService(securityRepository, imageService);
-        displayPanel = new DisplayPanel(securityService);
-        controlPanel = new ControlPanel(securityService);
-        sensorPanel = new SensorPanel(securityService);
-        imagePanel = new ImagePanel(securityService);
+        securityService = new SecurityService(securityRepository, imageService, createMetrics(), createEventLog());
+        securityService.setAlarmRules(createAlarmRules());
 
         setLocation(100, 100);
         setSize(600, 850);
         setTitle("Very Secure App");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-        JPanel mainPanel = new JPanel();
+        mainPanel = new JPanel();
         mainPanel.setLayout(new MigLayout());
+        setContentPane(mainPanel);
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                SwingUtilities.invokeLater(CatpointGui.this::buildPanels);
+            }
+        });
+    }
+
+    /**
+     * Registers an action to run on the event dispatch thread once the panels have been built.
+     * Must be called on the event dispatch thread, or before the window is shown.
+     */
+    public void addPanelsReadyListener(Runnable listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener of Runnable should not be null.");
+        }
+        if (displayPanel != null) {
+            listener.run();
+        } else {
+            panelsReadyListeners.add(listener);
+        }
+    }
+
+    private void buildPanels() {
+        if (displayPanel != null) {
+            return;
+        }
+        displayPanel = new DisplayPanel(securityService);
+        controlPanel = new ControlPanel(securityService);
+        sensorPanel = new SensorPanel(securityService);
+        imagePanel = new ImagePanel(securityService);
+
         mainPanel.add(displayPanel, "wrap");
         mainPanel.add(imagePanel, "wrap");
         mainPanel.add(controlPanel, "wrap");
         mainPanel.add(sensorPanel);
+        mainPanel.revalidate();
+        mainPanel.repaint();
 
-        setContentPane(mainPanel);
+        startCameraFeed();
+        startTelemetry();
+        panelsReadyListeners.forEach(Runnable::run);
+        panelsReadyListeners.clear();
+    }
+
+    static SecurityRepository createRepository() {
+        String journalDir = System.getProperty("catpoint.journal.dir");
+        if (journalDir != null) {
+            return new JournaledSecurityRepositoryImpl(Path.of(journalDir));
+        }
+        String mappedDir = System.getProperty("catpoint.mapped.dir");
+        if (mappedDir != null) {
+            return new MappedSecurityRepositoryImpl(Path.of(mappedDir));
+        }
+        return new PretendDatabaseSecurityRepositoryImpl();
+    }
+
+    static EventLog createEventLog() {
+        String historyDir = System.getProperty("catpoint.history.dir");
+        return historyDir == null ? null : new EventLog(Path.of(historyDir));
+    }
+
+    static AlarmRules createAlarmRules() {
+        String rulesFile = System.getProperty("catpoint.rules");
+        if (rulesFile == null) {
+            return AlarmRules.defaults();
+        }
+        try {
+            return AlarmRules.load(Path.of(rulesFile));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read alarm rules from " + rulesFile, e);
+        }
+    }
+
+    static CatpointMetrics createMetrics() {
+        CatpointMetrics metrics = new CatpointMetrics();
+        try {
+            metrics.register(ManagementFactory.getPlatformMBeanServer());
+        } catch (JMException e) {
+            log.error("Unable to publish metrics over JMX", e);
+        }
+        return metrics;
+    }
+
+    /**
+     * @return The listener a panel registers with the service in place of itself
+     */
+    static StatusListener panelListener(StatusListener panel) {
+        StatusListener listener = new CoalescingStatusListener(panel);
+        String dispatch = System.getProperty("catpoint.ui.dispatch");
+        if (dispatch != null) {
+            listener = new AsyncStatusListener(listener, AsyncStatusListener.WaitStrategy.valueOf(dispatch));
+        }
+        return listener;
+    }
 
+    private void startCameraFeed() {
+        String cameraDir = System.getProperty("catpoint.camera.dir");
+        if (cameraDir == null) {
+            return;
+        }
+        try {
+            double framesPerSecond = Double.parseDouble(System.getProperty("catpoint.camera.fps", "2"));
+            new CameraFeedService(new DirectoryFrameSource(Path.of(cameraDir)), new MotionGate(),
+                    securityService, framesPerSecond).start();
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Unable to start the camera feed for {}", cameraDir, e);
+        }
+    }
+
+    /**
+     * @return A receiver that is not started yet, or null if telemetry is not configured or the
+     *         port is unavailable
+     */
+    static TelemetryReceiver createTelemetryReceiver(SecurityService securityService) {
+        Integer port = Integer.getInteger("catpoint.telemetry.port");
+        if (port == null) {
+            return null;
+        }
+        String host = System.getProperty("catpoint.telemetry.host");
+        InetSocketAddress address = host == null
+                ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port)
+                : new InetSocketAddress(host, port);
+        try {
+            return new TelemetryReceiver(securityService, address);
+        } catch (IOException e) {
+            log.error("Unable to receive telemetry on {}", address, e);
+            return null;
+        }
+    }
+
+    private void startTelemetry() {
+        TelemetryReceiver telemetryReceiver = createTelemetryReceiver(securityService);
+        if (telemetryReceiver != null) {
+            telemetryReceiver.start();
+        }
     }
 
     private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
         in.defaultReadObject();
 
 //        for spotsbug bug of low priority
-        securityRepository = new PretendDatabaseSecurityRepositoryImpl();
+        securityRepository = createRepository();
         imageService = new FakeImageService();
         securityService = new SecurityService(securityRepository, imageService);
-        displayPanel = new DisplayPanel(securityService);
-        controlPanel = new ControlPanel(securityService);
-        sensorPanel = new SensorPanel(securityService);
-        imagePanel = new ImagePanel(securityService);
+        mainPanel = (JPanel) getContentPane();
+        panelsReadyListeners = new ArrayList<>();
+        buildPanels();
     }
 
 }
@@ -0,0 +1,72 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.image.FakeImageService;
+import com.udacity.catpoint.security.history.EventLog;
+import com.udacity.catpoint.security.server.CatpointHttpServer;
+import com.udacity.catpoint.security.service.SecurityService;
+import com.udacity.catpoint.security.telemetry.TelemetryReceiver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+/**
+ * Launches the security logic without a user interface, controlled through the HTTP API of
+ * {@link CatpointHttpServer}.
+ *
+ * The repository, event log, metrics and alarm rules are chosen from the same system properties
+ * as {@link CatpointGui}. The API listens on the loopback address, port {@code catpoint.server.port}
+ * (default 8080); set {@code catpoint.server.host} to listen elsewhere. Setting
+ * {@code catpoint.telemetry.port} also receives sensor telemetry from gateways on that port, see
+ * {@link TelemetryReceiver}.
+ *
+ * Turns on {@code sun.net.httpserver.nodelay} unless it is set on the command line, see
+ * {@link CatpointHttpServer}.
+ */
+public class CatpointServerApp {
+    private static final Logger log = LoggerFactory.getLogger(CatpointServerApp.class);
+
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        //read once when the JDK server is first used, so it must be set before the server is created
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        EventLog eventLog = CatpointGui.createEventLog();
+        SecurityService securityService = new SecurityService(CatpointGui.createRepository(), new FakeImageService(),
+                CatpointGui.createMetrics(), eventLog);
+        securityService.setAlarmRules(CatpointGui.createAlarmRules());
+        String host = System.getProperty("catpoint.server.host");
+        int port = Integer.getInteger("catpoint.server.port", 8080);
+        InetSocketAddress address = host == null
+                ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port)
+                : new InetSocketAddress(host, port);
+
+        CatpointHttpServer server = new CatpointHttpServer(securityService, address);
+        TelemetryReceiver telemetryReceiver = CatpointGui.createTelemetryReceiver(securityService);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            if (telemetryReceiver != null) {
+                try {
+                    telemetryReceiver.close();
+                } catch (IOException e) {
+                    log.error("Unable to close the telemetry receiver", e);
+                }
+            }
+            if (eventLog != null) {
+                try {
+                    eventLog.close();
+                } catch (IOException e) {
+                    log.error("Unable to close the event log", e);
+                }
+            }
+        }, "catpoint-shutdown"));
+        server.start();
+        if (telemetryReceiver != null) {
+            telemetryReceiver.start();
+        }
+    }
+}
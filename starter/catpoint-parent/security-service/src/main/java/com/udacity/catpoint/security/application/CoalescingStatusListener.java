@@ -0,0 +1,181 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.*;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * StatusListener decorator for Swing components: bursts of events are collapsed to their latest
+ * state and handed to the delegate on the EDT, at most once per display frame.
+ *
+ * Only the last alarm status and cat detection of a frame are delivered. Sensor changes are
+ * delivered per sensor, each sensor once with the last copy of it received, unless a change that names no sensor arrived or more
+ * than {@value #MAX_PENDING_SENSORS} sensors changed, in which case the delegate gets one
+ * {@link #sensorStatusChanged()}. Nothing is scheduled while no events arrive.
+ *
+ * Register the wrapper instead of the component, e.g.
+ * {@code securityService.addStatusListener(new CoalescingStatusListener(panel))}.
+ */
+public class CoalescingStatusListener implements StatusListener {
+
+    /**
+     * Events received from the service, and frames in which the delegate was updated.
+     */
+    public record CoalescingStats(long received, long frames) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(CoalescingStatusListener.class);
+
+    static final int MAX_PENDING_SENSORS = 256;
+
+    private static final double DEFAULT_FRAMES_PER_SECOND = 60;
+
+    //one timer thread for every coalescing listener; it only hands work to the EDT
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catpoint-ui-frames");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final StatusListener delegate;
+    private final long frameNanos;
+
+    private final AtomicReference<AlarmStatus> pendingStatus = new AtomicReference<>();
+    private final AtomicReference<Boolean> pendingCatDetected = new AtomicReference<>();
+    //by id, so a later copy of a sensor replaces the one already pending
+    private final Map<UUID, Sensor> pendingSensors = new ConcurrentHashMap<>();
+    private final AtomicBoolean allSensorsChanged = new AtomicBoolean();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile long lastFrame = System.nanoTime() - TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong frames = new AtomicLong();
+
+    /**
+     * Updates the delegate at most {@code catpoint.ui.fps} times a second, 60 by default or if the
+     * property is not a positive number.
+     */
+    public CoalescingStatusListener(StatusListener delegate) {
+        this(delegate, configuredFramesPerSecond());
+    }
+
+    public CoalescingStatusListener(StatusListener delegate, double framesPerSecond) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate of StatusListener should not be null.");
+        }
+        if (!(framesPerSecond > 0)) {
+            throw new IllegalArgumentException("framesPerSecond should be positive.");
+        }
+        this.delegate = delegate;
+        this.frameNanos = (long) (TimeUnit.SECONDS.toNanos(1) / framesPerSecond);
+    }
+
+    @Override
+    public void notify(AlarmStatus status) {
+        pendingStatus.set(status);
+        received();
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        pendingCatDetected.set(catDetected);
+        received();
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+        allSensorsChanged.set(true);
+        received();
+    }
+
+    @Override
+    public void sensorStatusChanged(Sensor sensor) {
+        if (!allSensorsChanged.get()) {
+            pendingSensors.put(sensor.getSensorId(), sensor);
+            if (pendingSensors.size() > MAX_PENDING_SENSORS) {
+                allSensorsChanged.set(true);
+            }
+        }
+        received();
+    }
+
+    private static double configuredFramesPerSecond() {
+        String configured = System.getProperty("catpoint.ui.fps");
+        if (configured == null) {
+            return DEFAULT_FRAMES_PER_SECOND;
+        }
+        try {
+            double framesPerSecond = Double.parseDouble(configured.trim());
+            if (framesPerSecond > 0 && !Double.isInfinite(framesPerSecond)) {
+                return framesPerSecond;
+            }
+        } catch (NumberFormatException e) {
+            //fall through to the warning
+        }
+        log.warn("catpoint.ui.fps should be a positive number, not \"{}\"; using {}", configured,
+                DEFAULT_FRAMES_PER_SECOND);
+        return DEFAULT_FRAMES_PER_SECOND;
+    }
+
+    public CoalescingStats getStats() {
+        return new CoalescingStats(received.get(), frames.get());
+    }
+
+    private void received() {
+        received.incrementAndGet();
+        if (scheduled.compareAndSet(false, true)) {
+            long delay = Math.max(0, lastFrame + frameNanos - System.nanoTime());
+            scheduler.schedule(() -> SwingUtilities.invokeLater(this::deliver), delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Hands the latest state to the delegate, on the EDT. Events arriving from here on schedule
+     * the next frame, so none are lost.
+     */
+    private void deliver() {
+        scheduled.set(false);
+        lastFrame = System.nanoTime();
+        boolean delivered = false;
+
+        AlarmStatus status = pendingStatus.getAndSet(null);
+        if (status != null) {
+            delegate.notify(status);
+            delivered = true;
+        }
+        Boolean catDetected = pendingCatDetected.getAndSet(null);
+        if (catDetected != null) {
+            delegate.catDetected(catDetected);
+            delivered = true;
+        }
+        if (allSensorsChanged.getAndSet(false)) {
+            pendingSensors.clear();
+            delegate.sensorStatusChanged();
+            delivered = true;
+        } else {
+            for (UUID sensorId : pendingSensors.keySet()) {
+                //removing by id takes whichever copy is latest, even one put after the key was read
+                Sensor sensor = pendingSensors.remove(sensorId);
+                if (sensor != null) {
+                    delegate.sensorStatusChanged(sensor);
+                    delivered = true;
+                }
+            }
+        }
+        if (delivered) {
+            frames.incrementAndGet();
+        }
+    }
+}
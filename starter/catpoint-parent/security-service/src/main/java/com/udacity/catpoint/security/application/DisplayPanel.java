@@ -19,7 +19,7 @@ public class DisplayPanel extends JPanel implements StatusListener {
         super();
         setLayout(new MigLayout());
 
-        securityService.addStatusListener(this);
+        securityService.addStatusListener(CatpointGui.panelListener(this));
 
         JLabel panelLabel = new JLabel("Very Secure Home Security");
         JLabel systemStatusLabel = new JLabel("System Status:");
@@ -37,9 +37,11 @@ public class DisplayPanel extends JPanel implements StatusListener {
 
     @Override
     public void notify(AlarmStatus status) {
-        currentStatusLabel.setText(status.getDescription());
-        currentStatusLabel.setBackground(status.getColor());
-        currentStatusLabel.setOpaque(true);
+        SwingThreads.onEdt(() -> {
+            currentStatusLabel.setText(status.getDescription());
+            currentStatusLabel.setBackground(status.getColor());
+            currentStatusLabel.setOpaque(true);
+        });
     }
 
     @Override
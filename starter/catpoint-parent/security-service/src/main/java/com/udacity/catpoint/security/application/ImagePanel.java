@@ -4,6 +4,8 @@ import com.udacity.catpoint.security.data.AlarmStatus;
 import com.udacity.catpoint.security.service.SecurityService;
 import com.udacity.catpoint.security.service.StyleService;
 import net.miginfocom.swing.MigLayout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
@@ -11,17 +13,33 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /** Panel containing the 'camera' output. Allows users to 'refresh' the camera
  * by uploading their own picture, and 'scan' the picture, sending it for image analysis
+ *
+ * Scans run on virtual threads so a slow image service never blocks the GUI. Only the newest
+ * scan counts: starting a scan cancels the one in flight, and a result that arrives after a newer
+ * scan was started is dropped.
  */
 public class ImagePanel extends JPanel implements StatusListener {
+    private static final Logger log = LoggerFactory.getLogger(ImagePanel.class);
+
     private SecurityService securityService;
 
     private JLabel cameraHeader;
     private JLabel cameraLabel;
+    private JLabel scanStatusLabel;
     private BufferedImage currentCameraImage;
 
+    private final ExecutorService scanExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong scanGeneration = new AtomicLong();
+    private Future<?> scanInFlight; //only touched on the EDT
+
     private int IMAGE_WIDTH = 300;
     private int IMAGE_HEIGHT = 225;
 
@@ -29,7 +47,7 @@ public class ImagePanel extends JPanel implements StatusListener {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
-        securityService.addStatusListener(this);
+        securityService.addStatusListener(CatpointGui.panelListener(this));
 
         cameraHeader = new JLabel("Camera Feed");
         cameraHeader.setFont(StyleService.HEADING_FONT);
@@ -39,6 +57,8 @@ public class ImagePanel extends JPanel implements StatusListener {
         cameraLabel.setPreferredSize(new Dimension(IMAGE_WIDTH, IMAGE_HEIGHT));
         cameraLabel.setBorder(BorderFactory.createLineBorder(Color.DARK_GRAY));
 
+        scanStatusLabel = new JLabel(" ");
+
         //button allowing users to select a file to be the current camera image
         JButton addPictureButton = new JButton("Refresh Camera");
         addPictureButton.addActionListener(e -> {
@@ -61,16 +81,45 @@ public class ImagePanel extends JPanel implements StatusListener {
 
         //button that sends the image to the image service
         JButton scanPictureButton = new JButton("Scan Picture");
-        scanPictureButton.addActionListener(e -> {
-            securityService.processImage(currentCameraImage);
-        });
+        scanPictureButton.addActionListener(e -> scan(currentCameraImage));
 
         add(cameraHeader, "span 3, wrap");
         add(cameraLabel, "span 3, wrap");
+        add(scanStatusLabel, "span 3, wrap");
         add(addPictureButton);
         add(scanPictureButton);
     }
 
+    /**
+     * Starts scanning the image in the background, superseding any scan still running.
+     */
+    private void scan(BufferedImage image) {
+        long generation = scanGeneration.incrementAndGet();
+        if (scanInFlight != null) {
+            scanInFlight.cancel(true);
+        }
+        scanStatusLabel.setText("Scanning...");
+        scanInFlight = scanExecutor.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                boolean applied = securityService.processImage(image, () -> scanGeneration.get() == generation);
+                long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                if (applied) {
+                    SwingThreads.onEdt(() -> {
+                        if (scanGeneration.get() == generation) {
+                            scanStatusLabel.setText(String.format("Last scan took %d ms", millis));
+                        }
+                    });
+                }
+            } catch (RuntimeException ex) {
+                if (scanGeneration.get() == generation) {
+                    log.error("Image scan failed", ex);
+                    SwingThreads.onEdt(() -> scanStatusLabel.setText("Scan failed"));
+                }
+            }
+        });
+    }
+
     @Override
     public void notify(AlarmStatus status) {
         //no behavior necessary
@@ -78,11 +127,13 @@ public class ImagePanel extends JPanel implements StatusListener {
 
     @Override
     public void catDetected(boolean catDetected) {
-        if(catDetected) {
-            cameraHeader.setText("DANGER - CAT DETECTED");
-        } else {
-            cameraHeader.setText("Camera Feed - No Cats Detected");
-        }
+        SwingThreads.onEdt(() -> {
+            if(catDetected) {
+                cameraHeader.setText("DANGER - CAT DETECTED");
+            } else {
+                cameraHeader.setText("Camera Feed - No Cats Detected");
+            }
+        });
     }
 
     @Override
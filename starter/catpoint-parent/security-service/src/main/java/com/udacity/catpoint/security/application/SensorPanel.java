@@ -1,5 +1,6 @@
 package com.udacity.catpoint.security.application;
 
+import com.udacity.catpoint.security.data.AlarmStatus;
 import com.udacity.catpoint.security.data.Sensor;
 import com.udacity.catpoint.security.data.SensorType;
 import com.udacity.catpoint.security.service.SecurityService;
@@ -7,12 +8,16 @@ import com.udacity.catpoint.security.service.StyleService;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import java.util.Collection;
 
 /**
  * Panel that allows users to add sensors to their system. Sensors may be
  * manually set to "active" and "inactive" to test the system.
+ *
+ * Sensors are listed in a table, which only renders the rows in view, so the panel stays
+ * responsive with many thousands of sensors. Status changes repaint just the affected row.
  */
-public class SensorPanel extends JPanel {
+public class SensorPanel extends JPanel implements StatusListener {
 
     private SecurityService securityService;
 
@@ -22,8 +27,10 @@ public class SensorPanel extends JPanel {
     private JTextField newSensorNameField = new JTextField();
     private JComboBox newSensorTypeDropdown = new JComboBox(SensorType.values());
     private JButton addNewSensorButton = new JButton("Add New Sensor");
+    private JButton removeSensorButton = new JButton("Remove Selected");
 
-    private JPanel sensorListPanel;
+    private SensorTableModel sensorTableModel;
+    private JTable sensorTable;
     private JPanel newSensorPanel;
 
     public SensorPanel(SecurityService securityService) {
@@ -35,16 +42,17 @@ public class SensorPanel extends JPanel {
         addNewSensorButton.addActionListener(e ->
                 addSensor(new Sensor(newSensorNameField.getText(),
                         SensorType.valueOf(newSensorTypeDropdown.getSelectedItem().toString()))));
+        removeSensorButton.addActionListener(e -> removeSelectedSensors());
 
         newSensorPanel = buildAddSensorPanel();
-        sensorListPanel = new JPanel();
-        sensorListPanel.setLayout(new MigLayout());
-
-        updateSensorList(sensorListPanel);
+        sensorTableModel = new SensorTableModel(securityService);
+        sensorTable = buildSensorTable(sensorTableModel);
+        securityService.addStatusListener(CatpointGui.panelListener(this));
 
         add(panelLabel, "wrap");
         add(newSensorPanel, "span");
-        add(sensorListPanel, "span");
+        add(new JScrollPane(sensorTable), "span, width 500:500:500, height 100:200:400, wrap");
+        add(removeSensorButton, "span");
     }
 
     /**
@@ -62,59 +70,60 @@ public class SensorPanel extends JPanel {
     }
 
     /**
-     * Requests the current list of sensors and updates the provided panel to display them. Sensors
-     * will display in the order that they are created.
-     * @param p The Panel to populate with the current list of sensors
+     * Builds the table listing the sensors. Every row has the same height, so the table finds
+     * the rows in view without measuring the others.
      */
-    private void updateSensorList(JPanel p) {
-        p.removeAll();
-        securityService.getSensors().stream().sorted().forEach(s -> {
-            JLabel sensorLabel = new JLabel(String.format("%s(%s): %s", s.getName(),  s.getSensorType().toString(),(s.getActive() ? "Active" : "Inactive")));
-            JButton sensorToggleButton = new JButton((s.getActive() ? "Deactivate" : "Activate"));
-            JButton sensorRemoveButton = new JButton("Remove Sensor");
-
-            sensorToggleButton.addActionListener(e -> setSensorActivity(s, !s.getActive()) );
-            sensorRemoveButton.addActionListener(e -> removeSensor(s));
-
-            //hard code some sizes, tsk tsk
-            p.add(sensorLabel, "width 300:300:300");
-            p.add(sensorToggleButton, "width 100:100:100");
-            p.add(sensorRemoveButton, "wrap");
-        });
-
-        repaint();
-        revalidate();
+    private static JTable buildSensorTable(SensorTableModel model) {
+        JTable table = new JTable(model);
+        table.setFillsViewportHeight(true);
+        table.getTableHeader().setReorderingAllowed(false);
+        table.getColumnModel().getColumn(SensorTableModel.NAME_COLUMN).setPreferredWidth(300);
+        table.getColumnModel().getColumn(SensorTableModel.TYPE_COLUMN).setPreferredWidth(100);
+        table.getColumnModel().getColumn(SensorTableModel.ACTIVE_COLUMN).setPreferredWidth(100);
+        return table;
     }
 
     /**
-     * Asks the securityService to change a sensor activation status and then rebuilds the current sensor list
-     * @param sensor The sensor to update
-     * @param isActive The sensor's activation status
+     * Adds a sensor to the securityService and inserts its row
+     * @param sensor The sensor to add
      */
-    private void setSensorActivity(Sensor sensor, Boolean isActive) {
-        securityService.changeSensorActivationStatus(sensor, isActive);
-        updateSensorList(sensorListPanel);
+    private void addSensor(Sensor sensor) {
+        sensorTableModel.addSensor(sensor);
     }
 
     /**
-     * Adds a sensor to the securityService and then rebuilds the sensor list
-     * @param sensor The sensor to add
+     * Removes the selected sensors from the securityService and deletes their rows
      */
-    private void addSensor(Sensor sensor) {
-        if(securityService.getSensors().size() < 4) {
-            securityService.addSensor(sensor);
-            updateSensorList(sensorListPanel);
-        } else {
-            JOptionPane.showMessageDialog(null, "To add more than 4 sensors, please subscribe to our Premium Membership!");
+    private void removeSelectedSensors() {
+        int[] selected = sensorTable.getSelectedRows();
+        //remove from the bottom up so the remaining row indexes stay valid
+        for (int i = selected.length - 1; i >= 0; i--) {
+            sensorTableModel.removeSensor(sensorTableModel.getSensor(selected[i]));
         }
     }
 
-    /**
-     * Remove a sensor from the securityService and then rebuild the sensor list
-     * @param sensor The sensor to remove
-     */
-    private void removeSensor(Sensor sensor) {
-        securityService.removeSensor(sensor);
-        updateSensorList(sensorListPanel);
+    @Override
+    public void notify(AlarmStatus status) {
+        // no behavior necessary
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        // no behavior necessary
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+        SwingThreads.onEdt(sensorTableModel::sensorsChanged);
+    }
+
+    @Override
+    public void sensorStatusChanged(Sensor sensor) {
+        SwingThreads.onEdt(() -> sensorTableModel.sensorChanged(sensor));
+    }
+
+    @Override
+    public void sensorStatusChanged(Collection<Sensor> sensors) {
+        SwingThreads.onEdt(() -> sensors.forEach(sensorTableModel::sensorChanged));
     }
 }
@@ -0,0 +1,135 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.SecurityService;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Table model over the sensors of a {@link SecurityService}, in their natural order. Rows hold the
+ * sensor objects themselves, so a status change only needs the affected row repainted: a sensor
+ * is found by binary search, which works because its sort key (name, type and id) does not change
+ * with its activation status, and a batch of changes repaints just the rows of its sensors. Adding
+ * or removing a sensor inserts or deletes a single row.
+ *
+ * Checking the Active column toggles the sensor through the service. Must be used on the EDT.
+ */
+class SensorTableModel extends AbstractTableModel {
+
+    static final int NAME_COLUMN = 0;
+    static final int TYPE_COLUMN = 1;
+    static final int ACTIVE_COLUMN = 2;
+
+    private static final String[] COLUMN_NAMES = {"Name", "Type", "Active"};
+    private static final Class<?>[] COLUMN_CLASSES = {String.class, SensorType.class, Boolean.class};
+
+    private final SecurityService securityService;
+    private final List<Sensor> rows;
+
+    SensorTableModel(SecurityService securityService) {
+        this.securityService = securityService;
+        this.rows = new ArrayList<>(securityService.getSensors());
+        Collections.sort(rows);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return COLUMN_CLASSES[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column == ACTIVE_COLUMN;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Sensor sensor = rows.get(row);
+        return switch (column) {
+            case NAME_COLUMN -> sensor.getName();
+            case TYPE_COLUMN -> sensor.getSensorType();
+            case ACTIVE_COLUMN -> sensor.getActive();
+            default -> throw new IndexOutOfBoundsException(column);
+        };
+    }
+
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        if (column == ACTIVE_COLUMN) {
+            //the service then notifies the panel, which repaints the row
+            securityService.changeSensorActivationStatus(rows.get(row), (Boolean) value);
+        }
+    }
+
+    Sensor getSensor(int row) {
+        return rows.get(row);
+    }
+
+    void addSensor(Sensor sensor) {
+        securityService.addSensor(sensor);
+        int row = Collections.binarySearch(rows, sensor);
+        if (row < 0) {
+            row = -row - 1;
+            rows.add(row, sensor);
+            fireTableRowsInserted(row, row);
+        }
+    }
+
+    void removeSensor(Sensor sensor) {
+        securityService.removeSensor(sensor);
+        int row = Collections.binarySearch(rows, sensor);
+        if (row >= 0) {
+            rows.remove(row);
+            fireTableRowsDeleted(row, row);
+        }
+    }
+
+    /**
+     * Repaints the row of a sensor whose status changed. The row takes the given sensor, since
+     * repositories that hand out copies leave the one it held with the old status.
+     */
+    void sensorChanged(Sensor sensor) {
+        int row = Collections.binarySearch(rows, sensor);
+        if (row >= 0) {
+            rows.set(row, sensor);
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    /**
+     * Reloads the sensors and repaints every row, for changes that do not name the sensors
+     * involved. Only the rows in view are actually painted; rows are only rebuilt from scratch if
+     * sensors were added or removed elsewhere.
+     */
+    void sensorsChanged() {
+        int previousSize = rows.size();
+        rows.clear();
+        rows.addAll(securityService.getSensors());
+        //usually handed out in order already, which the sort only checks
+        Collections.sort(rows);
+        if (rows.size() != previousSize) {
+            fireTableDataChanged();
+        } else if (!rows.isEmpty()) {
+            fireTableRowsUpdated(0, rows.size() - 1);
+        }
+    }
+}
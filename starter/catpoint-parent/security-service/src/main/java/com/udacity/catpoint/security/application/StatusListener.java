@@ -1,6 +1,9 @@
 package com.udacity.catpoint.security.application;
 
 import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.Sensor;
+
+import java.util.Collection;
 
 /**
  * Identifies a component that should be notified whenever the system status changes
@@ -9,4 +12,20 @@ public interface StatusListener {
     void notify(AlarmStatus status);
     void catDetected(boolean catDetected);
     void sensorStatusChanged();
+
+    /**
+     * Sent instead of {@link #sensorStatusChanged()} when a single, known sensor changed, so
+     * listeners can update just that sensor. By default treated like any other sensor change.
+     */
+    default void sensorStatusChanged(Sensor sensor) {
+        sensorStatusChanged();
+    }
+
+    /**
+     * Sent instead of {@link #sensorStatusChanged()} when several known sensors changed at once,
+     * each listed once. By default handled as one {@link #sensorStatusChanged(Sensor)} per sensor.
+     */
+    default void sensorStatusChanged(Collection<Sensor> sensors) {
+        sensors.forEach(this::sensorStatusChanged);
+    }
 }
@@ -0,0 +1,25 @@
+package com.udacity.catpoint.security.application;
+
+import javax.swing.*;
+
+/**
+ * Helpers for running panel updates on the Swing event dispatch thread. Status listeners can be
+ * called from whichever thread changed the system state, but Swing components may only be
+ * touched on the EDT.
+ */
+final class SwingThreads {
+
+    private SwingThreads() {
+    }
+
+    /**
+     * Runs the update now if called on the EDT, otherwise queues it there.
+     */
+    static void onEdt(Runnable update) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            update.run();
+        } else {
+            SwingUtilities.invokeLater(update);
+        }
+    }
+}
@@ -0,0 +1,553 @@
+package com.udacity.catpoint.security.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository implementation that keeps its state in local memory and persists every change as a
+ * small record appended to a journal file, so the cost of a write does not depend on how many
+ * sensors the system has. A background snapshotter periodically folds the journal into a snapshot
+ * file and truncates it. On startup the snapshot is loaded and the journal tail is replayed on top.
+ *
+ * Sensors are held in a {@link SensorTable} rather than as {@link Sensor} objects.
+ * {@link #getSensors()} and {@link #getActiveSensors()} return snapshots of {@link SensorTable#view}
+ * copies, so changes to them must be saved with {@link #updateSensor}.
+ *
+ * Both files use the same line format, one tab-separated record per line:
+ * <pre>
+ *   S  id  type  active  name             sensor added (or fully rewritten)
+ *   R  id                                 sensor removed
+ *   A  id  active                         sensor activation changed
+ *   N  id  name                           sensor name changed
+ *   T  id  type                           sensor type changed
+ *   L  alarmStatus                        alarm status changed
+ *   M  armingStatus                       arming status changed
+ *   Z  id  parent  arming  alarm  name    zone added or changed, parent "-" for an area
+ *   X  id                                 zone removed
+ *   G  id  zone                           sensor assigned to a zone, zone "-" if none
+ * </pre>
+ * Every record is idempotent, so replaying a journal that has already been folded into the
+ * snapshot (for example after a crash in the middle of a compaction) yields the same state.
+ * A record torn by a crash mid-write is dropped on startup.
+ *
+ * Only one repository may have a directory open at a time, since closing one compacts the journal
+ * and would wipe records appended by another. The constructor takes a lock on
+ * {@value #LOCK_FILE} and fails if it is already held, by this process or another one.
+ *
+ * All repositories in a process share one snapshotter thread, so hosting many of them (see
+ * {@code PremisesRegistry}) does not cost a thread each.
+ */
+public class JournaledSecurityRepositoryImpl implements SecurityRepository, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(JournaledSecurityRepositoryImpl.class);
+
+    static final String SNAPSHOT_FILE = "sensors.snapshot";
+    static final String JOURNAL_FILE = "sensors.journal";
+    static final String LOCK_FILE = "sensors.lock";
+
+    private static final Duration DEFAULT_SNAPSHOT_INTERVAL = Duration.ofSeconds(30);
+    private static final int DEFAULT_COMPACTION_THRESHOLD = 10_000;
+
+    private static final ScheduledExecutorService SNAPSHOTTER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "catpoint-journal-snapshotter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final int compactionThreshold;
+    //held from construction until close, released with its channel
+    private final FileChannel lockChannel;
+
+    //also the last persisted state of each sensor, so an update only journals the fields that changed
+    private final SensorTable sensors = new SensorTable();
+    private final Map<UUID, Zone> zones = new HashMap<>();
+    private final Map<UUID, UUID> sensorZones = new HashMap<>();
+    private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    private BufferedWriter journal;
+    private int journalRecords;
+    private boolean batching;
+    private final ScheduledFuture<?> snapshots;
+
+    public JournaledSecurityRepositoryImpl(Path directory) {
+        this(directory, DEFAULT_SNAPSHOT_INTERVAL, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * @param directory Directory holding the snapshot and journal files. Created if missing.
+     * @param snapshotInterval How often the snapshotter checks whether the journal needs compacting
+     * @param compactionThreshold Number of journal records that triggers a compaction
+     */
+    public JournaledSecurityRepositoryImpl(Path directory, Duration snapshotInterval, int compactionThreshold) {
+        if (directory == null) {
+            throw new IllegalArgumentException("directory of Path should not be null.");
+        }
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("compactionThreshold should be positive.");
+        }
+
+        this.snapshotPath = directory.resolve(SNAPSHOT_FILE);
+        this.journalPath = directory.resolve(JOURNAL_FILE);
+        this.compactionThreshold = compactionThreshold;
+
+        try {
+            Files.createDirectories(directory);
+            lockChannel = lock(directory);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to lock sensor journal in " + directory, ioe);
+        }
+        try {
+            replay(snapshotPath);
+            dropTornRecord(journalPath);
+            journalRecords = replay(journalPath);
+            journal = openJournal(StandardOpenOption.APPEND);
+        } catch (IOException ioe) {
+            closeQuietly(lockChannel);
+            throw new UncheckedIOException("Unable to load sensor journal from " + directory, ioe);
+        } catch (RuntimeException e) {
+            closeQuietly(lockChannel);
+            throw e;
+        }
+
+        long intervalMillis = snapshotInterval.toMillis();
+        snapshots = SNAPSHOTTER.scheduleWithFixedDelay(this::compactIfNeeded, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        sensors.add(sensor);
+        append(sensorRecord(sensor));
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        if (sensors.remove(sensor.getSensorId())) {
+            append("R\t" + sensor.getSensorId());
+        }
+        sensorZones.remove(sensor.getSensorId());
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        UUID id = sensor.getSensorId();
+        int handle = sensors.handleOf(id);
+        if (handle == SensorTable.NO_HANDLE) {
+            addSensor(sensor);
+            return;
+        }
+        if (sensors.setActive(handle, Boolean.TRUE.equals(sensor.getActive()))) {
+            append("A\t" + id + "\t" + sensors.isActive(handle));
+        }
+        if (!sensors.name(handle).equals(sensor.getName())) {
+            sensors.setName(handle, sensor.getName());
+            append("N\t" + id + "\t" + escape(sensor.getName()));
+        }
+        if (sensors.sensorType(handle) != sensor.getSensorType()) {
+            sensors.setSensorType(handle, sensor.getSensorType());
+            append("T\t" + id + "\t" + sensor.getSensorType());
+        }
+    }
+
+    @Override
+    public synchronized void updateSensors(Collection<Sensor> sensorsToUpdate) {
+        batching = true;
+        try {
+            sensorsToUpdate.forEach(this::updateSensor);
+        } finally {
+            batching = false;
+            flushJournal();
+        }
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+        append("L\t" + alarmStatus);
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+        append("M\t" + armingStatus);
+    }
+
+    @Override
+    public synchronized Set<Sensor> getSensors() {
+        Set<Sensor> views = new HashSet<>();
+        sensors.forEachHandle(handle -> views.add(sensors.view(handle)));
+        return Collections.unmodifiableSet(views);
+    }
+
+    @Override
+    public synchronized Sensor getSensor(UUID sensorId) {
+        int handle = sensors.handleOf(sensorId);
+        return handle == SensorTable.NO_HANDLE ? null : sensors.view(handle);
+    }
+
+    @Override
+    public synchronized AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public synchronized ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    @Override
+    public synchronized int activeSensorCount() {
+        return sensors.activeCount();
+    }
+
+    @Override
+    public synchronized boolean isActive(UUID sensorId) {
+        int handle = sensors.handleOf(sensorId);
+        return handle != SensorTable.NO_HANDLE && sensors.isActive(handle);
+    }
+
+    @Override
+    public synchronized Set<Sensor> getActiveSensors() {
+        Set<Sensor> views = new HashSet<>();
+        sensors.forEachActive(handle -> views.add(sensors.view(handle)));
+        return Collections.unmodifiableSet(views);
+    }
+
+    @Override
+    public synchronized Set<Zone> getZones() {
+        return Set.copyOf(zones.values());
+    }
+
+    @Override
+    public synchronized void saveZone(Zone zone) {
+        Zone saved = new Zone(zone);
+        zones.put(saved.getZoneId(), saved);
+        append(zoneRecord(saved));
+    }
+
+    @Override
+    public synchronized void removeZone(Zone zone) {
+        if (zones.remove(zone.getZoneId()) != null) {
+            sensorZones.values().removeIf(zone.getZoneId()::equals);
+            append("X\t" + zone.getZoneId());
+        }
+    }
+
+    @Override
+    public synchronized Map<UUID, UUID> getSensorZones() {
+        return Map.copyOf(sensorZones);
+    }
+
+    @Override
+    public synchronized void setSensorZone(Sensor sensor, UUID zoneId) {
+        if (sensors.handleOf(sensor.getSensorId()) == SensorTable.NO_HANDLE) {
+            throw new IllegalArgumentException("No sensor with id " + sensor.getSensorId());
+        }
+        if (zoneId == null) {
+            sensorZones.remove(sensor.getSensorId());
+        } else {
+            sensorZones.put(sensor.getSensorId(), zoneId);
+        }
+        append("G\t" + sensor.getSensorId() + "\t" + (zoneId == null ? "-" : zoneId));
+    }
+
+    /**
+     * Writes the current state to a new snapshot and truncates the journal.
+     */
+    public synchronized void compact() {
+        Path tmp = snapshotPath.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 BufferedWriter writer = new BufferedWriter(
+                         Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+                writer.write("L\t" + alarmStatus + "\n");
+                writer.write("M\t" + armingStatus + "\n");
+                for (int handle = sensors.nextHandle(0); handle >= 0; handle = sensors.nextHandle(handle + 1)) {
+                    writer.write(sensorRecord(sensors.sensorId(handle), sensors.sensorType(handle),
+                            sensors.isActive(handle), sensors.name(handle)));
+                    writer.write('\n');
+                }
+                for (Zone zone : zones.values()) {
+                    writer.write(zoneRecord(zone));
+                    writer.write('\n');
+                }
+                for (Map.Entry<UUID, UUID> assignment : sensorZones.entrySet()) {
+                    writer.write("G\t" + assignment.getKey() + "\t" + assignment.getValue() + "\n");
+                }
+                writer.flush();
+                channel.force(true);
+            }
+            Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            journal.close();
+            journal = openJournal(StandardOpenOption.TRUNCATE_EXISTING);
+            journalRecords = 0;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to write sensor snapshot to " + snapshotPath, ioe);
+        }
+    }
+
+    /**
+     * Stops the periodic compaction and folds any remaining journal records into the snapshot.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        snapshots.cancel(false);
+        try {
+            compact();
+            journal.close();
+        } finally {
+            lockChannel.close();
+        }
+    }
+
+    private synchronized void compactIfNeeded() {
+        if (journalRecords < compactionThreshold) {
+            return;
+        }
+        try {
+            compact();
+        } catch (UncheckedIOException e) {
+            log.error("Sensor journal compaction failed, will retry", e);
+        }
+    }
+
+    private void append(String record) {
+        try {
+            journal.write(record);
+            journal.write('\n');
+            journalRecords++;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to append to sensor journal " + journalPath, ioe);
+        }
+        if (!batching) {
+            flushJournal();
+        }
+    }
+
+    private void flushJournal() {
+        try {
+            journal.flush();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to append to sensor journal " + journalPath, ioe);
+        }
+    }
+
+    /**
+     * @return The open lock file, holding an exclusive lock until it is closed
+     * @throws IllegalStateException If another repository holds the lock
+     */
+    private static FileChannel lock(Path directory) throws IOException {
+        Path lockPath = directory.resolve(LOCK_FILE);
+        FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+        if (lock == null) {
+            closeQuietly(channel);
+            throw new IllegalStateException("Sensor journal in " + directory + " is already open elsewhere");
+        }
+        return channel;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Unable to close {}", LOCK_FILE, e);
+        }
+    }
+
+    private BufferedWriter openJournal(StandardOpenOption mode) throws IOException {
+        return Files.newBufferedWriter(journalPath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode);
+    }
+
+    /**
+     * Truncates the file after its last complete line. A crash mid-write can leave a partial record
+     * without its newline, and records appended after it would otherwise end up on the same line.
+     */
+    private static void dropTornRecord(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            long end = channel.size();
+            long position = end;
+            while (position > 0) {
+                int length = (int) Math.min(buffer.capacity(), position);
+                buffer.clear().limit(length);
+                channel.read(buffer, position - length);
+                for (int i = length - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        long complete = position - length + i + 1;
+                        if (complete < end) {
+                            log.warn("Dropping torn record at the end of {}", file);
+                            channel.truncate(complete);
+                        }
+                        return;
+                    }
+                }
+                position -= length;
+            }
+            if (end > 0) {
+                log.warn("Dropping torn record at the end of {}", file);
+                channel.truncate(0);
+            }
+        }
+    }
+
+    /**
+     * Applies every record in the file to the sensors, zones and status fields.
+     * @return The number of records read
+     */
+    private int replay(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        int records = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    apply(line.split("\t", -1));
+                    records++;
+                } catch (RuntimeException e) {
+                    //most likely a record torn by a crash mid-write; everything before it is still valid
+                    log.warn("Skipping malformed record in {}: {}", file, line);
+                }
+            }
+        }
+        return records;
+    }
+
+    private void apply(String[] fields) {
+        switch (fields[0]) {
+            case "S" -> sensors.add(UUID.fromString(fields[1]), unescape(fields[4]), SensorType.valueOf(fields[2]),
+                    Boolean.parseBoolean(fields[3]));
+            case "R" -> {
+                UUID id = UUID.fromString(fields[1]);
+                sensors.remove(id);
+                sensorZones.remove(id);
+            }
+            case "A" -> sensors.setActive(handle(fields[1]), Boolean.parseBoolean(fields[2]));
+            case "N" -> sensors.setName(handle(fields[1]), unescape(fields[2]));
+            case "T" -> sensors.setSensorType(handle(fields[1]), SensorType.valueOf(fields[2]));
+            case "L" -> alarmStatus = AlarmStatus.valueOf(fields[1]);
+            case "M" -> armingStatus = ArmingStatus.valueOf(fields[1]);
+            case "Z" -> {
+                UUID id = UUID.fromString(fields[1]);
+                zones.put(id, new Zone(id, unescape(fields[5]), parseId(fields[2]),
+                        ArmingStatus.valueOf(fields[3]), AlarmStatus.valueOf(fields[4])));
+            }
+            case "X" -> {
+                UUID id = UUID.fromString(fields[1]);
+                zones.remove(id);
+                sensorZones.values().removeIf(id::equals);
+            }
+            case "G" -> {
+                UUID zoneId = parseId(fields[2]);
+                if (zoneId == null) {
+                    sensorZones.remove(UUID.fromString(fields[1]));
+                } else {
+                    sensorZones.put(UUID.fromString(fields[1]), zoneId);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown record type " + fields[0]);
+        }
+    }
+
+    private int handle(String id) {
+        int handle = sensors.handleOf(UUID.fromString(id));
+        if (handle == SensorTable.NO_HANDLE) {
+            throw new IllegalArgumentException("No sensor with id " + id);
+        }
+        return handle;
+    }
+
+    private static String sensorRecord(Sensor sensor) {
+        return sensorRecord(sensor.getSensorId(), sensor.getSensorType(), Boolean.TRUE.equals(sensor.getActive()),
+                sensor.getName());
+    }
+
+    private static String sensorRecord(UUID id, SensorType sensorType, boolean active, String name) {
+        return "S\t" + id + "\t" + sensorType + "\t" + active + "\t" + escape(name);
+    }
+
+    private static String zoneRecord(Zone zone) {
+        return "Z\t" + zone.getZoneId() + "\t" + (zone.getParentId() == null ? "-" : zone.getParentId()) + "\t"
+                + zone.getArmingStatus() + "\t" + zone.getAlarmStatus() + "\t" + escape(zone.getName());
+    }
+
+    private static UUID parseId(String field) {
+        return field.equals("-") ? null : UUID.fromString(field);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                sb.append(switch (next) {
+                    case 't' -> '\t';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> next;
+                });
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
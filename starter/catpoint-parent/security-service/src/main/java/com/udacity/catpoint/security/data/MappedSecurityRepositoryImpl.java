@@ -0,0 +1,514 @@
+package com.udacity.catpoint.security.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Repository implementation backed by memory-mapped files. Sensors are stored as fixed-width
+ * records so that updating a sensor is an in-place write of a few bytes, and reopening the
+ * repository only needs to walk the records to rebuild the id index - there is no parsing.
+ *
+ * {@code sensors.dat} starts with a header page holding the alarm and arming status, followed by
+ * one {@value #RECORD_SIZE}-byte record per sensor:
+ * <pre>
+ *   0  long   sensor id, most significant bits
+ *   8  long   sensor id, least significant bits
+ *  16  int    offset of the name in names.dat
+ *  20  short  length of the UTF-8 encoded name
+ *  22  byte   SensorType ordinal
+ *  23  byte   flags, bit 0 = active
+ *  24  long   zone id, most significant bits, or 0 with the least significant bits if none
+ *  32  long   zone id, least significant bits
+ * </pre>
+ * Names live in {@code names.dat}, a heap that new and renamed names are appended to. When the heap
+ * is full and at least half of it holds names no record uses any more, the live names are slid to
+ * the front instead of growing the file. Records are kept dense: removing a sensor moves the last
+ * record into the freed slot.
+ *
+ * {@link #getSensors()} returns a snapshot of {@link Sensor} copies read from the records. Changes
+ * to them are not seen by the repository until they are saved with {@link #updateSensor}.
+ *
+ * Zones change rarely, so they are kept in {@code zones.dat}, which is rewritten whole on each
+ * change by writing a new file and moving it over the old one. Files of version 1, whose records
+ * had no zone, are rewritten in the current layout when opened.
+ */
+public class MappedSecurityRepositoryImpl implements SecurityRepository, Closeable {
+
+    static final String SENSORS_FILE = "sensors.dat";
+    static final String NAMES_FILE = "names.dat";
+    static final String ZONES_FILE = "zones.dat";
+
+    private static final int MAGIC = 0xCA7F0117;
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_ZONES = 1;
+    private static final int RECORD_SIZE_WITHOUT_ZONES = 24;
+
+    //header layout
+    private static final int HEADER_SIZE = 4096;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int ALARM_OFFSET = 8;
+    private static final int ARMING_OFFSET = 12;
+    private static final int COUNT_OFFSET = 16;
+    private static final int NAME_HEAP_END_OFFSET = 20;
+
+    //record layout
+    static final int RECORD_SIZE = 40;
+    private static final int MSB_OFFSET = 0;
+    private static final int LSB_OFFSET = 8;
+    private static final int NAME_OFFSET = 16;
+    private static final int NAME_LENGTH_OFFSET = 20;
+    private static final int TYPE_OFFSET = 22;
+    private static final int FLAGS_OFFSET = 23;
+    private static final byte ACTIVE_FLAG = 1;
+    private static final int ZONE_MSB_OFFSET = 24;
+    private static final int ZONE_LSB_OFFSET = 32;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int INITIAL_NAME_HEAP = 64 * 1024;
+
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+
+    private final FileChannel sensorChannel;
+    private final FileChannel nameChannel;
+    private final Path zonesFile;
+    private MappedByteBuffer sensorBuffer;
+    private MappedByteBuffer nameBuffer;
+    private int capacity;
+
+    private final Map<UUID, Integer> slots = new HashMap<>();
+    private final BitSet activeSlots = new BitSet();
+    private int activeCount;
+    //bytes of the name heap still referenced by a record
+    private int liveNameBytes;
+    private final Map<UUID, Zone> zones;
+
+    public MappedSecurityRepositoryImpl(Path directory) {
+        if (directory == null) {
+            throw new IllegalArgumentException("directory of Path should not be null.");
+        }
+        boolean created;
+        try {
+            Files.createDirectories(directory);
+            Path sensorsFile = directory.resolve(SENSORS_FILE);
+            if (Files.exists(sensorsFile) && readVersion(sensorsFile) == VERSION_WITHOUT_ZONES) {
+                widenRecords(sensorsFile);
+            }
+            sensorChannel = FileChannel.open(sensorsFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            nameChannel = FileChannel.open(directory.resolve(NAMES_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            created = sensorChannel.size() == 0;
+            capacity = Math.max(INITIAL_CAPACITY, (int) ((sensorChannel.size() - HEADER_SIZE) / RECORD_SIZE));
+            sensorBuffer = sensorChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+            nameBuffer = nameChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_NAME_HEAP, nameChannel.size()));
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to map sensor files in " + directory, ioe);
+        }
+
+        if (created) {
+            sensorBuffer.putInt(MAGIC_OFFSET, MAGIC);
+            sensorBuffer.putInt(VERSION_OFFSET, VERSION);
+            sensorBuffer.putInt(ALARM_OFFSET, AlarmStatus.NO_ALARM.ordinal());
+            sensorBuffer.putInt(ARMING_OFFSET, ArmingStatus.DISARMED.ordinal());
+            sensorBuffer.putInt(COUNT_OFFSET, 0);
+            sensorBuffer.putInt(NAME_HEAP_END_OFFSET, 0);
+        } else if (sensorBuffer.getInt(MAGIC_OFFSET) != MAGIC || sensorBuffer.getInt(VERSION_OFFSET) != VERSION) {
+            throw new IllegalStateException("Unrecognized sensor file in " + directory);
+        }
+
+        zonesFile = directory.resolve(ZONES_FILE);
+        try {
+            zones = Files.exists(zonesFile) ? ZoneCodec.decode(Files.readAllBytes(zonesFile)) : new HashMap<>();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to read zones in " + directory, ioe);
+        }
+
+        for (int slot = 0; slot < count(); slot++) {
+            slots.put(readId(slot), slot);
+            markActive(slot, isActive(slot));
+            liveNameBytes += nameLength(recordOffset(slot));
+        }
+    }
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        if (slots.containsKey(sensor.getSensorId())) {
+            updateSensor(sensor);
+            return;
+        }
+        int slot = count();
+        if (slot == capacity) {
+            growSensors();
+        }
+        int base = recordOffset(slot);
+        sensorBuffer.putLong(base + MSB_OFFSET, sensor.getSensorId().getMostSignificantBits());
+        sensorBuffer.putLong(base + LSB_OFFSET, sensor.getSensorId().getLeastSignificantBits());
+        writeName(base, sensor.getName());
+        sensorBuffer.put(base + TYPE_OFFSET, (byte) sensor.getSensorType().ordinal());
+        sensorBuffer.put(base + FLAGS_OFFSET, Boolean.TRUE.equals(sensor.getActive()) ? ACTIVE_FLAG : 0);
+        writeZone(base, null);
+        slots.put(sensor.getSensorId(), slot);
+        markActive(slot, Boolean.TRUE.equals(sensor.getActive()));
+        sensorBuffer.putInt(COUNT_OFFSET, slot + 1);
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        Integer slot = slots.remove(sensor.getSensorId());
+        if (slot == null) {
+            return;
+        }
+        int last = count() - 1;
+        liveNameBytes -= nameLength(recordOffset(slot));
+        markActive(slot, false);
+        if (slot != last) {
+            //keep records dense by moving the last record into the hole
+            byte[] record = new byte[RECORD_SIZE];
+            sensorBuffer.get(recordOffset(last), record);
+            sensorBuffer.put(recordOffset(slot), record);
+            slots.put(readId(slot), slot);
+            markActive(slot, activeSlots.get(last));
+        }
+        markActive(last, false);
+        sensorBuffer.putInt(COUNT_OFFSET, last);
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        Integer slot = slots.get(sensor.getSensorId());
+        if (slot == null) {
+            addSensor(sensor);
+            return;
+        }
+        int base = recordOffset(slot);
+        boolean active = Boolean.TRUE.equals(sensor.getActive());
+        sensorBuffer.put(base + FLAGS_OFFSET, active ? ACTIVE_FLAG : 0);
+        markActive(slot, active);
+        sensorBuffer.put(base + TYPE_OFFSET, (byte) sensor.getSensorType().ordinal());
+        if (!readName(base).equals(sensor.getName())) {
+            liveNameBytes -= nameLength(base);
+            writeName(base, sensor.getName());
+        }
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        sensorBuffer.putInt(ALARM_OFFSET, alarmStatus.ordinal());
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        sensorBuffer.putInt(ARMING_OFFSET, armingStatus.ordinal());
+    }
+
+    @Override
+    public synchronized Set<Sensor> getSensors() {
+        Set<Sensor> sensors = new HashSet<>();
+        for (int slot = 0; slot < count(); slot++) {
+            sensors.add(readSensor(slot));
+        }
+        return Collections.unmodifiableSet(sensors);
+    }
+
+    @Override
+    public synchronized Sensor getSensor(UUID sensorId) {
+        Integer slot = slots.get(sensorId);
+        return slot == null ? null : readSensor(slot);
+    }
+
+    @Override
+    public synchronized AlarmStatus getAlarmStatus() {
+        return ALARM_STATUSES[sensorBuffer.getInt(ALARM_OFFSET)];
+    }
+
+    @Override
+    public synchronized ArmingStatus getArmingStatus() {
+        return ARMING_STATUSES[sensorBuffer.getInt(ARMING_OFFSET)];
+    }
+
+    @Override
+    public synchronized int activeSensorCount() {
+        return activeCount;
+    }
+
+    @Override
+    public synchronized boolean isActive(UUID sensorId) {
+        Integer slot = slots.get(sensorId);
+        return slot != null && activeSlots.get(slot);
+    }
+
+    @Override
+    public synchronized Set<Sensor> getActiveSensors() {
+        Set<Sensor> active = new HashSet<>();
+        activeSlots.stream().forEach(slot -> active.add(readSensor(slot)));
+        return Collections.unmodifiableSet(active);
+    }
+
+    @Override
+    public synchronized Set<Zone> getZones() {
+        Set<Zone> copies = new HashSet<>();
+        zones.values().forEach(zone -> copies.add(new Zone(zone)));
+        return copies;
+    }
+
+    @Override
+    public synchronized void saveZone(Zone zone) {
+        Zone saved = new Zone(zone);
+        Zone previous = zones.put(saved.getZoneId(), saved);
+        try {
+            writeZones();
+        } catch (UncheckedIOException e) {
+            //keep memory in step with the file
+            if (previous == null) {
+                zones.remove(saved.getZoneId());
+            } else {
+                zones.put(previous.getZoneId(), previous);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void removeZone(Zone zone) {
+        Zone removed = zones.remove(zone.getZoneId());
+        if (removed == null) {
+            return;
+        }
+        try {
+            writeZones();
+        } catch (UncheckedIOException e) {
+            zones.put(removed.getZoneId(), removed);
+            throw e;
+        }
+        for (int slot = 0; slot < count(); slot++) {
+            int base = recordOffset(slot);
+            if (zone.getZoneId().equals(readZone(base))) {
+                writeZone(base, null);
+            }
+        }
+    }
+
+    @Override
+    public synchronized Map<UUID, UUID> getSensorZones() {
+        Map<UUID, UUID> sensorZones = new HashMap<>();
+        for (int slot = 0; slot < count(); slot++) {
+            UUID zoneId = readZone(recordOffset(slot));
+            if (zoneId != null) {
+                sensorZones.put(readId(slot), zoneId);
+            }
+        }
+        return sensorZones;
+    }
+
+    @Override
+    public synchronized void setSensorZone(Sensor sensor, UUID zoneId) {
+        Integer slot = slots.get(sensor.getSensorId());
+        if (slot == null) {
+            throw new IllegalArgumentException("No sensor with id " + sensor.getSensorId());
+        }
+        writeZone(recordOffset(slot), zoneId);
+    }
+
+    /**
+     * Flushes the mapped pages to disk and closes the files.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        sensorBuffer.force();
+        nameBuffer.force();
+        sensorChannel.close();
+        nameChannel.close();
+    }
+
+    private Sensor readSensor(int slot) {
+        int base = recordOffset(slot);
+        return new Sensor(readId(slot), readName(base), SENSOR_TYPES[sensorBuffer.get(base + TYPE_OFFSET)],
+                isActive(slot));
+    }
+
+    private UUID readZone(int base) {
+        long msb = sensorBuffer.getLong(base + ZONE_MSB_OFFSET);
+        long lsb = sensorBuffer.getLong(base + ZONE_LSB_OFFSET);
+        return msb == 0 && lsb == 0 ? null : new UUID(msb, lsb);
+    }
+
+    private void writeZone(int base, UUID zoneId) {
+        sensorBuffer.putLong(base + ZONE_MSB_OFFSET, zoneId == null ? 0 : zoneId.getMostSignificantBits());
+        sensorBuffer.putLong(base + ZONE_LSB_OFFSET, zoneId == null ? 0 : zoneId.getLeastSignificantBits());
+    }
+
+    private void writeZones() {
+        Path written = zonesFile.resolveSibling(ZONES_FILE + ".tmp");
+        try {
+            Files.write(written, ZoneCodec.encode(zones.values()));
+            Files.move(written, zonesFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to write zones to " + zonesFile, ioe);
+        }
+    }
+
+    private static int readVersion(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer version = ByteBuffer.allocate(4);
+            channel.read(version, VERSION_OFFSET);
+            return version.flip().remaining() == 4 ? version.getInt() : -1;
+        }
+    }
+
+    /**
+     * Rewrites a version 1 file in the current layout, without a zone. The new file is written
+     * beside the old one and moved over it, so a crash leaves either the old file or the new one.
+     */
+    private static void widenRecords(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        ByteBuffer records;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            readFully(channel, header, 0);
+            records = ByteBuffer.allocate(header.getInt(COUNT_OFFSET) * RECORD_SIZE_WITHOUT_ZONES);
+            readFully(channel, records, HEADER_SIZE);
+        }
+        int count = header.getInt(COUNT_OFFSET);
+        ByteBuffer widened = ByteBuffer.allocate(HEADER_SIZE + count * RECORD_SIZE);
+        widened.put(0, header.putInt(VERSION_OFFSET, VERSION), 0, HEADER_SIZE);
+        for (int slot = 0; slot < count; slot++) {
+            widened.put(HEADER_SIZE + slot * RECORD_SIZE, records, slot * RECORD_SIZE_WITHOUT_ZONES,
+                    RECORD_SIZE_WITHOUT_ZONES);
+        }
+
+        Path written = file.resolveSibling(SENSORS_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(written, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (widened.hasRemaining()) {
+                channel.write(widened);
+            }
+            channel.force(true);
+        }
+        Files.move(written, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Sensor file ends before its " + buffer.limit() + " bytes at " + position);
+            }
+        }
+    }
+
+    private void markActive(int slot, boolean active) {
+        if (activeSlots.get(slot) != active) {
+            activeSlots.set(slot, active);
+            activeCount += active ? 1 : -1;
+        }
+    }
+
+    private boolean isActive(int slot) {
+        return (sensorBuffer.get(recordOffset(slot) + FLAGS_OFFSET) & ACTIVE_FLAG) != 0;
+    }
+
+    private UUID readId(int slot) {
+        int base = recordOffset(slot);
+        return new UUID(sensorBuffer.getLong(base + MSB_OFFSET), sensorBuffer.getLong(base + LSB_OFFSET));
+    }
+
+    private int nameLength(int base) {
+        return Short.toUnsignedInt(sensorBuffer.getShort(base + NAME_LENGTH_OFFSET));
+    }
+
+    private String readName(int base) {
+        byte[] bytes = new byte[nameLength(base)];
+        nameBuffer.get(sensorBuffer.getInt(base + NAME_OFFSET), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeName(int base, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Sensor name is too long.");
+        }
+        int offset = sensorBuffer.getInt(NAME_HEAP_END_OFFSET);
+        if (offset + bytes.length > nameBuffer.capacity() && (offset - liveNameBytes) * 2 >= offset) {
+            offset = compactNames();
+        }
+        while (offset + bytes.length > nameBuffer.capacity()) {
+            nameBuffer = remap(nameChannel, nameBuffer, (long) nameBuffer.capacity() * 2);
+        }
+        nameBuffer.put(offset, bytes);
+        sensorBuffer.putInt(base + NAME_OFFSET, offset);
+        sensorBuffer.putShort(base + NAME_LENGTH_OFFSET, (short) bytes.length);
+        sensorBuffer.putInt(NAME_HEAP_END_OFFSET, offset + bytes.length);
+        liveNameBytes += bytes.length;
+    }
+
+    /**
+     * Slides the names still referenced by a record to the front of the heap, in heap order, so
+     * each one only moves down over space that is already free or already moved.
+     * @return The new end of the heap
+     */
+    private int compactNames() {
+        Integer[] bySlot = new Integer[count()];
+        Arrays.setAll(bySlot, slot -> slot);
+        Arrays.sort(bySlot, Comparator.comparingInt(slot -> sensorBuffer.getInt(recordOffset(slot) + NAME_OFFSET)));
+        int end = 0;
+        byte[] bytes = new byte[0];
+        for (int slot : bySlot) {
+            int base = recordOffset(slot);
+            int offset = sensorBuffer.getInt(base + NAME_OFFSET);
+            int length = nameLength(base);
+            if (offset != end) {
+                if (bytes.length < length) {
+                    bytes = new byte[length];
+                }
+                nameBuffer.get(offset, bytes, 0, length);
+                nameBuffer.put(end, bytes, 0, length);
+                sensorBuffer.putInt(base + NAME_OFFSET, end);
+            }
+            end += length;
+        }
+        sensorBuffer.putInt(NAME_HEAP_END_OFFSET, end);
+        return end;
+    }
+
+    private void growSensors() {
+        capacity *= 2;
+        sensorBuffer = remap(sensorChannel, sensorBuffer, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+    }
+
+    private static MappedByteBuffer remap(FileChannel channel, MappedByteBuffer old, long size) {
+        try {
+            old.force();
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to grow mapped sensor file", ioe);
+        }
+    }
+
+    private synchronized int count() {
+        return sensorBuffer.getInt(COUNT_OFFSET);
+    }
+
+    private static int recordOffset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+}
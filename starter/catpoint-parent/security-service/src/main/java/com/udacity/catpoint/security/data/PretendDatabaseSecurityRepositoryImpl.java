@@ -3,90 +3,364 @@ package com.udacity.catpoint.security.data;
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 
+import java.io.ByteArrayOutputStream;
 import java.lang.reflect.Type;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.UUID;
 import java.util.prefs.Preferences;
 
 /**
  * Fake repository implementation for demo purposes. Stores state information in local
  * memory and writes it to user preferences between app loads. This implementation is
  * intentionally a little hard to use in unit tests, so watch out!
+ *
+ * Methods are synchronized so the repository can back a {@link com.udacity.catpoint.security.service.SecurityService}
+ * that is called from several threads.
+ *
+ * Sensors are stored in a compact binary form that loads without reflection, so starting the
+ * application does not have to load Gson. Sensors saved as JSON by earlier versions are still read,
+ * and are rewritten in the binary form on the next change. Zones and the assignments of sensors to
+ * them are stored the same way, under keys of their own.
+ *
+ * A stored value is limited to 8192 characters, which the binary form of the sensors reaches at
+ * about 200 sensors with short names, so each value is split into chunks under numbered keys.
+ * Values stored whole by earlier versions are still read.
  */
 public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository{
 
     private Set<Sensor> sensors;
+    //the sensors again by id, since the set is ordered by name
+    private final Map<UUID, Sensor> sensorsById = new HashMap<>();
+    private final Map<UUID, Sensor> activeSensors = new HashMap<>();
+    private final Map<UUID, Zone> zones;
+    private final Map<UUID, UUID> sensorZones;
     private AlarmStatus alarmStatus;
     private ArmingStatus armingStatus;
 
     //preference keys
     private static final String SENSORS = "SENSORS";
+    private static final String SENSORS_BINARY = "SENSORS_BINARY";
     private static final String ALARM_STATUS = "ALARM_STATUS";
     private static final String ARMING_STATUS = "ARMING_STATUS";
+    private static final String ZONES_BINARY = "ZONES_BINARY";
+    private static final String SENSOR_ZONES_BINARY = "SENSOR_ZONES_BINARY";
+    private static final String CHUNKS_SUFFIX = "_CHUNKS";
 
-    private static final Preferences prefs = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
-    private static final Gson gson = new Gson(); //used to serialize objects into JSON
+    //bytes per chunk: putByteArray stores Base64, four characters for every three bytes
+    private static final int CHUNK_SIZE = Preferences.MAX_VALUE_LENGTH / 4 * 3;
+
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+
+    private final Preferences prefs;
 
     public PretendDatabaseSecurityRepositoryImpl() {
+        this(Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class));
+    }
+
+    /**
+     * @param prefs Node the state is kept in. Giving each instance its own node keeps their
+     *              sensors and statuses apart.
+     */
+    public PretendDatabaseSecurityRepositoryImpl(Preferences prefs) {
+        if (prefs == null) {
+            throw new IllegalArgumentException("prefs of Preferences should not be null.");
+        }
+        this.prefs = prefs;
+
         //load system state from prefs, or else default
         alarmStatus = AlarmStatus.valueOf(prefs.get(ALARM_STATUS, AlarmStatus.NO_ALARM.toString()));
         armingStatus = ArmingStatus.valueOf(prefs.get(ARMING_STATUS, ArmingStatus.DISARMED.toString()));
 
         //we've serialized our sensor objects for storage, which should be a good warning sign that
         // this is likely an impractical solution for a real system
+        byte[] encoded = getChunked(SENSORS_BINARY, null);
         String sensorString = prefs.get(SENSORS, null);
-        if(sensorString == null) {
-            sensors = new TreeSet<>();
+        if (encoded != null) {
+            sensors = decodeSensors(encoded);
+        } else if (sensorString != null) {
+            sensors = LegacyJson.readSensors(sensorString);
         } else {
+            sensors = new TreeSet<>();
+        }
+        sensors.forEach(this::index);
+
+        zones = ZoneCodec.decode(getChunked(ZONES_BINARY, new byte[4]));
+        sensorZones = decodeSensorZones(getChunked(SENSOR_ZONES_BINARY, new byte[4]));
+    }
+
+    /**
+     * Stores a value of any size as chunks under {@code key_0}, {@code key_1} and so on, with
+     * their count under {@code key_CHUNKS}. Chunks left over from a longer value are removed.
+     */
+    private void putChunked(String key, byte[] value) {
+        int count = Math.max(1, (value.length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        int previousCount = prefs.getInt(key + CHUNKS_SUFFIX, 0);
+        for (int i = 0; i < count; i++) {
+            int from = i * CHUNK_SIZE;
+            prefs.putByteArray(key + "_" + i, Arrays.copyOfRange(value, from, Math.min(from + CHUNK_SIZE, value.length)));
+        }
+        prefs.putInt(key + CHUNKS_SUFFIX, count);
+        for (int i = count; i < previousCount; i++) {
+            prefs.remove(key + "_" + i);
+        }
+        //written whole by earlier versions
+        prefs.remove(key);
+    }
+
+    private byte[] getChunked(String key, byte[] defaultValue) {
+        int count = prefs.getInt(key + CHUNKS_SUFFIX, 0);
+        if (count == 0) {
+            return prefs.getByteArray(key, defaultValue);
+        }
+        ByteArrayOutputStream value = new ByteArrayOutputStream(count * CHUNK_SIZE);
+        for (int i = 0; i < count; i++) {
+            byte[] chunk = prefs.getByteArray(key + "_" + i, null);
+            if (chunk == null) {
+                throw new IllegalStateException("Stored value " + key + " is missing chunk " + i);
+            }
+            value.writeBytes(chunk);
+        }
+        return value.toByteArray();
+    }
+
+    /**
+     * Layout: sensor count, then per sensor the id, type ordinal, active flag, and the length and
+     * UTF-8 bytes of the name.
+     */
+    private static byte[] encodeSensors(Set<Sensor> sensors) {
+        byte[][] names = new byte[sensors.size()][];
+        int size = 4;
+        int i = 0;
+        for (Sensor sensor : sensors) {
+            names[i] = sensor.getName().getBytes(StandardCharsets.UTF_8);
+            size += 16 + 1 + 1 + 2 + names[i].length;
+            i++;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(sensors.size());
+        i = 0;
+        for (Sensor sensor : sensors) {
+            buffer.putLong(sensor.getSensorId().getMostSignificantBits())
+                    .putLong(sensor.getSensorId().getLeastSignificantBits())
+                    .put((byte) sensor.getSensorType().ordinal())
+                    .put((byte) (Boolean.TRUE.equals(sensor.getActive()) ? 1 : 0))
+                    .putShort((short) names[i].length)
+                    .put(names[i]);
+            i++;
+        }
+        return buffer.array();
+    }
+
+    private static Set<Sensor> decodeSensors(byte[] encoded) {
+        Set<Sensor> decoded = new TreeSet<>();
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        try {
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                UUID id = new UUID(buffer.getLong(), buffer.getLong());
+                SensorType type = SENSOR_TYPES[buffer.get()];
+                boolean active = buffer.get() != 0;
+                byte[] name = new byte[Short.toUnsignedInt(buffer.getShort())];
+                buffer.get(name);
+                decoded.add(new Sensor(id, new String(name, StandardCharsets.UTF_8), type, active));
+            }
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalStateException("Stored sensors are corrupt", e);
+        }
+        return decoded;
+    }
+
+    /**
+     * Layout: assignment count, then per assignment the sensor id and the zone id.
+     */
+    private static byte[] encodeSensorZones(Map<UUID, UUID> sensorZones) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 32 * sensorZones.size());
+        buffer.putInt(sensorZones.size());
+        sensorZones.forEach((sensorId, zoneId) -> {
+            putId(buffer, sensorId);
+            putId(buffer, zoneId);
+        });
+        return buffer.array();
+    }
+
+    private static Map<UUID, UUID> decodeSensorZones(byte[] encoded) {
+        Map<UUID, UUID> decoded = new HashMap<>();
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        try {
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                decoded.put(getId(buffer), getId(buffer));
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalStateException("Stored sensor zones are corrupt", e);
+        }
+        return decoded;
+    }
+
+    private static void putId(ByteBuffer buffer, UUID id) {
+        buffer.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID getId(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private void saveSensors() {
+        putChunked(SENSORS_BINARY, encodeSensors(sensors));
+        prefs.remove(SENSORS);
+    }
+
+    /**
+     * Reads sensors saved as JSON by earlier versions. Kept in its own class so Gson is only
+     * loaded when such sensors are found.
+     */
+    private static final class LegacyJson {
+        private static final Gson gson = new Gson();
+
+        private static Set<Sensor> readSensors(String json) {
             Type type = new TypeToken<Set<Sensor>>() {
             }.getType();
-            sensors = gson.fromJson(sensorString, type);
+            return new TreeSet<>(gson.<Set<Sensor>>fromJson(json, type));
+        }
+    }
+
+    private void index(Sensor sensor) {
+        sensorsById.put(sensor.getSensorId(), sensor);
+        if (Boolean.TRUE.equals(sensor.getActive())) {
+            activeSensors.put(sensor.getSensorId(), sensor);
+        } else {
+            activeSensors.remove(sensor.getSensorId());
         }
     }
 
     @Override
-    public void addSensor(Sensor sensor) {
+    public synchronized void addSensor(Sensor sensor) {
         sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        index(sensor);
+        saveSensors();
     }
 
     @Override
-    public void removeSensor(Sensor sensor) {
+    public synchronized void removeSensor(Sensor sensor) {
         sensors.remove(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        sensorsById.remove(sensor.getSensorId());
+        activeSensors.remove(sensor.getSensorId());
+        saveSensors();
+        if (sensorZones.remove(sensor.getSensorId()) != null) {
+            putChunked(SENSOR_ZONES_BINARY, encodeSensorZones(sensorZones));
+        }
     }
 
     @Override
-    public void updateSensor(Sensor sensor) {
+    public synchronized void updateSensor(Sensor sensor) {
         sensors.remove(sensor);
         sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        index(sensor);
+        saveSensors();
     }
 
     @Override
-    public void setAlarmStatus(AlarmStatus alarmStatus) {
+    public synchronized void updateSensors(Collection<Sensor> sensorsToUpdate) {
+        sensorsToUpdate.forEach(sensor -> {
+            sensors.remove(sensor);
+            sensors.add(sensor);
+            index(sensor);
+        });
+        saveSensors();
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
         this.alarmStatus = alarmStatus;
         prefs.put(ALARM_STATUS, this.alarmStatus.toString());
     }
 
     @Override
-    public void setArmingStatus(ArmingStatus armingStatus) {
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
         this.armingStatus = armingStatus;
         prefs.put(ARMING_STATUS, this.armingStatus.toString());
     }
 
     @Override
-    public Set<Sensor> getSensors() {
-        return sensors;
+    public synchronized Set<Sensor> getSensors() {
+        return Collections.unmodifiableSet(new TreeSet<>(sensors));
+    }
+
+    @Override
+    public synchronized Sensor getSensor(UUID sensorId) {
+        return sensorsById.get(sensorId);
     }
 
     @Override
-    public AlarmStatus getAlarmStatus() {
+    public synchronized AlarmStatus getAlarmStatus() {
         return alarmStatus;
     }
 
     @Override
-    public ArmingStatus getArmingStatus() {
+    public synchronized ArmingStatus getArmingStatus() {
         return armingStatus;
     }
+
+    @Override
+    public synchronized int activeSensorCount() {
+        return activeSensors.size();
+    }
+
+    @Override
+    public synchronized Set<Sensor> getActiveSensors() {
+        return Set.copyOf(activeSensors.values());
+    }
+
+    @Override
+    public synchronized boolean isActive(UUID sensorId) {
+        return activeSensors.containsKey(sensorId);
+    }
+
+    @Override
+    public synchronized Set<Zone> getZones() {
+        return Set.copyOf(zones.values());
+    }
+
+    @Override
+    public synchronized void saveZone(Zone zone) {
+        zones.put(zone.getZoneId(), new Zone(zone));
+        putChunked(ZONES_BINARY, ZoneCodec.encode(zones.values()));
+    }
+
+    @Override
+    public synchronized void removeZone(Zone zone) {
+        zones.remove(zone.getZoneId());
+        putChunked(ZONES_BINARY, ZoneCodec.encode(zones.values()));
+        if (sensorZones.values().removeIf(zone.getZoneId()::equals)) {
+            putChunked(SENSOR_ZONES_BINARY, encodeSensorZones(sensorZones));
+        }
+    }
+
+    @Override
+    public synchronized Map<UUID, UUID> getSensorZones() {
+        return Map.copyOf(sensorZones);
+    }
+
+    @Override
+    public synchronized void setSensorZone(Sensor sensor, UUID zoneId) {
+        if (!sensorsById.containsKey(sensor.getSensorId())) {
+            throw new IllegalArgumentException("No sensor with id " + sensor.getSensorId());
+        }
+        if (zoneId == null) {
+            sensorZones.remove(sensor.getSensorId());
+        } else {
+            sensorZones.put(sensor.getSensorId(), zoneId);
+        }
+        putChunked(SENSOR_ZONES_BINARY, encodeSensorZones(sensorZones));
+    }
 }
@@ -1,6 +1,9 @@
 package com.udacity.catpoint.security.data;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 /**
  * Interface showing the methods our security repository will need to support
@@ -9,11 +12,42 @@ public interface SecurityRepository {
     void addSensor(Sensor sensor);
     void removeSensor(Sensor sensor);
     void updateSensor(Sensor sensor);
+
+    //implementations that persist on every write can override this to persist once for the whole batch
+    default void updateSensors(Collection<Sensor> sensors) {
+        sensors.forEach(this::updateSensor);
+    }
+
     void setAlarmStatus(AlarmStatus alarmStatus);
     void setArmingStatus(ArmingStatus armingStatus);
+    //a snapshot taken when called, safe to iterate while other threads change the sensors
     Set<Sensor> getSensors();
+    //the sensor with this id, or null if there is none; a copy where getSensors() returns copies
+    Sensor getSensor(UUID sensorId);
     AlarmStatus getAlarmStatus();
     ArmingStatus getArmingStatus();
 
+    //maintained incrementally by the repository so callers do not need to scan every sensor
+    int activeSensorCount();
+    Set<Sensor> getActiveSensors();
+    //whether the stored sensor with this id is active, whatever a caller's copy of it says
+    boolean isActive(UUID sensorId);
+
+    //every repository stores zones, so a service configured with zones keeps them across restarts
+    Set<Zone> getZones();
+
+    //adds the zone, or replaces the stored zone with the same id
+    void saveZone(Zone zone);
+
+    //also drops the assignments of sensors to the zone
+    void removeZone(Zone zone);
+
+    //ids of assigned sensors, mapped to the id of their zone
+    Map<UUID, UUID> getSensorZones();
 
+    /**
+     * A null zone id removes the sensor from its zone; removing the sensor also does.
+     * @throws IllegalArgumentException If the sensor is not in the repository
+     */
+    void setSensorZone(Sensor sensor, UUID zoneId);
 }
@@ -1,9 +1,5 @@
 package com.udacity.catpoint.security.data;
 
-
-import com.google.common.collect.ComparisonChain;
-
-import java.util.Objects;
 import java.util.UUID;
 
 /**
@@ -22,6 +18,13 @@ public class Sensor implements Comparable<Sensor> {
         this.active = Boolean.FALSE;
     }
 
+    public Sensor(UUID sensorId, String name, SensorType sensorType, Boolean active) {
+        this.sensorId = sensorId;
+        this.name = name;
+        this.sensorType = sensorType;
+        this.active = active;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -32,7 +35,7 @@ public class Sensor implements Comparable<Sensor> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(sensorId);
+        return sensorId.hashCode();
     }
 
     public String getName() {
@@ -67,12 +70,20 @@ public class Sensor implements Comparable<Sensor> {
         this.sensorId = sensorId;
     }
 
+    /**
+     * Orders by name, then type name, then id. Written out by hand because sensor sets can be
+     * large and this runs on every comparison.
+     */
     @Override
     public int compareTo(Sensor o) {
-        return ComparisonChain.start()
-                .compare(this.name, o.name)
-                .compare(this.sensorType.toString(), o.sensorType.toString())
-                .compare(this.sensorId, o.sensorId)
-                .result();
+        int result = this.name.compareTo(o.name);
+        if (result != 0) {
+            return result;
+        }
+        result = this.sensorType.name().compareTo(o.sensorType.name());
+        if (result != 0) {
+            return result;
+        }
+        return this.sensorId.compareTo(o.sensorId);
     }
 }
@@ -0,0 +1,7 @@
+package com.udacity.catpoint.security.data;
+
+/**
+ * A requested change to the activation status of a sensor, used to submit several changes at once.
+ */
+public record SensorEvent(Sensor sensor, boolean active) {
+}
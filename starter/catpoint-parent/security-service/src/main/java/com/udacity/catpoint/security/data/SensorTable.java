@@ -0,0 +1,319 @@
+package com.udacity.catpoint.security.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+
+/**
+ * Compact, primitive-backed storage for large numbers of sensors. Each sensor is addressed by an
+ * int handle and its fields live in parallel arrays: two longs for the id, a byte for the
+ * {@link SensorType} ordinal, an index into a pool of interned names and one bit for the active flag.
+ * Ids are looked up through an open-addressing hash index over the raw id bits, so neither lookups
+ * nor activation toggles allocate.
+ *
+ * Handles of removed sensors are reused. {@link #view(int)} returns a {@link Sensor} copy for code
+ * that works with the regular sensor objects.
+ *
+ * This class is not thread-safe.
+ */
+public class SensorTable {
+
+    public static final int NO_HANDLE = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+
+    //per-handle columns
+    private long[] idHigh;
+    private long[] idLow;
+    private byte[] types;
+    private int[] nameIds;
+    private final BitSet live = new BitSet();
+    private final BitSet active = new BitSet();
+
+    private int highWater;
+    private int[] freeHandles = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    private int size;
+    private int activeCount;
+
+    //id index: slot holds handle + 1, 0 marks an empty slot
+    private int[] index;
+    private int indexMask;
+
+    //interned names, reference counted so renamed sensors do not leak pool entries
+    private final Map<String, Integer> nameLookup = new HashMap<>();
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int[] nameRefs = new int[INITIAL_CAPACITY];
+    private int[] freeNameIds = new int[INITIAL_CAPACITY];
+    private int freeNameCount;
+    private int nameHighWater;
+
+    public SensorTable() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public SensorTable(int expectedSensors) {
+        int capacity = Math.max(INITIAL_CAPACITY, expectedSensors);
+        idHigh = new long[capacity];
+        idLow = new long[capacity];
+        types = new byte[capacity];
+        nameIds = new int[capacity];
+        index = new int[tableSizeFor(capacity * 2)];
+        indexMask = index.length - 1;
+    }
+
+    /**
+     * Adds a sensor, or overwrites the fields of the sensor with the same id if it is already present.
+     * @return The handle of the sensor
+     */
+    public int add(UUID sensorId, String name, SensorType sensorType, boolean isActive) {
+        long high = sensorId.getMostSignificantBits();
+        long low = sensorId.getLeastSignificantBits();
+        int handle = handleOf(high, low);
+        if (handle != NO_HANDLE) {
+            setName(handle, name);
+            setSensorType(handle, sensorType);
+            setActive(handle, isActive);
+            return handle;
+        }
+
+        handle = freeCount > 0 ? freeHandles[--freeCount] : highWater++;
+        if (handle >= idHigh.length) {
+            growColumns(idHigh.length * 2);
+        }
+        idHigh[handle] = high;
+        idLow[handle] = low;
+        types[handle] = (byte) sensorType.ordinal();
+        nameIds[handle] = internName(name);
+        live.set(handle);
+        size++;
+        setActive(handle, isActive);
+
+        if (size * 2 > index.length) {
+            rebuildIndex(index.length * 2);
+        } else {
+            insertIntoIndex(handle);
+        }
+        return handle;
+    }
+
+    public int add(Sensor sensor) {
+        return add(sensor.getSensorId(), sensor.getName(), sensor.getSensorType(), Boolean.TRUE.equals(sensor.getActive()));
+    }
+
+    /**
+     * @return True if a sensor with this id was present
+     */
+    public boolean remove(UUID sensorId) {
+        int handle = handleOf(sensorId);
+        if (handle == NO_HANDLE) {
+            return false;
+        }
+        removeFromIndex(handle);
+        setActive(handle, false);
+        releaseName(nameIds[handle]);
+        live.clear(handle);
+        size--;
+        if (freeCount == freeHandles.length) {
+            freeHandles = Arrays.copyOf(freeHandles, freeCount * 2);
+        }
+        freeHandles[freeCount++] = handle;
+        return true;
+    }
+
+    public int handleOf(UUID sensorId) {
+        return handleOf(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+    }
+
+    /**
+     * Looks up a sensor by the two halves of its id without creating a {@link UUID}.
+     * @return The handle, or {@link #NO_HANDLE} if there is no such sensor
+     */
+    public int handleOf(long high, long low) {
+        for (int slot = hash(high, low) & indexMask; index[slot] != 0; slot = (slot + 1) & indexMask) {
+            int handle = index[slot] - 1;
+            if (idHigh[handle] == high && idLow[handle] == low) {
+                return handle;
+            }
+        }
+        return NO_HANDLE;
+    }
+
+    public boolean contains(UUID sensorId) {
+        return handleOf(sensorId) != NO_HANDLE;
+    }
+
+    /**
+     * @return True if the flag changed
+     */
+    public boolean setActive(int handle, boolean isActive) {
+        if (active.get(handle) == isActive) {
+            return false;
+        }
+        active.set(handle, isActive);
+        activeCount += isActive ? 1 : -1;
+        return true;
+    }
+
+    public boolean isActive(int handle) {
+        return active.get(handle);
+    }
+
+    public SensorType sensorType(int handle) {
+        return SENSOR_TYPES[types[handle]];
+    }
+
+    public void setSensorType(int handle, SensorType sensorType) {
+        types[handle] = (byte) sensorType.ordinal();
+    }
+
+    public String name(int handle) {
+        return names[nameIds[handle]];
+    }
+
+    public void setName(int handle, String name) {
+        int previous = nameIds[handle];
+        if (names[previous].equals(name)) {
+            return;
+        }
+        nameIds[handle] = internName(name);
+        releaseName(previous);
+    }
+
+    public UUID sensorId(int handle) {
+        return new UUID(idHigh[handle], idLow[handle]);
+    }
+
+    public long sensorIdHigh(int handle) {
+        return idHigh[handle];
+    }
+
+    public long sensorIdLow(int handle) {
+        return idLow[handle];
+    }
+
+    /**
+     * @return A new {@link Sensor} holding the current values of the sensor with this handle
+     */
+    public Sensor view(int handle) {
+        return new Sensor(sensorId(handle), name(handle), sensorType(handle), isActive(handle));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int activeCount() {
+        return activeCount;
+    }
+
+    public void forEachHandle(IntConsumer action) {
+        for (int handle = live.nextSetBit(0); handle >= 0; handle = live.nextSetBit(handle + 1)) {
+            action.accept(handle);
+        }
+    }
+
+    /**
+     * For loops that cannot use {@link #forEachHandle}, for example because they throw checked exceptions.
+     * @return The first handle in use at or after {@code from}, or {@link #NO_HANDLE} if there is none
+     */
+    public int nextHandle(int from) {
+        return live.nextSetBit(from);
+    }
+
+    public void forEachActive(IntConsumer action) {
+        for (int handle = active.nextSetBit(0); handle >= 0; handle = active.nextSetBit(handle + 1)) {
+            action.accept(handle);
+        }
+    }
+
+    private int internName(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("name of Sensor should not be null.");
+        }
+        Integer existing = nameLookup.get(name);
+        if (existing != null) {
+            nameRefs[existing]++;
+            return existing;
+        }
+        int id = freeNameCount > 0 ? freeNameIds[--freeNameCount] : nameHighWater++;
+        if (id >= names.length) {
+            names = Arrays.copyOf(names, names.length * 2);
+            nameRefs = Arrays.copyOf(nameRefs, nameRefs.length * 2);
+        }
+        names[id] = name;
+        nameRefs[id] = 1;
+        nameLookup.put(name, id);
+        return id;
+    }
+
+    private void releaseName(int id) {
+        if (--nameRefs[id] > 0) {
+            return;
+        }
+        nameLookup.remove(names[id]);
+        names[id] = null;
+        if (freeNameCount == freeNameIds.length) {
+            freeNameIds = Arrays.copyOf(freeNameIds, freeNameCount * 2);
+        }
+        freeNameIds[freeNameCount++] = id;
+    }
+
+    private void growColumns(int capacity) {
+        idHigh = Arrays.copyOf(idHigh, capacity);
+        idLow = Arrays.copyOf(idLow, capacity);
+        types = Arrays.copyOf(types, capacity);
+        nameIds = Arrays.copyOf(nameIds, capacity);
+    }
+
+    private void rebuildIndex(int tableSize) {
+        index = new int[tableSize];
+        indexMask = tableSize - 1;
+        forEachHandle(this::insertIntoIndex);
+    }
+
+    private void insertIntoIndex(int handle) {
+        int slot = hash(idHigh[handle], idLow[handle]) & indexMask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & indexMask;
+        }
+        index[slot] = handle + 1;
+    }
+
+    /**
+     * Linear-probing delete with backward shift, so the index never needs tombstones.
+     */
+    private void removeFromIndex(int handle) {
+        int hole = hash(idHigh[handle], idLow[handle]) & indexMask;
+        while (index[hole] != handle + 1) {
+            hole = (hole + 1) & indexMask;
+        }
+        for (int slot = (hole + 1) & indexMask; index[slot] != 0; slot = (slot + 1) & indexMask) {
+            int moved = index[slot] - 1;
+            int home = hash(idHigh[moved], idLow[moved]) & indexMask;
+            //move the entry back unless its home lies cyclically in (hole, slot]
+            boolean homeBetween = hole <= slot ? (home > hole && home <= slot) : (home > hole || home <= slot);
+            if (!homeBetween) {
+                index[hole] = index[slot];
+                hole = slot;
+            }
+        }
+        index[hole] = 0;
+    }
+
+    private static int hash(long high, long low) {
+        long h = high * 0x9E3779B97F4A7C15L ^ low;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+    }
+}
@@ -0,0 +1,88 @@
+package com.udacity.catpoint.security.data;
+
+import java.util.UUID;
+
+/**
+ * Zone POJO. Zones form a tree: a zone without a parent is an area, such as a building or a floor,
+ * and the zones below it divide it further. Sensors are assigned to at most one zone. Every zone
+ * has an arming status and an alarm status of its own.
+ */
+public class Zone {
+    private UUID zoneId;
+    private String name;
+    private UUID parentId;
+    private ArmingStatus armingStatus;
+    private AlarmStatus alarmStatus;
+
+    /**
+     * @param parentId Zone this one lies in, or null for an area
+     */
+    public Zone(String name, UUID parentId) {
+        this(UUID.randomUUID(), name, parentId, ArmingStatus.DISARMED, AlarmStatus.NO_ALARM);
+    }
+
+    public Zone(UUID zoneId, String name, UUID parentId, ArmingStatus armingStatus, AlarmStatus alarmStatus) {
+        this.zoneId = zoneId;
+        this.name = name;
+        this.parentId = parentId;
+        this.armingStatus = armingStatus;
+        this.alarmStatus = alarmStatus;
+    }
+
+    public Zone(Zone zone) {
+        this(zone.zoneId, zone.name, zone.parentId, zone.armingStatus, zone.alarmStatus);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Zone zone = (Zone) o;
+        return zoneId.equals(zone.zoneId);
+    }
+
+    @Override
+    public int hashCode() {
+        return zoneId.hashCode();
+    }
+
+    public UUID getZoneId() {
+        return zoneId;
+    }
+
+    public void setZoneId(UUID zoneId) {
+        this.zoneId = zoneId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public UUID getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(UUID parentId) {
+        this.parentId = parentId;
+    }
+
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+    }
+
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+    }
+}
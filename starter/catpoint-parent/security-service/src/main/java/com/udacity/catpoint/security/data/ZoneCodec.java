@@ -0,0 +1,83 @@
+package com.udacity.catpoint.security.data;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Binary form of a set of zones, shared by the repositories that store zones as a single value.
+ *
+ * Layout: zone count, then per zone the id, a flag telling whether a parent id follows, the
+ * parent id, the arming and alarm status ordinals, and the length and UTF-8 bytes of the name.
+ */
+final class ZoneCodec {
+
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+
+    private ZoneCodec() {
+    }
+
+    static byte[] encode(Collection<Zone> zones) {
+        byte[][] names = new byte[zones.size()][];
+        int size = 4;
+        int i = 0;
+        for (Zone zone : zones) {
+            names[i] = zone.getName().getBytes(StandardCharsets.UTF_8);
+            size += 16 + 1 + (zone.getParentId() == null ? 0 : 16) + 1 + 1 + 2 + names[i].length;
+            i++;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(zones.size());
+        i = 0;
+        for (Zone zone : zones) {
+            putId(buffer, zone.getZoneId());
+            buffer.put((byte) (zone.getParentId() == null ? 0 : 1));
+            if (zone.getParentId() != null) {
+                putId(buffer, zone.getParentId());
+            }
+            buffer.put((byte) zone.getArmingStatus().ordinal())
+                    .put((byte) zone.getAlarmStatus().ordinal())
+                    .putShort((short) names[i].length)
+                    .put(names[i]);
+            i++;
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @return The zones by id
+     * @throws IllegalStateException If the bytes do not hold a whole set of zones
+     */
+    static Map<UUID, Zone> decode(byte[] encoded) {
+        Map<UUID, Zone> decoded = new HashMap<>();
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        try {
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                UUID id = getId(buffer);
+                UUID parentId = buffer.get() != 0 ? getId(buffer) : null;
+                ArmingStatus arming = ARMING_STATUSES[buffer.get()];
+                AlarmStatus alarm = ALARM_STATUSES[buffer.get()];
+                byte[] name = new byte[Short.toUnsignedInt(buffer.getShort())];
+                buffer.get(name);
+                decoded.put(id, new Zone(id, new String(name, StandardCharsets.UTF_8), parentId, arming, alarm));
+            }
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalStateException("Stored zones are corrupt", e);
+        }
+        return decoded;
+    }
+
+    private static void putId(ByteBuffer buffer, UUID id) {
+        buffer.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID getId(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,27 @@
+package com.udacity.catpoint.security.history;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One state change read back from an {@link EventLog}.
+ */
+public sealed interface AlarmEvent {
+
+    Instant timestamp();
+
+    record SensorActivation(Instant timestamp, UUID sensorId, boolean active) implements AlarmEvent {
+    }
+
+    record ArmingChange(Instant timestamp, ArmingStatus armingStatus) implements AlarmEvent {
+    }
+
+    record AlarmChange(Instant timestamp, AlarmStatus alarmStatus) implements AlarmEvent {
+    }
+
+    record CatDetection(Instant timestamp, boolean catDetected) implements AlarmEvent {
+    }
+}
@@ -0,0 +1,536 @@
+package com.udacity.catpoint.security.history;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Append-only history of every change to the sensors, arming status, alarm status and cat
+ * detection, from which the state at any past moment can be rebuilt.
+ *
+ * The log is kept in three files:
+ * <pre>
+ *   events.log        header (magic, version), then one record per event
+ *   events.sensors    sensor ids, 16 bytes each; a sensor is referred to by its position here
+ *   events.snapshots  full state every few events, with the log offset it corresponds to
+ * </pre>
+ * A record is a tag byte, the time since the previous record as a variable-length number of
+ * nanoseconds, and for sensor, arming and alarm events a variable-length sensor position or
+ * status ordinal. Most records take 3 to 6 bytes. Timestamps are nanoseconds since the epoch and
+ * never go backwards, even if the clock does.
+ *
+ * Rebuilding a state starts from the latest snapshot before the requested time and replays the
+ * records after it straight from a memory-mapped view of the log, so replay is bounded by the
+ * snapshot interval and runs at tens of millions of records per second. A record torn by a crash
+ * is dropped when the log is opened.
+ */
+public class EventLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(EventLog.class);
+
+    static final String LOG_FILE = "events.log";
+    static final String SENSOR_FILE = "events.sensors";
+    static final String SNAPSHOT_FILE = "events.snapshots";
+
+    private static final int MAGIC = 0x4350454C; //"CPEL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int SENSOR_ID_SIZE = 16;
+    //timestamp, log offset, arming, alarm, cat, active sensor count
+    private static final int SNAPSHOT_HEADER_SIZE = 8 + 8 + 3 + 4;
+    private static final int DEFAULT_SNAPSHOT_INTERVAL = 100_000;
+    private static final long REPLAY_WINDOW = 64L << 20;
+
+    private static final byte SENSOR_ACTIVE = 1;
+    private static final byte SENSOR_INACTIVE = 2;
+    private static final byte ARMING = 3;
+    private static final byte ALARM = 4;
+    private static final byte CAT = 5;
+    private static final byte NO_CAT = 6;
+
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+
+    private final Path directory;
+    private final Clock clock;
+    private final int snapshotInterval;
+    private final FileChannel logChannel;
+    private final FileChannel sensorChannel;
+    private final FileChannel snapshotChannel;
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(32);
+
+    private final List<UUID> sensorIds = new ArrayList<>();
+    private final Map<UUID, Integer> sensorPositions = new HashMap<>();
+    //timestamp and file position of each snapshot, in log order
+    private long[] snapshotTimestamps = new long[16];
+    private long[] snapshotPositions = new long[16];
+    private int snapshotCount;
+
+    //state after the last record in the log
+    private final State current;
+    private int eventsSinceSnapshot;
+
+    public EventLog(Path directory) {
+        this(directory, Clock.systemUTC(), DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * @param directory Directory holding the log files. Created if missing.
+     * @param clock Source of the event timestamps
+     * @param snapshotInterval Number of events between snapshots, which bounds how many records
+     *                         rebuilding any state has to replay
+     */
+    public EventLog(Path directory, Clock clock, int snapshotInterval) {
+        if (directory == null) {
+            throw new IllegalArgumentException("directory of Path should not be null.");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("clock of Clock should not be null.");
+        }
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("snapshotInterval should be positive.");
+        }
+        this.directory = directory;
+        this.clock = clock;
+        this.snapshotInterval = snapshotInterval;
+        try {
+            Files.createDirectories(directory);
+            logChannel = open(LOG_FILE);
+            sensorChannel = open(SENSOR_FILE);
+            snapshotChannel = open(SNAPSHOT_FILE);
+            checkHeader();
+            loadSensors();
+            loadSnapshots();
+
+            current = snapshotCount == 0 ? State.initial() : readSnapshot(snapshotCount - 1);
+            long end = replay(current, Long.MAX_VALUE, logChannel.size(), null, 0);
+            if (end < logChannel.size()) {
+                log.warn("Dropping {} bytes of incomplete records at the end of {}",
+                        logChannel.size() - end, directory.resolve(LOG_FILE));
+                logChannel.truncate(end);
+            }
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to open event log in " + directory, ioe);
+        }
+    }
+
+    /**
+     * Records a sensor activation change. Nothing is written if the sensor already had that status.
+     */
+    public synchronized void sensorChanged(UUID sensorId, boolean active) {
+        Integer position = sensorPositions.get(sensorId);
+        if (position == null) {
+            if (!active) {
+                return; //sensors start out inactive
+            }
+            position = addSensor(sensorId);
+        }
+        if (current.active.get(position) != active) {
+            append(active ? SENSOR_ACTIVE : SENSOR_INACTIVE, position);
+        }
+    }
+
+    /**
+     * Records the system statuses, writing an event for each one that differs from the last
+     * recorded value.
+     */
+    public synchronized void statusChanged(ArmingStatus armingStatus, AlarmStatus alarmStatus, boolean catDetected) {
+        if (armingStatus != current.armingStatus) {
+            append(ARMING, armingStatus.ordinal());
+        }
+        if (alarmStatus != current.alarmStatus) {
+            append(ALARM, alarmStatus.ordinal());
+        }
+        if (catDetected != current.catDetected) {
+            append(catDetected ? CAT : NO_CAT, -1);
+        }
+    }
+
+    public synchronized HistoryState currentState() {
+        return current.toHistoryState(sensorIds);
+    }
+
+    /**
+     * Rebuilds the state as it was at the given time, including every event recorded at that
+     * exact time.
+     */
+    public synchronized HistoryState stateAt(Instant time) {
+        long nanos = epochNanos(time);
+        State state = startingPoint(nanos);
+        try {
+            replay(state, nanos, logChannel.size(), null, 0);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to read event log in " + directory, ioe);
+        }
+        return state.toHistoryState(sensorIds);
+    }
+
+    /**
+     * @return The events recorded from {@code from} to {@code to}, both included, oldest first
+     */
+    public synchronized List<AlarmEvent> events(Instant from, Instant to) {
+        long fromNanos = epochNanos(from);
+        List<AlarmEvent> events = new ArrayList<>();
+        try {
+            //a snapshot taken at fromNanos already holds events recorded at that time, so start before it
+            replay(startingPoint(fromNanos - 1), epochNanos(to), logChannel.size(), events::add, fromNanos);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to read event log in " + directory, ioe);
+        }
+        return events;
+    }
+
+    /**
+     * Writes a snapshot of the current state, so rebuilding later states starts from here.
+     */
+    public synchronized void snapshot() {
+        int[] active = current.active.stream().toArray();
+        ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE + 4 * active.length);
+        buffer.putLong(current.timestamp)
+                .putLong(current.offset)
+                .put((byte) current.armingStatus.ordinal())
+                .put((byte) current.alarmStatus.ordinal())
+                .put((byte) (current.catDetected ? 1 : 0))
+                .putInt(active.length);
+        for (int position : active) {
+            buffer.putInt(position);
+        }
+        buffer.flip();
+        try {
+            long position = snapshotChannel.size();
+            writeFully(snapshotChannel, buffer, position);
+            addSnapshot(current.timestamp, position);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to write event log snapshot in " + directory, ioe);
+        }
+        eventsSinceSnapshot = 0;
+    }
+
+    /**
+     * Forces everything written so far to the storage device and closes the files.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try (logChannel; sensorChannel; snapshotChannel) {
+            logChannel.force(true);
+            sensorChannel.force(true);
+            snapshotChannel.force(true);
+        }
+    }
+
+    private void append(byte tag, int value) {
+        long timestamp = Math.max(current.timestamp, epochNanos(clock.instant()));
+        recordBuffer.clear();
+        recordBuffer.put(tag);
+        putVarLong(recordBuffer, timestamp - current.timestamp);
+        if (value >= 0) {
+            putVarLong(recordBuffer, value);
+        }
+        recordBuffer.flip();
+        try {
+            writeFully(logChannel, recordBuffer, current.offset);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to append to event log in " + directory, ioe);
+        }
+        current.apply(tag, value, timestamp);
+        current.offset += recordBuffer.limit();
+        if (++eventsSinceSnapshot >= snapshotInterval) {
+            snapshot();
+        }
+    }
+
+    private int addSensor(UUID sensorId) {
+        int position = sensorIds.size();
+        ByteBuffer buffer = ByteBuffer.allocate(SENSOR_ID_SIZE);
+        buffer.putLong(sensorId.getMostSignificantBits()).putLong(sensorId.getLeastSignificantBits()).flip();
+        try {
+            writeFully(sensorChannel, buffer, (long) position * SENSOR_ID_SIZE);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to append to event log in " + directory, ioe);
+        }
+        sensorIds.add(sensorId);
+        sensorPositions.put(sensorId, position);
+        return position;
+    }
+
+    /**
+     * Latest snapshot taken at or before the given time, or the initial state if there is none.
+     */
+    private State startingPoint(long nanos) {
+        int index = Arrays.binarySearch(snapshotTimestamps, 0, snapshotCount, nanos);
+        if (index < 0) {
+            index = -index - 2;
+        } else {
+            //several snapshots can share a timestamp; take the last one
+            while (index + 1 < snapshotCount && snapshotTimestamps[index + 1] == nanos) {
+                index++;
+            }
+        }
+        try {
+            return index < 0 ? State.initial() : readSnapshot(index);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to read event log snapshot in " + directory, ioe);
+        }
+    }
+
+    /**
+     * Applies the records after the state's offset whose timestamp is at most {@code untilNanos}.
+     * Stops at the first incomplete or invalid record.
+     * @param events Receives the applied events from {@code fromNanos} on, or null
+     * @return The offset after the last record applied
+     */
+    private long replay(State state, long untilNanos, long end, Consumer<AlarmEvent> events, long fromNanos)
+            throws IOException {
+        int sensorCount = sensorIds.size();
+        while (state.offset < end) {
+            //map a window at a time so logs larger than a mapped buffer can be replayed
+            long base = state.offset;
+            long windowEnd = Math.min(end, base + REPLAY_WINDOW);
+            ByteBuffer buffer = logChannel.map(FileChannel.MapMode.READ_ONLY, base, windowEnd - base);
+            while (buffer.hasRemaining()) {
+                byte tag;
+                long timestamp;
+                int value = -1;
+                try {
+                    tag = buffer.get();
+                    timestamp = state.timestamp + getVarLong(buffer);
+                    if (tag == SENSOR_ACTIVE || tag == SENSOR_INACTIVE || tag == ARMING || tag == ALARM) {
+                        value = (int) getVarLong(buffer);
+                    }
+                } catch (BufferUnderflowException e) {
+                    break;
+                }
+                boolean valid = switch (tag) {
+                    case SENSOR_ACTIVE, SENSOR_INACTIVE -> value >= 0 && value < sensorCount;
+                    case ARMING -> value >= 0 && value < ARMING_STATUSES.length;
+                    case ALARM -> value >= 0 && value < ALARM_STATUSES.length;
+                    case CAT, NO_CAT -> true;
+                    default -> false;
+                };
+                if (!valid) {
+                    log.warn("Invalid record at offset {} of {}", state.offset, directory.resolve(LOG_FILE));
+                    return state.offset;
+                }
+                if (timestamp > untilNanos) {
+                    return state.offset;
+                }
+                state.apply(tag, value, timestamp);
+                state.offset = base + buffer.position();
+                if (events != null && timestamp >= fromNanos) {
+                    events.accept(toEvent(tag, value, timestamp));
+                }
+            }
+            if (windowEnd == end || state.offset == base) {
+                break; //incomplete record at the end of the log
+            }
+        }
+        return state.offset;
+    }
+
+    private AlarmEvent toEvent(byte tag, int value, long timestamp) {
+        Instant time = toInstant(timestamp);
+        return switch (tag) {
+            case SENSOR_ACTIVE -> new AlarmEvent.SensorActivation(time, sensorIds.get(value), true);
+            case SENSOR_INACTIVE -> new AlarmEvent.SensorActivation(time, sensorIds.get(value), false);
+            case ARMING -> new AlarmEvent.ArmingChange(time, ARMING_STATUSES[value]);
+            case ALARM -> new AlarmEvent.AlarmChange(time, ALARM_STATUSES[value]);
+            case CAT -> new AlarmEvent.CatDetection(time, true);
+            default -> new AlarmEvent.CatDetection(time, false);
+        };
+    }
+
+    private void checkHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (logChannel.size() < HEADER_SIZE) {
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            logChannel.truncate(0);
+            writeFully(logChannel, header, 0);
+            return;
+        }
+        readFully(logChannel, header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a version " + VERSION + " event log: " + directory.resolve(LOG_FILE));
+        }
+    }
+
+    private void loadSensors() throws IOException {
+        long count = sensorChannel.size() / SENSOR_ID_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate((int) count * SENSOR_ID_SIZE);
+        readFully(sensorChannel, buffer, 0);
+        buffer.flip();
+        for (int i = 0; i < count; i++) {
+            UUID id = new UUID(buffer.getLong(), buffer.getLong());
+            sensorIds.add(id);
+            sensorPositions.put(id, i);
+        }
+    }
+
+    /**
+     * Indexes the snapshots, dropping a torn last one and any that point past the end of the log.
+     */
+    private void loadSnapshots() throws IOException {
+        long size = snapshotChannel.size();
+        long logSize = logChannel.size();
+        ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE);
+        long position = 0;
+        while (position + SNAPSHOT_HEADER_SIZE <= size) {
+            header.clear();
+            readFully(snapshotChannel, header, position);
+            long timestamp = header.getLong(0);
+            long offset = header.getLong(8);
+            int activeCount = header.getInt(19);
+            long next = position + SNAPSHOT_HEADER_SIZE + 4L * activeCount;
+            if (activeCount < 0 || next > size || offset > logSize) {
+                break;
+            }
+            addSnapshot(timestamp, position);
+            position = next;
+        }
+        if (position < size) {
+            log.warn("Dropping incomplete snapshots at the end of {}", directory.resolve(SNAPSHOT_FILE));
+            snapshotChannel.truncate(position);
+        }
+    }
+
+    private State readSnapshot(int index) throws IOException {
+        long position = snapshotPositions[index];
+        ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE);
+        readFully(snapshotChannel, header, position);
+        header.flip();
+        State state = new State();
+        state.timestamp = header.getLong();
+        state.offset = header.getLong();
+        state.armingStatus = ARMING_STATUSES[header.get()];
+        state.alarmStatus = ALARM_STATUSES[header.get()];
+        state.catDetected = header.get() != 0;
+        int activeCount = header.getInt();
+        ByteBuffer active = ByteBuffer.allocate(4 * activeCount);
+        readFully(snapshotChannel, active, position + SNAPSHOT_HEADER_SIZE);
+        active.flip();
+        for (int i = 0; i < activeCount; i++) {
+            state.active.set(active.getInt());
+        }
+        return state;
+    }
+
+    private void addSnapshot(long timestamp, long position) {
+        if (snapshotCount == snapshotTimestamps.length) {
+            snapshotTimestamps = Arrays.copyOf(snapshotTimestamps, 2 * snapshotCount);
+            snapshotPositions = Arrays.copyOf(snapshotPositions, 2 * snapshotCount);
+        }
+        snapshotTimestamps[snapshotCount] = timestamp;
+        snapshotPositions[snapshotCount] = position;
+        snapshotCount++;
+    }
+
+    private FileChannel open(String file) throws IOException {
+        return FileChannel.open(directory.resolve(file), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += read;
+        }
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new BufferUnderflowException(); //more than 10 bytes: treat like a torn record
+    }
+
+    private static long epochNanos(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+    }
+
+    private static Instant toInstant(long epochNanos) {
+        return Instant.ofEpochSecond(0, epochNanos);
+    }
+
+    /**
+     * Mutable state used while replaying. Active sensors are held by their position in the
+     * sensor file.
+     */
+    private static final class State {
+        private long timestamp;
+        private long offset;
+        private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+        private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+        private boolean catDetected;
+        private final BitSet active = new BitSet();
+
+        private static State initial() {
+            State state = new State();
+            state.offset = HEADER_SIZE;
+            return state;
+        }
+
+        private void apply(byte tag, int value, long time) {
+            timestamp = time;
+            switch (tag) {
+                case SENSOR_ACTIVE -> active.set(value);
+                case SENSOR_INACTIVE -> active.clear(value);
+                case ARMING -> armingStatus = ARMING_STATUSES[value];
+                case ALARM -> alarmStatus = ALARM_STATUSES[value];
+                case CAT -> catDetected = true;
+                default -> catDetected = false;
+            }
+        }
+
+        private HistoryState toHistoryState(List<UUID> sensorIds) {
+            Set<UUID> activeSensors = new HashSet<>();
+            active.stream().forEach(position -> activeSensors.add(sensorIds.get(position)));
+            return new HistoryState(toInstant(timestamp), armingStatus, alarmStatus, catDetected,
+                    Set.copyOf(activeSensors));
+        }
+    }
+}
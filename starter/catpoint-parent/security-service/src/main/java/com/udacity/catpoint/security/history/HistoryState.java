@@ -0,0 +1,16 @@
+package com.udacity.catpoint.security.history;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * State of the system as rebuilt from an {@link EventLog}.
+ * @param timestamp Time of the last event applied, or the epoch if there was none
+ */
+public record HistoryState(Instant timestamp, ArmingStatus armingStatus, AlarmStatus alarmStatus,
+                           boolean catDetected, Set<UUID> activeSensors) {
+}
@@ -0,0 +1,209 @@
+package com.udacity.catpoint.security.metrics;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.SecurityRepository;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histograms for the main operations of the security system, and counts of the alarm
+ * and arming status transitions. Recording never allocates.
+ *
+ * Nothing is published until {@link #register} is called, which exposes one
+ * {@code com.udacity.catpoint:type=Latency,name=<operation>} MBean per operation and a
+ * {@code com.udacity.catpoint:type=Transitions} MBean.
+ */
+public final class CatpointMetrics {
+
+    public enum Operation {
+        PROCESS_IMAGE("processImage"),
+        CHANGE_SENSOR("changeSensorActivationStatus"),
+        CHANGE_SENSORS("changeSensorActivationStatuses"),
+        SET_ARMING_STATUS("setArmingStatus"),
+        REPOSITORY_WRITE("repositoryWrite"),
+        LISTENER_DISPATCH("listenerDispatch"),
+        IMAGE_SERVICE("imageService");
+
+        private final String metricName;
+
+        Operation(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String metricName() {
+            return metricName;
+        }
+    }
+
+    private static final String DOMAIN = "com.udacity.catpoint";
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length];
+    //from.ordinal() * values().length + to.ordinal()
+    private final AtomicLongArray alarmTransitions = new AtomicLongArray(ALARM_STATUSES.length * ALARM_STATUSES.length);
+    private final AtomicLongArray armingTransitions = new AtomicLongArray(ARMING_STATUSES.length * ARMING_STATUSES.length);
+    private final List<ObjectName> registered = new ArrayList<>();
+
+    public CatpointMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public LatencyHistogram histogram(Operation operation) {
+        return histograms[operation.ordinal()];
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, a value of {@link System#nanoTime()}.
+     */
+    public void recordSince(Operation operation, long startNanos) {
+        histograms[operation.ordinal()].recordSince(startNanos);
+    }
+
+    public void recordTransition(AlarmStatus from, AlarmStatus to) {
+        alarmTransitions.incrementAndGet(from.ordinal() * ALARM_STATUSES.length + to.ordinal());
+    }
+
+    public void recordTransition(ArmingStatus from, ArmingStatus to) {
+        armingTransitions.incrementAndGet(from.ordinal() * ARMING_STATUSES.length + to.ordinal());
+    }
+
+    public long transitionCount(AlarmStatus from, AlarmStatus to) {
+        return alarmTransitions.get(from.ordinal() * ALARM_STATUSES.length + to.ordinal());
+    }
+
+    public long transitionCount(ArmingStatus from, ArmingStatus to) {
+        return armingTransitions.get(from.ordinal() * ARMING_STATUSES.length + to.ordinal());
+    }
+
+    /**
+     * Wraps a repository so that its writes are timed as {@link Operation#REPOSITORY_WRITE}.
+     */
+    public SecurityRepository instrument(SecurityRepository repository) {
+        if (repository == null) {
+            throw new IllegalArgumentException("repository of SecurityRepository should not be null.");
+        }
+        if (repository instanceof InstrumentedSecurityRepository instrumented && instrumented.metrics() == this) {
+            return repository;
+        }
+        return new InstrumentedSecurityRepository(repository, this);
+    }
+
+    /**
+     * Publishes the metrics as MBeans.
+     * @throws JMException If they are already registered, for example by another instance
+     */
+    public synchronized void register(MBeanServer server) throws JMException {
+        if (server == null) {
+            throw new IllegalArgumentException("server of MBeanServer should not be null.");
+        }
+        for (Operation operation : Operation.values()) {
+            ObjectName name = new ObjectName(DOMAIN + ":type=Latency,name=" + operation.metricName());
+            server.registerMBean(new LatencyBean(histogram(operation)), name);
+            registered.add(name);
+        }
+        ObjectName name = new ObjectName(DOMAIN + ":type=Transitions");
+        server.registerMBean(new TransitionsBean(), name);
+        registered.add(name);
+    }
+
+    public synchronized void unregister(MBeanServer server) throws JMException {
+        for (ObjectName name : registered) {
+            server.unregisterMBean(name);
+        }
+        registered.clear();
+    }
+
+    private static <T extends Enum<T>> Map<String, Long> transitions(AtomicLongArray counts, T[] values) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (T from : values) {
+            for (T to : values) {
+                long count = counts.get(from.ordinal() * values.length + to.ordinal());
+                if (count > 0) {
+                    result.put(from.name() + "->" + to.name(), count);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static final class LatencyBean implements LatencyMXBean {
+        private final LatencyHistogram histogram;
+
+        private LatencyBean(LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public long getCount() {
+            return histogram.snapshot().count();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return histogram.snapshot().meanNanos() / 1000;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return histogram.snapshot().p50Nanos() / 1000.0;
+        }
+
+        @Override
+        public double getP90Micros() {
+            return histogram.snapshot().p90Nanos() / 1000.0;
+        }
+
+        @Override
+        public double getP99Micros() {
+            return histogram.snapshot().p99Nanos() / 1000.0;
+        }
+
+        @Override
+        public double getP999Micros() {
+            return histogram.snapshot().p999Nanos() / 1000.0;
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return histogram.snapshot().maxNanos() / 1000.0;
+        }
+
+        @Override
+        public void reset() {
+            histogram.reset();
+        }
+    }
+
+    private final class TransitionsBean implements TransitionsMXBean {
+        @Override
+        public Map<String, Long> getAlarmTransitions() {
+            return transitions(alarmTransitions, ALARM_STATUSES);
+        }
+
+        @Override
+        public Map<String, Long> getArmingTransitions() {
+            return transitions(armingTransitions, ARMING_STATUSES);
+        }
+
+        @Override
+        public void reset() {
+            for (int i = 0; i < alarmTransitions.length(); i++) {
+                alarmTransitions.set(i, 0);
+            }
+            for (int i = 0; i < armingTransitions.length(); i++) {
+                armingTransitions.set(i, 0);
+            }
+        }
+    }
+}
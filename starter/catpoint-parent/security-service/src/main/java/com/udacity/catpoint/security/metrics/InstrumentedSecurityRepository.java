@@ -0,0 +1,138 @@
+package com.udacity.catpoint.security.metrics;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.Zone;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Repository decorator that times every write. Reads are passed straight through.
+ */
+final class InstrumentedSecurityRepository implements SecurityRepository {
+
+    private final SecurityRepository delegate;
+    private final CatpointMetrics metrics;
+
+    InstrumentedSecurityRepository(SecurityRepository delegate, CatpointMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    CatpointMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        long start = System.nanoTime();
+        delegate.addSensor(sensor);
+        metrics.recordSince(CatpointMetrics.Operation.REPOSITORY_WRITE, start);
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        long start = System.nanoTime();
+        delegate.removeSensor(sensor);
+        metrics.recordSince(CatpointMetrics.Operation.REPOSITORY_WRITE, start);
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        long start = System.nanoTime();
+        delegate.updateSensor(sensor);
+        metrics.recordSince(CatpointMetrics.Operation.REPOSITORY_WRITE, start);
+    }
+
+    @Override
+    public void updateSensors(Collection<Sensor> sensors) {
+        long start = System.nanoTime();
+        delegate.updateSensors(sensors);
+        metrics.recordSince(CatpointMetrics.Operation.REPOSITORY_WRITE, start);
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        long start = System.nanoTime();
+        delegate.setAlarmStatus(alarmStatus);
+        metrics.recordSince(CatpointMetrics.Operation.REPOSITORY_WRITE, start);
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        long start = System.nanoTime();
+        delegate.setArmingStatus(armingStatus);
+        metrics.recordSince(CatpointMetrics.Operation.REPOSITORY_WRITE, start);
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return delegate.getSensors();
+    }
+
+    @Override
+    public Sensor getSensor(UUID sensorId) {
+        return delegate.getSensor(sensorId);
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return delegate.getAlarmStatus();
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return delegate.getArmingStatus();
+    }
+
+    @Override
+    public int activeSensorCount() {
+        return delegate.activeSensorCount();
+    }
+
+    @Override
+    public boolean isActive(UUID sensorId) {
+        return delegate.isActive(sensorId);
+    }
+
+    @Override
+    public Set<Sensor> getActiveSensors() {
+        return delegate.getActiveSensors();
+    }
+
+    @Override
+    public Set<Zone> getZones() {
+        return delegate.getZones();
+    }
+
+    @Override
+    public void saveZone(Zone zone) {
+        long start = System.nanoTime();
+        delegate.saveZone(zone);
+        metrics.recordSince(CatpointMetrics.Operation.REPOSITORY_WRITE, start);
+    }
+
+    @Override
+    public void removeZone(Zone zone) {
+        long start = System.nanoTime();
+        delegate.removeZone(zone);
+        metrics.recordSince(CatpointMetrics.Operation.REPOSITORY_WRITE, start);
+    }
+
+    @Override
+    public Map<UUID, UUID> getSensorZones() {
+        return delegate.getSensorZones();
+    }
+
+    @Override
+    public void setSensorZone(Sensor sensor, UUID zoneId) {
+        long start = System.nanoTime();
+        delegate.setSensorZone(sensor, zoneId);
+        metrics.recordSince(CatpointMetrics.Operation.REPOSITORY_WRITE, start);
+    }
+}
@@ -0,0 +1,115 @@
+package com.udacity.catpoint.security.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent latency histogram in the style of HdrHistogram: values below 64 ns get a bucket each,
+ * and every higher power of two is split into 32 equal buckets, so a recorded value is off by at
+ * most about 3%. Values up to 2^36 ns (about 68 seconds) are kept apart; longer ones share the last
+ * bucket, although the maximum is still exact.
+ *
+ * Recording is a few atomic increments on a fixed array and never allocates, so histograms can
+ * stay on in production. Reading walks all 1024 buckets and is meant for monitoring, not hot paths.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Latencies in nanoseconds. Percentiles are the upper edge of the bucket they fall in.
+     */
+    public record Snapshot(long count, double meanNanos, long p50Nanos, long p90Nanos, long p99Nanos,
+                           long p999Nanos, long maxNanos) {
+    }
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    private static final int MAX_EXPONENT = 35;
+    static final int BUCKET_COUNT = LINEAR_LIMIT + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        buckets.incrementAndGet(bucketOf(value));
+        sum.addAndGet(value);
+        long currentMax;
+        while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+            //another thread raised the maximum; try again against its value
+        }
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, a value of {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Takes a snapshot while recording continues, so the figures can be off by the few values
+     * recorded during the walk.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        long maxValue = max.get();
+        return new Snapshot(total, total == 0 ? 0 : (double) sum.get() / total,
+                percentile(counts, total, 0.5, maxValue), percentile(counts, total, 0.9, maxValue),
+                percentile(counts, total, 0.99, maxValue), percentile(counts, total, 0.999, maxValue),
+                maxValue);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        sum.set(0);
+        max.set(0);
+    }
+
+    private static long percentile(long[] counts, long total, double quantile, long maxValue) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Largest value that falls in the bucket.
+     */
+    static long upperBound(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int shift = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
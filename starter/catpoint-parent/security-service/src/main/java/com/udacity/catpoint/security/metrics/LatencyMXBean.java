@@ -0,0 +1,15 @@
+package com.udacity.catpoint.security.metrics;
+
+/**
+ * JMX view of one {@link LatencyHistogram}, in microseconds.
+ */
+public interface LatencyMXBean {
+    long getCount();
+    double getMeanMicros();
+    double getP50Micros();
+    double getP90Micros();
+    double getP99Micros();
+    double getP999Micros();
+    double getMaxMicros();
+    void reset();
+}
@@ -0,0 +1,12 @@
+package com.udacity.catpoint.security.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the state transitions counted by {@link CatpointMetrics}, keyed "FROM->TO".
+ */
+public interface TransitionsMXBean {
+    Map<String, Long> getAlarmTransitions();
+    Map<String, Long> getArmingTransitions();
+    void reset();
+}
@@ -0,0 +1,337 @@
+package com.udacity.catpoint.security.server;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.AlarmRules;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP API over a {@link SecurityService}, for running without the Swing interface.
+ *
+ * <pre>
+ * GET    /status                 alarm and arming status
+ * PUT    /arming                 {"armingStatus": "ARMED_HOME"}
+ * GET    /sensors                all sensors
+ * POST   /sensors                {"name": "Front Door", "sensorType": "DOOR"}, answers 201 with the sensor
+ * GET    /sensors/{id}           one sensor
+ * DELETE /sensors/{id}           removes the sensor, answers 204
+ * PUT    /sensors/{id}/active    {"active": true}
+ * POST   /images                 image file (any format ImageIO reads) to scan for cats
+ * GET    /rules                  {"rules": "..."}, the alarm rules in the format of AlarmRules
+ * PUT    /rules                  {"rules": "..."}, replaces the alarm rules
+ * </pre>
+ *
+ * Every exchange runs on its own virtual thread, so requests blocked on the repository or the
+ * image service do not hold up the others. Bodies are JSON; errors answer with
+ * {@code {"error": "..."}} and a 4xx status.
+ *
+ * Sensors are looked up by id through {@link SecurityService#getSensor}, so a request for one
+ * sensor does not go through all of them. The sensor a request gets is a snapshot; changes made
+ * through the API are saved through the service.
+ *
+ * Images larger than the server's limit, 16MB unless given otherwise, are refused with 413 before
+ * they are read into memory.
+ *
+ * Run with {@code -Dsun.net.httpserver.nodelay=true}, as {@link
+ * com.udacity.catpoint.security.application.CatpointServerApp} does: the JDK server writes the
+ * headers and the body of a response separately, and with Nagle's algorithm every exchange waits
+ * out the client's delayed acknowledgement, about 40ms.
+ */
+public class CatpointHttpServer implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(CatpointHttpServer.class);
+
+    //seconds to wait for exchanges in progress when closing
+    private static final int STOP_DELAY = 1;
+
+    private static final int DEFAULT_MAX_IMAGE_BYTES = 16 * 1024 * 1024;
+
+    private final SecurityService securityService;
+    private final HttpServer server;
+    private final int maxImageBytes;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param address Address to listen on. Port 0 picks a free port, see {@link #getAddress()}.
+     */
+    public CatpointHttpServer(SecurityService securityService, InetSocketAddress address) throws IOException {
+        this(securityService, address, DEFAULT_MAX_IMAGE_BYTES);
+    }
+
+    /**
+     * @param address Address to listen on. Port 0 picks a free port, see {@link #getAddress()}.
+     * @param maxImageBytes Largest image body accepted by {@code POST /images}
+     */
+    public CatpointHttpServer(SecurityService securityService, InetSocketAddress address, int maxImageBytes) throws IOException {
+        if (securityService == null) {
+            throw new IllegalArgumentException("securityService of SecurityService should not be null.");
+        }
+        if (address == null) {
+            throw new IllegalArgumentException("address of InetSocketAddress should not be null.");
+        }
+        if (maxImageBytes <= 0 || maxImageBytes == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxImageBytes of int should be positive and below Integer.MAX_VALUE.");
+        }
+        this.securityService = securityService;
+        this.maxImageBytes = maxImageBytes;
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+        log.info("Serving the security API on {}", server.getAddress());
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        server.stop(STOP_DELAY);
+        executor.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                route(exchange);
+            } catch (ApiException e) {
+                JsonObject error = new JsonObject();
+                error.addProperty("error", e.getMessage());
+                respond(exchange, e.status, error);
+            } catch (RuntimeException e) {
+                log.error("Request {} {} failed", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+                JsonObject error = new JsonObject();
+                error.addProperty("error", "Internal error");
+                respond(exchange, 500, error);
+            }
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/+");
+        switch (path[0]) {
+            case "status" -> {
+                expect(method, "GET", path.length == 1);
+                respond(exchange, 200, status());
+            }
+            case "arming" -> {
+                expect(method, "PUT", path.length == 1);
+                securityService.setArmingStatus(parseEnum(ArmingStatus.class,
+                        readObject(exchange).get("armingStatus")));
+                respond(exchange, 200, status());
+            }
+            case "sensors" -> routeSensors(exchange, method, path);
+            case "images" -> {
+                expect(method, "POST", path.length == 1);
+                BufferedImage image = readImage(exchange);
+                boolean cat = securityService.processImageAsync(image).join();
+                JsonObject result = status();
+                result.addProperty("catDetected", cat);
+                respond(exchange, 200, result);
+            }
+            case "rules" -> {
+                if (path.length == 1 && method.equals("PUT")) {
+                    securityService.setAlarmRules(parseRules(readObject(exchange).get("rules")));
+                } else {
+                    expect(method, "GET", path.length == 1);
+                }
+                JsonObject rules = new JsonObject();
+                rules.addProperty("rules", securityService.getAlarmRules().source());
+                respond(exchange, 200, rules);
+            }
+            default -> throw new ApiException(404, "No such resource");
+        }
+    }
+
+    private static AlarmRules parseRules(JsonElement value) {
+        if (value == null || !value.isJsonPrimitive()) {
+            throw new ApiException(400, "rules should be a string");
+        }
+        try {
+            return AlarmRules.parse(value.getAsString());
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, e.getMessage());
+        }
+    }
+
+    private void routeSensors(HttpExchange exchange, String method, String[] path) throws IOException {
+        if (path.length == 1) {
+            switch (method) {
+                case "GET" -> {
+                    JsonArray sensors = new JsonArray();
+                    new TreeSet<>(securityService.getSensors()).forEach(sensor -> sensors.add(toJson(sensor)));
+                    respond(exchange, 200, sensors);
+                }
+                case "POST" -> {
+                    JsonObject body = readObject(exchange);
+                    JsonElement name = body.get("name");
+                    if (name == null || !name.isJsonPrimitive() || name.getAsString().isBlank()) {
+                        throw new ApiException(400, "name should not be empty");
+                    }
+                    Sensor sensor = new Sensor(name.getAsString(), parseEnum(SensorType.class, body.get("sensorType")));
+                    securityService.addSensor(sensor);
+                    respond(exchange, 201, toJson(sensor));
+                }
+                default -> throw new ApiException(405, "Method not allowed");
+            }
+            return;
+        }
+        Sensor sensor = findSensor(path[1]);
+        if (path.length == 2) {
+            switch (method) {
+                case "GET" -> respond(exchange, 200, toJson(sensor));
+                case "DELETE" -> {
+                    securityService.removeSensor(sensor);
+                    respond(exchange, 204, null);
+                }
+                default -> throw new ApiException(405, "Method not allowed");
+            }
+            return;
+        }
+        expect(method, "PUT", path.length == 3 && path[2].equals("active"));
+        JsonElement active = readObject(exchange).get("active");
+        if (active == null || !active.isJsonPrimitive() || !active.getAsJsonPrimitive().isBoolean()) {
+            throw new ApiException(400, "active should be true or false");
+        }
+        securityService.changeSensorActivationStatus(sensor, active.getAsBoolean());
+        respond(exchange, 200, toJson(sensor));
+    }
+
+    private Sensor findSensor(String id) {
+        UUID sensorId;
+        try {
+            sensorId = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(404, "No such sensor");
+        }
+        Sensor sensor = securityService.getSensor(sensorId);
+        if (sensor == null) {
+            throw new ApiException(404, "No such sensor");
+        }
+        return sensor;
+    }
+
+    private JsonObject status() {
+        JsonObject status = new JsonObject();
+        status.addProperty("alarmStatus", securityService.getAlarmStatus().name());
+        status.addProperty("armingStatus", securityService.getArmingStatus().name());
+        return status;
+    }
+
+    private static JsonObject toJson(Sensor sensor) {
+        JsonObject json = new JsonObject();
+        json.addProperty("sensorId", sensor.getSensorId().toString());
+        json.addProperty("name", sensor.getName());
+        json.addProperty("sensorType", sensor.getSensorType().name());
+        json.addProperty("active", sensor.getActive());
+        return json;
+    }
+
+    private static void expect(String method, String expected, boolean pathMatches) {
+        if (!pathMatches) {
+            throw new ApiException(404, "No such resource");
+        }
+        if (!method.equals(expected)) {
+            throw new ApiException(405, "Method not allowed");
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, JsonElement value) {
+        try {
+            return Enum.valueOf(type, value.getAsString());
+        } catch (RuntimeException e) {
+            throw new ApiException(400, type.getSimpleName() + " should be one of " + Arrays.toString(type.getEnumConstants()));
+        }
+    }
+
+    private static JsonObject readObject(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            return JsonParser.parseString(new String(body.readAllBytes(), StandardCharsets.UTF_8)).getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new ApiException(400, "Body should be a JSON object");
+        }
+    }
+
+    private BufferedImage readImage(HttpExchange exchange) throws IOException {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null && parseLength(length) > maxImageBytes) {
+            throw new ApiException(413, "Image should be at most " + maxImageBytes + " bytes");
+        }
+        byte[] bytes;
+        try (InputStream body = exchange.getRequestBody()) {
+            //a chunked body has no length up front, so read one byte past the limit to notice it
+            bytes = body.readNBytes(maxImageBytes + 1);
+        }
+        if (bytes.length > maxImageBytes) {
+            throw new ApiException(413, "Image should be at most " + maxImageBytes + " bytes");
+        }
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+        if (image == null) {
+            throw new ApiException(400, "Body should be an image");
+        }
+        return image;
+    }
+
+    private static long parseLength(String length) {
+        try {
+            return Long.parseLong(length.trim());
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Content-Length should be a number");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, JsonElement body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Ends a request with a client error.
+     */
+    private static final class ApiException extends RuntimeException {
+        private final int status;
+
+        private ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.udacity.catpoint.security.service;
+
+/**
+ * Result of applying one event to an {@link AlarmState}: the next state plus the side effects
+ * {@link SecurityService} has to carry out once that state has been installed. A status counts
+ * as assigned when a rule sets it, even to the value it already had, so it is written and
+ * announced again.
+ */
+record AlarmOutcome(AlarmState next, boolean alarmAssigned, boolean armingAssigned, boolean resetSensors) {
+
+    static AlarmOutcome alarm(AlarmState previous, AlarmState next) {
+        return new AlarmOutcome(next, next.alarmStatus() != previous.alarmStatus(), false, false);
+    }
+
+    AlarmOutcome withNext(AlarmState next) {
+        return new AlarmOutcome(next, alarmAssigned, armingAssigned, resetSensors);
+    }
+}
@@ -0,0 +1,309 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The policy that decides how events change the alarm status, written as a list of rules and
+ * compiled into a table when loaded. One rule per line, columns separated by whitespace:
+ * <pre>
+ *   arming  alarm  trigger  conditions  -&gt;  alarm  [RESET_SENSORS]
+ * </pre>
+ * The arming, alarm and trigger columns list the values the rule applies to, separated by
+ * {@code |}, or {@code *} for any value. Conditions are {@link Condition}s joined with {@code &},
+ * each optionally negated with {@code !}, or {@code *} for none. The alarm status after the arrow
+ * is assigned when the rule matches, and written and announced even if it is the current one;
+ * {@code -} leaves the alarm status alone. {@code RESET_SENSORS} deactivates every sensor, and is
+ * only allowed for arming triggers. The first matching rule wins, and an event that matches no
+ * rule leaves the alarm status as it is. Empty lines and lines starting with {@code #} are skipped.
+ *
+ * Compiling evaluates the rules for every combination of arming status, alarm status, trigger
+ * and conditions, so evaluating an event is an array lookup. The table also records which
+ * conditions can change the outcome in each state, so conditions that cost a repository call
+ * are only checked where they matter.
+ *
+ * Instances are immutable; {@link SecurityService#setAlarmRules} swaps them atomically.
+ */
+public final class AlarmRules {
+
+    /**
+     * What happened. Sensor triggers describe the activation of the sensor before and after the
+     * change, image triggers give the camera's verdict, and arming triggers name the arming status
+     * being set.
+     */
+    public enum Trigger {
+        SENSOR_ACTIVATED,
+        SENSOR_REACTIVATED,
+        SENSOR_DEACTIVATED,
+        SENSOR_STILL_INACTIVE,
+        IMAGE_WITH_CAT,
+        IMAGE_WITHOUT_CAT,
+        DISARM,
+        ARM_HOME,
+        ARM_AWAY;
+
+        static Trigger ofSensorChange(boolean wasActive, boolean active) {
+            if (active) {
+                return wasActive ? SENSOR_REACTIVATED : SENSOR_ACTIVATED;
+            }
+            return wasActive ? SENSOR_DEACTIVATED : SENSOR_STILL_INACTIVE;
+        }
+
+        static Trigger ofArmingStatus(ArmingStatus armingStatus) {
+            return switch (armingStatus) {
+                case DISARMED -> DISARM;
+                case ARMED_HOME -> ARM_HOME;
+                case ARMED_AWAY -> ARM_AWAY;
+            };
+        }
+    }
+
+    /**
+     * Facts about the system a rule can depend on. {@code NO_SENSOR_ACTIVE} is checked after a
+     * sensor change has been applied; {@code CAT_DETECTED} is whether the camera last saw a cat,
+     * before an image trigger replaces it.
+     */
+    public enum Condition {
+        CAT_DETECTED,
+        NO_SENSOR_ACTIVE
+    }
+
+    /**
+     * What a matching rule does.
+     * @param alarmStatus The alarm status to assign, or null to leave it alone
+     */
+    record Transition(AlarmStatus alarmStatus, boolean resetSensors) {
+        static final Transition NONE = new Transition(null, false);
+
+        boolean assignsAlarm() {
+            return alarmStatus != null;
+        }
+    }
+
+    private record Rule(Set<ArmingStatus> armingStatuses, Set<AlarmStatus> alarmStatuses, Set<Trigger> triggers,
+                        int required, int forbidden, Transition transition) {
+
+        boolean matches(ArmingStatus armingStatus, AlarmStatus alarmStatus, Trigger trigger, int conditions) {
+            return armingStatuses.contains(armingStatus) && alarmStatuses.contains(alarmStatus)
+                    && triggers.contains(trigger)
+                    && (conditions & required) == required && (conditions & forbidden) == 0;
+        }
+    }
+
+    /**
+     * The behaviour the system has always had.
+     */
+    static final String DEFAULT_RULES = """
+            # arming               alarm          trigger             conditions        -> alarm
+            ARMED_HOME|ARMED_AWAY  NO_ALARM       SENSOR_ACTIVATED    *                 -> PENDING_ALARM
+            ARMED_HOME|ARMED_AWAY  PENDING_ALARM  SENSOR_ACTIVATED    *                 -> ALARM
+            ARMED_HOME|ARMED_AWAY  PENDING_ALARM  SENSOR_REACTIVATED  *                 -> ALARM
+            ARMED_HOME|ARMED_AWAY  PENDING_ALARM  SENSOR_DEACTIVATED  NO_SENSOR_ACTIVE  -> NO_ALARM
+            ARMED_HOME             *              IMAGE_WITH_CAT      *                 -> ALARM
+            *                      *              IMAGE_WITHOUT_CAT   NO_SENSOR_ACTIVE  -> NO_ALARM
+            *                      *              DISARM              *                 -> NO_ALARM
+            *                      *              ARM_HOME            CAT_DETECTED      -> ALARM  RESET_SENSORS
+            *                      *              ARM_HOME            *                 -> -      RESET_SENSORS
+            DISARMED               *              ARM_AWAY            *                 -> -      RESET_SENSORS
+            """;
+
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final Trigger[] TRIGGERS = Trigger.values();
+    private static final Condition[] CONDITIONS = Condition.values();
+    private static final int CONDITION_SETS = 1 << CONDITIONS.length;
+    private static final int CAT_DETECTED = 1 << Condition.CAT_DETECTED.ordinal();
+    private static final int NO_SENSOR_ACTIVE = 1 << Condition.NO_SENSOR_ACTIVE.ordinal();
+    private static final Set<Trigger> ARMING_TRIGGERS = EnumSet.of(Trigger.DISARM, Trigger.ARM_HOME, Trigger.ARM_AWAY);
+
+    private static final AlarmRules DEFAULTS = parse(DEFAULT_RULES);
+
+    private final String source;
+    //one entry per state and set of conditions, see state()
+    private final Transition[] transitions;
+    //per state, the conditions whose value can change the transition
+    private final byte[] relevantConditions;
+
+    private AlarmRules(String source, List<Rule> rules) {
+        this.source = source;
+        int states = ARMING_STATUSES.length * ALARM_STATUSES.length * TRIGGERS.length;
+        transitions = new Transition[states * CONDITION_SETS];
+        relevantConditions = new byte[states];
+        for (ArmingStatus armingStatus : ARMING_STATUSES) {
+            for (AlarmStatus alarmStatus : ALARM_STATUSES) {
+                for (Trigger trigger : TRIGGERS) {
+                    int state = state(armingStatus, alarmStatus, trigger);
+                    for (int conditions = 0; conditions < CONDITION_SETS; conditions++) {
+                        transitions[state * CONDITION_SETS + conditions] =
+                                firstMatch(rules, armingStatus, alarmStatus, trigger, conditions);
+                    }
+                    relevantConditions[state] = (byte) relevantConditions(state);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The rules the system ships with
+     */
+    public static AlarmRules defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * @throws IllegalArgumentException If a rule is malformed, naming its line
+     */
+    public static AlarmRules parse(String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("text of String should not be null.");
+        }
+        List<Rule> rules = new ArrayList<>();
+        String[] lines = text.split("\\R");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                rules.add(parseRule(line.split("\\s+")));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Alarm rule on line " + (i + 1) + " is invalid: " + e.getMessage(), e);
+            }
+        }
+        return new AlarmRules(text, rules);
+    }
+
+    public static AlarmRules load(Path path) throws IOException {
+        return parse(Files.readString(path, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return The text the rules were parsed from
+     */
+    public String source() {
+        return source;
+    }
+
+    /**
+     * Looks up what the rules do with an event.
+     * @param noSensorActive Only called in states where its answer can change the outcome
+     */
+    Transition evaluate(ArmingStatus armingStatus, AlarmStatus alarmStatus, Trigger trigger, boolean catDetected,
+                        BooleanSupplier noSensorActive) {
+        int state = state(armingStatus, alarmStatus, trigger);
+        int relevant = relevantConditions[state];
+        int conditions = 0;
+        if ((relevant & CAT_DETECTED) != 0 && catDetected) {
+            conditions |= CAT_DETECTED;
+        }
+        if ((relevant & NO_SENSOR_ACTIVE) != 0 && noSensorActive.getAsBoolean()) {
+            conditions |= NO_SENSOR_ACTIVE;
+        }
+        return transitions[state * CONDITION_SETS + conditions];
+    }
+
+    /**
+     * @return The alarm status a sensor change leads to, which may be the current one
+     */
+    AlarmStatus alarmStatusAfterSensorChange(ArmingStatus armingStatus, AlarmStatus alarmStatus, boolean wasActive,
+                                             boolean active, BooleanSupplier noSensorActive) {
+        Transition transition = evaluate(armingStatus, alarmStatus, Trigger.ofSensorChange(wasActive, active),
+                false, noSensorActive);
+        return transition.assignsAlarm() ? transition.alarmStatus() : alarmStatus;
+    }
+
+    private static int state(ArmingStatus armingStatus, AlarmStatus alarmStatus, Trigger trigger) {
+        return (armingStatus.ordinal() * ALARM_STATUSES.length + alarmStatus.ordinal()) * TRIGGERS.length
+                + trigger.ordinal();
+    }
+
+    private static Transition firstMatch(List<Rule> rules, ArmingStatus armingStatus, AlarmStatus alarmStatus,
+                                         Trigger trigger, int conditions) {
+        for (Rule rule : rules) {
+            if (rule.matches(armingStatus, alarmStatus, trigger, conditions)) {
+                return rule.transition();
+            }
+        }
+        return Transition.NONE;
+    }
+
+    private int relevantConditions(int state) {
+        int relevant = 0;
+        for (int conditions = 0; conditions < CONDITION_SETS; conditions++) {
+            for (int bit = 1; bit < CONDITION_SETS; bit <<= 1) {
+                if (!transitions[state * CONDITION_SETS + conditions]
+                        .equals(transitions[state * CONDITION_SETS + (conditions ^ bit)])) {
+                    relevant |= bit;
+                }
+            }
+        }
+        return relevant;
+    }
+
+    private static Rule parseRule(String[] columns) {
+        if (columns.length < 6 || columns.length > 7 || !columns[4].equals("->")) {
+            throw new IllegalArgumentException("expected: arming alarm trigger conditions -> alarm [RESET_SENSORS]");
+        }
+        Set<ArmingStatus> armingStatuses = parseValues(ArmingStatus.class, columns[0]);
+        Set<AlarmStatus> alarmStatuses = parseValues(AlarmStatus.class, columns[1]);
+        Set<Trigger> triggers = parseValues(Trigger.class, columns[2]);
+
+        int required = 0;
+        int forbidden = 0;
+        if (!columns[3].equals("*")) {
+            for (String condition : columns[3].split("&")) {
+                if (condition.startsWith("!")) {
+                    forbidden |= 1 << parseValue(Condition.class, condition.substring(1)).ordinal();
+                } else {
+                    required |= 1 << parseValue(Condition.class, condition).ordinal();
+                }
+            }
+        }
+        if ((required & forbidden) != 0) {
+            throw new IllegalArgumentException("a condition is both required and negated");
+        }
+
+        AlarmStatus alarmStatus = columns[5].equals("-") ? null : parseValue(AlarmStatus.class, columns[5]);
+        boolean resetSensors = false;
+        if (columns.length == 7) {
+            if (!columns[6].equals("RESET_SENSORS")) {
+                throw new IllegalArgumentException("unknown action " + columns[6]);
+            }
+            if (!ARMING_TRIGGERS.containsAll(triggers)) {
+                throw new IllegalArgumentException("RESET_SENSORS is only allowed for " + ARMING_TRIGGERS);
+            }
+            resetSensors = true;
+        }
+        return new Rule(armingStatuses, alarmStatuses, triggers, required, forbidden,
+                new Transition(alarmStatus, resetSensors));
+    }
+
+    private static <E extends Enum<E>> Set<E> parseValues(Class<E> type, String column) {
+        if (column.equals("*")) {
+            return EnumSet.allOf(type);
+        }
+        Set<E> values = EnumSet.noneOf(type);
+        for (String value : column.split("\\|")) {
+            values.add(parseValue(type, value));
+        }
+        return values;
+    }
+
+    private static <E extends Enum<E>> E parseValue(Class<E> type, String value) {
+        try {
+            return Enum.valueOf(type, value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown " + type.getSimpleName() + " " + value);
+        }
+    }
+}
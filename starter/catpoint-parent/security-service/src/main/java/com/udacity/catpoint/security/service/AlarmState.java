@@ -0,0 +1,37 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+/**
+ * Immutable snapshot of the state the alarm rules depend on. {@link SecurityService} swaps whole
+ * snapshots atomically, so the three values always change together.
+ *
+ * @param version Counts the states installed before this one, so that their alarm statuses can
+ *                be announced in the order they were installed
+ */
+record AlarmState(ArmingStatus armingStatus, AlarmStatus alarmStatus, boolean catDetected, long version) {
+
+    AlarmState(ArmingStatus armingStatus, AlarmStatus alarmStatus, boolean catDetected) {
+        this(armingStatus, alarmStatus, catDetected, 0);
+    }
+
+    /**
+     * Builds the initial state from persisted values, treating missing values as a fresh system.
+     */
+    static AlarmState of(ArmingStatus armingStatus, AlarmStatus alarmStatus) {
+        return new AlarmState(armingStatus == null ? ArmingStatus.DISARMED : armingStatus,
+                alarmStatus == null ? AlarmStatus.NO_ALARM : alarmStatus, false);
+    }
+
+    AlarmState withAlarmStatus(AlarmStatus status) {
+        return new AlarmState(armingStatus, status, catDetected);
+    }
+
+    /**
+     * @return This state, numbered as the one installed after {@code previous}
+     */
+    AlarmState following(AlarmState previous) {
+        return new AlarmState(armingStatus, alarmStatus, catDetected, previous.version + 1);
+    }
+}
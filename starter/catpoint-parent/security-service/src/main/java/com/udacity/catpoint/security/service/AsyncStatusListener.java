@@ -0,0 +1,303 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * StatusListener decorator that hands events to its delegate on a dedicated consumer thread, so a
+ * slow listener does not add latency to the {@link SecurityService} call that produced the event.
+ *
+ * Events are written into a preallocated ring buffer that any number of threads may publish to.
+ * The single consumer drains it in publication order, which keeps the per-listener ordering of
+ * {@code notify}, {@code catDetected} and {@code sensorStatusChanged}. When the buffer is full,
+ * publishers wait for the consumer to free a slot rather than dropping events. Closing is atomic
+ * with publishing: an event is either dropped or dispatched before {@link #close()} returns.
+ * Services keep notifying listeners that have been closed, so events published after closing are
+ * dropped and counted rather than failing the service call that produced them.
+ *
+ * Dispatch is opt-in: register the wrapper instead of the listener itself, e.g.
+ * {@code securityService.addStatusListener(new AsyncStatusListener(panel, WaitStrategy.BLOCKING))}.
+ * The application does this for its panels when {@code catpoint.ui.dispatch} names a wait strategy.
+ */
+public class AsyncStatusListener implements StatusListener, Closeable {
+
+    /**
+     * How the consumer waits for events and how publishers wait for free space. Spinning has the
+     * lowest latency but keeps a core busy; sleeping polls every 0.1ms; blocking parks until it is
+     * woken, which is the cheapest when events are rare.
+     */
+    public enum WaitStrategy {
+        BUSY_SPIN, YIELDING, SLEEPING, BLOCKING
+    }
+
+    /**
+     * Publisher-side statistics. Latencies are in nanoseconds. Dropped events were published after
+     * closing and are not counted as published.
+     */
+    public record DispatchStats(long published, long dispatched, long queueDepth, long dropped,
+                                double meanPublishNanos, long maxPublishNanos) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncStatusListener.class);
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final byte NOTIFY = 0;
+    private static final byte CAT_DETECTED = 1;
+    private static final byte SENSOR_STATUS_CHANGED = 2;
+    private static final byte SENSOR_CHANGED = 3;
+    private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    //set in claimed once closed, so claiming a sequence and closing cannot interleave
+    private static final long CLOSED = Long.MIN_VALUE;
+    //returned by claim() once closed
+    private static final long NO_SEQUENCE = -1;
+
+    private final StatusListener delegate;
+    private final WaitStrategy waitStrategy;
+
+    //ring buffer; a slot is readable once published[slot] holds the sequence written to it
+    private final int mask;
+    private final byte[] kinds;
+    private final AlarmStatus[] alarmStatuses;
+    private final Sensor[] sensors;
+    private final boolean[] flags;
+    private final AtomicLongArray published;
+
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    private volatile boolean consumerParked;
+    //publishers blocked on a full buffer wait on this monitor
+    private final Object space = new Object();
+    private volatile int publishersWaiting;
+    private final Thread consumer;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong publishNanos = new AtomicLong();
+    private final AtomicLong maxPublishNanos = new AtomicLong();
+
+    public AsyncStatusListener(StatusListener delegate, WaitStrategy waitStrategy) {
+        this(delegate, waitStrategy, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Number of ring buffer slots, rounded up to a power of two
+     */
+    public AsyncStatusListener(StatusListener delegate, WaitStrategy waitStrategy, int capacity) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate of StatusListener should not be null.");
+        }
+        if (waitStrategy == null) {
+            throw new IllegalArgumentException("waitStrategy of WaitStrategy should not be null.");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity should be positive.");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        size = Math.max(size, 1);
+
+        this.delegate = delegate;
+        this.waitStrategy = waitStrategy;
+        this.mask = size - 1;
+        this.kinds = new byte[size];
+        this.alarmStatuses = new AlarmStatus[size];
+        this.sensors = new Sensor[size];
+        this.flags = new boolean[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+
+        consumer = new Thread(this::drain, "catpoint-status-" + delegate.getClass().getSimpleName());
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @Override
+    public void notify(AlarmStatus status) {
+        publish(NOTIFY, status, null, false);
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        publish(CAT_DETECTED, null, null, catDetected);
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+        publish(SENSOR_STATUS_CHANGED, null, null, false);
+    }
+
+    @Override
+    public void sensorStatusChanged(Sensor sensor) {
+        publish(SENSOR_CHANGED, null, sensor, false);
+    }
+
+    /**
+     * @return Number of events published but not yet handed to the delegate
+     */
+    public long queueDepth() {
+        return (claimed.get() & ~CLOSED) - consumed;
+    }
+
+    public DispatchStats getStats() {
+        long publishedCount = claimed.get() & ~CLOSED;
+        long dispatched = consumed;
+        return new DispatchStats(publishedCount, dispatched, publishedCount - dispatched, dropped.get(),
+                publishedCount == 0 ? 0 : (double) publishNanos.get() / publishedCount, maxPublishNanos.get());
+    }
+
+    /**
+     * Stops accepting events, waits for the consumer to dispatch everything already published and
+     * stops the consumer thread. Called by the delegate, on the consumer thread, it does not wait:
+     * the consumer stops once it has dispatched the rest.
+     */
+    @Override
+    public void close() {
+        claimed.getAndUpdate(sequence -> sequence | CLOSED);
+        if (Thread.currentThread() == consumer) {
+            return;
+        }
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publish(byte kind, AlarmStatus status, Sensor sensor, boolean flag) {
+        long start = System.nanoTime();
+        long sequence = claim();
+        if (sequence == NO_SEQUENCE) {
+            if (dropped.getAndIncrement() == 0) {
+                log.warn("StatusListener {} has been closed, dropping its events", delegate);
+            }
+            return;
+        }
+        if (sequence - consumed > mask) {
+            awaitSpace(sequence);
+        }
+        int slot = (int) sequence & mask;
+        kinds[slot] = kind;
+        alarmStatuses[slot] = status;
+        sensors[slot] = sensor;
+        flags[slot] = flag;
+        //a volatile write, ordered before the read of consumerParked below
+        published.set(slot, sequence);
+
+        if (consumerParked) {
+            LockSupport.unpark(consumer);
+        }
+        long elapsed = System.nanoTime() - start;
+        publishNanos.addAndGet(elapsed);
+        maxPublishNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    /**
+     * @return The claimed sequence, or {@link #NO_SEQUENCE} if the listener has been closed
+     */
+    private long claim() {
+        while (true) {
+            long sequence = claimed.get();
+            if ((sequence & CLOSED) != 0) {
+                return NO_SEQUENCE;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    /**
+     * Waits until the consumer has released the slot of the claimed sequence.
+     */
+    private void awaitSpace(long sequence) {
+        if (waitStrategy != WaitStrategy.BLOCKING) {
+            while (sequence - consumed > mask) {
+                idle();
+            }
+            return;
+        }
+        synchronized (space) {
+            publishersWaiting++;
+            try {
+                //the consumer reads publishersWaiting after each write to consumed, so this cannot miss a wakeup
+                while (sequence - consumed > mask) {
+                    space.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for space to publish an event.", e);
+            } finally {
+                publishersWaiting--;
+            }
+        }
+    }
+
+    private void drain() {
+        long next = 0;
+        while (true) {
+            int slot = (int) next & mask;
+            if (published.get(slot) == next) {
+                dispatch(kinds[slot], alarmStatuses[slot], sensors[slot], flags[slot]);
+                alarmStatuses[slot] = null;
+                sensors[slot] = null;
+                consumed = ++next;
+                if (publishersWaiting > 0) {
+                    synchronized (space) {
+                        space.notifyAll();
+                    }
+                }
+            } else if (claimed.get() == (next | CLOSED)) {
+                //closed, and every sequence claimed before that has been dispatched
+                return;
+            } else {
+                waitForEvent(slot, next);
+            }
+        }
+    }
+
+    private void dispatch(byte kind, AlarmStatus status, Sensor sensor, boolean flag) {
+        try {
+            switch (kind) {
+                case NOTIFY -> delegate.notify(status);
+                case CAT_DETECTED -> delegate.catDetected(flag);
+                case SENSOR_STATUS_CHANGED -> delegate.sensorStatusChanged();
+                case SENSOR_CHANGED -> delegate.sensorStatusChanged(sensor);
+                default -> throw new IllegalStateException("Unknown event kind " + kind);
+            }
+        } catch (RuntimeException e) {
+            log.error("StatusListener {} failed to handle event", delegate, e);
+        }
+    }
+
+    private void waitForEvent(int slot, long sequence) {
+        if (waitStrategy != WaitStrategy.BLOCKING) {
+            idle();
+            return;
+        }
+        consumerParked = true;
+        //re-check after announcing we are parked: a publisher or close() that wrote before this
+        //read is seen here, and one that writes after it sees consumerParked and unparks us
+        if (published.get(slot) != sequence && (claimed.get() & CLOSED) == 0) {
+            LockSupport.park(this);
+        }
+        consumerParked = false;
+    }
+
+    private void idle() {
+        switch (waitStrategy) {
+            case BUSY_SPIN -> Thread.onSpinWait();
+            case YIELDING -> Thread.yield();
+            case SLEEPING, BLOCKING -> LockSupport.parkNanos(SLEEP_NANOS);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.FrameSource;
+import com.udacity.catpoint.image.MotionGate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Feeds a continuous camera stream into {@link SecurityService#processImage}.
+ *
+ * Frames are pulled from a {@link FrameSource} on a dedicated thread. Frames that arrive faster
+ * than the sampling rate are dropped, and the remaining ones go through a {@link MotionGate}, so
+ * only frames that show a change reach the image service.
+ *
+ * A frame that fails, in the source, the gate or the image service, is counted and skipped; the
+ * feed only ends when the source has no more frames or the feed is closed. After a failure to
+ * read from the source the feed waits a moment before trying again.
+ */
+public class CameraFeedService implements Closeable {
+
+    /**
+     * Frame counters since the feed started, and their rates per second since the previous call
+     * to {@link #getStats()}.
+     */
+    public record FeedStats(long ingested, long sampledOut, long gated, long classified, long failed,
+                            double ingestedPerSecond, double gatedPerSecond, double classifiedPerSecond) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(CameraFeedService.class);
+    private static final long SOURCE_RETRY_MILLIS = 100;
+
+    private final FrameSource frameSource;
+    private final MotionGate motionGate;
+    private final SecurityService securityService;
+    private final long sampleIntervalNanos;
+    private final Thread feedThread;
+
+    private final AtomicLong ingested = new AtomicLong();
+    private final AtomicLong sampledOut = new AtomicLong();
+    private final AtomicLong gated = new AtomicLong();
+    private final AtomicLong classified = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    //previous getStats() snapshot, for the per-second rates
+    private long lastStatsAt = System.nanoTime();
+    private long lastIngested;
+    private long lastGated;
+    private long lastClassified;
+
+    /**
+     * @param maxFramesPerSecond Sampling rate: at most this many frames per second are considered
+     *                           for classification. 0 considers every frame.
+     */
+    public CameraFeedService(FrameSource frameSource, MotionGate motionGate, SecurityService securityService,
+                             double maxFramesPerSecond) {
+        if (frameSource == null) {
+            throw new IllegalArgumentException("frameSource of FrameSource should not be null.");
+        }
+        if (motionGate == null) {
+            throw new IllegalArgumentException("motionGate of MotionGate should not be null.");
+        }
+        if (securityService == null) {
+            throw new IllegalArgumentException("securityService of SecurityService should not be null.");
+        }
+        if (maxFramesPerSecond < 0) {
+            throw new IllegalArgumentException("maxFramesPerSecond should not be negative.");
+        }
+        this.frameSource = frameSource;
+        this.motionGate = motionGate;
+        this.securityService = securityService;
+        this.sampleIntervalNanos = maxFramesPerSecond == 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / maxFramesPerSecond);
+        this.feedThread = new Thread(this::run, "catpoint-camera-feed");
+        this.feedThread.setDaemon(true);
+    }
+
+    public void start() {
+        feedThread.start();
+    }
+
+    /**
+     * Waits until the frame source has no more frames.
+     */
+    public void awaitEnd() throws InterruptedException {
+        feedThread.join();
+    }
+
+    public synchronized FeedStats getStats() {
+        long now = System.nanoTime();
+        long ingestedCount = ingested.get();
+        long gatedCount = gated.get();
+        long classifiedCount = classified.get();
+        double seconds = Math.max(now - lastStatsAt, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+        FeedStats stats = new FeedStats(ingestedCount, sampledOut.get(), gatedCount, classifiedCount, failed.get(),
+                (ingestedCount - lastIngested) / seconds,
+                (gatedCount - lastGated) / seconds,
+                (classifiedCount - lastClassified) / seconds);
+        lastStatsAt = now;
+        lastIngested = ingestedCount;
+        lastGated = gatedCount;
+        lastClassified = classifiedCount;
+        return stats;
+    }
+
+    /**
+     * Stops the feed and closes the frame source.
+     */
+    @Override
+    public void close() throws IOException {
+        feedThread.interrupt();
+        frameSource.close();
+    }
+
+    private void run() {
+        long nextSampleAt = System.nanoTime();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                BufferedImage frame;
+                try {
+                    frame = frameSource.nextFrame();
+                } catch (IOException | RuntimeException e) {
+                    failed.incrementAndGet();
+                    log.warn("Unable to read a camera frame", e);
+                    TimeUnit.MILLISECONDS.sleep(SOURCE_RETRY_MILLIS);
+                    continue;
+                }
+                if (frame == null) {
+                    return;
+                }
+                ingested.incrementAndGet();
+                long now = System.nanoTime();
+                if (now - nextSampleAt < 0) {
+                    sampledOut.incrementAndGet();
+                    continue;
+                }
+                nextSampleAt = now + sampleIntervalNanos;
+                try {
+                    if (!motionGate.hasMotion(frame)) {
+                        gated.incrementAndGet();
+                        continue;
+                    }
+                    classified.incrementAndGet();
+                    securityService.processImage(frame);
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                    log.warn("Unable to process a camera frame", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.ImageService;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.metrics.CatpointMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.prefs.Preferences;
+
+/**
+ * Hosts an independent {@link SecurityService} for each premises in one JVM.
+ *
+ * Premises are spread over a fixed number of shards by hashing their id. Each shard owns its
+ * premises outright and runs every event for them on one thread, in submission order, so the
+ * services and repositories of a premises are only ever touched by a single thread and shards
+ * share nothing but the image service and one {@link CatpointMetrics} that aggregates the timings
+ * of every premises. Services are created on a premises' first event, with a repository from the
+ * factory given to the registry.
+ */
+public class PremisesRegistry implements Closeable {
+
+    /**
+     * Statistics of one shard. Latencies run from submission to completion, in nanoseconds.
+     */
+    public record ShardStats(int shard, int premises, int queueDepth, long processed,
+                             double meanLatencyNanos, long maxLatencyNanos) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(PremisesRegistry.class);
+
+    private final Function<String, SecurityRepository> repositoryFactory;
+    private final ImageService imageService;
+    private final CatpointMetrics metrics = new CatpointMetrics();
+    private final Shard[] shards;
+
+    /**
+     * @param shardCount Number of shards, usually the number of cores to dedicate to the registry
+     * @param repositoryFactory Creates the repository of a premises from its id. Each premises
+     *                          must get storage of its own.
+     */
+    public PremisesRegistry(int shardCount, Function<String, SecurityRepository> repositoryFactory,
+                            ImageService imageService) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount should be positive.");
+        }
+        if (repositoryFactory == null) {
+            throw new IllegalArgumentException("repositoryFactory of Function should not be null.");
+        }
+        if (imageService == null) {
+            throw new IllegalArgumentException("imageService of ImageService should not be null.");
+        }
+        this.repositoryFactory = repositoryFactory;
+        this.imageService = imageService;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     * Repository factory that keeps each premises in its own child node of {@code root}.
+     */
+    public static Function<String, SecurityRepository> preferencesRepositories(Preferences root) {
+        return premisesId -> new PretendDatabaseSecurityRepositoryImpl(root.node(nodeName(premisesId)));
+    }
+
+    /**
+     * Runs an action against the service of a premises on the premises' shard.
+     * @return Completes with the action's result once it has run
+     */
+    public <T> CompletableFuture<T> submit(String premisesId, Function<SecurityService, T> action) {
+        if (premisesId == null) {
+            throw new IllegalArgumentException("premisesId of String should not be null.");
+        }
+        return shards[shardOf(premisesId)].submit(premisesId, action);
+    }
+
+    public CompletableFuture<Void> execute(String premisesId, Consumer<SecurityService> action) {
+        return submit(premisesId, securityService -> {
+            action.accept(securityService);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> changeSensorActivationStatus(String premisesId, Sensor sensor, Boolean active) {
+        return execute(premisesId, securityService -> securityService.changeSensorActivationStatus(sensor, active));
+    }
+
+    public CompletableFuture<Void> setArmingStatus(String premisesId, ArmingStatus armingStatus) {
+        return execute(premisesId, securityService -> securityService.setArmingStatus(armingStatus));
+    }
+
+    public CompletableFuture<Void> processImage(String premisesId, BufferedImage image) {
+        return execute(premisesId, securityService -> securityService.processImage(image));
+    }
+
+    public CompletableFuture<AlarmStatus> getAlarmStatus(String premisesId) {
+        return submit(premisesId, SecurityService::getAlarmStatus);
+    }
+
+    /**
+     * @return The shard that handles events for this premises
+     */
+    public int shardOf(String premisesId) {
+        int h = premisesId.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return Math.floorMod(h, shards.length);
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @return Metrics shared by the services of every premises
+     */
+    public CatpointMetrics getMetrics() {
+        return metrics;
+    }
+
+    public List<ShardStats> getShardStats() {
+        List<ShardStats> stats = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            stats.add(shard.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Runs the events already submitted, stops the shards and closes the repositories that can be closed.
+     */
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            shard.closeRepositories();
+        }
+    }
+
+    /**
+     * Node names may not be empty, contain '/' or be longer than {@link Preferences#MAX_NAME_LENGTH},
+     * and two premises must never share a node. Ids are URL-encoded, which is reversible and leaves
+     * no '/'. An id too long for that is replaced by its SHA-256 digest, marked with a '#' that URL
+     * encoding never leaves, so it cannot meet an encoded id.
+     */
+    private static String nodeName(String premisesId) {
+        if (premisesId == null || premisesId.isEmpty()) {
+            throw new IllegalArgumentException("premisesId of String should not be null or empty.");
+        }
+        String name = URLEncoder.encode(premisesId, StandardCharsets.UTF_8);
+        if (name.length() <= Preferences.MAX_NAME_LENGTH) {
+            return name;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(premisesId.getBytes(StandardCharsets.UTF_8));
+            return "#" + HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            //every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private class Shard {
+        private final int index;
+        private final ThreadPoolExecutor executor;
+
+        //only touched on the shard thread
+        private final Map<String, SecurityService> services = new HashMap<>();
+        private final List<SecurityRepository> repositories = new ArrayList<>();
+
+        //written by the shard thread only
+        private volatile int premisesCount;
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong totalLatencyNanos = new AtomicLong();
+        private volatile long maxLatencyNanos;
+
+        Shard(int index) {
+            this.index = index;
+            this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "catpoint-premises-shard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        <T> CompletableFuture<T> submit(String premisesId, Function<SecurityService, T> action) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            long submitted = System.nanoTime();
+            executor.execute(() -> {
+                T value = null;
+                RuntimeException failure = null;
+                try {
+                    value = action.apply(service(premisesId));
+                } catch (RuntimeException e) {
+                    log.error("Event for premises {} failed", premisesId, e);
+                    failure = e;
+                }
+                //record before completing so callers that wait on the result see it counted
+                record(System.nanoTime() - submitted);
+                if (failure == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(failure);
+                }
+            });
+            return result;
+        }
+
+        private SecurityService service(String premisesId) {
+            SecurityService securityService = services.get(premisesId);
+            if (securityService == null) {
+                SecurityRepository repository = repositoryFactory.apply(premisesId);
+                repositories.add(repository);
+                securityService = new SecurityService(repository, imageService, metrics);
+                services.put(premisesId, securityService);
+                premisesCount = services.size();
+            }
+            return securityService;
+        }
+
+        private void record(long latencyNanos) {
+            processed.incrementAndGet();
+            totalLatencyNanos.addAndGet(latencyNanos);
+            if (latencyNanos > maxLatencyNanos) {
+                maxLatencyNanos = latencyNanos;
+            }
+        }
+
+        ShardStats stats() {
+            long count = processed.get();
+            return new ShardStats(index, premisesCount, executor.getQueue().size(), count,
+                    count == 0 ? 0 : (double) totalLatencyNanos.get() / count, maxLatencyNanos);
+        }
+
+        void closeRepositories() {
+            for (SecurityRepository repository : repositories) {
+                if (repository instanceof Closeable closeable) {
+                    try {
+                        closeable.close();
+                    } catch (IOException e) {
+                        log.warn("Could not close repository {}", repository, e);
+                    }
+                }
+            }
+        }
+    }
+}
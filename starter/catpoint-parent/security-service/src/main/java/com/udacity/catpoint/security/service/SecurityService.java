@@ -1,16 +1,36 @@
 package com.udacity.catpoint.security.service;
 
+import com.udacity.catpoint.image.AsyncImageService;
 import com.udacity.catpoint.image.ImageService;
 import com.udacity.catpoint.security.application.StatusListener;
 import com.udacity.catpoint.security.data.AlarmStatus;
 import com.udacity.catpoint.security.data.ArmingStatus;
 import com.udacity.catpoint.security.data.SecurityRepository;
 import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorEvent;
+import com.udacity.catpoint.security.data.Zone;
+import com.udacity.catpoint.security.history.EventLog;
+import com.udacity.catpoint.security.metrics.CatpointMetrics;
+import com.udacity.catpoint.security.metrics.CatpointMetrics.Operation;
+import com.udacity.catpoint.security.service.AlarmRules.Transition;
+import com.udacity.catpoint.security.service.AlarmRules.Trigger;
 
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
-import java.util.Objects;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Service that receives information about changes to the security system. Responsible for
@@ -18,15 +38,64 @@ import java.util.Set;
  *
  * This is the class that should contain most of the business logic for our system, and it is the
  * class you will be writing unit tests for.
+ *
+ * The service is safe to call from many threads. The arming status, alarm status and whether the
+ * camera last saw a cat are kept together in one immutable {@link AlarmState} that every operation
+ * replaces with a compare-and-set, retrying its rule against the fresh state if another thread got
+ * there first. No lock is held while rules run or listeners are notified. The repository is read
+ * once, the first time the state is needed, and every change is then written through to it.
+ *
+ * The main operations, repository writes, listener dispatch and image service calls are timed
+ * into the service's {@link CatpointMetrics}, which also counts status transitions.
+ *
+ * When given an {@link EventLog}, every sensor activation and every change of the arming status,
+ * alarm status or cat detection from then on is recorded in it.
+ *
+ * How events change the alarm status is decided by the service's {@link AlarmRules}, which can be
+ * replaced while the service runs.
+ *
+ * Sensors can be organized into {@link Zone}s, each with an arming and alarm status of its own.
+ * Zone statuses follow the same rules as the system status, evaluated against the sensors in the
+ * zone and the zones below it; the system status keeps covering every sensor. See {@link ZoneTree}.
  */
 public class SecurityService {
 
     private final ImageService imageService;
+    private final AsyncImageService asyncImageService;
     private final SecurityRepository securityRepository;
-    private Set<StatusListener> statusListeners = new HashSet<>();
-    private Boolean catDetect = false;
+    private final CatpointMetrics metrics;
+    private final EventLog eventLog;
+    private final Set<StatusListener> statusListeners = new CopyOnWriteArraySet<>();
+    private final AtomicReference<AlarmState> state = new AtomicReference<>();
+    private final AtomicReference<ZoneTree> zoneTree = new AtomicReference<>();
+    private final AtomicReference<AlarmRules> alarmRules = new AtomicReference<>(AlarmRules.defaults());
+    private final AtomicLong sensorRemovals = new AtomicLong();
+    //completes once the last submitted asynchronous image result has been applied
+    private final AtomicReference<CompletableFuture<Void>> lastImageApplied =
+            new AtomicReference<>(CompletableFuture.completedFuture(null));
+    //held while a superseded-scan check and the result it guards are applied, see processImage(image, isCurrent)
+    private final Object currentImageLock = new Object();
+    private final Object alarmNotificationLock = new Object();
+    //version of the last installed state whose turn to announce has come, guarded by alarmNotificationLock
+    private long announcedVersion;
 
     public SecurityService(SecurityRepository securityRepository, ImageService imageService) {
+        this(securityRepository, imageService, new CatpointMetrics());
+    }
+
+    /**
+     * @param metrics Where timings and transition counts are recorded, for example an instance
+     *                shared by several services and registered with JMX
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageService imageService, CatpointMetrics metrics) {
+        this(securityRepository, imageService, metrics, null);
+    }
+
+    /**
+     * @param eventLog Log the history of state changes is recorded in, or null to keep no history
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageService imageService, CatpointMetrics metrics,
+                           EventLog eventLog) {
         if (securityRepository == null) {
             throw new IllegalArgumentException("securityRepository of SecurityRepository should not be null.");
         }
@@ -35,8 +104,15 @@ public class SecurityService {
             throw new IllegalArgumentException("imageService of ImageService should not be null.");
         }
 
-        this.securityRepository = securityRepository;
+        if (metrics == null) {
+            throw new IllegalArgumentException("metrics of CatpointMetrics should not be null.");
+        }
+
+        this.securityRepository = metrics.instrument(securityRepository);
         this.imageService = imageService;
+        this.asyncImageService = AsyncImageService.of(imageService);
+        this.metrics = metrics;
+        this.eventLog = eventLog;
     }
 
     /**
@@ -45,43 +121,205 @@ public class SecurityService {
      * @param armingStatus
      */
     public void setArmingStatus(ArmingStatus armingStatus) {
-        if (armingStatus == ArmingStatus.DISARMED) {
-            setAlarmStatus(AlarmStatus.NO_ALARM);
+        long start = System.nanoTime();
+        AlarmOutcome outcome = transition(current -> {
+            Transition rule = alarmRules.get().evaluate(current.armingStatus(), current.alarmStatus(),
+                    Trigger.ofArmingStatus(armingStatus), current.catDetected(), this::noSensorActive);
+            AlarmStatus alarmStatus = rule.assignsAlarm() ? rule.alarmStatus() : current.alarmStatus();
+            return new AlarmOutcome(new AlarmState(armingStatus, alarmStatus, current.catDetected()),
+                    rule.assignsAlarm(), true, rule.resetSensors());
+        });
+
+        //the outcome holds the next turn to announce, so it is applied even if the reset fails
+        List<Sensor> resetSensors = new ArrayList<>();
+        try {
+            if (outcome.resetSensors()) {
+                Set<Sensor> sensorsToUpdate = new HashSet<>(securityRepository.getActiveSensors());
+                sensorsToUpdate.forEach(sensor -> {
+                    sensor.setActive(false);
+                    securityRepository.updateSensor(sensor);
+                    zones().sensorChanged(sensor.getSensorId(), false, alarmRules.get());
+                    recordSensor(sensor);
+                    resetSensors.add(sensor);
+                });
+            }
+        } finally {
+            apply(outcome);
+        }
+        if (!resetSensors.isEmpty()) {
+            List<Sensor> reset = List.copyOf(resetSensors);
+            notifyListeners(listener -> listener.sensorStatusChanged(reset));
         }
+        metrics.recordSince(Operation.SET_ARMING_STATUS, start);
+    }
+
+    /**
+     * Internal method that handles alarm status changes based on whether
+     * the camera currently shows a cat.
+     * @param cat True if a cat is detected, otherwise false.
+     */
+    private void catDetected(boolean cat) {
+        AlarmOutcome outcome = transition(current -> {
+            Transition rule = alarmRules.get().evaluate(current.armingStatus(), current.alarmStatus(),
+                    cat ? Trigger.IMAGE_WITH_CAT : Trigger.IMAGE_WITHOUT_CAT, current.catDetected(),
+                    this::noSensorActive);
+            AlarmStatus alarmStatus = rule.assignsAlarm() ? rule.alarmStatus() : current.alarmStatus();
+            return new AlarmOutcome(new AlarmState(current.armingStatus(), alarmStatus, cat),
+                    rule.assignsAlarm(), false, false);
+        });
+        apply(outcome);
+
+        notifyListeners(sl -> sl.catDetected(cat));
+    }
 
-        ArmingStatus previousStatus = securityRepository.getArmingStatus();
-        if (armingStatus == ArmingStatus.ARMED_HOME || armingStatus == ArmingStatus.ARMED_AWAY && previousStatus == ArmingStatus.DISARMED) {
-            Set<Sensor> sensorsToUpdate = new HashSet<>(getSensors());
-            sensorsToUpdate.forEach(sensor -> {
-                sensor.setActive(false);
-                securityRepository.updateSensor(sensor);
-            });
-            statusListeners.forEach(statusListener -> statusListener.sensorStatusChanged());
+    /**
+     * Returns the current state, loading it from the repository on first use.
+     */
+    private AlarmState currentState() {
+        AlarmState current = state.get();
+        if (current == null) {
+            state.compareAndSet(null, AlarmState.of(securityRepository.getArmingStatus(), securityRepository.getAlarmStatus()));
+            current = state.get();
         }
+        return current;
+    }
 
-        securityRepository.setArmingStatus(armingStatus);
+    /**
+     * Returns the zones, loading them from the repository on first use.
+     */
+    private ZoneTree zones() {
+        ZoneTree zones = zoneTree.get();
+        if (zones == null) {
+            zoneTree.compareAndSet(null, new ZoneTree(securityRepository));
+            zones = zoneTree.get();
+        }
+        return zones;
+    }
 
-        if (armingStatus == ArmingStatus.ARMED_HOME && catDetect) {
-            setAlarmStatus(AlarmStatus.ALARM);
+    /**
+     * Applies a rule to the current state and installs the result atomically. The rule may run
+     * more than once under contention, so it must not have side effects.
+     * @return The outcome that was installed
+     */
+    private AlarmOutcome transition(Function<AlarmState, AlarmOutcome> rule) {
+        while (true) {
+            AlarmState current = currentState();
+            AlarmOutcome outcome = rule.apply(current);
+            AlarmState next = outcome.next().following(current);
+            if (state.compareAndSet(current, next)) {
+                AlarmOutcome installed = outcome.withNext(next);
+                try {
+                    if (next.alarmStatus() != current.alarmStatus()) {
+                        metrics.recordTransition(current.alarmStatus(), next.alarmStatus());
+                    }
+                    if (next.armingStatus() != current.armingStatus()) {
+                        metrics.recordTransition(current.armingStatus(), next.armingStatus());
+                    }
+                    recordStatus();
+                } catch (RuntimeException e) {
+                    //the caller never gets to apply it, so pass its turn to announce on here
+                    announce(installed, false);
+                    throw e;
+                }
+                return installed;
+            }
         }
+    }
 
-        statusListeners.forEach(statusListener -> statusListener.sensorStatusChanged());
+    /**
+     * Writes the assigned statuses of an installed outcome to the repository and notifies listeners.
+     */
+    private void apply(AlarmOutcome outcome) {
+        boolean written = false;
+        try {
+            if (outcome.armingAssigned()) {
+                writeArmingStatus(outcome.next().armingStatus());
+            }
+            if (outcome.alarmAssigned()) {
+                writeAlarmStatus(outcome.next().alarmStatus());
+            }
+            written = true;
+        } finally {
+            announce(outcome, written);
+        }
     }
 
     /**
-     * Internal method that handles alarm status changes based on whether
-     * the camera currently shows a cat.
-     * @param cat True if a cat is detected, otherwise false.
+     * Announces the alarm status of an installed outcome once every earlier state has had its turn.
+     * Threads that install states concurrently may get here out of order; waiting for the previous
+     * version makes listeners hear each status in the order it was installed, so the last one they
+     * hear is the current one. The turn passes on before the listeners run, so a listener may call
+     * back into the service.
      */
-    private void catDetected(Boolean cat) {
-        catDetect = cat;
-        if (cat && getArmingStatus() == ArmingStatus.ARMED_HOME) {
-            setAlarmStatus(AlarmStatus.ALARM);
-        } else if (!cat && noSensorActive()) {
-            setAlarmStatus(AlarmStatus.NO_ALARM);
+    private void announce(AlarmOutcome outcome, boolean written) {
+        long version = outcome.next().version();
+        boolean interrupted = false;
+        synchronized (alarmNotificationLock) {
+            while (announcedVersion < version - 1) {
+                try {
+                    alarmNotificationLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            announcedVersion = version;
+            alarmNotificationLock.notifyAll();
+            if (written && outcome.alarmAssigned()) {
+                notifyListeners(sl -> sl.notify(outcome.next().alarmStatus()));
+            }
         }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-        statusListeners.forEach(sl -> sl.catDetected(cat));
+    /**
+     * Writes through to the repository. A thread that loses a race can write its older value after a
+     * newer one, so each writer re-checks the state afterwards and writes again until they agree.
+     */
+    private void writeAlarmStatus(AlarmStatus status) {
+        securityRepository.setAlarmStatus(status);
+        AlarmStatus latest;
+        while ((latest = state.get().alarmStatus()) != status) {
+            status = latest;
+            securityRepository.setAlarmStatus(status);
+        }
+    }
+
+    private void writeArmingStatus(ArmingStatus status) {
+        securityRepository.setArmingStatus(status);
+        ArmingStatus latest;
+        while ((latest = state.get().armingStatus()) != status) {
+            status = latest;
+            securityRepository.setArmingStatus(status);
+        }
+    }
+
+    /**
+     * Records the latest state in the event log. Threads that install states concurrently may
+     * record them out of order, but each one records whatever is current while holding the log,
+     * so the last record always matches the final state.
+     */
+    private void recordStatus() {
+        if (eventLog == null) {
+            return;
+        }
+        synchronized (eventLog) {
+            AlarmState latest = state.get();
+            eventLog.statusChanged(latest.armingStatus(), latest.alarmStatus(), latest.catDetected());
+        }
+    }
+
+    private void recordSensor(Sensor sensor) {
+        if (eventLog != null) {
+            eventLog.sensorChanged(sensor.getSensorId(), Boolean.TRUE.equals(sensor.getActive()));
+        }
+    }
+
+    private void notifyListeners(Consumer<StatusListener> notification) {
+        long start = System.nanoTime();
+        statusListeners.forEach(notification);
+        metrics.recordSince(Operation.LISTENER_DISPATCH, start);
     }
 
     /**
@@ -101,46 +339,26 @@ public class SecurityService {
      * @param status
      */
     public void setAlarmStatus(AlarmStatus status) {
-        securityRepository.setAlarmStatus(status);
-        statusListeners.forEach(sl -> sl.notify(status));
+        apply(transition(current -> new AlarmOutcome(current.withAlarmStatus(status), true, false, false)));
     }
 
-    /**
-     * Internal method for updating the alarm status when a sensor has been activated.
-     */
-    private void handleSensorActivated() {
-        if(securityRepository.getArmingStatus() == ArmingStatus.DISARMED) {
-            return; //no problem if the system is disarmed
-        }
-        switch(securityRepository.getAlarmStatus()) {
-            case NO_ALARM -> setAlarmStatus(AlarmStatus.PENDING_ALARM);
-            case PENDING_ALARM -> setAlarmStatus(AlarmStatus.ALARM);
-            case ALARM -> {}
-        }
+    private boolean noSensorActive() {
+        return securityRepository.activeSensorCount() == 0;
     }
 
     /**
-     * Internal method for updating the alarm status when a sensor has been deactivated
+     * Replaces the rules that decide how events change the alarm status. Events from then on are
+     * evaluated against the new rules; the current status is left as it is.
      */
-    private void handleSensorDeactivated() {
-        AlarmStatus currentStatus = securityRepository.getAlarmStatus();
-
-        if (currentStatus == AlarmStatus.PENDING_ALARM && noSensorActive()) {
-            setAlarmStatus(AlarmStatus.NO_ALARM);
+    public void setAlarmRules(AlarmRules rules) {
+        if (rules == null) {
+            throw new IllegalArgumentException("rules of AlarmRules should not be null.");
         }
-//        else if (currentStatus == AlarmStatus.ALARM) {
-//            long activeSensorCount = getSensors().stream().mapToLong(sensor -> sensor.getActive() ? 1 : 0).sum();
-//            if (activeSensorCount == 1) {
-//                setAlarmStatus(AlarmStatus.PENDING_ALARM);
-//            } else if (activeSensorCount == 0) {
-//                setAlarmStatus(AlarmStatus.NO_ALARM);
-//            }
-//        }
-
+        alarmRules.set(rules);
     }
 
-    private boolean noSensorActive() {
-        return getSensors().stream().noneMatch(Sensor::getActive);
+    public AlarmRules getAlarmRules() {
+        return alarmRules.get();
     }
 
     /**
@@ -149,42 +367,88 @@ public class SecurityService {
      * @param active
      */
     public void changeSensorActivationStatus(Sensor sensor, Boolean active) {
-        AlarmStatus currentAlarmStatus = securityRepository.getAlarmStatus();
-        ArmingStatus currentArmingStatus = securityRepository.getArmingStatus();
+        long start = System.nanoTime();
+        boolean wasActive = sensor.getActive();
+        sensor.setActive(active);
+        //update first so the repository's active-sensor index reflects this change
+        securityRepository.updateSensor(sensor);
+        zones().sensorChanged(sensor.getSensorId(), active, alarmRules.get());
+        recordSensor(sensor);
+
+        Trigger trigger = Trigger.ofSensorChange(wasActive, active);
+        apply(transition(current -> {
+            Transition rule = alarmRules.get().evaluate(current.armingStatus(), current.alarmStatus(), trigger,
+                    current.catDetected(), this::noSensorActive);
+            AlarmStatus alarmStatus = rule.assignsAlarm() ? rule.alarmStatus() : current.alarmStatus();
+            return new AlarmOutcome(current.withAlarmStatus(alarmStatus), rule.assignsAlarm(), false, false);
+        }));
+        notifyListeners(listener -> listener.sensorStatusChanged(sensor));
+        metrics.recordSince(Operation.CHANGE_SENSOR, start);
+    }
 
-        if (currentArmingStatus == ArmingStatus.DISARMED) {
-            sensor.setActive(active);
-            securityRepository.updateSensor(sensor);
-            statusListeners.forEach(statusListener -> statusListener.sensorStatusChanged());
+    /**
+     * Applies a batch of sensor changes in order. The alarm status ends up exactly where it would
+     * after calling {@link #changeSensorActivationStatus} for each event, but the sensors are
+     * persisted with a single repository call and listeners receive one alarm notification (only
+     * if the final status differs from the starting one) and one sensor status notification
+     * listing the changed sensors.
+     *
+     * Each sensor's previous state is taken from the repository, not from the event's sensor, which
+     * may be a copy kept by the caller since before the sensor was last changed elsewhere.
+     * @param events The changes to apply, in the order they happened
+     */
+    public void changeSensorActivationStatuses(Collection<SensorEvent> events) {
+        if (events.isEmpty()) {
             return;
         }
-
-        if (currentAlarmStatus == AlarmStatus.ALARM) {
-            sensor.setActive(active);
-            securityRepository.updateSensor(sensor);
-            statusListeners.forEach(statusListener -> statusListener.sensorStatusChanged());
-            return;
+        long start = System.nanoTime();
+        //record what each event did to its sensor and to the active count, so the alarm rules can
+        //be folded over the batch again if another thread changes the state concurrently
+        int count = events.size();
+        boolean[] wasActive = new boolean[count];
+        boolean[] active = new boolean[count];
+        boolean[] noneActiveAfter = new boolean[count];
+        int activeCount = securityRepository.activeSensorCount();
+        Map<UUID, Sensor> changedSensors = new LinkedHashMap<>();
+
+        int i = 0;
+        for (SensorEvent event : events) {
+            Sensor sensor = event.sensor();
+            //a sensor already changed earlier in the batch is not stored yet, so follow its last event
+            Sensor changed = changedSensors.get(sensor.getSensorId());
+            wasActive[i] = changed != null ? changed.getActive() : securityRepository.isActive(sensor.getSensorId());
+            active[i] = event.active();
+            sensor.setActive(event.active());
+            activeCount += (active[i] ? 1 : 0) - (wasActive[i] ? 1 : 0);
+            noneActiveAfter[i] = activeCount == 0;
+            changedSensors.put(sensor.getSensorId(), sensor);
+            i++;
         }
-
-        if (Objects.equals(sensor.getActive(), active)) {
-            if (active && currentAlarmStatus == AlarmStatus.PENDING_ALARM) {
-                setAlarmStatus(AlarmStatus.ALARM);
-            }
-            securityRepository.updateSensor(sensor);
-            statusListeners.forEach(statusListener -> statusListener.sensorStatusChanged());
-            return;
+        securityRepository.updateSensors(changedSensors.values());
+        ZoneTree zones = zones();
+        AlarmRules rules = alarmRules.get();
+        i = 0;
+        for (SensorEvent event : events) {
+            zones.sensorChanged(event.sensor().getSensorId(), active[i++], rules);
         }
-
-        boolean wasActive = sensor.getActive();
-        sensor.setActive(active);
-
-        if(!wasActive && active) {
-            handleSensorActivated();
-        } else if (wasActive && !active) {
-            handleSensorDeactivated();
-        }
-        securityRepository.updateSensor(sensor);
-        statusListeners.forEach(statusListener -> statusListener.sensorStatusChanged());
+        changedSensors.values().forEach(this::recordSensor);
+
+        apply(transition(current -> {
+            AlarmRules currentRules = alarmRules.get();
+            AlarmStatus alarmStatus = current.alarmStatus();
+            for (int e = 0; e < count; e++) {
+                boolean noneActive = noneActiveAfter[e];
+                Transition rule = currentRules.evaluate(current.armingStatus(), alarmStatus,
+                        Trigger.ofSensorChange(wasActive[e], active[e]), current.catDetected(), () -> noneActive);
+                if (rule.assignsAlarm()) {
+                    alarmStatus = rule.alarmStatus();
+                }
+            }
+            return AlarmOutcome.alarm(current, current.withAlarmStatus(alarmStatus));
+        }));
+        List<Sensor> changed = List.copyOf(changedSensors.values());
+        notifyListeners(listener -> listener.sensorStatusChanged(changed));
+        metrics.recordSince(Operation.CHANGE_SENSORS, start);
     }
 
     /**
@@ -193,7 +457,66 @@ public class SecurityService {
      * @param currentCameraImage
      */
     public void processImage(BufferedImage currentCameraImage) {
-        catDetected(imageService.imageContainsCat(currentCameraImage, 50.0f));
+        long start = System.nanoTime();
+        catDetected(classify(currentCameraImage));
+        metrics.recordSince(Operation.PROCESS_IMAGE, start);
+    }
+
+    /**
+     * Version of {@link #processImage} for callers that may supersede a scan while it runs. The
+     * result is dropped if {@code isCurrent} returns false once classification has finished.
+     * The check and the update it allows happen under one lock, so a scan that passed the check
+     * cannot apply its result after a newer scan has applied its own.
+     * @param isCurrent Reports whether this image is still the one whose result is wanted
+     * @return True if the result was applied
+     */
+    public boolean processImage(BufferedImage currentCameraImage, BooleanSupplier isCurrent) {
+        long start = System.nanoTime();
+        boolean cat = classify(currentCameraImage);
+        synchronized (currentImageLock) {
+            if (!isCurrent.getAsBoolean()) {
+                return false;
+            }
+            catDetected(cat);
+        }
+        metrics.recordSince(Operation.PROCESS_IMAGE, start);
+        return true;
+    }
+
+    private boolean classify(BufferedImage image) {
+        long start = System.nanoTime();
+        boolean cat = imageService.imageContainsCat(image, 50.0f);
+        metrics.recordSince(Operation.IMAGE_SERVICE, start);
+        return cat;
+    }
+
+    /**
+     * Asynchronous version of {@link #processImage}. The image is classified without blocking
+     * the caller, on the image service's own threads when it is an {@link AsyncImageService} and
+     * otherwise on the bounded pool of {@link AsyncImageService#of}, never on the common pool.
+     * Results are applied in the order the images were submitted, even if classifications
+     * finish out of order, so an older frame can never overwrite the verdict on a newer one.
+     * A failed classification is skipped.
+     * @return Completes with whether a cat was detected, once the result has been applied
+     */
+    public CompletableFuture<Boolean> processImageAsync(BufferedImage currentCameraImage) {
+        long start = System.nanoTime();
+        CompletableFuture<Boolean> classification = asyncImageService.imageContainsCatAsync(currentCameraImage, 50.0f)
+                .whenComplete((cat, failure) -> metrics.recordSince(Operation.IMAGE_SERVICE, start));
+
+        CompletableFuture<Void> applied = new CompletableFuture<>();
+        CompletableFuture<Void> previous = lastImageApplied.getAndSet(applied);
+        return previous.thenCompose(ignored -> classification)
+                .whenComplete((cat, failure) -> {
+                    try {
+                        if (failure == null) {
+                            catDetected(cat);
+                            metrics.recordSince(Operation.PROCESS_IMAGE, start);
+                        }
+                    } finally {
+                        applied.complete(null);
+                    }
+                });
     }
 
     public AlarmStatus getAlarmStatus() {
@@ -204,15 +527,103 @@ public class SecurityService {
         return securityRepository.getSensors();
     }
 
+    /**
+     * Looks a sensor up by id without going through every sensor.
+     * @return The sensor, or null if there is none with this id
+     */
+    public Sensor getSensor(UUID sensorId) {
+        if (sensorId == null) {
+            throw new IllegalArgumentException("sensorId of UUID should not be null.");
+        }
+        return securityRepository.getSensor(sensorId);
+    }
+
+    /**
+     * Counts the sensors removed so far. Callers that hold on to sensors between calls check it to
+     * notice when they must drop removed ones, since updating a removed sensor would add it back.
+     */
+    public long getSensorRemovals() {
+        return sensorRemovals.get();
+    }
+
     public void addSensor(Sensor sensor) {
         securityRepository.addSensor(sensor);
     }
 
     public void removeSensor(Sensor sensor) {
         securityRepository.removeSensor(sensor);
+        sensorRemovals.incrementAndGet();
+        zones().sensorRemoved(sensor.getSensorId());
+        //the history must not show a removed sensor as still active; nothing is written if it was not
+        if (eventLog != null) {
+            eventLog.sensorChanged(sensor.getSensorId(), false);
+        }
+    }
+
+    /**
+     * Adds a zone below the zone named by its parent id, or as an area if it has none.
+     * @throws IllegalArgumentException If the parent zone does not exist
+     */
+    public void addZone(Zone zone) {
+        if (zone == null) {
+            throw new IllegalArgumentException("zone of Zone should not be null.");
+        }
+        zones().addZone(zone);
+    }
+
+    /**
+     * Removes a zone that has no zones below it. Its sensors are left without a zone.
+     */
+    public void removeZone(Zone zone) {
+        zones().removeZone(zone.getZoneId());
+    }
+
+    public void setZoneArmingStatus(Zone zone, ArmingStatus armingStatus) {
+        zones().setArmingStatus(zone.getZoneId(), armingStatus);
+    }
+
+    /**
+     * Moves a sensor into a zone.
+     * @param zone The zone, or null to take the sensor out of its zone
+     * @throws IllegalArgumentException If the sensor has not been added
+     */
+    public void assignSensor(Sensor sensor, Zone zone) {
+        zones().assignSensor(sensor, zone == null ? null : zone.getZoneId());
+    }
+
+    /**
+     * @return Copies of the zones, with their statuses as they were when this was called
+     */
+    public Set<Zone> getZones() {
+        return zones().getZones();
+    }
+
+    /**
+     * @return A copy of the zone, or null if there is no such zone
+     */
+    public Zone getZone(UUID zoneId) {
+        return zones().getZone(zoneId);
+    }
+
+    /**
+     * @return The id of the zone the sensor is assigned to, or null if it has none
+     */
+    public UUID getSensorZone(Sensor sensor) {
+        return zones().zoneOf(sensor.getSensorId());
+    }
+
+    /**
+     * @return The number of active sensors in the zone and every zone below it
+     */
+    public int getZoneActiveSensorCount(Zone zone) {
+        return zones().activeSensorCount(zone.getZoneId());
     }
 
     public ArmingStatus getArmingStatus() {
         return securityRepository.getArmingStatus();
     }
+
+    public CatpointMetrics getMetrics() {
+        return metrics;
+    }
 }
@@ -0,0 +1,281 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.Zone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The zone hierarchy of a {@link SecurityService}, with the number of active sensors in each zone
+ * and every zone below it. Counts are kept up to date incrementally: a sensor change walks from
+ * the sensor's zone up to its area, adjusting each count on the way and applying the alarm rules
+ * with that zone's own arming status. The cost of an event therefore depends on how deep its zone
+ * lies, not on how many sensors or zones there are. Sensors without a zone are not tracked.
+ *
+ * Changes are written through to the repository. Methods are synchronized; a sensor change holds
+ * the lock for one walk up the tree, plus a write for each zone whose alarm status changed. While no
+ * sensor is assigned to a zone, sensor changes return without taking the lock.
+ */
+final class ZoneTree {
+
+    private static final Logger log = LoggerFactory.getLogger(ZoneTree.class);
+
+    private static final class Node {
+        private final Zone zone;
+        private final Node parent;
+        private int children;
+        //active sensors in this zone and in every zone below it
+        private int activeSensors;
+
+        private Node(Zone zone, Node parent) {
+            this.zone = zone;
+            this.parent = parent;
+        }
+    }
+
+    private static final class Member {
+        private Node node;
+        private boolean active;
+
+        private Member(Node node, boolean active) {
+            this.node = node;
+            this.active = active;
+        }
+    }
+
+    private final SecurityRepository repository;
+    private final Map<UUID, Node> nodes = new HashMap<>();
+    private final Map<UUID, Member> members = new HashMap<>();
+    //size of members, readable without the lock
+    private volatile int memberCount;
+
+    /**
+     * Loads the zones and sensor assignments stored in the repository.
+     */
+    ZoneTree(SecurityRepository repository) {
+        this.repository = repository;
+        Map<UUID, Zone> stored = new HashMap<>();
+        repository.getZones().forEach(zone -> stored.put(zone.getZoneId(), zone));
+        stored.values().forEach(zone -> load(zone, stored, new HashSet<>()));
+
+        Map<UUID, UUID> sensorZones = repository.getSensorZones();
+        if (sensorZones.isEmpty()) {
+            return;
+        }
+        Set<UUID> activeSensors = new HashSet<>();
+        repository.getActiveSensors().forEach(sensor -> activeSensors.add(sensor.getSensorId()));
+        sensorZones.forEach((sensorId, zoneId) -> {
+            Node node = nodes.get(zoneId);
+            if (node != null) {
+                Member member = new Member(node, activeSensors.contains(sensorId));
+                members.put(sensorId, member);
+                if (member.active) {
+                    addActive(node, 1);
+                }
+            }
+        });
+        memberCount = members.size();
+    }
+
+    /**
+     * Creates the node of a stored zone after those of its ancestors. A zone whose parent is
+     * missing, or that would end up below itself, is treated as an area.
+     */
+    private Node load(Zone zone, Map<UUID, Zone> stored, Set<UUID> path) {
+        Node node = nodes.get(zone.getZoneId());
+        if (node != null) {
+            return node;
+        }
+        path.add(zone.getZoneId());
+        Zone parentZone = zone.getParentId() == null ? null : stored.get(zone.getParentId());
+        Node parent = null;
+        if (parentZone != null && !path.contains(parentZone.getZoneId())) {
+            parent = load(parentZone, stored, path);
+        } else if (zone.getParentId() != null) {
+            log.warn("Zone {} has no valid parent, treating it as an area", zone.getZoneId());
+        }
+        node = new Node(new Zone(zone), parent);
+        if (parent != null) {
+            parent.children++;
+        }
+        nodes.put(zone.getZoneId(), node);
+        return node;
+    }
+
+    synchronized void addZone(Zone zone) {
+        if (nodes.containsKey(zone.getZoneId())) {
+            throw new IllegalArgumentException("Zone " + zone.getZoneId() + " already exists.");
+        }
+        Node parent = zone.getParentId() == null ? null : node(zone.getParentId());
+        Zone added = new Zone(zone.getZoneId(), zone.getName(), zone.getParentId(),
+                zone.getArmingStatus() == null ? ArmingStatus.DISARMED : zone.getArmingStatus(),
+                zone.getAlarmStatus() == null ? AlarmStatus.NO_ALARM : zone.getAlarmStatus());
+        repository.saveZone(added);
+        nodes.put(added.getZoneId(), new Node(added, parent));
+        if (parent != null) {
+            parent.children++;
+        }
+    }
+
+    /**
+     * Removes an empty zone. Sensors assigned to it are left without a zone.
+     * @throws IllegalStateException If zones lie below it
+     */
+    synchronized void removeZone(UUID zoneId) {
+        Node node = node(zoneId);
+        if (node.children > 0) {
+            throw new IllegalStateException("Zone " + zoneId + " still contains other zones.");
+        }
+        for (Iterator<Member> iterator = members.values().iterator(); iterator.hasNext(); ) {
+            Member member = iterator.next();
+            if (member.node == node) {
+                iterator.remove();
+            }
+        }
+        memberCount = members.size();
+        addActive(node, -node.activeSensors);
+        repository.removeZone(node.zone);
+        nodes.remove(zoneId);
+        if (node.parent != null) {
+            node.parent.children--;
+        }
+    }
+
+    /**
+     * Disarming a zone clears its alarm. Unlike arming the whole system, arming a zone leaves the
+     * activation of its sensors as it is.
+     */
+    synchronized void setArmingStatus(UUID zoneId, ArmingStatus armingStatus) {
+        Zone zone = node(zoneId).zone;
+        zone.setArmingStatus(armingStatus);
+        if (armingStatus == ArmingStatus.DISARMED) {
+            zone.setAlarmStatus(AlarmStatus.NO_ALARM);
+        }
+        repository.saveZone(zone);
+    }
+
+    /**
+     * Moves a sensor to a zone, or out of its zone when {@code zoneId} is null. An active sensor
+     * takes its count along, but moving it does not raise or clear alarms.
+     */
+    synchronized void assignSensor(Sensor sensor, UUID zoneId) {
+        Node target = zoneId == null ? null : node(zoneId);
+        //stored first, so a sensor the repository refuses leaves the tree as it was
+        repository.setSensorZone(sensor, zoneId);
+        Member member = members.get(sensor.getSensorId());
+        if (member != null && member.active) {
+            addActive(member.node, -1);
+        }
+        if (target == null) {
+            members.remove(sensor.getSensorId());
+        } else {
+            boolean active = Boolean.TRUE.equals(sensor.getActive());
+            members.put(sensor.getSensorId(), new Member(target, active));
+            if (active) {
+                addActive(target, 1);
+            }
+        }
+        memberCount = members.size();
+    }
+
+    /**
+     * Applies a change of a sensor's activation to the zones it lies in. Zones have no camera, so
+     * rules that depend on cat detection see none.
+     */
+    void sensorChanged(UUID sensorId, boolean active, AlarmRules rules) {
+        if (memberCount == 0) {
+            return;
+        }
+        synchronized (this) {
+            changeMember(sensorId, active, rules);
+        }
+    }
+
+    private void changeMember(UUID sensorId, boolean active, AlarmRules rules) {
+        Member member = members.get(sensorId);
+        if (member == null) {
+            return;
+        }
+        boolean wasActive = member.active;
+        member.active = active;
+        int delta = (active ? 1 : 0) - (wasActive ? 1 : 0);
+        for (Node node = member.node; node != null; node = node.parent) {
+            node.activeSensors += delta;
+            boolean noneActive = node.activeSensors == 0;
+            Zone zone = node.zone;
+            AlarmStatus alarmStatus = rules.alarmStatusAfterSensorChange(zone.getArmingStatus(),
+                    zone.getAlarmStatus(), wasActive, active, () -> noneActive);
+            if (alarmStatus != zone.getAlarmStatus()) {
+                zone.setAlarmStatus(alarmStatus);
+                repository.saveZone(zone);
+            }
+        }
+    }
+
+    /**
+     * Forgets a removed sensor. The repository drops its assignment itself.
+     */
+    synchronized void sensorRemoved(UUID sensorId) {
+        Member member = members.remove(sensorId);
+        memberCount = members.size();
+        if (member != null && member.active) {
+            addActive(member.node, -1);
+        }
+    }
+
+    /**
+     * @return Copies of the zones, which do not change with the zones themselves
+     */
+    synchronized Set<Zone> getZones() {
+        Set<Zone> zones = new HashSet<>();
+        nodes.values().forEach(node -> zones.add(new Zone(node.zone)));
+        return zones;
+    }
+
+    /**
+     * @return A copy of the zone, or null if there is no such zone
+     */
+    synchronized Zone getZone(UUID zoneId) {
+        Node node = nodes.get(zoneId);
+        return node == null ? null : new Zone(node.zone);
+    }
+
+    /**
+     * @return The zone of the sensor, or null if it has none
+     */
+    synchronized UUID zoneOf(UUID sensorId) {
+        Member member = members.get(sensorId);
+        return member == null ? null : member.node.zone.getZoneId();
+    }
+
+    /**
+     * @return The number of active sensors in the zone and every zone below it
+     */
+    synchronized int activeSensorCount(UUID zoneId) {
+        return node(zoneId).activeSensors;
+    }
+
+    private void addActive(Node node, int delta) {
+        for (; node != null; node = node.parent) {
+            node.activeSensors += delta;
+        }
+    }
+
+    private Node node(UUID zoneId) {
+        Node node = nodes.get(zoneId);
+        if (node == null) {
+            throw new IllegalArgumentException("No zone with id " + zoneId + ".");
+        }
+        return node;
+    }
+}
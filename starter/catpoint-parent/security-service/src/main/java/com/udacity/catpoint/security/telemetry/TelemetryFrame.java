@@ -0,0 +1,34 @@
+package com.udacity.catpoint.security.telemetry;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Wire format of a sensor state change sent by a gateway: 25 bytes, big-endian.
+ *
+ * <pre>
+ * 0   8  most significant bits of the sensor id
+ * 8   8  least significant bits of the sensor id
+ * 16  8  sequence number, increasing per sensor
+ * 24  1  new state, 1 for active and 0 for inactive
+ * </pre>
+ *
+ * A UDP datagram holds any number of whole frames. Over TCP frames follow each other on the stream.
+ */
+public final class TelemetryFrame {
+
+    public static final int SIZE = 25;
+
+    private TelemetryFrame() {
+    }
+
+    /**
+     * Appends one frame at the buffer's position.
+     */
+    public static void encode(ByteBuffer buffer, UUID sensorId, long sequence, boolean active) {
+        buffer.putLong(sensorId.getMostSignificantBits())
+                .putLong(sensorId.getLeastSignificantBits())
+                .putLong(sequence)
+                .put((byte) (active ? 1 : 0));
+    }
+}
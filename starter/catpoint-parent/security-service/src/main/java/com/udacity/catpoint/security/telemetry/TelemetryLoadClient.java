@@ -0,0 +1,132 @@
+package com.udacity.catpoint.security.telemetry;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.JournaledSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.metrics.LatencyHistogram;
+import com.udacity.catpoint.security.service.SecurityService;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the telemetry path end to end on one machine: a {@link TelemetryReceiver} in front of a
+ * {@link SecurityService} on a journaled repository in a temporary directory, fed over loopback by
+ * a gateway that toggles sensors as fast as the receiver keeps up.
+ *
+ * Usage: {@code TelemetryLoadClient [udp|tcp] [messages] [sensors]}, by default udp, 1000000
+ * messages and 100 sensors. Latency runs from handing a frame to the socket until the batch
+ * holding it has been applied to the service.
+ */
+public class TelemetryLoadClient {
+
+    //frames per datagram or write
+    private static final int FRAMES_PER_SEND = 40;
+    //frames sent but not yet applied, so UDP does not overrun the socket buffers
+    private static final int WINDOW = 4096;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean udp = args.length < 1 || !args[0].equalsIgnoreCase("tcp");
+        int messages = args.length < 2 ? 1_000_000 : Integer.parseInt(args[1]);
+        int sensorCount = args.length < 3 ? 100 : Integer.parseInt(args[2]);
+
+        Path directory = Files.createTempDirectory("catpoint-telemetry");
+        try {
+            run(directory, udp, messages, sensorCount);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void run(Path directory, boolean udp, int messages, int sensorCount)
+            throws IOException, InterruptedException {
+        SecurityService securityService = new SecurityService(new JournaledSecurityRepositoryImpl(directory),
+                (image, confidenceThreshold) -> false);
+        UUID[] sensorIds = new UUID[sensorCount];
+        for (int i = 0; i < sensorCount; i++) {
+            Sensor sensor = new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length]);
+            securityService.addSensor(sensor);
+            sensorIds[i] = sensor.getSensorId();
+        }
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        long[] sentAt = new long[messages];
+        LatencyHistogram latency = new LatencyHistogram();
+        long[] applied = {-1};
+        Object progress = new Object();
+
+        try (TelemetryReceiver receiver = new TelemetryReceiver(securityService,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            receiver.setDispatchListener(highestSequence -> {
+                long now = System.nanoTime();
+                synchronized (progress) {
+                    for (long sequence = applied[0] + 1; sequence <= highestSequence; sequence++) {
+                        latency.record(now - sentAt[(int) sequence]);
+                    }
+                    applied[0] = Math.max(applied[0], highestSequence);
+                    progress.notifyAll();
+                }
+            });
+            receiver.start();
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(FRAMES_PER_SEND * TelemetryFrame.SIZE);
+            long start = System.nanoTime();
+            try (ByteChannel channel = udp
+                    ? DatagramChannel.open().connect(receiver.getAddress())
+                    : SocketChannel.open(receiver.getAddress())) {
+                for (int sequence = 0; sequence < messages; ) {
+                    synchronized (progress) {
+                        while (sequence - applied[0] > WINDOW) {
+                            progress.wait();
+                        }
+                    }
+                    buffer.clear();
+                    long now = System.nanoTime();
+                    int end = Math.min(sequence + FRAMES_PER_SEND, messages);
+                    for (; sequence < end; sequence++) {
+                        //each sensor flips on its first message and back on its second, and so on
+                        int sensor = sequence % sensorCount;
+                        TelemetryFrame.encode(buffer, sensorIds[sensor], sequence, (sequence / sensorCount) % 2 == 0);
+                        sentAt[sequence] = now;
+                    }
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+                synchronized (progress) {
+                    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                    while (applied[0] < messages - 1 && System.nanoTime() < deadline) {
+                        progress.wait(100);
+                    }
+                }
+            }
+            double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+
+            TelemetryReceiver.TelemetryStats stats = receiver.getStats();
+            LatencyHistogram.Snapshot snapshot = latency.snapshot();
+            System.out.printf("%s: %d messages to %d sensors in %.2f s, %.0f messages/s%n",
+                    udp ? "UDP" : "TCP", messages, sensorCount, seconds, stats.dispatched() / seconds);
+            System.out.printf("received %d, applied %d in %d batches, stale %d, unknown %d, malformed %d%n",
+                    stats.received(), stats.dispatched(), stats.batches(), stats.stale(),
+                    stats.unknownSensor(), stats.malformed());
+            System.out.printf("latency p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n",
+                    snapshot.p50Nanos() / 1e3, snapshot.p99Nanos() / 1e3, snapshot.p999Nanos() / 1e3,
+                    snapshot.maxNanos() / 1e3);
+        }
+    }
+}
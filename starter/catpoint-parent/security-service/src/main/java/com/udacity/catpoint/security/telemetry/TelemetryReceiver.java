@@ -0,0 +1,379 @@
+package com.udacity.catpoint.security.telemetry;
+
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorEvent;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Receives sensor state changes from gateways in the {@link TelemetryFrame} format, over UDP and
+ * TCP on the same port, and applies them to a {@link SecurityService}.
+ *
+ * One thread serves every channel from a selector. Data is read into direct buffers and decoded in
+ * place; each sensor is found through an open-addressing table keyed on the two halves of its id,
+ * and carries the two {@link SensorEvent}s it can produce, so decoding a frame allocates nothing.
+ * Everything read in one pass over the ready channels, up to {@link #MAX_BATCH} frames, goes to
+ * {@link SecurityService#changeSensorActivationStatuses} as one batch.
+ *
+ * A frame whose sequence number is not above the last one seen for its sensor is a duplicate or
+ * arrived late, and is dropped. A sequence far behind the last one is taken as a gateway restart
+ * and accepted. Frames for unknown sensors are dropped; the sensor table is rebuilt from the
+ * service at most once a second to pick up new sensors, and before dispatching whenever sensors
+ * were removed since it was built, so that frames for a removed sensor do not add it back.
+ */
+public class TelemetryReceiver implements Closeable {
+
+    /**
+     * Frame counters since the receiver started.
+     * @param stale Duplicates and frames that arrived after a newer one for the same sensor
+     * @param malformed Bytes that did not make up a whole frame, in frames
+     */
+    public record TelemetryStats(long received, long dispatched, long batches, long stale,
+                                 long unknownSensor, long malformed) {
+    }
+
+    static final int MAX_BATCH = 4096;
+
+    private static final Logger log = LoggerFactory.getLogger(TelemetryReceiver.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int RECEIVE_BUFFER_SIZE = 4 * 1024 * 1024;
+    private static final long RESTART_GAP = 1 << 16;
+    private static final long REFRESH_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final SecurityService securityService;
+    private final Selector selector;
+    private final DatagramChannel datagramChannel;
+    private final ServerSocketChannel serverChannel;
+    private final ByteBuffer datagramBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Thread receiverThread;
+    private volatile boolean closed;
+
+    //only used on the receiver thread
+    private SensorTable sensorTable = new SensorTable(List.of());
+    private long lastRefresh = System.nanoTime() - REFRESH_INTERVAL;
+    private long sensorRemovals = -1;
+    private final List<SensorEvent> batch = new ArrayList<>(MAX_BATCH);
+    private long batchHighestSequence = Long.MIN_VALUE;
+    private LongConsumer dispatchListener = sequence -> {
+    };
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+    private final AtomicLong unknownSensor = new AtomicLong();
+    private final AtomicLong malformed = new AtomicLong();
+
+    /**
+     * @param address Address to listen on, for both UDP and TCP. Port 0 picks a free port, see
+     *                {@link #getAddress()}.
+     */
+    public TelemetryReceiver(SecurityService securityService, InetSocketAddress address) throws IOException {
+        if (securityService == null) {
+            throw new IllegalArgumentException("securityService of SecurityService should not be null.");
+        }
+        if (address == null) {
+            throw new IllegalArgumentException("address of InetSocketAddress should not be null.");
+        }
+        this.securityService = securityService;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        InetSocketAddress bound = (InetSocketAddress) serverChannel.getLocalAddress();
+        this.datagramChannel = DatagramChannel.open(bound.getAddress() instanceof Inet6Address
+                ? StandardProtocolFamily.INET6 : StandardProtocolFamily.INET);
+        //room for bursts while a batch is being applied
+        datagramChannel.setOption(StandardSocketOptions.SO_RCVBUF, RECEIVE_BUFFER_SIZE);
+        datagramChannel.bind(bound);
+        serverChannel.configureBlocking(false);
+        datagramChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        datagramChannel.register(selector, SelectionKey.OP_READ);
+        this.receiverThread = new Thread(this::run, "catpoint-telemetry");
+        this.receiverThread.setDaemon(true);
+    }
+
+    public void start() {
+        receiverThread.start();
+        log.info("Receiving sensor telemetry on {}", getAddress());
+    }
+
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            throw new IllegalStateException("Telemetry receiver is closed", e);
+        }
+    }
+
+    public TelemetryStats getStats() {
+        return new TelemetryStats(received.get(), dispatched.get(), batches.get(), stale.get(),
+                unknownSensor.get(), malformed.get());
+    }
+
+    /**
+     * Called on the receiver thread after each batch has been applied, with the highest sequence
+     * number in it. Set before {@link #start()}.
+     */
+    void setDispatchListener(LongConsumer dispatchListener) {
+        this.dispatchListener = dispatchListener;
+    }
+
+    /**
+     * Stops receiving and closes every channel.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        selector.wakeup();
+        try {
+            receiverThread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.channel() == datagramChannel) {
+                        receiveDatagrams();
+                    } else {
+                        readStream(key);
+                    }
+                }
+                selector.selectedKeys().clear();
+                dispatch();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (!closed) {
+                log.error("Telemetry receiver stopped", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, ByteBuffer.allocateDirect(BUFFER_SIZE));
+        }
+    }
+
+    private void receiveDatagrams() throws IOException {
+        ByteBuffer buffer = datagramBuffer;
+        //drain what has queued up, leaving the rest for the next pass once the batch is full
+        while (batch.size() < MAX_BATCH) {
+            buffer.clear();
+            if (datagramChannel.receive(buffer) == null) {
+                return;
+            }
+            buffer.flip();
+            decode(buffer);
+            if (buffer.hasRemaining()) {
+                malformed.incrementAndGet();
+            }
+        }
+    }
+
+    private void readStream(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        ByteBuffer buffer = (ByteBuffer) key.attachment();
+        int read;
+        try {
+            read = channel.read(buffer);
+        } catch (IOException e) {
+            log.debug("Gateway connection {} failed", channel, e);
+            read = -1;
+        }
+        buffer.flip();
+        decode(buffer);
+        buffer.compact();
+        if (read < 0) {
+            if (buffer.position() > 0) {
+                malformed.incrementAndGet();
+            }
+            key.cancel();
+            channel.close();
+        }
+    }
+
+    /**
+     * Decodes the whole frames between the buffer's position and limit into the batch, leaving the
+     * position after the last one.
+     */
+    private void decode(ByteBuffer buffer) {
+        int frames = 0;
+        while (buffer.remaining() >= TelemetryFrame.SIZE) {
+            if (batch.size() == MAX_BATCH) {
+                dispatch();
+            }
+            long msb = buffer.getLong();
+            long lsb = buffer.getLong();
+            long sequence = buffer.getLong();
+            boolean active = buffer.get() != 0;
+            frames++;
+
+            SensorSlot slot = sensorTable.find(msb, lsb);
+            if (slot == null && System.nanoTime() - lastRefresh >= REFRESH_INTERVAL) {
+                refreshSensors();
+                slot = sensorTable.find(msb, lsb);
+            }
+            if (slot == null) {
+                unknownSensor.incrementAndGet();
+                continue;
+            }
+            if (sequence <= slot.lastSequence && slot.lastSequence - sequence < RESTART_GAP) {
+                stale.incrementAndGet();
+                continue;
+            }
+            slot.lastSequence = sequence;
+            batch.add(active ? slot.activate : slot.deactivate);
+            batchHighestSequence = Math.max(batchHighestSequence, sequence);
+        }
+        received.addAndGet(frames);
+    }
+
+    private void dispatch() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (securityService.getSensorRemovals() != sensorRemovals) {
+            dropRemovedSensors();
+            if (batch.isEmpty()) {
+                return;
+            }
+        }
+        try {
+            securityService.changeSensorActivationStatuses(batch);
+            dispatched.addAndGet(batch.size());
+            batches.incrementAndGet();
+            dispatchListener.accept(batchHighestSequence);
+        } catch (RuntimeException e) {
+            log.error("Unable to apply {} sensor changes", batch.size(), e);
+        } finally {
+            batch.clear();
+            batchHighestSequence = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Rebuilds the sensor table and takes the events for sensors no longer in it out of the batch,
+     * counting them as unknown.
+     */
+    private void dropRemovedSensors() {
+        refreshSensors();
+        int size = batch.size();
+        batch.removeIf(event -> sensorTable.find(event.sensor().getSensorId().getMostSignificantBits(),
+                event.sensor().getSensorId().getLeastSignificantBits()) == null);
+        unknownSensor.addAndGet(size - batch.size());
+    }
+
+    /**
+     * Rebuilds the sensor table from the service, keeping the last sequence seen for each sensor.
+     */
+    private void refreshSensors() {
+        lastRefresh = System.nanoTime();
+        //read first, so a removal during the rebuild is caught by the next dispatch
+        sensorRemovals = securityService.getSensorRemovals();
+        List<Sensor> sensors = List.copyOf(securityService.getSensors());
+        SensorTable table = new SensorTable(sensors);
+        for (SensorSlot slot : sensorTable.slots) {
+            if (slot != null) {
+                SensorSlot current = table.find(slot.msb, slot.lsb);
+                if (current != null) {
+                    current.lastSequence = slot.lastSequence;
+                }
+            }
+        }
+        sensorTable = table;
+    }
+
+    /**
+     * A known sensor, its last sequence number and the two events it can produce.
+     */
+    private static final class SensorSlot {
+        private final long msb;
+        private final long lsb;
+        private final SensorEvent activate;
+        private final SensorEvent deactivate;
+        private long lastSequence = Long.MIN_VALUE;
+
+        private SensorSlot(Sensor sensor) {
+            this.msb = sensor.getSensorId().getMostSignificantBits();
+            this.lsb = sensor.getSensorId().getLeastSignificantBits();
+            this.activate = new SensorEvent(sensor, true);
+            this.deactivate = new SensorEvent(sensor, false);
+        }
+    }
+
+    /**
+     * Open-addressing hash table from sensor id halves to slots, at most half full.
+     */
+    private static final class SensorTable {
+        private final SensorSlot[] slots;
+        private final int mask;
+
+        private SensorTable(List<Sensor> sensors) {
+            int capacity = Integer.highestOneBit(Math.max(sensors.size(), 4) * 4 - 1);
+            this.slots = new SensorSlot[capacity];
+            this.mask = capacity - 1;
+            for (Sensor sensor : sensors) {
+                SensorSlot slot = new SensorSlot(sensor);
+                int index = index(slot.msb, slot.lsb);
+                while (slots[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                slots[index] = slot;
+            }
+        }
+
+        private SensorSlot find(long msb, long lsb) {
+            int index = index(msb, lsb);
+            SensorSlot slot;
+            while ((slot = slots[index]) != null) {
+                if (slot.msb == msb && slot.lsb == lsb) {
+                    return slot;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        private int index(long msb, long lsb) {
+            long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+            return (int) (hash >>> 32) & mask;
+        }
+    }
+}
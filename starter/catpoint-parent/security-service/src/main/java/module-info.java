@@ -6,6 +6,9 @@ module com.udacity.catpoint.security {
     requires com.google.common;
     requires com.miglayout.swing;
     requires java.prefs;
+    requires java.management;
+    requires jdk.httpserver;
     requires com.udacity.catpoint.image;
     opens com.udacity.catpoint.security.data to com.google.gson;
+    exports com.udacity.catpoint.security.metrics;
 }
\ No newline at end of file
@@ -0,0 +1,145 @@
+package com.udacity.catpoint.security;
+
+import com.udacity.catpoint.security.data.JournaledSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.MappedSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.UUID;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The active-sensor index of every repository implementation, which the alarm rules rely on
+ * instead of scanning all sensors.
+ */
+public class ActiveSensorIndexTest {
+
+    enum Store {
+        PRETEND, JOURNALED, MAPPED
+    }
+
+    @TempDir
+    Path directory;
+
+    private Preferences node;
+    private SecurityRepository repository;
+
+    private final Sensor door = new Sensor("Front Door", SensorType.DOOR);
+    private final Sensor window = new Sensor("Kitchen Window", SensorType.WINDOW);
+    private final Sensor motion = new Sensor("Hallway", SensorType.MOTION);
+
+    @BeforeEach
+    void init() {
+        node = Preferences.userRoot().node("catpoint-test-" + UUID.randomUUID());
+    }
+
+    @AfterEach
+    void close() throws IOException, BackingStoreException {
+        if (repository instanceof Closeable closeable) {
+            closeable.close();
+        }
+        node.removeNode();
+    }
+
+    @ParameterizedTest
+    @EnumSource(Store.class)
+    void addedActiveSensor_shouldBeCounted(Store store) {
+        repository = open(store);
+        door.setActive(true);
+        repository.addSensor(door);
+        repository.addSensor(window);
+
+        assertEquals(1, repository.activeSensorCount());
+        assertEquals(Set.of(door), repository.getActiveSensors());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Store.class)
+    void toggledSensor_shouldMoveInAndOutOfIndex(Store store) {
+        repository = open(store);
+        repository.addSensor(door);
+        repository.addSensor(window);
+
+        window.setActive(true);
+        repository.updateSensor(window);
+        //an update through a different instance of the same sensor
+        repository.updateSensor(new Sensor(door.getSensorId(), door.getName(), door.getSensorType(), true));
+        assertEquals(2, repository.activeSensorCount());
+        assertEquals(Set.of(door, window), repository.getActiveSensors());
+
+        window.setActive(false);
+        repository.updateSensor(window);
+        repository.updateSensor(window);
+        assertEquals(1, repository.activeSensorCount());
+        assertEquals(Set.of(door), repository.getActiveSensors());
+        //the stored state, although the door instance here was never activated
+        assertTrue(repository.isActive(door.getSensorId()));
+        assertFalse(repository.isActive(window.getSensorId()));
+        assertFalse(repository.isActive(motion.getSensorId()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Store.class)
+    void removedActiveSensor_shouldLeaveIndex(Store store) {
+        repository = open(store);
+        door.setActive(true);
+        window.setActive(true);
+        repository.addSensor(door);
+        repository.addSensor(window);
+        repository.addSensor(motion);
+
+        repository.removeSensor(door);
+
+        assertEquals(1, repository.activeSensorCount());
+        assertEquals(Set.of(window), repository.getActiveSensors());
+        assertFalse(repository.isActive(door.getSensorId()));
+        assertNull(repository.getSensor(door.getSensorId()));
+        assertEquals(motion, repository.getSensor(motion.getSensorId()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Store.class)
+    void index_shouldBeRebuiltOnReload(Store store) throws IOException {
+        repository = open(store);
+        door.setActive(true);
+        repository.addSensor(door);
+        repository.addSensor(window);
+        repository.addSensor(motion);
+        motion.setActive(true);
+        repository.updateSensor(motion);
+        repository.removeSensor(door);
+
+        if (repository instanceof Closeable closeable) {
+            closeable.close();
+        }
+        repository = open(store);
+
+        assertEquals(1, repository.activeSensorCount());
+        assertEquals(Set.of(motion), repository.getActiveSensors());
+        assertTrue(repository.getSensor(motion.getSensorId()).getActive());
+        assertEquals("Kitchen Window", repository.getSensor(window.getSensorId()).getName());
+        assertNull(repository.getSensor(door.getSensorId()));
+    }
+
+    private SecurityRepository open(Store store) {
+        return switch (store) {
+            case PRETEND -> new PretendDatabaseSecurityRepositoryImpl(node);
+            case JOURNALED -> new JournaledSecurityRepositoryImpl(directory);
+            case MAPPED -> new MappedSecurityRepositoryImpl(directory);
+        };
+    }
+}
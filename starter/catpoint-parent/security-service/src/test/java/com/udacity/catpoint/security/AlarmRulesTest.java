@@ -0,0 +1,106 @@
+package com.udacity.catpoint.security;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.JournaledSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.AlarmRules;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlarmRulesTest {
+
+    @TempDir
+    Path directory;
+
+    private JournaledSecurityRepositoryImpl repository;
+    private SecurityService securityService;
+    private final Sensor door = new Sensor("Front Door", SensorType.DOOR);
+    private final Sensor window = new Sensor("Kitchen Window", SensorType.WINDOW);
+
+    @BeforeEach
+    void init() {
+        repository = new JournaledSecurityRepositoryImpl(directory.resolve("repository"));
+        securityService = new SecurityService(repository, (image, confidenceThreshold) -> false);
+        securityService.addSensor(door);
+        securityService.addSensor(window);
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        repository.close();
+    }
+
+    @Test
+    void defaultRules_shouldBeInPlace() {
+        assertSame(AlarmRules.defaults(), securityService.getAlarmRules());
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        securityService.changeSensorActivationStatus(door, true);
+
+        assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    void replacedRules_shouldApplyFromTheNextEvent() throws Exception {
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        securityService.changeSensorActivationStatus(door, true);
+        Path file = Files.writeString(directory.resolve("site.rules"), """
+                # a site where any intrusion sounds the alarm at once, and calming down takes a disarm
+                ARMED_HOME|ARMED_AWAY  *  SENSOR_ACTIVATED  *                 -> ALARM
+                *                      *  DISARM            *                 -> NO_ALARM
+                ARMED_HOME             *  ARM_HOME          !NO_SENSOR_ACTIVE -> PENDING_ALARM
+                """);
+
+        securityService.setAlarmRules(AlarmRules.load(file));
+        assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+
+        securityService.changeSensorActivationStatus(door, false);
+        assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+        securityService.changeSensorActivationStatus(window, true);
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+
+        securityService.setArmingStatus(ArmingStatus.DISARMED);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        //arming no longer resets sensors, so the active window is still seen
+        assertTrue(window.getActive());
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    void invalidRules_shouldNameTheLine() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> AlarmRules.parse("""
+                ARMED_AWAY  *  SENSOR_ACTIVATED  *  -> ALARM
+
+                ARMED_AWAY  *  SENSOR_OPENED     *  -> ALARM
+                """));
+        assertTrue(e.getMessage().contains("line 3"), e.getMessage());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> AlarmRules.parse("* * SENSOR_ACTIVATED * -> ALARM RESET_SENSORS"));
+        assertThrows(IllegalArgumentException.class,
+                () -> AlarmRules.parse("* * IMAGE_WITH_CAT CAT_DETECTED&!CAT_DETECTED -> ALARM"));
+        assertThrows(IllegalArgumentException.class, () -> securityService.setAlarmRules(null));
+    }
+
+    @Test
+    void emptyRules_shouldNeverChangeTheAlarm() {
+        securityService.setAlarmRules(AlarmRules.parse("# nothing raises the alarm"));
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        securityService.changeSensorActivationStatus(door, true);
+        securityService.changeSensorActivationStatus(window, true);
+
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+    }
+}
@@ -0,0 +1,217 @@
+package com.udacity.catpoint.security;
+
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.AsyncStatusListener;
+import com.udacity.catpoint.security.service.AsyncStatusListener.WaitStrategy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Timeout(10)
+public class AsyncStatusListenerTest {
+
+    /**
+     * Records the events it receives. Only the consumer thread writes; tests read after close().
+     */
+    private static class RecordingListener implements StatusListener {
+        private final List<String> events = new ArrayList<>();
+        private final CountDownLatch release;
+
+        private RecordingListener(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void notify(AlarmStatus status) {
+            await();
+            events.add("notify " + status);
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            events.add("cat " + catDetected);
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            events.add("sensors");
+        }
+
+        @Override
+        public void sensorStatusChanged(Sensor sensor) {
+            events.add("sensor " + sensor.getName());
+        }
+
+        private void await() {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WaitStrategy.class)
+    void events_shouldBeDispatchedInPublicationOrder(WaitStrategy waitStrategy) {
+        RecordingListener delegate = new RecordingListener(new CountDownLatch(0));
+        AsyncStatusListener listener = new AsyncStatusListener(delegate, waitStrategy, 8);
+
+        listener.notify(AlarmStatus.PENDING_ALARM);
+        listener.catDetected(true);
+        listener.sensorStatusChanged(new Sensor("Front Door", SensorType.DOOR));
+        listener.sensorStatusChanged();
+        listener.notify(AlarmStatus.ALARM);
+        listener.close();
+
+        assertEquals(List.of("notify PENDING_ALARM", "cat true", "sensor Front Door", "sensors", "notify ALARM"),
+                delegate.events);
+    }
+
+    @ParameterizedTest
+    @EnumSource(WaitStrategy.class)
+    void eventsOfEachPublisher_shouldStayInOrder(WaitStrategy waitStrategy) throws Exception {
+        RecordingListener delegate = new RecordingListener(new CountDownLatch(0));
+        AsyncStatusListener listener = new AsyncStatusListener(delegate, waitStrategy, 64);
+        int publishers = 4;
+        int eventsEach = 500;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < publishers; p++) {
+            String name = "p" + p + " ";
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < eventsEach; i++) {
+                    listener.sensorStatusChanged(new Sensor(name + i, SensorType.DOOR));
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        listener.close();
+
+        assertEquals(publishers * eventsEach, delegate.events.size());
+        int[] next = new int[publishers];
+        for (String event : delegate.events) {
+            String[] parts = event.split(" ");
+            int publisher = Integer.parseInt(parts[1].substring(1));
+            assertEquals(next[publisher]++, Integer.parseInt(parts[2]), event);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(WaitStrategy.class)
+    void fullBuffer_shouldMakePublishersWait(WaitStrategy waitStrategy) throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingListener delegate = new RecordingListener(release);
+        AsyncStatusListener listener = new AsyncStatusListener(delegate, waitStrategy, 2);
+
+        //the consumer holds on to the first event, so the next one fills the buffer
+        listener.notify(AlarmStatus.NO_ALARM);
+        listener.catDetected(true);
+        AtomicInteger publishedAfterFull = new AtomicInteger();
+        Thread publisher = Thread.ofPlatform().start(() -> {
+            for (int i = 0; i < 5; i++) {
+                listener.sensorStatusChanged();
+                publishedAfterFull.incrementAndGet();
+            }
+        });
+        Thread.sleep(100);
+        assertEquals(0, publishedAfterFull.get());
+        assertTrue(publisher.isAlive());
+
+        release.countDown();
+        publisher.join();
+        listener.close();
+
+        assertEquals(7, delegate.events.size());
+        assertEquals(List.of("notify NO_ALARM", "cat true", "sensors"), delegate.events.subList(0, 3));
+        assertEquals(7, listener.getStats().dispatched());
+        assertEquals(0, listener.queueDepth());
+    }
+
+    @ParameterizedTest
+    @EnumSource(WaitStrategy.class)
+    void close_shouldDispatchEverythingPublishedBefore(WaitStrategy waitStrategy) {
+        RecordingListener delegate = new RecordingListener(new CountDownLatch(0));
+        AsyncStatusListener listener = new AsyncStatusListener(delegate, waitStrategy, 4);
+        for (int i = 0; i < 100; i++) {
+            listener.sensorStatusChanged();
+        }
+
+        listener.close();
+
+        assertEquals(100, delegate.events.size());
+        //dropped, not thrown back at the service that published it
+        listener.sensorStatusChanged();
+        assertEquals(100, delegate.events.size());
+        assertEquals(100, listener.getStats().published());
+        assertEquals(1, listener.getStats().dropped());
+    }
+
+    // a delegate closing its own wrapper runs on the consumer thread, which must not wait for itself
+    @Test
+    void closeFromDelegate_shouldNotWaitForItself() throws Exception {
+        CountDownLatch closed = new CountDownLatch(1);
+        AsyncStatusListener[] holder = new AsyncStatusListener[1];
+        RecordingListener delegate = new RecordingListener(new CountDownLatch(0)) {
+            @Override
+            public void catDetected(boolean catDetected) {
+                super.catDetected(catDetected);
+                holder[0].close();
+                closed.countDown();
+            }
+        };
+        holder[0] = new AsyncStatusListener(delegate, WaitStrategy.BLOCKING, 8);
+
+        holder[0].catDetected(true);
+
+        assertTrue(closed.await(5, TimeUnit.SECONDS), "close() waited for its own thread");
+        holder[0].close();
+        assertEquals(List.of("cat true"), delegate.events);
+    }
+
+    @Test
+    void closeRacingPublishers_shouldDispatchEveryAcceptedEvent() throws Exception {
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            for (int round = 0; round < 20; round++) {
+                RecordingListener delegate = new RecordingListener(new CountDownLatch(0));
+                AsyncStatusListener listener = new AsyncStatusListener(delegate, waitStrategy, 8);
+                AtomicInteger attempted = new AtomicInteger();
+                AtomicBoolean stop = new AtomicBoolean();
+                List<Thread> threads = new ArrayList<>();
+                for (int p = 0; p < 3; p++) {
+                    threads.add(Thread.ofPlatform().start(() -> {
+                        while (!stop.get()) {
+                            listener.sensorStatusChanged();
+                            attempted.incrementAndGet();
+                        }
+                    }));
+                }
+                Thread.sleep(2);
+                listener.close();
+                stop.set(true);
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+
+                AsyncStatusListener.DispatchStats stats = listener.getStats();
+                assertEquals(stats.published(), delegate.events.size(), waitStrategy.toString());
+                assertEquals(attempted.get(), stats.published() + stats.dropped(), waitStrategy.toString());
+            }
+        }
+    }
+}
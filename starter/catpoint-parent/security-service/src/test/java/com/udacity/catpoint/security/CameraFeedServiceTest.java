@@ -0,0 +1,150 @@
+package com.udacity.catpoint.security;
+
+import com.udacity.catpoint.image.FrameSource;
+import com.udacity.catpoint.image.ImageService;
+import com.udacity.catpoint.image.MotionGate;
+import com.udacity.catpoint.security.data.JournaledSecurityRepositoryImpl;
+import com.udacity.catpoint.security.service.CameraFeedService;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Timeout(10)
+public class CameraFeedServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private JournaledSecurityRepositoryImpl securityRepository;
+    private final List<BufferedImage> classifiedFrames = new CopyOnWriteArrayList<>();
+
+    //lets every frame through, so each one reaches the image service
+    private final MotionGate openGate = new MotionGate() {
+        @Override
+        public boolean hasMotion(BufferedImage frame) {
+            return true;
+        }
+    };
+
+    @BeforeEach
+    void init() {
+        securityRepository = new JournaledSecurityRepositoryImpl(directory);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        securityRepository.close();
+    }
+
+    @Test
+    void failingFrames_shouldBeCountedAndSkipped() throws Exception {
+        List<BufferedImage> frames = List.of(frame(), frame(), frame(), frame(), frame());
+        Set<BufferedImage> failing = Set.of(frames.get(1), frames.get(3));
+        ImageService imageService = (image, confidenceThreshold) -> {
+            if (failing.contains(image)) {
+                throw new IllegalStateException("classification failed");
+            }
+            classifiedFrames.add(image);
+            return false;
+        };
+        ScriptedFrameSource source = new ScriptedFrameSource();
+        frames.forEach(source.script::add);
+
+        CameraFeedService feed = new CameraFeedService(source, openGate, new SecurityService(securityRepository, imageService), 0);
+        feed.start();
+        feed.awaitEnd();
+
+        assertEquals(List.of(frames.get(0), frames.get(2), frames.get(4)), classifiedFrames);
+        CameraFeedService.FeedStats stats = feed.getStats();
+        assertEquals(5, stats.ingested());
+        assertEquals(5, stats.classified());
+        assertEquals(2, stats.failed());
+    }
+
+    @Test
+    void sourceErrors_shouldNotEndTheFeed() throws Exception {
+        BufferedImage first = frame();
+        BufferedImage second = frame();
+        ScriptedFrameSource source = new ScriptedFrameSource();
+        source.script.add(first);
+        source.script.add(new IOException("truncated frame"));
+        source.script.add(new IllegalStateException("decoder failure"));
+        source.script.add(second);
+        ImageService imageService = (image, confidenceThreshold) -> {
+            classifiedFrames.add(image);
+            return false;
+        };
+
+        CameraFeedService feed = new CameraFeedService(source, openGate, new SecurityService(securityRepository, imageService), 0);
+        feed.start();
+        feed.awaitEnd();
+
+        assertEquals(List.of(first, second), classifiedFrames);
+        assertEquals(2, feed.getStats().failed());
+    }
+
+    @Test
+    void close_shouldEndTheFeed() throws Exception {
+        ScriptedFrameSource source = new ScriptedFrameSource();
+        source.endless = true;
+        CameraFeedService feed = new CameraFeedService(source, openGate,
+                new SecurityService(securityRepository, (image, confidenceThreshold) -> false), 0);
+        feed.start();
+
+        feed.close();
+        feed.awaitEnd();
+
+        assertTrue(source.closed);
+    }
+
+    private static BufferedImage frame() {
+        return new BufferedImage(8, 6, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Returns the scripted frames and throws the scripted exceptions in order, then ends, or keeps
+     * failing with IOException when endless.
+     */
+    private static class ScriptedFrameSource implements FrameSource {
+        private final Deque<Object> script = new ArrayDeque<>();
+        private volatile boolean endless;
+        private volatile boolean closed;
+
+        @Override
+        public BufferedImage nextFrame() throws IOException {
+            Object next = script.poll();
+            if (next == null) {
+                if (endless && !closed) {
+                    throw new IOException("camera unreachable");
+                }
+                return null;
+            }
+            if (next instanceof IOException e) {
+                throw e;
+            }
+            if (next instanceof RuntimeException e) {
+                throw e;
+            }
+            return (BufferedImage) next;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.udacity.catpoint.security;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.udacity.catpoint.security.data.JournaledSecurityRepositoryImpl;
+import com.udacity.catpoint.security.server.CatpointHttpServer;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatpointHttpServerTest {
+
+    @TempDir
+    Path directory;
+
+    private CatpointHttpServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void init() throws Exception {
+        SecurityService securityService = new SecurityService(new JournaledSecurityRepositoryImpl(directory),
+                (image, confidenceThreshold) -> image.getWidth() > 100);
+        server = new CatpointHttpServer(securityService, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+    }
+
+    @AfterEach
+    void close() {
+        server.close();
+    }
+
+    @Test
+    void sensorActivation_whileArmed_shouldRaisePendingAlarm() throws Exception {
+        assertEquals(200, send("PUT", "/arming", "{\"armingStatus\": \"ARMED_AWAY\"}").statusCode());
+        HttpResponse<String> created = send("POST", "/sensors", "{\"name\": \"Front Door\", \"sensorType\": \"DOOR\"}");
+        assertEquals(201, created.statusCode());
+        String sensorId = json(created).get("sensorId").getAsString();
+
+        HttpResponse<String> activated = send("PUT", "/sensors/" + sensorId + "/active", "{\"active\": true}");
+
+        assertEquals(200, activated.statusCode());
+        assertTrue(json(activated).get("active").getAsBoolean());
+        assertEquals("PENDING_ALARM", json(send("GET", "/status", null)).get("alarmStatus").getAsString());
+    }
+
+    @Test
+    void removedSensor_shouldNoLongerBeListed() throws Exception {
+        String sensorId = json(send("POST", "/sensors", "{\"name\": \"Hallway\", \"sensorType\": \"MOTION\"}"))
+                .get("sensorId").getAsString();
+
+        assertEquals(204, send("DELETE", "/sensors/" + sensorId, null).statusCode());
+
+        assertEquals(404, send("GET", "/sensors/" + sensorId, null).statusCode());
+        assertEquals(0, JsonParser.parseString(send("GET", "/sensors", null).body()).getAsJsonArray().size());
+    }
+
+    @Test
+    void imageWithCat_whileArmedHome_shouldRaiseAlarm() throws Exception {
+        send("PUT", "/arming", "{\"armingStatus\": \"ARMED_HOME\"}");
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB), "png", png);
+
+        HttpResponse<String> scanned = client.send(request("/images")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(png.toByteArray())).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, scanned.statusCode());
+        assertTrue(json(scanned).get("catDetected").getAsBoolean());
+        assertEquals("ALARM", json(scanned).get("alarmStatus").getAsString());
+    }
+
+    @Test
+    void invalidRequests_shouldBeRejected() throws Exception {
+        assertEquals(400, send("PUT", "/arming", "{\"armingStatus\": \"ARMED_MOON\"}").statusCode());
+        assertEquals(400, send("POST", "/sensors", "not json").statusCode());
+        assertEquals(400, send("POST", "/images", "not an image").statusCode());
+        assertEquals(404, send("GET", "/sensors/not-a-sensor", null).statusCode());
+        assertEquals(405, send("DELETE", "/status", null).statusCode());
+    }
+
+    @Test
+    void oversizedImage_shouldBeRefused() throws Exception {
+        SecurityService securityService = new SecurityService(new JournaledSecurityRepositoryImpl(directory.resolve("small")),
+                (image, confidenceThreshold) -> true);
+        try (CatpointHttpServer small = new CatpointHttpServer(securityService,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024)) {
+            small.start();
+            URI images = URI.create("http://" + small.getAddress().getHostString() + ":" + small.getAddress().getPort() + "/images");
+
+            HttpResponse<String> refused = client.send(HttpRequest.newBuilder(images)
+                            .POST(HttpRequest.BodyPublishers.ofByteArray(new byte[2048])).build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(413, refused.statusCode());
+            assertTrue(json(refused).get("error").getAsString().contains("1024"));
+        }
+    }
+
+    // HttpClient will not send a malformed Content-Length, so the request is written by hand
+    @Test
+    void malformedContentLength_shouldBeRejected() throws Exception {
+        try (Socket socket = new Socket(server.getAddress().getAddress(), server.getAddress().getPort())) {
+            socket.setSoTimeout(10_000);
+            socket.getOutputStream().write(("POST /images HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Content-Length: lots\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            String statusLine = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.US_ASCII)).readLine();
+
+            assertTrue(statusLine.startsWith("HTTP/1.1 400"), statusLine);
+        }
+    }
+
+    @Test
+    void replacedRules_shouldApplyToLaterEvents() throws Exception {
+        JsonObject rules = new JsonObject();
+        rules.addProperty("rules", "ARMED_AWAY * SENSOR_ACTIVATED * -> ALARM");
+        assertEquals(200, send("PUT", "/rules", rules.toString()).statusCode());
+        send("PUT", "/arming", "{\"armingStatus\": \"ARMED_AWAY\"}");
+        String sensorId = json(send("POST", "/sensors", "{\"name\": \"Front Door\", \"sensorType\": \"DOOR\"}"))
+                .get("sensorId").getAsString();
+
+        send("PUT", "/sensors/" + sensorId + "/active", "{\"active\": true}");
+
+        assertEquals("ALARM", json(send("GET", "/status", null)).get("alarmStatus").getAsString());
+        assertEquals(rules.get("rules").getAsString(), json(send("GET", "/rules", null)).get("rules").getAsString());
+        assertEquals(400, send("PUT", "/rules", "{\"rules\": \"ARMED_AWAY * SENSOR_ACTIVATED\"}").statusCode());
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest.BodyPublisher publisher = body == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(body);
+        return client.send(request(path).method(method, publisher).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        InetSocketAddress address = server.getAddress();
+        return HttpRequest.newBuilder(URI.create("http://" + address.getHostString() + ":" + address.getPort() + path));
+    }
+
+    private static JsonObject json(HttpResponse<String> response) {
+        return JsonParser.parseString(response.body()).getAsJsonObject();
+    }
+}
@@ -0,0 +1,88 @@
+package com.udacity.catpoint.security;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.JournaledSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.metrics.CatpointMetrics;
+import com.udacity.catpoint.security.metrics.CatpointMetrics.Operation;
+import com.udacity.catpoint.security.metrics.LatencyHistogram;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatpointMetricsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void histogram_shouldReportPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(10_000, snapshot.count());
+        assertEquals(5_000_500, snapshot.meanNanos(), 1);
+        assertEquals(5_000_000, snapshot.p50Nanos(), 5_000_000 * 0.035);
+        assertEquals(9_900_000, snapshot.p99Nanos(), 9_900_000 * 0.035);
+        assertEquals(10_000_000, snapshot.maxNanos());
+    }
+
+    @Test
+    void securityService_shouldTimeOperationsAndCountTransitions() throws Exception {
+        CatpointMetrics metrics = new CatpointMetrics();
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory)) {
+            SecurityService securityService = new SecurityService(repository, (image, confidenceThreshold) -> false, metrics);
+            Sensor door = new Sensor("door", SensorType.DOOR);
+            Sensor window = new Sensor("window", SensorType.WINDOW);
+            securityService.addSensor(door);
+            securityService.addSensor(window);
+
+            securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+            securityService.changeSensorActivationStatus(door, true);
+            securityService.changeSensorActivationStatus(window, true);
+            securityService.processImage(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB));
+        }
+
+        assertEquals(1, metrics.transitionCount(ArmingStatus.DISARMED, ArmingStatus.ARMED_AWAY));
+        assertEquals(1, metrics.transitionCount(AlarmStatus.NO_ALARM, AlarmStatus.PENDING_ALARM));
+        assertEquals(1, metrics.transitionCount(AlarmStatus.PENDING_ALARM, AlarmStatus.ALARM));
+        assertEquals(0, metrics.transitionCount(AlarmStatus.ALARM, AlarmStatus.NO_ALARM));
+        assertEquals(1, metrics.histogram(Operation.SET_ARMING_STATUS).snapshot().count());
+        assertEquals(2, metrics.histogram(Operation.CHANGE_SENSOR).snapshot().count());
+        assertEquals(1, metrics.histogram(Operation.PROCESS_IMAGE).snapshot().count());
+        assertEquals(1, metrics.histogram(Operation.IMAGE_SERVICE).snapshot().count());
+        assertTrue(metrics.histogram(Operation.REPOSITORY_WRITE).snapshot().count() >= 5);
+    }
+
+    @Test
+    void register_shouldPublishMBeans() throws Exception {
+        CatpointMetrics metrics = new CatpointMetrics();
+        metrics.histogram(Operation.SET_ARMING_STATUS).record(2_000);
+        metrics.recordTransition(AlarmStatus.NO_ALARM, AlarmStatus.PENDING_ALARM);
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+
+        metrics.register(server);
+
+        ObjectName latency = new ObjectName("com.udacity.catpoint:type=Latency,name=setArmingStatus");
+        assertEquals(1L, server.getAttribute(latency, "Count"));
+        assertEquals(2.0, (Double) server.getAttribute(latency, "MaxMicros"), 0.001);
+        assertNotNull(server.getAttribute(new ObjectName("com.udacity.catpoint:type=Transitions"), "AlarmTransitions"));
+
+        metrics.unregister(server);
+        assertFalse(server.isRegistered(latency));
+    }
+}
@@ -0,0 +1,139 @@
+package com.udacity.catpoint.security;
+
+import com.udacity.catpoint.security.application.CoalescingStatusListener;
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Timeout(10)
+public class CoalescingStatusListenerTest {
+
+    private final RecordingListener recorder = new RecordingListener();
+
+    @Test
+    void burst_shouldDeliverLatestStateInOneFrame() throws Exception {
+        CoalescingStatusListener listener = new CoalescingStatusListener(recorder, 30);
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        //waiting on the EDT keeps the burst inside a single frame
+        SwingUtilities.invokeAndWait(() -> {
+            for (int i = 0; i < 1000; i++) {
+                listener.notify(i % 2 == 0 ? AlarmStatus.PENDING_ALARM : AlarmStatus.ALARM);
+                listener.catDetected(i % 2 == 0);
+                listener.sensorStatusChanged(door);
+            }
+        });
+
+        awaitFrames(listener, 1);
+
+        assertEquals(List.of("notify ALARM", "cat false", "sensor Front Door"), recorder.events);
+        assertEquals(3000, listener.getStats().received());
+        assertEquals(1, listener.getStats().frames());
+    }
+
+    @Test
+    void changeWithoutSensor_shouldReplacePerSensorUpdates() throws Exception {
+        CoalescingStatusListener listener = new CoalescingStatusListener(recorder, 60);
+        SwingUtilities.invokeAndWait(() -> {
+            listener.sensorStatusChanged(new Sensor("Front Door", SensorType.DOOR));
+            listener.sensorStatusChanged();
+            listener.sensorStatusChanged();
+        });
+
+        awaitFrames(listener, 1);
+
+        assertEquals(List.of("sensors"), recorder.events);
+    }
+
+    // repositories hand out copies, so the same sensor arrives as different instances
+    @Test
+    void copiesOfOneSensor_shouldDeliverTheLatest() throws Exception {
+        CoalescingStatusListener listener = new CoalescingStatusListener(recorder, 60);
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        SwingUtilities.invokeAndWait(() -> {
+            listener.sensorStatusChanged(door);
+            listener.sensorStatusChanged(new Sensor(door.getSensorId(), "Back Door", SensorType.DOOR, true));
+        });
+
+        awaitFrames(listener, 1);
+
+        assertEquals(List.of("sensor Back Door"), recorder.events);
+    }
+
+    @Test
+    void frames_shouldBeCappedAtTheFrameRate() throws Exception {
+        CoalescingStatusListener listener = new CoalescingStatusListener(recorder, 20);
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < 500_000_000L) {
+            listener.notify(AlarmStatus.NO_ALARM);
+            Thread.sleep(1);
+        }
+
+        //20 frames a second for half a second, allowing one frame of slack at either end
+        assertTrue(listener.getStats().frames() <= 12, "frames: " + listener.getStats().frames());
+        assertTrue(listener.getStats().received() > listener.getStats().frames());
+    }
+
+    @Test
+    void invalidFrameRate_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new CoalescingStatusListener(recorder, 0));
+        assertThrows(IllegalArgumentException.class, () -> new CoalescingStatusListener(null, 60));
+    }
+
+    @Test
+    void malformedFrameRateProperty_shouldFallBackToDefault() throws Exception {
+        CoalescingStatusListener listener;
+        System.setProperty("catpoint.ui.fps", "fast");
+        try {
+            listener = new CoalescingStatusListener(recorder);
+        } finally {
+            System.clearProperty("catpoint.ui.fps");
+        }
+
+        listener.notify(AlarmStatus.ALARM);
+        awaitFrames(listener, 1);
+
+        assertEquals(List.of("notify ALARM"), recorder.events);
+    }
+
+    private static void awaitFrames(CoalescingStatusListener listener, long frames) throws Exception {
+        while (listener.getStats().frames() < frames) {
+            Thread.sleep(5);
+        }
+        //let any further frame run so an extra delivery would be seen
+        Thread.sleep(100);
+        SwingUtilities.invokeAndWait(() -> { });
+    }
+
+    private static class RecordingListener implements StatusListener {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void notify(AlarmStatus status) {
+            events.add("notify " + status);
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            events.add("cat " + catDetected);
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            events.add("sensors");
+        }
+
+        @Override
+        public void sensorStatusChanged(Sensor sensor) {
+            events.add("sensor " + sensor.getName());
+        }
+    }
+}
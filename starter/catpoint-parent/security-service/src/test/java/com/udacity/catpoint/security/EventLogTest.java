@@ -0,0 +1,212 @@
+package com.udacity.catpoint.security;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.JournaledSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.history.AlarmEvent;
+import com.udacity.catpoint.security.history.EventLog;
+import com.udacity.catpoint.security.history.HistoryState;
+import com.udacity.catpoint.security.metrics.CatpointMetrics;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventLogTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    private final SteppingClock clock = new SteppingClock();
+
+    @Test
+    void stateAt_shouldRebuildEachPointInTime() throws IOException {
+        UUID door = UUID.randomUUID();
+        try (EventLog eventLog = new EventLog(directory, clock, 1000)) {
+            clock.set(1);
+            eventLog.statusChanged(ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, false);
+            clock.set(2);
+            eventLog.sensorChanged(door, true);
+            clock.set(3);
+            eventLog.statusChanged(ArmingStatus.ARMED_AWAY, AlarmStatus.PENDING_ALARM, false);
+            clock.set(4);
+            eventLog.sensorChanged(door, false);
+            eventLog.statusChanged(ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, true);
+
+            assertEquals(ArmingStatus.DISARMED, eventLog.stateAt(second(0)).armingStatus());
+            assertEquals(ArmingStatus.ARMED_AWAY, eventLog.stateAt(second(1)).armingStatus());
+            assertEquals(Set.of(door), eventLog.stateAt(second(2)).activeSensors());
+            HistoryState pending = eventLog.stateAt(second(3).plusMillis(500));
+            assertEquals(AlarmStatus.PENDING_ALARM, pending.alarmStatus());
+            assertEquals(second(3), pending.timestamp());
+            HistoryState last = eventLog.stateAt(second(4));
+            assertEquals(new HistoryState(second(4), ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, true, Set.of()), last);
+            assertEquals(last, eventLog.currentState());
+            assertEquals(4, eventLog.events(second(3), second(4)).size());
+        }
+    }
+
+    @Test
+    void timestamps_shouldNotGoBackwardsWithTheClock() throws IOException {
+        try (EventLog eventLog = new EventLog(directory, clock, 1000)) {
+            clock.set(5);
+            eventLog.statusChanged(ArmingStatus.ARMED_HOME, AlarmStatus.NO_ALARM, false);
+            clock.set(2);
+            eventLog.statusChanged(ArmingStatus.ARMED_HOME, AlarmStatus.ALARM, false);
+
+            List<AlarmEvent> events = eventLog.events(START, second(10));
+            assertEquals(second(5), events.get(1).timestamp());
+        }
+    }
+
+    @Test
+    void snapshots_shouldGiveTheSameStatesAsFullReplay() throws IOException {
+        UUID[] sensors = {UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()};
+        HistoryState[] expected = new HistoryState[300];
+        try (EventLog eventLog = new EventLog(directory, clock, 7)) {
+            for (int i = 0; i < expected.length; i++) {
+                clock.set(i + 1);
+                eventLog.sensorChanged(sensors[i % 3], i % 2 == 0);
+                eventLog.statusChanged(ArmingStatus.values()[i % 3], AlarmStatus.values()[(i / 3) % 3], i % 5 == 0);
+                expected[i] = eventLog.currentState();
+            }
+        }
+        try (EventLog reopened = new EventLog(directory, clock, 7)) {
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], reopened.stateAt(second(i + 1)), "state at " + (i + 1));
+            }
+            assertEquals(expected[expected.length - 1], reopened.currentState());
+        }
+    }
+
+    @Test
+    void reopen_shouldDropTornRecordAndKeepAppending() throws IOException {
+        UUID door = UUID.randomUUID();
+        try (EventLog eventLog = new EventLog(directory, clock, 1000)) {
+            clock.set(1);
+            eventLog.sensorChanged(door, true);
+            eventLog.statusChanged(ArmingStatus.ARMED_HOME, AlarmStatus.PENDING_ALARM, false);
+        }
+        //a record cut short by a crash: tag, then a timestamp delta whose continuation byte is missing
+        Files.write(directory.resolve("events.log"), new byte[]{4, (byte) 0x85}, StandardOpenOption.APPEND);
+
+        try (EventLog reopened = new EventLog(directory, clock, 1000)) {
+            assertEquals(AlarmStatus.PENDING_ALARM, reopened.currentState().alarmStatus());
+            clock.set(2);
+            reopened.statusChanged(ArmingStatus.ARMED_HOME, AlarmStatus.ALARM, false);
+        }
+        try (EventLog reopened = new EventLog(directory, clock, 1000)) {
+            HistoryState state = reopened.currentState();
+            assertEquals(AlarmStatus.ALARM, state.alarmStatus());
+            assertEquals(Set.of(door), state.activeSensors());
+        }
+    }
+
+    @Test
+    void securityService_shouldRecordHowTheAlarmWasReached() throws IOException {
+        try (EventLog eventLog = new EventLog(directory.resolve("history"), clock, 1000);
+             JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory.resolve("repository"))) {
+            SecurityService securityService = new SecurityService(repository, (image, confidenceThreshold) -> false,
+                    new CatpointMetrics(), eventLog);
+            Sensor door = new Sensor("door", SensorType.DOOR);
+            Sensor window = new Sensor("window", SensorType.WINDOW);
+            securityService.addSensor(door);
+            securityService.addSensor(window);
+
+            securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+            securityService.changeSensorActivationStatus(door, true);
+            securityService.changeSensorActivationStatus(window, true);
+
+            List<AlarmEvent> events = eventLog.events(START, second(1));
+            assertEquals(List.of(
+                    new AlarmEvent.ArmingChange(START, ArmingStatus.ARMED_AWAY),
+                    new AlarmEvent.SensorActivation(START, door.getSensorId(), true),
+                    new AlarmEvent.AlarmChange(START, AlarmStatus.PENDING_ALARM),
+                    new AlarmEvent.SensorActivation(START, window.getSensorId(), true),
+                    new AlarmEvent.AlarmChange(START, AlarmStatus.ALARM)), events);
+        }
+    }
+
+    // the snapshot falls between two events recorded at the same time; both belong to the range
+    @Test
+    void events_shouldIncludeEventsBeforeSnapshotAtRangeStart() throws IOException {
+        UUID door = UUID.randomUUID();
+        UUID window = UUID.randomUUID();
+        try (EventLog eventLog = new EventLog(directory, clock, 1000)) {
+            clock.set(1);
+            eventLog.sensorChanged(door, true);
+            eventLog.snapshot();
+            eventLog.sensorChanged(window, true);
+
+            assertEquals(List.of(
+                    new AlarmEvent.SensorActivation(second(1), door, true),
+                    new AlarmEvent.SensorActivation(second(1), window, true)), eventLog.events(second(1), second(1)));
+        }
+    }
+
+    @Test
+    void removingActiveSensor_shouldRecordItAsInactive() throws IOException {
+        try (EventLog eventLog = new EventLog(directory.resolve("history"), clock, 1000);
+             JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory.resolve("repository"))) {
+            SecurityService securityService = new SecurityService(repository, (image, confidenceThreshold) -> false,
+                    new CatpointMetrics(), eventLog);
+            Sensor door = new Sensor("door", SensorType.DOOR);
+            securityService.addSensor(door);
+            securityService.changeSensorActivationStatus(door, true);
+            clock.set(1);
+
+            securityService.removeSensor(door);
+
+            assertEquals(Set.of(), eventLog.currentState().activeSensors());
+            assertEquals(List.of(new AlarmEvent.SensorActivation(second(1), door.getSensorId(), false)),
+                    eventLog.events(second(1), second(1)));
+        }
+    }
+
+    private static Instant second(int seconds) {
+        return START.plusSeconds(seconds);
+    }
+
+    /**
+     * Clock whose time only moves when the test says so.
+     */
+    private static final class SteppingClock extends Clock {
+        private Instant now = START;
+
+        void set(int seconds) {
+            now = second(seconds);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.udacity.catpoint.security;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.JournaledSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.data.Zone;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournaledSecurityRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void journal_shouldBeReplayedAfterReopening() throws Exception {
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        Sensor window = new Sensor("Tab\there", SensorType.WINDOW);
+        Sensor motion = new Sensor("Hallway", SensorType.MOTION);
+        JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory);
+        repository.addSensor(door);
+        repository.addSensor(window);
+        repository.addSensor(motion);
+        window.setActive(true);
+        window.setName("Kitchen Window");
+        repository.updateSensor(window);
+        repository.removeSensor(motion);
+        repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        //no close: the state must come from the journal alone, as after a crash
+
+        JournaledSecurityRepositoryImpl reopened = new JournaledSecurityRepositoryImpl(crashCopy(directory));
+
+        assertEquals(Set.of(door, window), reopened.getSensors());
+        Sensor reopenedWindow = find(reopened, window.getSensorId());
+        assertEquals("Kitchen Window", reopenedWindow.getName());
+        assertTrue(reopenedWindow.getActive());
+        assertEquals(ArmingStatus.ARMED_AWAY, reopened.getArmingStatus());
+        assertEquals(AlarmStatus.PENDING_ALARM, reopened.getAlarmStatus());
+        assertEquals(1, reopened.activeSensorCount());
+        reopened.close();
+        repository.close();
+    }
+
+    @Test
+    void journalAlreadyInSnapshot_shouldReplayToSameState() throws Exception {
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        Sensor window = new Sensor("Kitchen Window", SensorType.WINDOW);
+        JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory);
+        repository.addSensor(door);
+        repository.addSensor(window);
+        door.setActive(true);
+        repository.updateSensor(door);
+        repository.removeSensor(window);
+        repository.setAlarmStatus(AlarmStatus.ALARM);
+        byte[] journal = Files.readAllBytes(journalFile());
+
+        //a crash after the snapshot was written but before the journal was truncated
+        repository.close();
+        Files.write(journalFile(), journal);
+
+        try (JournaledSecurityRepositoryImpl reopened = new JournaledSecurityRepositoryImpl(directory)) {
+            assertEquals(Set.of(door), reopened.getSensors());
+            assertTrue(find(reopened, door.getSensorId()).getActive());
+            assertEquals(AlarmStatus.ALARM, reopened.getAlarmStatus());
+            assertEquals(1, reopened.activeSensorCount());
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void compaction_shouldNotLoseConcurrentWrites() throws Exception {
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            sensors.add(new Sensor("Sensor " + i, SensorType.DOOR));
+        }
+        JournaledSecurityRepositoryImpl repository =
+                new JournaledSecurityRepositoryImpl(directory, Duration.ofMillis(1), 50);
+        sensors.forEach(repository::addSensor);
+
+        ExecutorService writers = Executors.newFixedThreadPool(sensors.size());
+        List<Future<?>> futures = new ArrayList<>();
+        for (Sensor sensor : sensors) {
+            futures.add(writers.submit(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    Sensor copy = new Sensor(sensor.getSensorId(), sensor.getName(), SensorType.DOOR, i % 2 == 0);
+                    repository.updateSensor(copy);
+                    if (i % 500 == 0) {
+                        repository.compact();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        writers.shutdown();
+        //the last write of every sensor left it inactive; flip half of them back on
+        for (int i = 0; i < sensors.size(); i += 2) {
+            repository.updateSensor(new Sensor(sensors.get(i).getSensorId(), sensors.get(i).getName(), SensorType.DOOR, true));
+        }
+        //the snapshotter folds the journal once it passes the threshold
+        while (Files.size(journalFile()) > 50 * 100) {
+            Thread.sleep(5);
+        }
+
+        JournaledSecurityRepositoryImpl reopened = new JournaledSecurityRepositoryImpl(crashCopy(directory));
+        assertEquals(sensors.size(), reopened.getSensors().size());
+        for (int i = 0; i < sensors.size(); i++) {
+            assertEquals(i % 2 == 0, find(reopened, sensors.get(i).getSensorId()).getActive());
+        }
+        assertEquals(sensors.size() / 2, reopened.activeSensorCount());
+        reopened.close();
+        repository.close();
+    }
+
+    @Test
+    void tornTrailingRecord_shouldBeDropped() throws Exception {
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        Sensor window = new Sensor("Kitchen Window", SensorType.WINDOW);
+        JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory);
+        repository.addSensor(door);
+        repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        //a crash in the middle of appending the next record
+        Files.writeString(journalFile(), "A\t" + door.getSensorId() + "\ttr", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        Path crashed = crashCopy(directory);
+        JournaledSecurityRepositoryImpl reopened = new JournaledSecurityRepositoryImpl(crashed);
+        assertEquals(Set.of(door), reopened.getSensors());
+        assertFalse(find(reopened, door.getSensorId()).getActive());
+        assertEquals(AlarmStatus.PENDING_ALARM, reopened.getAlarmStatus());
+
+        //records appended after the torn one must not be merged into it
+        reopened.addSensor(window);
+        JournaledSecurityRepositoryImpl again = new JournaledSecurityRepositoryImpl(crashCopy(crashed));
+        assertEquals(Set.of(door, window), again.getSensors());
+        again.close();
+        reopened.close();
+        repository.close();
+    }
+
+    // closing compacts the journal, which would wipe records appended by a second instance
+    @Test
+    void openDirectory_shouldNotBeOpenedTwice() throws Exception {
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory);
+        repository.addSensor(door);
+
+        assertThrows(IllegalStateException.class, () -> new JournaledSecurityRepositoryImpl(directory));
+        repository.close();
+
+        try (JournaledSecurityRepositoryImpl reopened = new JournaledSecurityRepositoryImpl(directory)) {
+            assertEquals(Set.of(door), reopened.getSensors());
+        }
+    }
+
+    @Test
+    void zoneOfUnknownSensor_shouldBeRefused() throws Exception {
+        Zone house = new Zone("House", null);
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(directory)) {
+            repository.saveZone(house);
+            repository.addSensor(door);
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> repository.setSensorZone(new Sensor("Garage", SensorType.DOOR), house.getZoneId()));
+            repository.setSensorZone(door, house.getZoneId());
+        }
+
+        try (JournaledSecurityRepositoryImpl reopened = new JournaledSecurityRepositoryImpl(directory)) {
+            assertEquals(Map.of(door.getSensorId(), house.getZoneId()), reopened.getSensorZones());
+        }
+    }
+
+    private Path journalFile() {
+        return directory.resolve("sensors.journal");
+    }
+
+    /**
+     * Copies the data files of a repository that is still open, leaving them as a crash would,
+     * so they can be opened without closing (and compacting) the original.
+     */
+    private Path crashCopy(Path source) throws IOException {
+        Path copy = Files.createTempDirectory(directory, "crashed");
+        for (String file : List.of("sensors.snapshot", "sensors.journal")) {
+            if (Files.exists(source.resolve(file))) {
+                Files.copy(source.resolve(file), copy.resolve(file));
+            }
+        }
+        return copy;
+    }
+
+    private static Sensor find(JournaledSecurityRepositoryImpl repository, UUID sensorId) {
+        return repository.getSensors().stream()
+                .filter(sensor -> sensor.getSensorId().equals(sensorId))
+                .findFirst().orElseThrow();
+    }
+}
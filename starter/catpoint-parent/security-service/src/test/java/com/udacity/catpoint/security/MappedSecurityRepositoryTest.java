@@ -0,0 +1,227 @@
+package com.udacity.catpoint.security;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.MappedSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.data.Zone;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedSecurityRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sensorsAndStatus_shouldSurviveReopening() throws Exception {
+        List<Sensor> sensors = new ArrayList<>();
+        try (MappedSecurityRepositoryImpl repository = new MappedSecurityRepositoryImpl(directory)) {
+            //more sensors than the initial mapping holds, so the file is grown on the way
+            for (int i = 0; i < 1500; i++) {
+                Sensor sensor = new Sensor(i == 0 ? "Fenêtre" : "Sensor " + i, SensorType.values()[i % 3]);
+                sensor.setActive(i % 10 == 0);
+                repository.addSensor(sensor);
+                sensors.add(sensor);
+            }
+            repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+            repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+        }
+
+        try (MappedSecurityRepositoryImpl reopened = new MappedSecurityRepositoryImpl(directory)) {
+            assertEquals(new HashSet<>(sensors), reopened.getSensors());
+            for (Sensor sensor : reopened.getSensors()) {
+                Sensor original = sensors.get(indexOf(sensors, sensor.getSensorId()));
+                assertEquals(original.getName(), sensor.getName());
+                assertEquals(original.getSensorType(), sensor.getSensorType());
+                assertEquals(original.getActive(), sensor.getActive());
+            }
+            assertEquals(150, reopened.activeSensorCount());
+            assertEquals(AlarmStatus.PENDING_ALARM, reopened.getAlarmStatus());
+            assertEquals(ArmingStatus.ARMED_HOME, reopened.getArmingStatus());
+        }
+    }
+
+    @Test
+    void removedSlot_shouldBeReusedByLastRecord() throws Exception {
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        Sensor window = new Sensor("Kitchen Window", SensorType.WINDOW);
+        Sensor motion = new Sensor("Hallway", SensorType.MOTION);
+        motion.setActive(true);
+        try (MappedSecurityRepositoryImpl repository = new MappedSecurityRepositoryImpl(directory)) {
+            repository.addSensor(door);
+            repository.addSensor(window);
+            repository.addSensor(motion);
+            long size = Files.size(directory.resolve("sensors.dat"));
+
+            repository.removeSensor(door);
+            assertEquals(Set.of(window, motion), repository.getSensors());
+            assertEquals(Set.of(motion), repository.getActiveSensors());
+
+            //the moved record must still be found by id
+            motion.setActive(false);
+            repository.updateSensor(motion);
+            assertEquals(0, repository.activeSensorCount());
+            repository.addSensor(door);
+            repository.removeSensor(door);
+            repository.removeSensor(new Sensor("Unknown", SensorType.DOOR));
+            assertEquals(size, Files.size(directory.resolve("sensors.dat")));
+        }
+
+        try (MappedSecurityRepositoryImpl reopened = new MappedSecurityRepositoryImpl(directory)) {
+            assertEquals(Set.of(window, motion), reopened.getSensors());
+            assertEquals(0, reopened.activeSensorCount());
+        }
+    }
+
+    @Test
+    void renamedSensors_shouldNotGrowNameHeap() throws Exception {
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        Sensor window = new Sensor("Kitchen Window", SensorType.WINDOW);
+        long heapSize;
+        try (MappedSecurityRepositoryImpl repository = new MappedSecurityRepositoryImpl(directory)) {
+            repository.addSensor(door);
+            repository.addSensor(window);
+            heapSize = Files.size(directory.resolve("names.dat"));
+            //enough renames to fill the heap several times over
+            for (int i = 0; i < 10_000; i++) {
+                window.setName("Kitchen Window, renamed " + i + " times with a longer name to take up space");
+                repository.updateSensor(window);
+            }
+            assertEquals(heapSize, Files.size(directory.resolve("names.dat")));
+        }
+
+        try (MappedSecurityRepositoryImpl reopened = new MappedSecurityRepositoryImpl(directory)) {
+            Sensor reopenedWindow = reopened.getSensors().stream()
+                    .filter(window::equals).findFirst().orElseThrow();
+            assertEquals(window.getName(), reopenedWindow.getName());
+            Sensor reopenedDoor = reopened.getSensors().stream()
+                    .filter(door::equals).findFirst().orElseThrow();
+            assertEquals("Front Door", reopenedDoor.getName());
+        }
+    }
+
+    @Test
+    void getSensors_shouldReturnSnapshot() throws Exception {
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        try (MappedSecurityRepositoryImpl repository = new MappedSecurityRepositoryImpl(directory)) {
+            repository.addSensor(door);
+            Set<Sensor> snapshot = repository.getSensors();
+
+            repository.addSensor(new Sensor("Garage", SensorType.DOOR));
+            snapshot.iterator().next().setActive(true);
+
+            assertEquals(1, snapshot.size());
+            assertEquals(2, repository.getSensors().size());
+            assertEquals(0, repository.activeSensorCount());
+        }
+    }
+
+    @Test
+    void zones_shouldSurviveReopening() throws Exception {
+        Zone house = new Zone("House", null);
+        Zone kitchen = new Zone(UUID.randomUUID(), "Küche", house.getZoneId(), ArmingStatus.ARMED_AWAY,
+                AlarmStatus.PENDING_ALARM);
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        Sensor window = new Sensor("Kitchen Window", SensorType.WINDOW);
+        Sensor motion = new Sensor("Hallway", SensorType.MOTION);
+        try (MappedSecurityRepositoryImpl repository = new MappedSecurityRepositoryImpl(directory)) {
+            repository.addSensor(door);
+            repository.addSensor(window);
+            repository.addSensor(motion);
+            repository.saveZone(house);
+            repository.saveZone(kitchen);
+            repository.setSensorZone(door, house.getZoneId());
+            repository.setSensorZone(motion, kitchen.getZoneId());
+            //moves the motion sensor's record into the door's slot, zone and all
+            repository.removeSensor(door);
+        }
+
+        try (MappedSecurityRepositoryImpl reopened = new MappedSecurityRepositoryImpl(directory)) {
+            assertEquals(Set.of(house, kitchen), reopened.getZones());
+            Zone reopenedKitchen = reopened.getZones().stream()
+                    .filter(kitchen::equals).findFirst().orElseThrow();
+            assertEquals("Küche", reopenedKitchen.getName());
+            assertEquals(house.getZoneId(), reopenedKitchen.getParentId());
+            assertEquals(ArmingStatus.ARMED_AWAY, reopenedKitchen.getArmingStatus());
+            assertEquals(AlarmStatus.PENDING_ALARM, reopenedKitchen.getAlarmStatus());
+            assertEquals(Map.of(motion.getSensorId(), kitchen.getZoneId()), reopened.getSensorZones());
+
+            reopened.removeZone(kitchen);
+            assertEquals(Set.of(house), reopened.getZones());
+            assertTrue(reopened.getSensorZones().isEmpty());
+        }
+    }
+
+    // a file written before records held a zone: magic, version 1, one 24-byte record
+    @Test
+    void versionOneFile_shouldBeReadAndUpgraded() throws Exception {
+        UUID doorId = UUID.randomUUID();
+        byte[] name = "Front Door".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer sensors = ByteBuffer.allocate(4096 + 24);
+        sensors.putInt(0, 0xCA7F0117).putInt(4, 1)
+                .putInt(8, AlarmStatus.ALARM.ordinal()).putInt(12, ArmingStatus.ARMED_AWAY.ordinal())
+                .putInt(16, 1).putInt(20, name.length);
+        sensors.putLong(4096, doorId.getMostSignificantBits()).putLong(4104, doorId.getLeastSignificantBits())
+                .putInt(4112, 0).putShort(4116, (short) name.length)
+                .put(4118, (byte) SensorType.DOOR.ordinal()).put(4119, (byte) 1);
+        Files.write(directory.resolve("sensors.dat"), sensors.array());
+        Files.write(directory.resolve("names.dat"), name);
+        Zone house = new Zone("House", null);
+
+        try (MappedSecurityRepositoryImpl repository = new MappedSecurityRepositoryImpl(directory)) {
+            Sensor door = repository.getSensors().iterator().next();
+            assertEquals(new Sensor(doorId, "Front Door", SensorType.DOOR, true), door);
+            assertEquals("Front Door", door.getName());
+            assertTrue(door.getActive());
+            assertEquals(AlarmStatus.ALARM, repository.getAlarmStatus());
+            assertTrue(repository.getSensorZones().isEmpty());
+
+            repository.saveZone(house);
+            repository.setSensorZone(door, house.getZoneId());
+        }
+
+        //the upgrade is written to a new file that replaces the old one
+        assertFalse(Files.exists(directory.resolve("sensors.dat.tmp")));
+
+        try (MappedSecurityRepositoryImpl reopened = new MappedSecurityRepositoryImpl(directory)) {
+            assertEquals(Map.of(doorId, house.getZoneId()), reopened.getSensorZones());
+            assertEquals(1, reopened.activeSensorCount());
+        }
+    }
+
+    @Test
+    void zoneOfUnknownSensor_shouldBeRefused() throws Exception {
+        Zone house = new Zone("House", null);
+        try (MappedSecurityRepositoryImpl repository = new MappedSecurityRepositoryImpl(directory)) {
+            repository.saveZone(house);
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> repository.setSensorZone(new Sensor("Front Door", SensorType.DOOR), house.getZoneId()));
+            assertTrue(repository.getSensorZones().isEmpty());
+        }
+    }
+
+    private static int indexOf(List<Sensor> sensors, UUID sensorId) {
+        for (int i = 0; i < sensors.size(); i++) {
+            if (sensors.get(i).getSensorId().equals(sensorId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,105 @@
+package com.udacity.catpoint.security;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.JournaledSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.PremisesRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.prefs.Preferences;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PremisesRegistryTest {
+
+    @TempDir
+    Path directory;
+
+    private PremisesRegistry registry;
+
+    @BeforeEach
+    void init() {
+        registry = new PremisesRegistry(4,
+                premisesId -> new JournaledSecurityRepositoryImpl(directory.resolve(premisesId)),
+                (image, confidenceThreshold) -> false);
+    }
+
+    @AfterEach
+    void close() {
+        registry.close();
+    }
+
+    @Test
+    void events_shouldOnlyAffectTheirOwnPremises() throws Exception {
+        Sensor sensor = new Sensor("Front Door", SensorType.DOOR);
+        registry.execute("home-1", securityService -> securityService.addSensor(sensor));
+        registry.setArmingStatus("home-1", ArmingStatus.ARMED_AWAY);
+        registry.changeSensorActivationStatus("home-1", sensor, true);
+
+        assertEquals(AlarmStatus.PENDING_ALARM, registry.getAlarmStatus("home-1").get());
+        assertEquals(AlarmStatus.NO_ALARM, registry.getAlarmStatus("home-2").get());
+        assertEquals(0, registry.submit("home-2", securityService -> securityService.getSensors().size()).get().intValue());
+    }
+
+    // ids that a naive node name would map to the same node, or to the root
+    @Test
+    void preferencesRepositories_shouldKeepEveryIdApart() throws Exception {
+        Preferences root = Preferences.userRoot().node("catpoint-test-" + UUID.randomUUID());
+        String longId = "premises-".repeat(20);
+        List<String> premisesIds = List.of("a/b", "a_b", "a%2Fb", "a b", "a+b", longId + "1", longId + "2");
+        try (PremisesRegistry preferencesRegistry = new PremisesRegistry(2,
+                PremisesRegistry.preferencesRepositories(root), (image, confidenceThreshold) -> false)) {
+            for (String premisesId : premisesIds) {
+                preferencesRegistry.execute(premisesId,
+                        securityService -> securityService.addSensor(new Sensor(premisesId, SensorType.DOOR))).get();
+            }
+            for (String premisesId : premisesIds) {
+                assertEquals(List.of(premisesId), preferencesRegistry.submit(premisesId, securityService ->
+                        securityService.getSensors().stream().map(Sensor::getName).toList()).get());
+            }
+
+            ExecutionException empty = assertThrows(ExecutionException.class,
+                    () -> preferencesRegistry.getAlarmStatus("").get());
+            assertInstanceOf(IllegalArgumentException.class, empty.getCause());
+        } finally {
+            root.removeNode();
+        }
+    }
+
+    @Test
+    void shardOf_shouldBeStableAndSpreadPremises() throws Exception {
+        int[] perShard = new int[registry.shardCount()];
+        List<CompletableFuture<AlarmStatus>> results = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            String premisesId = "premises-" + i;
+            assertEquals(registry.shardOf(premisesId), registry.shardOf(premisesId));
+            perShard[registry.shardOf(premisesId)]++;
+            results.add(registry.getAlarmStatus(premisesId));
+        }
+        for (CompletableFuture<AlarmStatus> result : results) {
+            result.get();
+        }
+
+        int premises = 0;
+        long processed = 0;
+        for (PremisesRegistry.ShardStats stats : registry.getShardStats()) {
+            assertTrue(perShard[stats.shard()] > 50, "shard " + stats.shard() + " is starved");
+            assertEquals(perShard[stats.shard()], stats.premises());
+            premises += stats.premises();
+            processed += stats.processed();
+        }
+        assertEquals(400, premises);
+        assertEquals(400, processed);
+    }
+}
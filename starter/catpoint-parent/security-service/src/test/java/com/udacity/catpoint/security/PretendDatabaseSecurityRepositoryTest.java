@@ -0,0 +1,159 @@
+package com.udacity.catpoint.security;
+
+import com.google.gson.Gson;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.data.Zone;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PretendDatabaseSecurityRepositoryTest {
+
+    private Preferences node;
+
+    @BeforeEach
+    void init() {
+        node = Preferences.userRoot().node("catpoint-test-" + UUID.randomUUID());
+    }
+
+    @AfterEach
+    void close() throws BackingStoreException {
+        node.removeNode();
+    }
+
+    @Test
+    void sensors_shouldSurviveReload() {
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(node);
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        Sensor window = new Sensor("Fenêtre", SensorType.WINDOW);
+        repository.addSensor(door);
+        repository.addSensor(window);
+        window.setActive(true);
+        repository.updateSensor(window);
+
+        PretendDatabaseSecurityRepositoryImpl reloaded = new PretendDatabaseSecurityRepositoryImpl(node);
+
+        assertEquals(repository.getSensors(), reloaded.getSensors());
+        Sensor reloadedWindow = reloaded.getSensors().stream()
+                .filter(sensor -> sensor.getSensorId().equals(window.getSensorId()))
+                .findFirst().orElseThrow();
+        assertEquals("Fenêtre", reloadedWindow.getName());
+        assertEquals(SensorType.WINDOW, reloadedWindow.getSensorType());
+        assertTrue(reloadedWindow.getActive());
+        assertNull(node.get("SENSORS", null));
+    }
+
+    @Test
+    void legacyJsonSensors_shouldBeReadAndRewritten() {
+        Sensor motion = new Sensor(UUID.randomUUID(), "Hallway", SensorType.MOTION, true);
+        node.put("SENSORS", new Gson().toJson(List.of(motion)));
+
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(node);
+        assertEquals(1, repository.getSensors().size());
+        repository.addSensor(new Sensor("Garage", SensorType.DOOR));
+
+        assertNull(node.get("SENSORS", null));
+        assertEquals(2, new PretendDatabaseSecurityRepositoryImpl(node).getSensors().size());
+    }
+
+    // a single stored value holds at most 8192 characters, about 200 sensors
+    @Test
+    void manySensors_shouldBeStoredInChunks() {
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(node);
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Sensor sensor = new Sensor("Window " + i, SensorType.WINDOW);
+            sensors.add(sensor);
+            repository.addSensor(sensor);
+        }
+        int chunks = node.getInt("SENSORS_BINARY_CHUNKS", 0);
+        assertTrue(chunks > 1);
+
+        assertEquals(repository.getSensors(), new PretendDatabaseSecurityRepositoryImpl(node).getSensors());
+
+        sensors.subList(1, sensors.size()).forEach(repository::removeSensor);
+        assertEquals(1, node.getInt("SENSORS_BINARY_CHUNKS", 0));
+        assertNull(node.get("SENSORS_BINARY_" + (chunks - 1), null));
+        assertEquals(Set.of(sensors.get(0)), new PretendDatabaseSecurityRepositoryImpl(node).getSensors());
+    }
+
+    @Test
+    void unchunkedSensors_shouldStillBeRead() {
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        new PretendDatabaseSecurityRepositoryImpl(node).addSensor(door);
+        byte[] stored = node.getByteArray("SENSORS_BINARY_0", null);
+        node.remove("SENSORS_BINARY_0");
+        node.remove("SENSORS_BINARY_CHUNKS");
+        node.putByteArray("SENSORS_BINARY", stored);
+
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(node);
+        assertEquals(Set.of(door), repository.getSensors());
+        repository.addSensor(new Sensor("Garage", SensorType.DOOR));
+
+        assertNull(node.getByteArray("SENSORS_BINARY", null));
+        assertEquals(2, new PretendDatabaseSecurityRepositoryImpl(node).getSensors().size());
+    }
+
+    @Test
+    void zones_shouldSurviveReload() {
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(node);
+        Zone house = new Zone("House", null);
+        Zone kitchen = new Zone(UUID.randomUUID(), "Küche", house.getZoneId(), ArmingStatus.ARMED_AWAY,
+                AlarmStatus.PENDING_ALARM);
+        Sensor window = new Sensor("Kitchen Window", SensorType.WINDOW);
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        repository.addSensor(window);
+        repository.addSensor(door);
+        repository.saveZone(house);
+        repository.saveZone(kitchen);
+        repository.setSensorZone(window, kitchen.getZoneId());
+        repository.setSensorZone(door, house.getZoneId());
+        repository.removeSensor(door);
+
+        PretendDatabaseSecurityRepositoryImpl reloaded = new PretendDatabaseSecurityRepositoryImpl(node);
+
+        assertEquals(2, reloaded.getZones().size());
+        Zone reloadedKitchen = reloaded.getZones().stream()
+                .filter(zone -> zone.getZoneId().equals(kitchen.getZoneId()))
+                .findFirst().orElseThrow();
+        assertEquals("Küche", reloadedKitchen.getName());
+        assertEquals(house.getZoneId(), reloadedKitchen.getParentId());
+        assertEquals(ArmingStatus.ARMED_AWAY, reloadedKitchen.getArmingStatus());
+        assertEquals(AlarmStatus.PENDING_ALARM, reloadedKitchen.getAlarmStatus());
+        assertEquals(Map.of(window.getSensorId(), kitchen.getZoneId()), reloaded.getSensorZones());
+
+        reloaded.removeZone(kitchen);
+        assertTrue(new PretendDatabaseSecurityRepositoryImpl(node).getSensorZones().isEmpty());
+    }
+
+    @Test
+    void zoneOfUnknownSensor_shouldBeRefused() {
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(node);
+        Zone house = new Zone("House", null);
+        Sensor door = new Sensor("Front Door", SensorType.DOOR);
+        repository.saveZone(house);
+        repository.addSensor(door);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.setSensorZone(new Sensor("Garage", SensorType.DOOR), house.getZoneId()));
+        //a renamed copy is still the same sensor
+        repository.setSensorZone(new Sensor(door.getSensorId(), "Back Door", SensorType.DOOR, false),
+                house.getZoneId());
+        assertEquals(Map.of(door.getSensorId(), house.getZoneId()),
+                new PretendDatabaseSecurityRepositoryImpl(node).getSensorZones());
+    }
+}
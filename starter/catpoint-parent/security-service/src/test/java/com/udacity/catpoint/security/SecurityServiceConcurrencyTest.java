@@ -0,0 +1,298 @@
+package com.udacity.catpoint.security;
+
+import com.udacity.catpoint.image.AsyncImageService;
+import com.udacity.catpoint.image.ImageService;
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.JournaledSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SecurityServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    @TempDir
+    Path directory;
+
+    private JournaledSecurityRepositoryImpl securityRepository;
+    private SecurityService securityService;
+    private final CountingListener listener = new CountingListener();
+    private final List<Sensor> sensors = new ArrayList<>();
+
+    @BeforeEach
+    void init() {
+        securityRepository = new JournaledSecurityRepositoryImpl(directory);
+        ImageService alwaysCat = (image, confidenceThreshold) -> true;
+        securityService = new SecurityService(securityRepository, alwaysCat);
+        securityService.addStatusListener(listener);
+        for (int i = 0; i < THREADS; i++) {
+            Sensor sensor = new Sensor("sensor-" + i, SensorType.DOOR);
+            sensors.add(sensor);
+            securityService.addSensor(sensor);
+        }
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        securityRepository.close();
+    }
+
+    // every round starts all threads at once; the alarm must pass through pending exactly once
+    @Test
+    @Timeout(60)
+    void concurrentActivations_shouldEscalateOnceAndEndInAlarm() throws InterruptedException {
+        for (int round = 0; round < 200; round++) {
+            securityService.setArmingStatus(ArmingStatus.DISARMED);
+            sensors.forEach(sensor -> securityService.changeSensorActivationStatus(sensor, false));
+            securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+            listener.notifications.clear();
+
+            runConcurrently(index -> securityService.changeSensorActivationStatus(sensors.get(index), true));
+
+            assertEquals(1, listener.count(AlarmStatus.PENDING_ALARM), "round " + round);
+            assertEquals(1, listener.count(AlarmStatus.ALARM), "round " + round);
+            assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus(), "round " + round);
+        }
+    }
+
+    // threads race to set opposite statuses; whatever wins, the listeners must hear it last
+    @Test
+    @Timeout(60)
+    void concurrentTransitions_shouldNotifyTheInstalledStatusLast() throws InterruptedException {
+        LastStatusListener lastStatus = new LastStatusListener();
+        securityService.addStatusListener(lastStatus);
+        for (int round = 0; round < 200; round++) {
+            runConcurrently(index -> securityService.setAlarmStatus(
+                    index % 2 == 0 ? AlarmStatus.ALARM : AlarmStatus.NO_ALARM));
+
+            assertEquals(securityService.getAlarmStatus(), lastStatus.last, "round " + round);
+        }
+    }
+
+    // the older transition is still announcing when the newer one is installed
+    @Test
+    @Timeout(60)
+    void slowNotification_shouldNotBeOvertakenByNewerStatus() throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LastStatusListener lastStatus = new LastStatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+                if (status == AlarmStatus.ALARM) {
+                    entered.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.notify(status);
+            }
+        };
+        securityService.addStatusListener(lastStatus);
+
+        Thread older = Thread.ofPlatform().start(() -> securityService.setAlarmStatus(AlarmStatus.ALARM));
+        entered.await();
+        Thread newer = Thread.ofPlatform().start(() -> securityService.setAlarmStatus(AlarmStatus.NO_ALARM));
+        //give the newer transition time to announce itself if it is not held back
+        newer.join(200);
+        release.countDown();
+        older.join();
+        newer.join();
+
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+        assertEquals(AlarmStatus.NO_ALARM, lastStatus.last);
+    }
+
+    // cat images while armed home keep the system in alarm whatever the sensors do
+    @Test
+    @Timeout(60)
+    void mixedOperations_shouldLeaveRepositoryInFinalState() throws Exception {
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+        runConcurrently(index -> {
+            Sensor sensor = sensors.get(index);
+            for (int i = 0; i < 500; i++) {
+                switch (i % 4) {
+                    case 0, 2 -> securityService.changeSensorActivationStatus(sensor, !sensor.getActive());
+                    case 1 -> securityService.processImage(image);
+                    default -> securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+                }
+            }
+        });
+        securityService.processImage(image);
+
+        assertEquals(AlarmStatus.ALARM, securityRepository.getAlarmStatus());
+        assertEquals(ArmingStatus.ARMED_HOME, securityRepository.getArmingStatus());
+        securityRepository.close();
+        securityRepository = new JournaledSecurityRepositoryImpl(directory);
+        assertEquals(AlarmStatus.ALARM, securityRepository.getAlarmStatus());
+        assertEquals(ArmingStatus.ARMED_HOME, securityRepository.getArmingStatus());
+    }
+
+    // the newer frame finishes first, but its result must still be applied last
+    @Test
+    @Timeout(60)
+    void processImageAsync_shouldApplyResultsInSubmissionOrder() throws Exception {
+        ControlledImageService imageService = new ControlledImageService();
+        SecurityService asyncService = new SecurityService(securityRepository, imageService);
+        asyncService.addStatusListener(listener);
+        asyncService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+        CompletableFuture<Boolean> older = asyncService.processImageAsync(image);
+        CompletableFuture<Boolean> newer = asyncService.processImageAsync(image);
+        imageService.pending.get(1).complete(false);
+        assertFalse(newer.isDone());
+        imageService.pending.get(0).complete(true);
+
+        assertTrue(older.get());
+        assertFalse(newer.get());
+        assertEquals(List.of(true, false), listener.catDetections);
+        assertEquals(AlarmStatus.NO_ALARM, asyncService.getAlarmStatus());
+    }
+
+    // a newer scan starts and finishes right after the older one passed its check; the newer one must win
+    @Test
+    @Timeout(60)
+    void supersededScan_shouldNotOverwriteNewerResult() throws Exception {
+        BufferedImage catImage = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        BufferedImage emptyImage = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        SecurityService scanService = new SecurityService(securityRepository,
+                (image, confidenceThreshold) -> image == catImage);
+        scanService.addStatusListener(listener);
+        scanService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        AtomicInteger generation = new AtomicInteger(1);
+        List<Thread> newerScan = new ArrayList<>();
+
+        boolean olderApplied = scanService.processImage(catImage, () -> {
+            boolean current = generation.get() == 1;
+            generation.set(2);
+            Thread thread = Thread.ofPlatform().start(
+                    () -> scanService.processImage(emptyImage, () -> generation.get() == 2));
+            newerScan.add(thread);
+            try {
+                //give the newer scan time to apply its result if it is not held back
+                thread.join(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return current;
+        });
+        newerScan.get(0).join();
+
+        assertTrue(olderApplied);
+        assertEquals(List.of(true, false), listener.catDetections);
+        assertEquals(AlarmStatus.NO_ALARM, scanService.getAlarmStatus());
+    }
+
+    private void runConcurrently(IndexedTask task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int index = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    task.run(index);
+                } catch (Throwable t) {
+                    synchronized (failures) {
+                        failures.add(t);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(failures.isEmpty(), "worker failed: " + failures);
+    }
+
+    private interface IndexedTask {
+        void run(int index) throws Exception;
+    }
+
+    private static class ControlledImageService implements ImageService, AsyncImageService {
+        private final List<CompletableFuture<Boolean>> pending = new CopyOnWriteArrayList<>();
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold) {
+            CompletableFuture<Boolean> result = new CompletableFuture<>();
+            pending.add(result);
+            return result;
+        }
+    }
+
+    private static class CountingListener implements StatusListener {
+        private final Map<AlarmStatus, AtomicInteger> notifications = new ConcurrentHashMap<>();
+        private final List<Boolean> catDetections = new CopyOnWriteArrayList<>();
+
+        int count(AlarmStatus status) {
+            AtomicInteger count = notifications.get(status);
+            return count == null ? 0 : count.get();
+        }
+
+        @Override
+        public void notify(AlarmStatus status) {
+            notifications.computeIfAbsent(status, s -> new AtomicInteger()).incrementAndGet();
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            catDetections.add(catDetected);
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+        }
+    }
+
+    private static class LastStatusListener implements StatusListener {
+        private volatile AlarmStatus last;
+
+        @Override
+        public void notify(AlarmStatus status) {
+            last = status;
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+        }
+    }
+}
@@ -12,6 +12,8 @@ import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.Mock;
 import java.awt.image.BufferedImage;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import static org.junit.jupiter.api.Assertions.*;
@@ -70,8 +72,7 @@ public class SecurityServiceTest {
         when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
         when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.PENDING_ALARM);
         sensor1.setActive(true);
-        Set<Sensor> sensors = Set.of(sensor1);
-        when(securityRepository.getSensors()).thenReturn(sensors);
+        when(securityRepository.activeSensorCount()).thenReturn(0);
         securityService.changeSensorActivationStatus(sensor1, false);
         verify(securityRepository).setAlarmStatus(AlarmStatus.NO_ALARM);
     }
@@ -122,10 +123,7 @@ public class SecurityServiceTest {
     void imageProcessed_whenNoCatDetectedAndNoActiveSensors_shouldSetNoAlarm() {
         BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
         when(imageService.imageContainsCat(any(BufferedImage.class), anyFloat())).thenReturn(false);
-        sensor1.setActive(false);
-        sensor2.setActive(false);
-        Set<Sensor> inactiveSensors = Set.of(sensor1, sensor2);
-        when(securityRepository.getSensors()).thenReturn(inactiveSensors);
+        when(securityRepository.activeSensorCount()).thenReturn(0);
         securityService.processImage(image);
         verify(securityRepository).setAlarmStatus(AlarmStatus.NO_ALARM);
     }
@@ -136,9 +134,7 @@ public class SecurityServiceTest {
     void imageProcessed_whenNoCatButActiveSensors_shouldNotSetNoAlarm() {
         BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
         when(imageService.imageContainsCat(any(BufferedImage.class), anyFloat())).thenReturn(false);
-        sensor1.setActive(true);
-        Set<Sensor> sensorsWithActive = Set.of(sensor1);
-        when(securityRepository.getSensors()).thenReturn(sensorsWithActive);
+        when(securityRepository.activeSensorCount()).thenReturn(1);
         securityService.processImage(image);
         verify(securityRepository, never()).setAlarmStatus(AlarmStatus.NO_ALARM);
     }
@@ -159,7 +155,7 @@ public class SecurityServiceTest {
         sensor1.setActive(true);
         sensor2.setActive(true);
         Set<Sensor> activeSensors = Set.of(sensor1, sensor2);
-        when(securityRepository.getSensors()).thenReturn(activeSensors);
+        when(securityRepository.getActiveSensors()).thenReturn(activeSensors);
 //        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
         securityService.setArmingStatus(armingStatus);
         verify(securityRepository, times(2)).updateSensor(any(Sensor.class));
@@ -192,11 +188,11 @@ public class SecurityServiceTest {
     // Edge2.sensor deactivated
     @Test
     void sensorDeactivated_whenNoLastActiveSensorAndPending_shouldNotChangeToNoAlarmStatus() {
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
         when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.PENDING_ALARM);
         sensor1.setActive(true);
         sensor2.setActive(true);
-        Set<Sensor> sensors = Set.of(sensor1, sensor2);
-        when(securityRepository.getSensors()).thenReturn(sensors);
+        when(securityRepository.activeSensorCount()).thenReturn(1);
         securityService.changeSensorActivationStatus(sensor1, false);
         verify(securityRepository, never()).setAlarmStatus(AlarmStatus.NO_ALARM);
     }
@@ -208,14 +204,17 @@ public class SecurityServiceTest {
         sensor1.setActive(true);
         sensor2.setActive(true);
         Set<Sensor> sensors = Set.of(sensor1, sensor2);
-        when(securityRepository.getSensors()).thenReturn(sensors);
+        when(securityRepository.getActiveSensors()).thenReturn(sensors);
 //        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.DISARMED);
 //        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+        securityService.addStatusListener(statusListener);
         securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
         assertFalse(sensor1.getActive(), "sensor should be inactive after arming");
         assertFalse(sensor2.getActive(), "sensor should be inactive after arming");
         verify(securityRepository, times(2)).updateSensor(any(Sensor.class));
         verify(securityRepository).setArmingStatus(ArmingStatus.ARMED_HOME);
+        verify(statusListener).sensorStatusChanged(argThat((Collection<Sensor> reset) ->
+                reset.size() == 2 && reset.containsAll(sensors)));
     }
 
     // ListenerStatus1
@@ -275,5 +274,39 @@ public class SecurityServiceTest {
         verify(securityRepository).removeSensor(sensor1);
     }
 
+    // batch1. two activations in one batch escalate to alarm, with one write and one notification naming both sensors
+    @Test
+    void sensorBatch_whenArmedAndTwoSensorsActivated_shouldSetAlarmOnce() {
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_AWAY);
+        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+        when(securityRepository.activeSensorCount()).thenReturn(0);
+        securityService.addStatusListener(statusListener);
+
+        securityService.changeSensorActivationStatuses(List.of(
+                new SensorEvent(sensor1, true), new SensorEvent(sensor2, true)));
+
+        verify(securityRepository).updateSensors(anyCollection());
+        verify(securityRepository).setAlarmStatus(AlarmStatus.ALARM);
+        verify(statusListener).notify(AlarmStatus.ALARM);
+        verify(statusListener).sensorStatusChanged(List.of(sensor1, sensor2));
+        verify(statusListener, never()).sensorStatusChanged();
+        assertTrue(sensor1.getActive());
+        assertTrue(sensor2.getActive());
+    }
+
+    // batch2. activating then deactivating the only sensor returns to no alarm, so nothing is written
+    @Test
+    void sensorBatch_whenSensorActivatedThenDeactivated_shouldNotChangeAlarmStatus() {
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+        when(securityRepository.activeSensorCount()).thenReturn(0);
+
+        securityService.changeSensorActivationStatuses(List.of(
+                new SensorEvent(sensor1, true), new SensorEvent(sensor1, false)));
+
+        verify(securityRepository, never()).setAlarmStatus(any(AlarmStatus.class));
+        assertFalse(sensor1.getActive());
+    }
+
 
 }
@@ -0,0 +1,162 @@
+package com.udacity.catpoint.security;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.JournaledSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.data.Zone;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SecurityServiceZoneTest {
+
+    @TempDir
+    Path directory;
+
+    private JournaledSecurityRepositoryImpl repository;
+    private SecurityService securityService;
+
+    //house > ground floor > kitchen, with a door on the ground floor and a window in the kitchen
+    private final Zone house = new Zone("House", null);
+    private final Zone groundFloor = new Zone("Ground Floor", house.getZoneId());
+    private final Zone kitchen = new Zone("Kitchen", groundFloor.getZoneId());
+    private final Sensor door = new Sensor("Front Door", SensorType.DOOR);
+    private final Sensor window = new Sensor("Kitchen Window", SensorType.WINDOW);
+
+    @BeforeEach
+    void init() {
+        open();
+        securityService.addZone(house);
+        securityService.addZone(groundFloor);
+        securityService.addZone(kitchen);
+        securityService.addSensor(door);
+        securityService.addSensor(window);
+        securityService.assignSensor(door, groundFloor);
+        securityService.assignSensor(window, kitchen);
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        repository.close();
+    }
+
+    private void open() {
+        repository = new JournaledSecurityRepositoryImpl(directory);
+        securityService = new SecurityService(repository, (image, confidenceThreshold) -> false);
+    }
+
+    @Test
+    void sensorActivation_shouldBeCountedInEveryAncestor() {
+        securityService.changeSensorActivationStatus(window, true);
+        securityService.changeSensorActivationStatus(door, true);
+
+        assertEquals(1, securityService.getZoneActiveSensorCount(kitchen));
+        assertEquals(2, securityService.getZoneActiveSensorCount(groundFloor));
+        assertEquals(2, securityService.getZoneActiveSensorCount(house));
+
+        securityService.changeSensorActivationStatus(window, false);
+        securityService.removeSensor(door);
+
+        assertEquals(0, securityService.getZoneActiveSensorCount(kitchen));
+        assertEquals(0, securityService.getZoneActiveSensorCount(house));
+    }
+
+    @Test
+    void zoneAlarm_shouldFollowOwnArmingStatus() {
+        securityService.setZoneArmingStatus(kitchen, ArmingStatus.ARMED_AWAY);
+        securityService.setZoneArmingStatus(house, ArmingStatus.ARMED_HOME);
+
+        securityService.changeSensorActivationStatus(window, true);
+
+        assertEquals(AlarmStatus.PENDING_ALARM, zone(kitchen).getAlarmStatus());
+        assertEquals(AlarmStatus.NO_ALARM, zone(groundFloor).getAlarmStatus());
+        assertEquals(AlarmStatus.PENDING_ALARM, zone(house).getAlarmStatus());
+        //zones do not change the status of the system as a whole
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+
+        securityService.changeSensorActivationStatus(door, true);
+
+        assertEquals(AlarmStatus.PENDING_ALARM, zone(kitchen).getAlarmStatus());
+        assertEquals(AlarmStatus.ALARM, zone(house).getAlarmStatus());
+    }
+
+    @Test
+    void pendingZone_shouldClearWhenItsLastSensorDeactivates() {
+        securityService.setZoneArmingStatus(groundFloor, ArmingStatus.ARMED_AWAY);
+        securityService.changeSensorActivationStatus(door, true);
+        securityService.changeSensorActivationStatus(window, true);
+        assertEquals(AlarmStatus.ALARM, zone(groundFloor).getAlarmStatus());
+
+        securityService.setZoneArmingStatus(groundFloor, ArmingStatus.DISARMED);
+        securityService.setZoneArmingStatus(groundFloor, ArmingStatus.ARMED_HOME);
+        securityService.changeSensorActivationStatus(window, false);
+        securityService.changeSensorActivationStatus(window, true);
+        assertEquals(AlarmStatus.PENDING_ALARM, zone(groundFloor).getAlarmStatus());
+
+        securityService.changeSensorActivationStatus(window, false);
+        assertEquals(AlarmStatus.PENDING_ALARM, zone(groundFloor).getAlarmStatus());
+        securityService.changeSensorActivationStatus(door, false);
+        assertEquals(AlarmStatus.NO_ALARM, zone(groundFloor).getAlarmStatus());
+    }
+
+    @Test
+    void movingSensor_shouldMoveItsCount() {
+        Zone upstairs = new Zone("Upstairs", house.getZoneId());
+        securityService.addZone(upstairs);
+        securityService.changeSensorActivationStatus(window, true);
+
+        securityService.assignSensor(window, upstairs);
+
+        assertEquals(0, securityService.getZoneActiveSensorCount(groundFloor));
+        assertEquals(1, securityService.getZoneActiveSensorCount(upstairs));
+        assertEquals(1, securityService.getZoneActiveSensorCount(house));
+        assertEquals(upstairs.getZoneId(), securityService.getSensorZone(window));
+    }
+
+    @Test
+    void zonesAndCounts_shouldSurviveReopening() throws Exception {
+        securityService.setZoneArmingStatus(kitchen, ArmingStatus.ARMED_AWAY);
+        securityService.changeSensorActivationStatus(window, true);
+        repository.close();
+
+        open();
+
+        assertEquals(3, securityService.getZones().size());
+        assertEquals(ArmingStatus.ARMED_AWAY, zone(kitchen).getArmingStatus());
+        assertEquals(AlarmStatus.PENDING_ALARM, zone(kitchen).getAlarmStatus());
+        assertEquals(groundFloor.getZoneId(), zone(kitchen).getParentId());
+        assertEquals(1, securityService.getZoneActiveSensorCount(house));
+        assertEquals(groundFloor.getZoneId(), securityService.getSensorZone(door));
+    }
+
+    @Test
+    void invalidZoneChanges_shouldThrow() {
+        assertThrows(IllegalArgumentException.class,
+                () -> securityService.addZone(new Zone("Garden", UUID.randomUUID())));
+        assertThrows(IllegalArgumentException.class, () -> securityService.addZone(kitchen));
+        assertThrows(IllegalStateException.class, () -> securityService.removeZone(groundFloor));
+        Sensor unknown = new Sensor("Garden Gate", SensorType.DOOR);
+        assertThrows(IllegalArgumentException.class, () -> securityService.assignSensor(unknown, kitchen));
+        assertNull(securityService.getSensorZone(unknown));
+        securityService.changeSensorActivationStatus(unknown, true);
+        assertEquals(0, securityService.getZoneActiveSensorCount(kitchen));
+
+        securityService.removeZone(kitchen);
+
+        assertNull(securityService.getZone(kitchen.getZoneId()));
+        assertNull(securityService.getSensorZone(window));
+    }
+
+    private Zone zone(Zone zone) {
+        return securityService.getZone(zone.getZoneId());
+    }
+}
@@ -0,0 +1,97 @@
+package com.udacity.catpoint.security;
+
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorTable;
+import com.udacity.catpoint.security.data.SensorType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SensorTableTest {
+
+    @Test
+    void add_shouldExposeSensorFieldsThroughHandle() {
+        SensorTable table = new SensorTable();
+        Sensor sensor = new Sensor("Front Door", SensorType.DOOR);
+        sensor.setActive(true);
+
+        int handle = table.add(sensor);
+
+        assertEquals(handle, table.handleOf(sensor.getSensorId()));
+        assertEquals("Front Door", table.name(handle));
+        assertEquals(SensorType.DOOR, table.sensorType(handle));
+        assertTrue(table.isActive(handle));
+        assertEquals(1, table.activeCount());
+        assertEquals(sensor, table.view(handle));
+    }
+
+    @Test
+    void setActive_shouldOnlyReportChangesAndKeepCount() {
+        SensorTable table = new SensorTable();
+        int handle = table.add(new Sensor("Window", SensorType.WINDOW));
+
+        assertTrue(table.setActive(handle, true));
+        assertFalse(table.setActive(handle, true));
+        assertEquals(1, table.activeCount());
+        assertTrue(table.setActive(handle, false));
+        assertEquals(0, table.activeCount());
+    }
+
+    @Test
+    void remove_shouldReuseHandleAndDropFromActiveCount() {
+        SensorTable table = new SensorTable();
+        Sensor sensor = new Sensor("Motion", SensorType.MOTION);
+        sensor.setActive(true);
+        int handle = table.add(sensor);
+
+        assertTrue(table.remove(sensor.getSensorId()));
+        assertFalse(table.remove(sensor.getSensorId()));
+        assertEquals(SensorTable.NO_HANDLE, table.handleOf(sensor.getSensorId()));
+        assertEquals(0, table.activeCount());
+        assertEquals(handle, table.add(new Sensor("Other", SensorType.DOOR)));
+    }
+
+    // random adds, removes and toggles checked against a plain map
+    @Test
+    void randomOperations_shouldMatchReferenceMap() {
+        SensorTable table = new SensorTable();
+        Map<UUID, Boolean> expected = new HashMap<>();
+        List<UUID> ids = new ArrayList<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            int op = random.nextInt(3);
+            if (op == 0 || ids.isEmpty()) {
+                UUID id = UUID.randomUUID();
+                boolean active = random.nextBoolean();
+                table.add(id, "sensor-" + random.nextInt(50), SensorType.DOOR, active);
+                expected.put(id, active);
+                ids.add(id);
+            } else if (op == 1) {
+                UUID id = ids.remove(random.nextInt(ids.size()));
+                assertTrue(table.remove(id));
+                expected.remove(id);
+            } else {
+                UUID id = ids.get(random.nextInt(ids.size()));
+                boolean active = random.nextBoolean();
+                table.setActive(table.handleOf(id), active);
+                expected.put(id, active);
+            }
+        }
+
+        assertEquals(expected.size(), table.size());
+        assertEquals(expected.values().stream().filter(a -> a).count(), table.activeCount());
+        expected.forEach((id, active) -> {
+            int handle = table.handleOf(id);
+            assertNotEquals(SensorTable.NO_HANDLE, handle);
+            assertEquals(active, table.isActive(handle));
+        });
+    }
+}
@@ -0,0 +1,164 @@
+package com.udacity.catpoint.security;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.JournaledSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.SecurityService;
+import com.udacity.catpoint.security.telemetry.TelemetryFrame;
+import com.udacity.catpoint.security.telemetry.TelemetryReceiver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Timeout(10)
+public class TelemetryReceiverTest {
+
+    @TempDir
+    Path directory;
+
+    private SecurityService securityService;
+    private TelemetryReceiver receiver;
+    private final Sensor door = new Sensor("Front Door", SensorType.DOOR);
+    private final Sensor window = new Sensor("Kitchen Window", SensorType.WINDOW);
+
+    @BeforeEach
+    void init() throws Exception {
+        securityService = new SecurityService(new JournaledSecurityRepositoryImpl(directory),
+                (image, confidenceThreshold) -> false);
+        securityService.addSensor(door);
+        securityService.addSensor(window);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        receiver = new TelemetryReceiver(securityService, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        receiver.start();
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        receiver.close();
+    }
+
+    @Test
+    void datagramFrames_shouldChangeSensorsAndAlarm() throws Exception {
+        ByteBuffer frames = ByteBuffer.allocate(2 * TelemetryFrame.SIZE);
+        TelemetryFrame.encode(frames, door.getSensorId(), 1, true);
+        TelemetryFrame.encode(frames, window.getSensorId(), 1, true);
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            channel.send(frames.flip(), receiver.getAddress());
+        }
+
+        awaitUntil(() -> receiver.getStats().dispatched() == 2);
+
+        assertTrue(isActive(door));
+        assertTrue(isActive(window));
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    void staleAndUnknownFrames_shouldBeDropped() throws Exception {
+        ByteBuffer frames = ByteBuffer.allocate(4 * TelemetryFrame.SIZE);
+        TelemetryFrame.encode(frames, door.getSensorId(), 5, true);
+        TelemetryFrame.encode(frames, door.getSensorId(), 4, false);
+        TelemetryFrame.encode(frames, door.getSensorId(), 5, false);
+        TelemetryFrame.encode(frames, UUID.randomUUID(), 1, true);
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            channel.send(frames.flip(), receiver.getAddress());
+        }
+
+        //frames are counted as received before their batch is dispatched
+        awaitUntil(() -> receiver.getStats().received() == 4 && receiver.getStats().dispatched() == 1);
+
+        TelemetryReceiver.TelemetryStats stats = receiver.getStats();
+        assertEquals(1, stats.dispatched());
+        assertEquals(2, stats.stale());
+        assertEquals(1, stats.unknownSensor());
+        assertTrue(isActive(door));
+    }
+
+    @Test
+    void framesForRemovedSensor_shouldNotAddItBack() throws Exception {
+        ByteBuffer frame = ByteBuffer.allocate(TelemetryFrame.SIZE);
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            TelemetryFrame.encode(frame, door.getSensorId(), 1, true);
+            channel.send(frame.flip(), receiver.getAddress());
+            awaitUntil(() -> receiver.getStats().dispatched() == 1);
+
+            securityService.removeSensor(door);
+            TelemetryFrame.encode(frame.clear(), door.getSensorId(), 2, false);
+            channel.send(frame.flip(), receiver.getAddress());
+            awaitUntil(() -> receiver.getStats().unknownSensor() == 1);
+        }
+
+        assertEquals(1, receiver.getStats().dispatched());
+        assertFalse(securityService.getSensors().contains(door));
+    }
+
+    // the receiver keeps its own copy of each sensor, which misses changes made through other paths
+    @Test
+    void sensorChangedElsewhere_shouldBeSeenByTheNextFrame() throws Exception {
+        ByteBuffer frame = ByteBuffer.allocate(TelemetryFrame.SIZE);
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            TelemetryFrame.encode(frame, door.getSensorId(), 1, true);
+            channel.send(frame.flip(), receiver.getAddress());
+            awaitUntil(() -> receiver.getStats().dispatched() == 1);
+            assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+
+            //as the HTTP API does, with a copy fresh from the repository
+            Sensor current = securityService.getSensors().stream().filter(door::equals).findFirst().orElseThrow();
+            securityService.changeSensorActivationStatus(current, false);
+            assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+
+            TelemetryFrame.encode(frame.clear(), door.getSensorId(), 2, true);
+            channel.send(frame.flip(), receiver.getAddress());
+            awaitUntil(() -> receiver.getStats().dispatched() == 2);
+        }
+
+        assertTrue(isActive(door));
+        assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    void streamFrames_splitAcrossWrites_shouldBeReassembled() throws Exception {
+        ByteBuffer frames = ByteBuffer.allocate(2 * TelemetryFrame.SIZE);
+        TelemetryFrame.encode(frames, door.getSensorId(), 1, true);
+        TelemetryFrame.encode(frames, door.getSensorId(), 2, false);
+        frames.flip();
+        try (SocketChannel channel = SocketChannel.open(receiver.getAddress())) {
+            channel.write(frames.slice(0, 30));
+            awaitUntil(() -> receiver.getStats().dispatched() == 1);
+            assertTrue(isActive(door));
+            channel.write(frames.slice(30, 2 * TelemetryFrame.SIZE - 30));
+            awaitUntil(() -> receiver.getStats().dispatched() == 2);
+        }
+
+        assertFalse(isActive(door));
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+    }
+
+    private boolean isActive(Sensor sensor) {
+        return securityService.getSensors().stream()
+                .filter(sensor::equals)
+                .findFirst().orElseThrow()
+                .getActive();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        while (!condition.getAsBoolean()) {
+            Thread.sleep(5);
+        }
+    }
+}
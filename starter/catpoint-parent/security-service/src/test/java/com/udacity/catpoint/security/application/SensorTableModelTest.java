@@ -0,0 +1,155 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.JournaledSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorEvent;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.swing.event.TableModelEvent;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives the model without a table or a display. The journaled repository hands out copies of its
+ * sensors, so the rows must follow the sensors they are given rather than the ones they hold.
+ */
+public class SensorTableModelTest {
+
+    @TempDir
+    Path directory;
+
+    private JournaledSecurityRepositoryImpl securityRepository;
+    private SecurityService securityService;
+    private final List<TableModelEvent> events = new ArrayList<>();
+    private final Sensor door = new Sensor("Front Door", SensorType.DOOR);
+    private final Sensor window = new Sensor("Kitchen Window", SensorType.WINDOW);
+
+    @BeforeEach
+    void init() {
+        securityRepository = new JournaledSecurityRepositoryImpl(directory);
+        securityService = new SecurityService(securityRepository, (image, confidenceThreshold) -> false);
+        securityService.addSensor(window);
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        securityRepository.close();
+    }
+
+    @Test
+    void addAndRemove_shouldInsertAndDeleteSingleRowsInOrder() {
+        SensorTableModel model = model();
+
+        model.addSensor(door);
+        assertEquals(2, model.getRowCount());
+        assertEquals("Front Door", model.getValueAt(0, SensorTableModel.NAME_COLUMN));
+        assertEvent(TableModelEvent.INSERT, 0, events.get(0));
+
+        model.removeSensor(window);
+        assertEquals(1, model.getRowCount());
+        assertEvent(TableModelEvent.DELETE, 1, events.get(1));
+        assertEquals(List.of(door), List.copyOf(securityService.getSensors()));
+    }
+
+    @Test
+    void checkingActive_shouldChangeTheSensorThroughTheService() {
+        SensorTableModel model = model();
+
+        model.setValueAt(true, 0, SensorTableModel.ACTIVE_COLUMN);
+
+        assertEquals(1, securityRepository.activeSensorCount());
+        assertTrue(model.isCellEditable(0, SensorTableModel.ACTIVE_COLUMN));
+        assertFalse(model.isCellEditable(0, SensorTableModel.NAME_COLUMN));
+    }
+
+    @Test
+    void sensorChanged_shouldShowTheGivenSensor() {
+        SensorTableModel model = model();
+        Sensor copy = securityService.getSensors().iterator().next();
+
+        securityService.changeSensorActivationStatus(copy, true);
+        model.sensorChanged(copy);
+
+        assertEquals(true, model.getValueAt(0, SensorTableModel.ACTIVE_COLUMN));
+        assertSame(copy, model.getSensor(0));
+        assertEvent(TableModelEvent.UPDATE, 0, events.get(0));
+    }
+
+    // a batch only reports its own sensors, so the panel repaints their rows and nothing else
+    @Test
+    void sensorBatch_shouldUpdateOnlyTheChangedRows() {
+        securityService.addSensor(door);
+        SensorTableModel model = model();
+        List<Sensor> reported = new ArrayList<>();
+        securityService.addStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+                fail("batch should name its sensors");
+            }
+
+            @Override
+            public void sensorStatusChanged(Collection<Sensor> sensors) {
+                reported.addAll(sensors);
+            }
+        });
+        Sensor windowCopy = securityService.getSensors().stream()
+                .filter(sensor -> sensor.equals(window)).findFirst().orElseThrow();
+
+        securityService.changeSensorActivationStatuses(List.of(new SensorEvent(windowCopy, true)));
+        //as SensorPanel does on the EDT
+        reported.forEach(model::sensorChanged);
+
+        assertEquals(List.of(windowCopy), reported);
+        assertEquals(1, events.size());
+        assertEvent(TableModelEvent.UPDATE, 1, events.get(0));
+        assertEquals(true, model.getValueAt(1, SensorTableModel.ACTIVE_COLUMN));
+        assertEquals(false, model.getValueAt(0, SensorTableModel.ACTIVE_COLUMN));
+    }
+
+    @Test
+    void sensorsChanged_shouldReloadTheSensors() {
+        SensorTableModel model = model();
+        Sensor copy = securityService.getSensors().iterator().next();
+        securityService.changeSensorActivationStatuses(List.of(new SensorEvent(copy, true)));
+
+        model.sensorsChanged();
+        assertEquals(true, model.getValueAt(0, SensorTableModel.ACTIVE_COLUMN));
+        assertEvent(TableModelEvent.UPDATE, 0, events.get(0));
+
+        //added without going through the model, for example over the HTTP API
+        securityService.addSensor(door);
+        model.sensorsChanged();
+        assertEquals(2, model.getRowCount());
+        assertEquals("Front Door", model.getValueAt(0, SensorTableModel.NAME_COLUMN));
+    }
+
+    private SensorTableModel model() {
+        SensorTableModel model = new SensorTableModel(securityService);
+        model.addTableModelListener(events::add);
+        return model;
+    }
+
+    private static void assertEvent(int type, int row, TableModelEvent event) {
+        assertEquals(type, event.getType());
+        assertEquals(row, event.getFirstRow());
+        assertEquals(row, event.getLastRow());
+    }
+}